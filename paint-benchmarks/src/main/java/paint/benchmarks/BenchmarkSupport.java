@@ -0,0 +1,81 @@
+/******************************************************************************
+ *  Class:        BenchmarkSupport.java
+ *  Package:      paint.benchmarks
+ *
+ *  PURPOSE:
+ *    Prepares the PAINT runtime for benchmarking inside a JMH fork.
+ *
+ *  DESCRIPTION:
+ *    The code under test reads its settings from {@link PaintConfig} and logs
+ *    through {@link PaintLogger}. In a benchmark fork the configuration is
+ *    pointed at a temporary project directory, so the user's own settings are
+ *    neither read nor modified, and logging is limited to errors.
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.benchmarks;
+
+import paint.shared.config.GenerateSquaresConfig;
+import paint.shared.config.PaintConfig;
+import paint.shared.utils.PaintLogger;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static paint.shared.config.PaintConfig.SECTION_GENERATE_SQUARES;
+import static paint.shared.constants.PaintConstants.NEIGHBOUR_MODE;
+import static paint.shared.constants.PaintConstants.NUMBER_OF_SQUARES_IN_RECORDING;
+
+/**
+ * Shared set-up for all benchmarks.
+ */
+final class BenchmarkSupport {
+
+    private static Path projectPath;
+
+    private BenchmarkSupport() {
+    }
+
+    /**
+     * Initialises configuration and logging once per fork.
+     *
+     * @return the temporary project directory
+     */
+    static synchronized Path initialise() {
+        if (projectPath == null) {
+            try {
+                projectPath = Files.createTempDirectory("paint-benchmarks-");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            projectPath.toFile().deleteOnExit();
+            PaintLogger.setLevel(PaintLogger.Level.ERROR);
+            PaintConfig.initialise(projectPath);
+        }
+        return projectPath;
+    }
+
+    /**
+     * Creates a Generate Squares configuration for a grid of the given size.
+     *
+     * @param numberOfSquares total number of squares in the recording
+     * @param neighbourMode   "Free", "Relaxed" or "Strict"
+     * @return a configuration with the default thresholds
+     */
+    static GenerateSquaresConfig generateSquaresConfig(int numberOfSquares, String neighbourMode) {
+        initialise();
+        PaintConfig.setInt(SECTION_GENERATE_SQUARES, NUMBER_OF_SQUARES_IN_RECORDING, numberOfSquares);
+        PaintConfig.setString(SECTION_GENERATE_SQUARES, NEIGHBOUR_MODE, neighbourMode);
+        return new GenerateSquaresConfig();
+    }
+}
@@ -0,0 +1,54 @@
+/******************************************************************************
+ *  Class:        CalculateTauBenchmark.java
+ *  Package:      paint.benchmarks
+ *
+ *  PURPOSE:
+ *    Measures the Tau fit of {@link CalculateTau} across track-count sizes,
+ *    from a single square to a whole recording.
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import paint.shared.objects.Track;
+import paint.shared.utils.CalculateTau;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the Tau curve fit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgs = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+public class CalculateTauBenchmark {
+
+    @Param({"20", "200", "2000", "20000", "100000"})
+    public int numberOfTracks;
+
+    private List<Track> tracks;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.initialise();
+        tracks = new SyntheticDataset(20, numberOfTracks, 0.0).getTracks();
+    }
+
+    @Benchmark
+    public CalculateTau.CalculateTauResult calculateTau() {
+        return CalculateTau.calculateTau(tracks, 0.1);
+    }
+}
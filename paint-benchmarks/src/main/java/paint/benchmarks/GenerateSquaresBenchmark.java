@@ -0,0 +1,121 @@
+/******************************************************************************
+ *  Class:        GenerateSquaresBenchmark.java
+ *  Package:      paint.benchmarks
+ *
+ *  PURPOSE:
+ *    Measures the per-recording steps of Generate Squares: assigning tracks
+ *    to squares and calculating the square attributes.
+ *
+ *  DESCRIPTION:
+ *    Each benchmark runs on a synthetic recording parameterised by grid size,
+ *    number of tracks and spatial clustering (see {@link SyntheticDataset}).
+ *    Benchmarks that modify the recording get a fresh one for every
+ *    invocation; the set-up is not included in the measurement.
+ *
+ *  RESPONSIBILITIES:
+ *    • SharedSquareUtils.filterTracksInSquare for all squares of a recording.
+ *    • GenerateSquaresProcessor.assignTracksToSquares.
+ *    • CalculateSquareAttributes.calculateSquareAttributes.
+ *    • CalculateSquareAttributes.calculateVariability for all squares.
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import paint.generatesquares.calc.CalculateSquareAttributes;
+import paint.generatesquares.calc.GenerateSquaresProcessor;
+import paint.shared.config.GenerateSquaresConfig;
+import paint.shared.objects.Recording;
+import paint.shared.objects.Square;
+import paint.shared.utils.SharedSquareUtils;
+import tech.tablesaw.api.Table;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for square assignment and attribute calculation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g", "-Djava.awt.headless=true"})
+public class GenerateSquaresBenchmark {
+
+    @Param({"10", "20", "40"})
+    public int squaresInOneDimension;
+
+    @Param({"1000", "10000", "50000"})
+    public int tracksPerRecording;
+
+    @Param({"0.0", "0.8"})
+    public double clustering;
+
+    private Path                  projectPath;
+    private GenerateSquaresConfig config;
+    private SyntheticDataset      dataset;
+    private Table                 tracksTable;
+    private Recording             assigned;
+    private Recording             recording;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        projectPath = BenchmarkSupport.initialise();
+        dataset     = new SyntheticDataset(squaresInOneDimension, tracksPerRecording, clustering);
+        config      = BenchmarkSupport.generateSquaresConfig(dataset.getNumberOfSquares(), "Free");
+        tracksTable = dataset.newTracksTable();
+
+        // A recording with tracks assigned, for the benchmarks that only read squares
+        assigned = dataset.newRecording(config);
+        GenerateSquaresProcessor.assignTracksToSquares(assigned);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        recording = dataset.newRecording(config);
+    }
+
+    @Benchmark
+    public void filterTracksInSquare(Blackhole bh) {
+        int lastRowCol = squaresInOneDimension - 1;
+        for (Square square : assigned.getSquaresOfRecording()) {
+            bh.consume(SharedSquareUtils.filterTracksInSquare(tracksTable, square, lastRowCol));
+        }
+    }
+
+    @Benchmark
+    public Recording assignTracksToSquares() {
+        GenerateSquaresProcessor.assignTracksToSquares(recording);
+        return recording;
+    }
+
+    @Benchmark
+    public Recording assignAndCalculateSquareAttributes() {
+        GenerateSquaresProcessor.assignTracksToSquares(recording);
+        CalculateSquareAttributes.calculateSquareAttributes(projectPath, recording, config);
+        return recording;
+    }
+
+    @Benchmark
+    public void calculateVariability(Blackhole bh) {
+        int numberOfSquares = dataset.getNumberOfSquares();
+        for (Square square : assigned.getSquaresOfRecording()) {
+            Table table = square.getTracksTable();
+            if (table != null && table.rowCount() > 0) {
+                bh.consume(CalculateSquareAttributes.calculateVariability(table, square.getSquareNumber(), numberOfSquares, 10));
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/******************************************************************************
+ *  Class:        PaintBenchmarks.java
+ *  Package:      paint.benchmarks
+ *
+ *  PURPOSE:
+ *    Entry point of the benchmark JAR: runs the JMH benchmarks and stores
+ *    the results as JSON for comparison between releases.
+ *
+ *  DESCRIPTION:
+ *    Accepts the standard JMH command line (benchmark filter, -f, -wi, -i,
+ *    -p param=value, ...). Unless a result file is given with -rff, results
+ *    are written to
+ *        benchmark-results/paint-benchmarks-<version>-<timestamp>.json
+ *    where the version is the implementation version of the JAR.
+ *
+ *  USAGE EXAMPLE:
+ *    java -jar paint-benchmarks-<version>-jar-with-dependencies.jar
+ *    java -jar paint-benchmarks-<version>-jar-with-dependencies.jar TableIO -p numberOfTracks=10000
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Runs the PAINT benchmarks with JSON result output.
+ */
+public final class PaintBenchmarks {
+
+    private static final String RESULTS_DIRECTORY = "benchmark-results";
+
+    private PaintBenchmarks() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        ChainedOptionsBuilder options  = new OptionsBuilder().parent(commandLine);
+
+        if (!commandLine.getResult().hasValue()) {
+            Path resultsDir = Paths.get(RESULTS_DIRECTORY);
+            Files.createDirectories(resultsDir);
+            String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss"));
+            Path   result    = resultsDir.resolve(String.format("paint-benchmarks-%s-%s.json", version(), timestamp));
+            options.result(result.toString());
+            System.out.println("Benchmark results will be written to " + result.toAbsolutePath());
+        }
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static String version() {
+        String version = PaintBenchmarks.class.getPackage().getImplementationVersion();
+        return version != null ? version : "dev";
+    }
+}
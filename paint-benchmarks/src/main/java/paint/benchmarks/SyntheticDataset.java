@@ -0,0 +1,212 @@
+/******************************************************************************
+ *  Class:        SyntheticDataset.java
+ *  Package:      paint.benchmarks
+ *
+ *  PURPOSE:
+ *    Builds reproducible synthetic recordings (tracks and square grids) for the
+ *    JMH benchmarks.
+ *
+ *  DESCRIPTION:
+ *    A dataset is described by three parameters:
+ *      – the number of squares in one dimension of the grid,
+ *      – the number of tracks in the recording,
+ *      – the clustering: the fraction of tracks placed in a few Gaussian
+ *        clusters instead of uniformly over the image.
+ *    Track durations follow an exponential distribution rounded to the frame
+ *    interval, so Tau fitting sees realistic frequency distributions. The
+ *    random generator is seeded, so every fork sees the same data.
+ *
+ *  RESPONSIBILITIES:
+ *    • Create Track entities and the matching Tracks table.
+ *    • Create a Recording with its square grid, as Generate Squares does.
+ *    • Fill squares with plausible density ratio, variability and R² values
+ *      for the visibility filter.
+ *
+ *  USAGE EXAMPLE:
+ *    SyntheticDataset data = new SyntheticDataset(20, 10_000, 0.5);
+ *    Recording recording = data.newRecording(config);
+ *
+ *  DEPENDENCIES:
+ *    – paint.shared.objects.{Recording, Square, Track}
+ *    – paint.shared.io.TrackTableIO
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.benchmarks;
+
+import paint.generatesquares.calc.GenerateSquaresProcessor;
+import paint.shared.config.GenerateSquaresConfig;
+import paint.shared.io.TrackTableIO;
+import paint.shared.objects.Recording;
+import paint.shared.objects.Square;
+import paint.shared.objects.Track;
+import tech.tablesaw.api.Table;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static paint.shared.constants.PaintConstants.IMAGE_HEIGHT;
+import static paint.shared.constants.PaintConstants.IMAGE_WIDTH;
+
+/**
+ * Seeded generator of synthetic recordings for benchmarking.
+ */
+public final class SyntheticDataset {
+
+    public static final String EXPERIMENT_NAME = "Benchmark Experiment";
+    public static final String RECORDING_NAME  = "Benchmark-Recording-1";
+
+    private static final long   SEED                = 20251030L;
+    private static final int    NUMBER_OF_CLUSTERS  = 5;
+    private static final double FRAME_INTERVAL      = 0.05;    // seconds
+    private static final double MEAN_TRACK_DURATION = 0.3;     // seconds
+
+    private final int         squaresInOneDimension;
+    private final List<Track> tracks;
+
+    /**
+     * Creates a dataset.
+     *
+     * @param squaresInOneDimension number of squares along one side of the grid (e.g. 20 for 400 squares)
+     * @param numberOfTracks        number of tracks in the recording
+     * @param clustering            fraction (0 – 1) of the tracks placed in Gaussian clusters
+     */
+    public SyntheticDataset(int squaresInOneDimension, int numberOfTracks, double clustering) {
+        this.squaresInOneDimension = squaresInOneDimension;
+        this.tracks                = createTracks(numberOfTracks, clustering, new Random(SEED));
+    }
+
+    /**
+     * @return total number of squares in the grid
+     */
+    public int getNumberOfSquares() {
+        return squaresInOneDimension * squaresInOneDimension;
+    }
+
+    /**
+     * @return the generated tracks; callers must not modify them
+     */
+    public List<Track> getTracks() {
+        return Collections.unmodifiableList(tracks);
+    }
+
+    /**
+     * Creates fresh copies of the tracks, for benchmarks that modify them.
+     *
+     * @return a new list of new Track objects
+     */
+    public List<Track> copyTracks() {
+        List<Track> copies = new ArrayList<>(tracks.size());
+        for (Track t : tracks) {
+            copies.add(new Track(t.getUniqueKey(), t.getExperimentName(), t.getRecordingName(), t.getTrackId(),
+                                 t.getNumberOfSpots(), t.getNumberOfGaps(), t.getLongestGap(), t.getTrackDuration(),
+                                 t.getTrackXLocation(), t.getTrackYLocation(), t.getTrackDisplacement(),
+                                 t.getTrackMaxSpeed(), t.getTrackMedianSpeed(), t.getDiffusionCoefficient(),
+                                 t.getDiffusionCoefficientExt(), t.getTotalDistance(), t.getConfinementRatio(),
+                                 t.getSquareNumber(), t.getLabelNumber()));
+        }
+        return copies;
+    }
+
+    /**
+     * @return a new Tracks table holding all tracks
+     */
+    public Table newTracksTable() {
+        return new TrackTableIO().toTable(tracks);
+    }
+
+    /**
+     * Creates a recording with its tracks table and an empty square grid, in the
+     * state {@link GenerateSquaresProcessor#assignTracksToSquares(Recording)} expects.
+     *
+     * @param config Generate Squares configuration; its number of squares must match this dataset
+     * @return a new recording
+     */
+    public Recording newRecording(GenerateSquaresConfig config) {
+        Recording recording = new Recording(EXPERIMENT_NAME, RECORDING_NAME, 1, 1,
+                                            "Probe", "Simple", "Cell", "None", 10.0, true, 5.0);
+        recording.setTracks(copyTracks());
+        recording.setTracksTable(newTracksTable());
+        recording.setSquaresOfRecording(GenerateSquaresProcessor.generateSquaresForRecording(recording, config));
+        return recording;
+    }
+
+    /**
+     * Creates a square grid with random visibility attributes. Roughly half of
+     * the squares pass the numeric filter with the default thresholds.
+     *
+     * @return a list of squares in row-major order
+     */
+    public List<Square> newScoredSquares() {
+        Random       random  = new Random(SEED + 1);
+        int          total   = getNumberOfSquares();
+        List<Square> squares = new ArrayList<>(total);
+        double       width   = IMAGE_WIDTH  / squaresInOneDimension;
+        double       height  = IMAGE_HEIGHT / squaresInOneDimension;
+
+        for (int n = 0; n < total; n++) {
+            int row = n / squaresInOneDimension;
+            int col = n % squaresInOneDimension;
+            Square square = new Square(RECORDING_NAME + '-' + n, EXPERIMENT_NAME, RECORDING_NAME, n, row, col,
+                                       col * width, row * height, (col + 1) * width, (row + 1) * height);
+            square.setDensityRatio(random.nextDouble() * 4.0);
+            square.setVariability(random.nextDouble() * 20.0);
+            square.setRSquared(random.nextDouble());
+            squares.add(square);
+        }
+        return squares;
+    }
+
+    // -------------------------------------------------------------------------
+    // Track generation
+    // -------------------------------------------------------------------------
+
+    private static List<Track> createTracks(int numberOfTracks, double clustering, Random random) {
+        double[][] clusters = new double[NUMBER_OF_CLUSTERS][];
+        for (int c = 0; c < NUMBER_OF_CLUSTERS; c++) {
+            clusters[c] = new double[]{random.nextDouble() * IMAGE_WIDTH, random.nextDouble() * IMAGE_HEIGHT};
+        }
+        double clusterSigma = IMAGE_WIDTH / 20.0;
+
+        List<Track> tracks = new ArrayList<>(numberOfTracks);
+        for (int id = 0; id < numberOfTracks; id++) {
+            double x;
+            double y;
+            if (random.nextDouble() < clustering) {
+                double[] centre = clusters[random.nextInt(NUMBER_OF_CLUSTERS)];
+                x = clamp(centre[0] + random.nextGaussian() * clusterSigma, IMAGE_WIDTH);
+                y = clamp(centre[1] + random.nextGaussian() * clusterSigma, IMAGE_HEIGHT);
+            } else {
+                x = random.nextDouble() * IMAGE_WIDTH;
+                y = random.nextDouble() * IMAGE_HEIGHT;
+            }
+
+            int    spots        = 3 + (int) (-Math.log(1.0 - random.nextDouble()) * MEAN_TRACK_DURATION / FRAME_INTERVAL);
+            double duration     = (spots - 1) * FRAME_INTERVAL;
+            double displacement = random.nextDouble() * 0.5;
+            double distance     = displacement + random.nextDouble() * 1.5;
+            double diffusion    = random.nextDouble() * 2.0;
+
+            tracks.add(new Track(RECORDING_NAME + '-' + id, EXPERIMENT_NAME, RECORDING_NAME, id,
+                                 spots, 0, 0, duration, x, y, displacement,
+                                 random.nextDouble() * 5.0, random.nextDouble() * 2.0,
+                                 diffusion, diffusion * 1.1, distance, displacement / distance,
+                                 -1, -1));
+        }
+        return tracks;
+    }
+
+    private static double clamp(double value, double max) {
+        return Math.max(0.0, Math.min(Math.nextDown(max), value));
+    }
+}
@@ -0,0 +1,112 @@
+/******************************************************************************
+ *  Class:        TableIOBenchmark.java
+ *  Package:      paint.benchmarks
+ *
+ *  PURPOSE:
+ *    Measures the Tracks table conversions and the schema-checked CSV read
+ *    and write of {@link BaseTableIO}.
+ *
+ *  DESCRIPTION:
+ *    The Tracks CSV is the largest file PAINT reads and writes, so it is used
+ *    for all I/O benchmarks. The CSV that is read is written once per trial to
+ *    the temporary benchmark project; writes go to a separate file.
+ *
+ *  RESPONSIBILITIES:
+ *    • TrackTableIO.toTable, toEntities and appendInPlace.
+ *    • BaseTableIO.readCsvWithSchema and writeCsv.
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import paint.shared.io.BaseTableIO;
+import paint.shared.io.TrackTableIO;
+import paint.shared.objects.Track;
+import tech.tablesaw.api.Table;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static paint.shared.constants.PaintConstants.TRACKS;
+import static paint.shared.constants.PaintConstants.TRACKS_COLS;
+import static paint.shared.constants.PaintConstants.TRACKS_TYPES;
+
+/**
+ * Benchmarks for Tracks table conversion and CSV I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgs = {"-Xms2g", "-Xmx2g", "-Djava.awt.headless=true"})
+public class TableIOBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int numberOfTracks;
+
+    private final TrackTableIO trackTableIO = new TrackTableIO();
+
+    private List<Track> tracks;
+    private Table       tracksTable;
+    private Path        readPath;
+    private Path        writePath;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path projectPath = BenchmarkSupport.initialise();
+        SyntheticDataset dataset = new SyntheticDataset(20, numberOfTracks, 0.5);
+
+        tracks      = dataset.getTracks();
+        tracksTable = dataset.newTracksTable();
+        readPath    = projectPath.resolve("read-" + numberOfTracks + "-" + TRACKS);
+        writePath   = projectPath.resolve("write-" + numberOfTracks + "-" + TRACKS);
+        trackTableIO.writeCsv(tracksTable, readPath);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(readPath);
+        Files.deleteIfExists(writePath);
+    }
+
+    @Benchmark
+    public Table toTable() {
+        return trackTableIO.toTable(tracks);
+    }
+
+    @Benchmark
+    public List<Track> toEntities() {
+        return trackTableIO.toEntities(tracksTable);
+    }
+
+    @Benchmark
+    public Table appendInPlace() {
+        Table target = trackTableIO.emptyTable();
+        trackTableIO.appendInPlace(target, tracksTable);
+        return target;
+    }
+
+    @Benchmark
+    public Table readCsvWithSchema() throws IOException {
+        return trackTableIO.readCsvWithSchema(readPath, TRACKS, TRACKS_COLS, TRACKS_TYPES, false);
+    }
+
+    @Benchmark
+    public Path writeCsv() throws IOException {
+        trackTableIO.writeCsv(tracksTable, writePath);
+        return writePath;
+    }
+}
@@ -0,0 +1,64 @@
+/******************************************************************************
+ *  Class:        VisibilityFilterBenchmark.java
+ *  Package:      paint.benchmarks
+ *
+ *  PURPOSE:
+ *    Measures {@link SharedSquareUtils#applyVisibilityFilter} in each
+ *    neighbour mode and grid size.
+ *
+ *  DESCRIPTION:
+ *    The squares carry seeded random density ratio, variability and R² values,
+ *    so about half pass the numeric filter and the neighbour pass has real
+ *    work to do. The filter only changes the selection flags, so the same
+ *    squares are reused for every invocation.
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import paint.shared.objects.Square;
+import paint.shared.utils.SharedSquareUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark for the square visibility filter.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgs = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+public class VisibilityFilterBenchmark {
+
+    @Param({"Free", "Relaxed", "Strict"})
+    public String neighbourMode;
+
+    @Param({"10", "20", "40"})
+    public int squaresInOneDimension;
+
+    private List<Square> squares;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkSupport.initialise();
+        squares = new SyntheticDataset(squaresInOneDimension, 0, 0.0).newScoredSquares();
+    }
+
+    @Benchmark
+    public List<Square> applyVisibilityFilter() {
+        SharedSquareUtils.applyVisibilityFilter(squares, 2.0, 10.0, 0.1, neighbourMode);
+        return squares;
+    }
+}
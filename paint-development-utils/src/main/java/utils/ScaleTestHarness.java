@@ -0,0 +1,355 @@
+package utils;
+
+import paint.generatesquares.GenerateSquaresHeadless;
+import paint.shared.config.PaintConfig;
+import paint.shared.objects.Project;
+import paint.shared.utils.PaintLogger;
+import paint.viewer.utils.RecordingLoader;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static paint.shared.constants.PaintConstants.EXPERIMENT_INFO_CSV;
+import static paint.shared.constants.PaintConstants.TRACKS_CSV;
+
+/**
+ * Runs Generate Squares and the Viewer loader on a (synthetic) project and
+ * reports, per phase, the wall time, peak resident memory, GC time and count,
+ * and the number of bytes allocated with the resulting allocation rate.
+ * <p>
+ * If the project directory does not contain any experiments, a project is first
+ * generated with {@link SyntheticProjectGenerator}. Results are printed and
+ * appended to {@code Scale Test Results.csv} in the project directory, so runs
+ * at different scales can be compared.
+ * </p>
+ * <p>
+ * Peak memory is the resident set size from {@code /proc/self/status} where
+ * available, otherwise the used heap and non-heap memory, sampled every
+ * {@value #SAMPLE_MILLIS} ms. Allocated bytes are summed over all threads seen
+ * during the phase and require a HotSpot-compatible JVM.
+ * </p>
+ *
+ * <h3>Command-line usage</h3>
+ * <pre>{@code
+ * java -Xmx8g utils.ScaleTestHarness <project-directory> [<experiments> <recordings-per-experiment> <tracks-per-recording> [seed]]
+ * }</pre>
+ */
+public class ScaleTestHarness {
+
+    private static final long   SAMPLE_MILLIS = 50;
+    private static final String RESULTS_CSV   = "Scale Test Results.csv";
+    private static final String RESULTS_HEADER =
+            "Phase,Experiments,Recordings,Tracks,Wall Time,Peak RSS MB,GC Time,GC Count,Allocated MB,Allocation Rate MB/s,Time Stamp";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.out.println("Usage: java utils.ScaleTestHarness <project-directory> "
+                                       + "[<experiments> <recordings-per-experiment> <tracks-per-recording> [seed]]");
+            return;
+        }
+
+        // Generate Squares and the loader must not open any windows
+        System.setProperty("java.awt.headless", "true");
+
+        Path projectPath = Paths.get(args[0]);
+        List<String> experimentNames = findExperiments(projectPath);
+        if (experimentNames.isEmpty()) {
+            if (args.length < 4) {
+                System.out.println("❌ No experiments in " + projectPath + "; specify the size of the project to generate.");
+                return;
+            }
+            long seed = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+            experimentNames = new SyntheticProjectGenerator(Integer.parseInt(args[1]), Integer.parseInt(args[2]),
+                                                            Integer.parseInt(args[3]), seed).generate(projectPath);
+        }
+
+        PaintConfig.initialise(projectPath);
+        PaintLogger.initialise(projectPath, "Scale Test");
+
+        long[] size = projectSize(projectPath, experimentNames);
+        System.out.printf("Project %s: %d experiment(s), %d recording(s), %d track(s)%n",
+                          projectPath, experimentNames.size(), size[0], size[1]);
+
+        final List<String> experiments = experimentNames;
+        List<Result> results = new ArrayList<>();
+
+        results.add(measure("Generate Squares", () -> GenerateSquaresHeadless.run(projectPath, experiments)));
+
+        AtomicInteger loaded = new AtomicInteger();
+        results.add(measure("Viewer Load", () -> {
+            Project project = new Project(projectPath);
+            project.setExperimentNames(experiments);
+            loaded.set(RecordingLoader.loadFromProject(project, entries -> { }));
+        }));
+        System.out.printf("Viewer loaded %d recording(s)%n", loaded.get());
+
+        PaintLogger.close();
+
+        System.out.println();
+        System.out.println(RESULTS_HEADER);
+        List<String> lines = new ArrayList<>();
+        for (Result result : results) {
+            String line = result.toCsv(experimentNames.size(), size[0], size[1]);
+            System.out.println(line);
+            lines.add(line);
+        }
+        appendResults(projectPath.resolve(RESULTS_CSV), lines);
+        System.out.println("✅ Results appended to " + projectPath.resolve(RESULTS_CSV));
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // MEASUREMENT
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Runs one phase while sampling memory in the background.
+     */
+    private static Result measure(String phase, Runnable body) throws InterruptedException {
+        System.gc();
+        System.out.printf("▶ %s...%n", phase);
+
+        MemorySampler sampler = new MemorySampler();
+        long gcTimeBefore     = gcTime();
+        long gcCountBefore    = gcCount();
+        long start            = System.nanoTime();
+
+        sampler.start();
+        try {
+            body.run();
+        } finally {
+            sampler.finish();
+        }
+        PaintLogger.flush();
+
+        Result result = new Result();
+        result.phase     = phase;
+        result.seconds   = (System.nanoTime() - start) / 1e9;
+        result.peakBytes = sampler.peak;
+        result.gcMillis  = gcTime() - gcTimeBefore;
+        result.gcCount   = gcCount() - gcCountBefore;
+        result.allocated = sampler.allocatedBytes();
+
+        System.out.printf("✔ %s: %.2f s, peak %.0f MB, GC %d ms (%d), allocated %.0f MB%n",
+                          phase, result.seconds, result.peakBytes / 1048576.0,
+                          result.gcMillis, result.gcCount, result.allocated / 1048576.0);
+        return result;
+    }
+
+    private static long gcTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    /**
+     * Samples the resident set size (or used JVM memory) and keeps the peak.
+     * <p>
+     * Also samples the bytes allocated by every thread, so the allocations of
+     * worker threads that end during the phase are counted up to their last
+     * sample. This requires a HotSpot-compatible JVM; otherwise none are reported.
+     * </p>
+     */
+    private static final class MemorySampler extends Thread {
+        private static final Path STATUS = Paths.get("/proc/self/status");
+
+        private final    MemoryMXBean                    memory     = ManagementFactory.getMemoryMXBean();
+        private final    com.sun.management.ThreadMXBean threads    = hotspotThreads();
+        private final    Map<Long, Long>                 baseline   = new HashMap<>();
+        private final    Map<Long, Long>                 allocation = new HashMap<>();
+        private volatile boolean                         running    = true;
+        private volatile long                            peak;
+
+        MemorySampler() {
+            super("ScaleTest-MemorySampler");
+            setDaemon(true);
+            sampleAllocation(baseline);
+        }
+
+        /**
+         * @return bytes allocated since this sampler was created, valid after {@link #finish()}
+         */
+        long allocatedBytes() {
+            long total = 0;
+            for (Map.Entry<Long, Long> entry : allocation.entrySet()) {
+                total += Math.max(0, entry.getValue() - baseline.getOrDefault(entry.getKey(), 0L));
+            }
+            return total;
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                sample();
+                try {
+                    Thread.sleep(SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        void finish() throws InterruptedException {
+            running = false;
+            interrupt();
+            join();
+            sample();
+        }
+
+        private void sample() {
+            long current = residentBytes();
+            if (current <= 0) {
+                current = memory.getHeapMemoryUsage().getUsed() + memory.getNonHeapMemoryUsage().getUsed();
+            }
+            if (current > peak) {
+                peak = current;
+            }
+            synchronized (allocation) {
+                sampleAllocation(allocation);
+            }
+        }
+
+        private void sampleAllocation(Map<Long, Long> target) {
+            if (threads == null) {
+                return;
+            }
+            long[] ids   = threads.getAllThreadIds();
+            long[] bytes = threads.getThreadAllocatedBytes(ids);
+            for (int i = 0; i < ids.length; i++) {
+                if (bytes[i] >= 0) {
+                    target.put(ids[i], bytes[i]);
+                }
+            }
+        }
+
+        private static com.sun.management.ThreadMXBean hotspotThreads() {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                return (com.sun.management.ThreadMXBean) bean;
+            }
+            return null;
+        }
+
+        private static long residentBytes() {
+            if (!Files.isReadable(STATUS)) {
+                return -1;
+            }
+            try {
+                for (String line : Files.readAllLines(STATUS, StandardCharsets.UTF_8)) {
+                    if (line.startsWith("VmRSS:")) {
+                        String[] parts = line.trim().split("\\s+");
+                        return Long.parseLong(parts[1]) * 1024L;     // Reported in kB
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                return -1;
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Measurements of one phase.
+     */
+    private static final class Result {
+        String phase;
+        double seconds;
+        long   peakBytes;
+        long   gcMillis;
+        long   gcCount;
+        long   allocated;
+
+        String toCsv(int experiments, long recordings, long tracks) {
+            double allocatedMb = allocated / 1048576.0;
+            return String.format(Locale.US, "%s,%d,%d,%d,%.3f,%.1f,%.3f,%d,%.1f,%.1f,%s",
+                                 phase, experiments, recordings, tracks, seconds, peakBytes / 1048576.0,
+                                 gcMillis / 1000.0, gcCount, allocatedMb,
+                                 seconds > 0 ? allocatedMb / seconds : 0.0,
+                                 LocalDateTime.now().withNano(0));
+        }
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // PROJECT
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Returns the directories of the project that hold a Tracks file, sorted by name.
+     */
+    private static List<String> findExperiments(Path projectPath) throws IOException {
+        if (!Files.isDirectory(projectPath)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> dirs = Files.list(projectPath)) {
+            return dirs.filter(p -> Files.isRegularFile(p.resolve(TRACKS_CSV)))
+                       .map(p -> p.getFileName().toString())
+                       .sorted()
+                       .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Counts recordings and tracks by counting lines, without parsing the files.
+     */
+    private static long[] projectSize(Path projectPath, List<String> experimentNames) throws IOException {
+        long recordings = 0;
+        long tracks     = 0;
+        for (String experimentName : experimentNames) {
+            Path experimentPath = projectPath.resolve(experimentName);
+            recordings += dataLines(experimentPath.resolve(EXPERIMENT_INFO_CSV));
+            tracks     += dataLines(experimentPath.resolve(TRACKS_CSV));
+        }
+        return new long[]{recordings, tracks};
+    }
+
+    private static long dataLines(Path csv) throws IOException {
+        if (!Files.exists(csv)) {
+            return 0;
+        }
+        try (Stream<String> lines = Files.lines(csv, StandardCharsets.UTF_8)) {
+            return Math.max(0, lines.count() - 1);
+        }
+    }
+
+    private static void appendResults(Path resultsPath, List<String> lines) throws IOException {
+        boolean newFile = !Files.exists(resultsPath);
+        try (BufferedWriter out = Files.newBufferedWriter(resultsPath, StandardCharsets.UTF_8,
+                                                          StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (newFile) {
+                out.write(RESULTS_HEADER);
+                out.newLine();
+            }
+            for (String line : lines) {
+                out.write(line);
+                out.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package utils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static paint.shared.constants.PaintConstants.*;
+
+/**
+ * Writes synthetic Paint projects that look like the output of the TrackMate
+ * step, so Generate Squares and the Viewer can be run on data of any size
+ * without real recordings.
+ * <p>
+ * Every experiment directory gets an {@code Experiment Info.csv}, a
+ * {@code Recordings.csv} and a {@code Tracks.csv}. Tracks are placed in a few
+ * elliptical "cell" hot spots on a sparse uniform background, and track
+ * durations follow an exponential distribution whose mean (Tau) depends on the
+ * condition, rounded to whole frames. Tracks are streamed to disk, so the size
+ * of a project is limited by disk space rather than memory; tens of millions of
+ * tracks are fine.
+ * </p>
+ * <p>
+ * Every recording also gets a small grey placeholder image in
+ * {@code TrackMate Images} and {@code BrightField Images}, so the Viewer
+ * accepts the recordings.
+ * </p>
+ * <p>
+ * The same seed and sizes always produce the same project.
+ * </p>
+ *
+ * <h3>Command-line usage</h3>
+ * <pre>{@code
+ * java utils.SyntheticProjectGenerator <project-directory> <experiments> <recordings-per-experiment> <tracks-per-recording> [seed]
+ * }</pre>
+ *
+ * <h3>Programmatic usage</h3>
+ * <pre>{@code
+ * SyntheticProjectGenerator generator = new SyntheticProjectGenerator(4, 24, 20_000, 42L);
+ * List<String> experiments = generator.generate(Paths.get("/tmp/Scale Project"));
+ * }</pre>
+ */
+public class SyntheticProjectGenerator {
+
+    private static final String   PROBE_TYPE          = "Simple";
+    private static final String[] PROBE_NAMES         = {"1 Mono", "2 Mono", "6 Tri", "Control"};
+    private static final String[] CELL_TYPES          = {"CHO-MR", "BMDC"};
+    private static final int      CONDITIONS          = 4;
+    private static final int      MIN_SPOTS_IN_TRACK  = 3;
+    private static final double   BACKGROUND_FRACTION = 0.15;   // Tracks outside the cells
+    private static final double   SPOT_FACTOR         = 1.3;    // Spots detected per spot in a track
+    private static final int      PLACEHOLDER_SIZE    = 64;     // Pixels of the placeholder images
+
+    private final int  experiments;
+    private final int  recordingsPerExperiment;
+    private final int  tracksPerRecording;
+    private final long seed;
+
+    /**
+     * Creates a generator.
+     *
+     * @param experiments             number of experiments in the project
+     * @param recordingsPerExperiment number of recordings in each experiment
+     * @param tracksPerRecording      average number of tracks per recording (individual recordings vary by ±25%)
+     * @param seed                    seed of the random generator
+     */
+    public SyntheticProjectGenerator(int experiments, int recordingsPerExperiment, int tracksPerRecording, long seed) {
+        this.experiments             = experiments;
+        this.recordingsPerExperiment = recordingsPerExperiment;
+        this.tracksPerRecording      = tracksPerRecording;
+        this.seed                    = seed;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: java utils.SyntheticProjectGenerator <project-directory> <experiments> "
+                                       + "<recordings-per-experiment> <tracks-per-recording> [seed]");
+            return;
+        }
+        Path projectPath = Paths.get(args[0]);
+        long seed        = args.length > 4 ? Long.parseLong(args[4]) : 42L;
+
+        SyntheticProjectGenerator generator = new SyntheticProjectGenerator(
+                Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]), seed);
+
+        long start = System.nanoTime();
+        List<String> experimentNames = generator.generate(projectPath);
+        System.out.printf("✅ Generated %d experiment(s) in %s in %.1f s%n",
+                          experimentNames.size(), projectPath, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes all experiments of the project. Existing files with the same names
+     * are overwritten.
+     *
+     * @param projectPath the project directory, created if necessary
+     * @return the names of the generated experiments
+     * @throws IOException if a file cannot be written
+     */
+    public List<String> generate(Path projectPath) throws IOException {
+        Files.createDirectories(projectPath);
+        Random random = new Random(seed);
+
+        List<String> experimentNames = new ArrayList<>();
+        for (int e = 0; e < experiments; e++) {
+            String experimentName = String.format("25%04d", e + 1);
+            generateExperiment(projectPath.resolve(experimentName), experimentName, new Random(random.nextLong()));
+            experimentNames.add(experimentName);
+            System.out.printf("✔ %s: %d recordings%n", experimentName, recordingsPerExperiment);
+        }
+        return experimentNames;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // EXPERIMENT
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    private void generateExperiment(Path experimentPath, String experimentName, Random random) throws IOException {
+        Path trackMateImagesPath   = experimentPath.resolve("TrackMate Images");
+        Path brightFieldImagesPath = experimentPath.resolve("BrightField Images");
+        Files.createDirectories(trackMateImagesPath);
+        Files.createDirectories(brightFieldImagesPath);
+        byte[] placeholder = placeholderJpeg();
+
+        try (BufferedWriter info       = Files.newBufferedWriter(experimentPath.resolve(EXPERIMENT_INFO_CSV), StandardCharsets.UTF_8);
+             BufferedWriter recordings = Files.newBufferedWriter(experimentPath.resolve(RECORDINGS_CSV), StandardCharsets.UTF_8);
+             BufferedWriter tracks     = Files.newBufferedWriter(experimentPath.resolve(TRACKS_CSV), StandardCharsets.UTF_8)) {
+
+            writeHeader(info, EXPERIMENT_INFO_COLS);
+            writeHeader(recordings, RECORDINGS_COLS);
+            writeHeader(tracks, TRACKS_COLS);
+
+            for (int r = 0; r < recordingsPerExperiment; r++) {
+                int    condition     = r % CONDITIONS + 1;
+                int    replicate     = r / CONDITIONS + 1;
+                String recordingName = String.format("%s-Exp-%d-A%d-%d", experimentName, condition, condition, replicate);
+
+                // Metadata depends on the condition only, as the consistency checks require
+                String metadata = String.join(",",
+                                              experimentName,
+                                              recordingName,
+                                              Integer.toString(condition),
+                                              Integer.toString(replicate),
+                                              PROBE_NAMES[(condition - 1) % PROBE_NAMES.length],
+                                              PROBE_TYPE,
+                                              CELL_TYPES[(condition - 1) / 2 % CELL_TYPES.length],
+                                              "No",
+                                              "1",
+                                              "TRUE",
+                                              "5");
+                info.write(metadata);
+                info.newLine();
+
+                long started = System.nanoTime();
+                int numberOfTracks = (int) Math.round(tracksPerRecording * (0.75 + 0.5 * random.nextDouble()));
+                long spotsInTracks = writeTracks(tracks, experimentName, recordingName, numberOfTracks,
+                                                 meanTrackDuration(condition), random);
+
+                recordings.write(metadata);
+                recordings.write(String.format(Locale.US, ",%d,%d,0,0,0.000,%d,%d,%.3f,%s,false,0.000,0.000,0.000",
+                                               (long) (spotsInTracks * SPOT_FACTOR), numberOfTracks, spotsInTracks,
+                                               (int) FRAMES, (System.nanoTime() - started) / 1e9,
+                                               LocalDateTime.now().withNano(0)));
+                recordings.newLine();
+
+                Files.write(trackMateImagesPath.resolve(recordingName + ".jpg"), placeholder);
+                Files.write(brightFieldImagesPath.resolve(recordingName + "-BF.jpg"), placeholder);
+            }
+        }
+    }
+
+    /**
+     * Mean track duration in seconds; conditions differ so Tau separates them.
+     */
+    private static double meanTrackDuration(int condition) {
+        return 0.15 + 0.05 * condition;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // TRACKS
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Writes the tracks of one recording and returns the number of spots in them.
+     */
+    private static long writeTracks(BufferedWriter out, String experimentName, String recordingName,
+                                    int numberOfTracks, double meanDuration, Random random) throws IOException {
+
+        Cell[] cells      = Cell.randomCells(1 + random.nextInt(3), random);
+        long   spotsTotal = 0;
+        StringBuilder line = new StringBuilder(256);
+
+        for (int id = 0; id < numberOfTracks; id++) {
+            double x;
+            double y;
+            if (random.nextDouble() < BACKGROUND_FRACTION) {
+                x = random.nextDouble() * IMAGE_WIDTH;
+                y = random.nextDouble() * IMAGE_HEIGHT;
+            } else {
+                double[] p = cells[random.nextInt(cells.length)].samplePoint(random);
+                x = p[0];
+                y = p[1];
+            }
+
+            // Exponential duration, rounded to whole frames, at least MIN_SPOTS_IN_TRACK spots
+            int    frames   = (int) Math.round(-Math.log(1.0 - random.nextDouble()) * meanDuration / TIME_INTERVAL);
+            int    spots    = Math.min((int) FRAMES, MIN_SPOTS_IN_TRACK + frames);
+            int    gaps     = random.nextDouble() < 0.2 ? 1 + random.nextInt(2) : 0;
+            double duration = (spots - 1 + gaps) * TIME_INTERVAL;
+
+            double diffusion    = 0.02 + random.nextDouble() * random.nextDouble() * 0.5;
+            double step         = Math.sqrt(4 * diffusion * TIME_INTERVAL);
+            double distance     = step * (spots - 1);
+            double displacement = Math.min(distance, step * Math.sqrt(spots - 1) * (0.5 + random.nextDouble()));
+
+            line.setLength(0);
+            line.append(recordingName).append('-').append(id).append(',')
+                .append(experimentName).append(',')
+                .append(recordingName).append(',')
+                .append(id).append(',')
+                .append(spots).append(',')
+                .append(gaps).append(',')
+                .append(gaps == 0 ? 0 : 1).append(',');
+            appendFixed(line, duration).append(',');
+            appendFixed(line, x).append(',');
+            appendFixed(line, y).append(',');
+            appendFixed(line, displacement).append(',');
+            appendFixed(line, step * (1.5 + random.nextDouble()) / TIME_INTERVAL).append(',');
+            appendFixed(line, step / TIME_INTERVAL).append(',');
+            appendFixed(line, diffusion).append(',');
+            appendFixed(line, diffusion * (0.9 + 0.2 * random.nextDouble())).append(',');
+            appendFixed(line, distance).append(',');
+            appendFixed(line, distance == 0 ? 1.0 : displacement / distance).append(',')
+                .append(-1).append(',')
+                .append(-1);
+
+            out.append(line);
+            out.newLine();
+            spotsTotal += spots;
+        }
+        return spotsTotal;
+    }
+
+    /**
+     * Appends a non-negative value with three decimals, as {@code writeCsv} does,
+     * without the cost of {@code String.format}.
+     */
+    private static StringBuilder appendFixed(StringBuilder sb, double value) {
+        long thousandths = Math.round(value * 1000.0);
+        long whole       = thousandths / 1000;
+        long fraction    = thousandths % 1000;
+        sb.append(whole).append('.');
+        if (fraction < 100) {
+            sb.append('0');
+        }
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction);
+    }
+
+    private static byte[] placeholderJpeg() throws IOException {
+        BufferedImage image = new BufferedImage(PLACEHOLDER_SIZE, PLACEHOLDER_SIZE, BufferedImage.TYPE_BYTE_GRAY);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static void writeHeader(BufferedWriter out, String[] columns) throws IOException {
+        out.write(String.join(",", columns));
+        out.newLine();
+    }
+
+    /**
+     * An elliptical cell in which most tracks are found, denser towards its centre.
+     */
+    private static final class Cell {
+        final double cx;
+        final double cy;
+        final double rx;
+        final double ry;
+        final double angle;
+
+        Cell(double cx, double cy, double rx, double ry, double angle) {
+            this.cx    = cx;
+            this.cy    = cy;
+            this.rx    = rx;
+            this.ry    = ry;
+            this.angle = angle;
+        }
+
+        static Cell[] randomCells(int count, Random random) {
+            Cell[] cells = new Cell[count];
+            for (int i = 0; i < count; i++) {
+                double rx = IMAGE_WIDTH * (0.12 + 0.12 * random.nextDouble());
+                double ry = rx * (0.5 + 0.5 * random.nextDouble());
+                cells[i] = new Cell(IMAGE_WIDTH  * (0.2 + 0.6 * random.nextDouble()),
+                                    IMAGE_HEIGHT * (0.2 + 0.6 * random.nextDouble()),
+                                    rx, ry, random.nextDouble() * Math.PI);
+            }
+            return cells;
+        }
+
+        /**
+         * Samples a point from a Gaussian inside the ellipse, clipped to the image.
+         */
+        double[] samplePoint(Random random) {
+            double u;
+            double v;
+            do {
+                u = random.nextGaussian() * 0.45;
+                v = random.nextGaussian() * 0.45;
+            } while (u * u + v * v > 1.0);
+
+            double dx  = u * rx;
+            double dy  = v * ry;
+            double cos = Math.cos(angle);
+            double sin = Math.sin(angle);
+            double x   = cx + dx * cos - dy * sin;
+            double y   = cy + dx * sin + dy * cos;
+            return new double[]{clip(x, IMAGE_WIDTH), clip(y, IMAGE_HEIGHT)};
+        }
+
+        private static double clip(double value, double max) {
+            return Math.max(0.0, Math.min(max - 0.001, value));
+        }
+    }
+}
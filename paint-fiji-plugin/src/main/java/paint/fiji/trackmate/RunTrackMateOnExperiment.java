@@ -9,7 +9,8 @@
  *
  *  DESCRIPTION:
  *    • Reads and validates the experiment configuration and info files.
- *    • Executes TrackMate on each recording defined in the experiment.
+ *    • Executes TrackMate on each recording defined in the experiment, running
+ *      as many recordings concurrently as the {@link ThreadBudget} allows.
  *    • Monitors progress using a watchdog with timeouts and user cancellation.
  *    • Collects per-recording results and concatenates them into summary CSVs.
  *    • Records execution parameters and logs runtime details.
@@ -29,6 +30,7 @@
  *  DEPENDENCIES:
  *    – paint.fiji.trackmate.RunTrackMateOnRecording
  *    – paint.shared.config.PaintConfig
+ *    – paint.shared.config.PaintConfigSnapshot
  *    – paint.shared.config.TrackMateConfig
  *    – paint.shared.dialogs.ProjectDialog
  *    – paint.shared.utils.PaintLogger
@@ -52,10 +54,12 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 import paint.shared.config.PaintConfig;
+import paint.shared.config.PaintConfigSnapshot;
 import paint.shared.config.TrackMateConfig;
 import paint.shared.dialogs.ProjectDialog;
 import paint.shared.objects.ExperimentInfo;
 import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
 import paint.shared.utils.PaintRuntime;
 
 import java.io.BufferedWriter;
@@ -67,6 +71,10 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static paint.shared.config.TrackMateConfig.trackMateConfigToFile;
 import static paint.shared.constants.PaintConstants.*;
@@ -77,7 +85,8 @@ import static paint.shared.utils.Miscellaneous.formatDuration;
 /**
  * Provides functionality to execute the TrackMate analysis workflow for a single
  * experiment. Each experiment typically contains one or more recordings that
- * are processed sequentially.
+ * are processed sequentially, or a few at a time when the {@link ThreadBudget}
+ * allows more than one concurrent recording.
  * <p>
  * The workflow includes:
  * <ul>
@@ -102,12 +111,15 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
      * @param task                   the {@link Runnable} task to execute
      * @param maxSecondsPerRecording time limit for execution in seconds
      * @param dialog                 optional {@link ProjectDialog} that can signal cancellation
+     * @param showProgress           whether to print progress dots (only meaningful
+     *                               when a single recording runs at a time)
      * @return {@code true} if the task completed successfully;
      * {@code false} if cancelled or timed out
      */
     private static boolean runWithWatchdog(Runnable task,
                                            int maxSecondsPerRecording,
-                                           ProjectDialog dialog) {
+                                           ProjectDialog dialog,
+                                           boolean showProgress) {
 
         Thread thread = new Thread(task, "TrackMateThread");
         thread.start();
@@ -136,6 +148,9 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
             }
 
             // Print progress dots
+            if (!showProgress) {
+                continue;
+            }
             numberOfInterrupts++;
             if (numberOfInterrupts >= 1) {
                 PaintLogger.raw(".");
@@ -168,6 +183,20 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
                                                    Path imagesPath,
                                                    ProjectDialog dialog) {
 
+        // Stage metrics of this experiment are written to "Output/Metrics.json"
+        PaintMetrics metrics = PaintMetrics.begin("TrackMate", experimentPath.getFileName().toString());
+        try {
+            return runExperiment(experimentPath, imagesPath, dialog);
+        } finally {
+            metrics.end();
+            metrics.writeJson(experimentPath.resolve("Output").resolve(METRICS_JSON));
+        }
+    }
+
+    private static boolean runExperiment(Path experimentPath,
+                                         Path imagesPath,
+                                         ProjectDialog dialog) {
+
         // ---------------------------------------------------------------------
         // Initial setup
         // ---------------------------------------------------------------------
@@ -185,10 +214,11 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
                               experimentPath.getParent());
         }
 
-        TrackMateConfig trackMateConfig = new TrackMateConfig();
-        int maxSecondsPerRecording      = trackMateConfig.getMaxNumberOfSecondsPerImage();
+        // Resolve once; every recording of this experiment uses the same values
+        TrackMateConfig trackMateConfig = PaintConfigSnapshot.resolve().getTrackMateConfig();
+        ThreadBudget    threadBudget    = ThreadBudget.from(trackMateConfig);
 
-        PaintLogger.debugf(trackMateConfig.toString());
+        PaintLogger.debugf(trackMateConfig::toString);
         if (verbose) {
             PaintLogger.infof(trackMateConfig.toString());
         }
@@ -223,8 +253,12 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
                           numberRecordingsToProcess == 1 ? "recording" : "recordings",
                           experimentName,
                           projectName);
+        PaintLogger.infof("Thread budget: %s.", threadBudget);
         PaintLogger.blankline();
 
+        // With concurrent recordings, CPU utilisation is only known for the experiment as a whole
+        ThreadBudget.Usage experimentUsage = threadBudget.startExperimentUsage();
+
         // ---------------------------------------------------------------------
         // Process Experiment Info and Recordings
         // ---------------------------------------------------------------------
@@ -256,123 +290,79 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
             ));
             allRecordingsPrinter.printRecord(header);
 
-            // Iterate through experiment records
+            // Read all experiment records up front, so they can be scheduled
+            List<Map<String, String>> rows = new ArrayList<>();
             for (CSVRecord experientInfoRecord : experimentInfoParser) {
-
-                if (dialog != null && dialog.isCancelled()) {
-                    PaintLogger.warnf("User requested cancellation. Stopping.");
-                    break;
+                Map<String, String> row = new LinkedHashMap<>();
+                for (String key : experimentInfoParser.getHeaderMap().keySet()) {
+                    row.put(key, experientInfoRecord.get(key));
                 }
+                rows.add(row);
+            }
 
-                try {
-                    Map<String, String> row = new LinkedHashMap<>();
-                    for (String key : experimentInfoParser.getHeaderMap().keySet()) {
-                        row.put(key, experientInfoRecord.get(key));
-                    }
-
-                    ExperimentInfo experimentInfo           = new ExperimentInfo(row);
-                    String         recordingName            = experimentInfo.getRecordingName();
-                    int            numberOfSpots            = 0;
-                    int            numberOfFilteredTracks   = 0;
-                    int            numberOfSpotsInAllTracks = 0;
-                    int            numberOfFrames           = 0;
-                    int            runTime                  = 0;
-                    String         timeStamp                = "";
-
-                    if (experimentInfo.isProcessFlag()) {
-                        double threshold = experimentInfo.getThreshold();
-
-                        Files.createDirectories(experimentPath.resolve(DIR_BRIGHTFIELD_IMAGES));
-                        Files.createDirectories(experimentPath.resolve(DIR_TRACKMATE_IMAGES));
-
-                        PaintLogger.infof("   Recording '%s' started TrackMate processing.", recordingName);
-
-                        // The following is necessary because of how Java handles variable capture inside lambdas or inner classes.
-                        // We are not changing the variable trackMateResults itself (the reference to the array never changes),
-                        // We pass the address of the array that does not change, but the contents can change.
-                        final TrackMateResults[] trackMateResults = new TrackMateResults[1];
-
-                        // Run TrackMate in a monitored thread
-                        boolean finished = runWithWatchdog(() -> {
-                            try {
-                                trackMateResults[0] = RunTrackMateOnRecording.runTrackMateOnRecording(
-                                        experimentPath, imagesPath, trackMateConfig, threshold, experimentInfo, dialog);
-                            } catch (Exception e) {
-                            }
-                        }, maxSecondsPerRecording, dialog);
-
-                        // Handle failures and cancellations
-                        if (!finished) {
-                            if (dialog != null && dialog.isCancelled()) {
-                                PaintLogger.infof("Recording '%s' cancelled cleanly.", recordingName);
-                                break;
-                            } else {
-                                PaintLogger.errorf("   TrackMate failed or timed out for '%s'.", recordingName);
-                                PaintLogger.blankline();
-                                status = false;
-                                continue;
-                            }
-                        }
+            // Process the recordings, at most threadBudget.getConcurrentRecordings() at a time.
+            // With a single concurrent recording this is the familiar sequential run. Concurrent
+            // recordings take turns for their ImageJ1 calls (see RunTrackMateOnRecording).
+            ExecutorService recordingPool = Executors.newFixedThreadPool(
+                    threadBudget.getConcurrentRecordings(),
+                    runnable -> {
+                        Thread t = new Thread(runnable, "TrackMateRecordingThread");
+                        t.setDaemon(true);
+                        return t;
+                    });
+
+            List<Future<RecordingOutcome>> outcomes = new ArrayList<>();
+            for (Map<String, String> row : rows) {
+                outcomes.add(recordingPool.submit(() -> processRecording(
+                        row, experimentPath, imagesPath, trackMateConfig, threadBudget, dialog)));
+            }
+            recordingPool.shutdown();
 
-                        // Validate processing results
-                        if (trackMateResults[0] == null || !trackMateResults[0].isSuccess()) {
-                            PaintLogger.errorf("   TrackMate failed for '%s'.", recordingName);
-                            status = false;
-                            continue;
-                        }
-                        if (!trackMateResults[0].isCalculationPerformed()) {
-                            numberRecordings++;
-                            continue;
+            // Collect the outcomes in Experiment Info order, so the output is independent of scheduling
+            try {
+                for (int i = 0; i < rows.size(); i++) {
+
+                    RecordingOutcome outcome;
+                    try {
+                        outcome = outcomes.get(i).get();
+                    } catch (ExecutionException e) {
+                        if (dialog == null || !dialog.isCancelled()) {
+                            PaintLogger.errorf("Error processing recording: %s", e.getCause().getMessage());
                         }
+                        continue;
+                    }
 
-                        int durationInSeconds = (int) (trackMateResults[0].getDuration().toMillis() / 1000);
-                        PaintLogger.infof("   Recording '%s' processed in %s.", recordingName, formatDuration(durationInSeconds));
-                        PaintLogger.blankline();
-
-                        Path trackFilePath = experimentPath.resolve(recordingName + "-tracks.csv");
-                        processedTrackFiles.add(trackFilePath);
-                        totalDuration = totalDuration.plus(trackMateResults[0].getDuration());
+                    if (outcome.cancelled) {
+                        break;
+                    }
+                    if (outcome.failed) {
+                        status = false;
+                    }
+                    if (outcome.counted) {
                         numberRecordings++;
-
-                        // Extract output values
-                        numberOfSpots            = trackMateResults[0].getNumberOfSpots();
-                        numberOfFilteredTracks   = trackMateResults[0].getNumberOfFilteredTracks();
-                        numberOfFrames           = trackMateResults[0].getNumberOfFrames();
-                        numberOfSpotsInAllTracks = trackMateResults[0].getNumberOfSpotsInAllTracks();
-                        runTime                  = durationInSeconds;
-                        timeStamp                = LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-
-                    } else if (verbose) {
-                        PaintLogger.infof("   Recording '%s' skipped.", recordingName);
+                    }
+                    if (outcome.trackFilePath != null) {
+                        processedTrackFiles.add(outcome.trackFilePath);
+                        totalDuration = totalDuration.plus(outcome.duration);
+                    }
+                    if (outcome.output == null) {
+                        continue;
                     }
 
                     // Write summary output for this recording
                     List<String> output = new ArrayList<>();
                     for (String key : experimentInfoParser.getHeaderMap().keySet()) {
-                        output.add(row.get(key));
+                        output.add(rows.get(i).get(key));
                     }
-                    output.addAll(Arrays.asList(
-                            String.valueOf(numberOfSpots),
-                            String.valueOf(numberOfFilteredTracks),
-                            "",
-                            "",
-                            "",
-                            String.valueOf(numberOfSpotsInAllTracks),
-                            String.valueOf(numberOfFrames),
-                            String.valueOf(runTime),
-                            timeStamp,
-                            "False",
-                            "",
-                            "",
-                            ""
-                    ));
+                    output.addAll(outcome.output);
                     allRecordingsPrinter.printRecord(output);
-
-                } catch (Exception e) {
-                    if (dialog == null || !dialog.isCancelled()) {
-                        PaintLogger.errorf("Error processing recording: %s", e.getMessage());
-                    }
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                PaintLogger.errorf("Interrupted while waiting for recordings to finish.");
+                status = false;
+            } finally {
+                recordingPool.shutdownNow();
             }
 
         } catch (IOException e) {
@@ -393,7 +383,7 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
 
         // Merge all per-recording tracks into a single CSV
         Path tracksFilePath = experimentPath.resolve(TRACKS_CSV);
-        try {
+        try (PaintMetrics.Timing t = PaintMetrics.time("CSV Write")) {
             concatenateCsvFiles(processedTrackFiles, tracksFilePath, true);
         } catch (IOException e) {
             PaintLogger.errorf("Error concatenating tracks: %s", e.getMessage());
@@ -403,7 +393,198 @@ public class RunTrackMateOnExperiment extends RunTrackMateOnRecording {
         // Log final summary
         PaintLogger.infof("Processed %d recordings in %s.",
                           numberRecordings, formatDuration((int) (totalDuration.toMillis() / 1000)));
+        double experimentUtilisation = experimentUsage.utilisation();
+        if (!Double.isNaN(experimentUtilisation)) {
+            PaintLogger.infof("CPU utilisation of the experiment %.0f%% of %d %s.",
+                              experimentUtilisation * 100,
+                              threadBudget.getTotalThreads(),
+                              threadBudget.getTotalThreads() == 1 ? "thread" : "threads");
+        }
         PaintLogger.blankline();
         return status;
     }
-}
\ No newline at end of file
+    /**
+     * Runs TrackMate for one Experiment Info row in a monitored thread and
+     * prepares the values that are appended to the row in the Recordings file.
+     * Called from the recording pool; at most
+     * {@link ThreadBudget#getConcurrentRecordings()} calls run at the same time.
+     *
+     * @param row             the Experiment Info row of the recording
+     * @param experimentPath  the directory of the experiment
+     * @param imagesPath      the directory containing the image data
+     * @param trackMateConfig the TrackMate configuration
+     * @param threadBudget    the split of the cores between recordings and TrackMate threads
+     * @param dialog          optional {@link ProjectDialog} for user cancellation
+     * @return the {@link RecordingOutcome} for this row
+     */
+    private static RecordingOutcome processRecording(Map<String, String> row,
+                                                     Path experimentPath,
+                                                     Path imagesPath,
+                                                     TrackMateConfig trackMateConfig,
+                                                     ThreadBudget threadBudget,
+                                                     ProjectDialog dialog) {
+
+        if (dialog != null && dialog.isCancelled()) {
+            return RecordingOutcome.cancelled();
+        }
+
+        try {
+            ExperimentInfo experimentInfo = new ExperimentInfo(row);
+            String         recordingName  = experimentInfo.getRecordingName();
+
+            if (!experimentInfo.isProcessFlag()) {
+                if (verbose) {
+                    PaintLogger.infof("   Recording '%s' skipped.", recordingName);
+                }
+                return RecordingOutcome.skipped(summaryValues(0, 0, 0, 0, 0, ""));
+            }
+
+            double threshold = experimentInfo.getThreshold();
+
+            Files.createDirectories(experimentPath.resolve(DIR_BRIGHTFIELD_IMAGES));
+            Files.createDirectories(experimentPath.resolve(DIR_TRACKMATE_IMAGES));
+
+            PaintLogger.infof("   Recording '%s' started TrackMate processing.", recordingName);
+
+            // The following is necessary because of how Java handles variable capture inside lambdas or inner classes.
+            // We are not changing the variable trackMateResults itself (the reference to the array never changes),
+            // We pass the address of the array that does not change, but the contents can change.
+            final TrackMateResults[] trackMateResults = new TrackMateResults[1];
+
+            // Run TrackMate in a monitored thread
+            boolean finished = runWithWatchdog(() -> {
+                try {
+                    trackMateResults[0] = RunTrackMateOnRecording.runTrackMateOnRecording(
+                            experimentPath, imagesPath, trackMateConfig, threshold, experimentInfo, dialog, threadBudget);
+                } catch (Exception e) {
+                }
+            }, trackMateConfig.getMaxNumberOfSecondsPerImage(), dialog, threadBudget.getConcurrentRecordings() == 1);
+
+            // Handle failures and cancellations
+            if (!finished) {
+                if (dialog != null && dialog.isCancelled()) {
+                    PaintLogger.infof("Recording '%s' cancelled cleanly.", recordingName);
+                    return RecordingOutcome.cancelled();
+                } else {
+                    PaintLogger.errorf("   TrackMate failed or timed out for '%s'.", recordingName);
+                    PaintLogger.blankline();
+                    return RecordingOutcome.failed();
+                }
+            }
+
+            // Validate processing results
+            TrackMateResults results = trackMateResults[0];
+            if (results == null || !results.isSuccess()) {
+                PaintLogger.errorf("   TrackMate failed for '%s'.", recordingName);
+                return RecordingOutcome.failed();
+            }
+            if (!results.isCalculationPerformed()) {
+                return RecordingOutcome.notCalculated();
+            }
+
+            int durationInSeconds = (int) (results.getDuration().toMillis() / 1000);
+            if (Double.isNaN(results.getCpuUtilisation())) {
+                PaintLogger.infof("   Recording '%s' processed in %s.", recordingName, formatDuration(durationInSeconds));
+            } else {
+                PaintLogger.infof("   Recording '%s' processed in %s (CPU utilisation %.0f%% of %d %s).",
+                                  recordingName,
+                                  formatDuration(durationInSeconds),
+                                  results.getCpuUtilisation() * 100,
+                                  results.getNumberOfThreads(),
+                                  results.getNumberOfThreads() == 1 ? "thread" : "threads");
+            }
+            PaintLogger.blankline();
+
+            return RecordingOutcome.processed(
+                    summaryValues(results.getNumberOfSpots(),
+                                  results.getNumberOfFilteredTracks(),
+                                  results.getNumberOfSpotsInAllTracks(),
+                                  results.getNumberOfFrames(),
+                                  durationInSeconds,
+                                  LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)),
+                    experimentPath.resolve(recordingName + "-tracks.csv"),
+                    results.getDuration());
+
+        } catch (Exception e) {
+            if (dialog == null || !dialog.isCancelled()) {
+                PaintLogger.errorf("Error processing recording: %s", e.getMessage());
+            }
+            return RecordingOutcome.error();
+        }
+    }
+
+    /**
+     * Builds the TrackMate values that are appended to an Experiment Info row
+     * in the Recordings file.
+     */
+    private static List<String> summaryValues(int numberOfSpots,
+                                              int numberOfFilteredTracks,
+                                              int numberOfSpotsInAllTracks,
+                                              int numberOfFrames,
+                                              int runTime,
+                                              String timeStamp) {
+        return Arrays.asList(
+                String.valueOf(numberOfSpots),
+                String.valueOf(numberOfFilteredTracks),
+                "",
+                "",
+                "",
+                String.valueOf(numberOfSpotsInAllTracks),
+                String.valueOf(numberOfFrames),
+                String.valueOf(runTime),
+                timeStamp,
+                "False",
+                "",
+                "",
+                ""
+        );
+    }
+
+    /**
+     * Result of processing a single Experiment Info row. The experiment
+     * collects these in Experiment Info order to write the Recordings file.
+     */
+    private static final class RecordingOutcome {
+
+        final List<String> output;          // Values appended to the row, null if no row is written
+        final Path         trackFilePath;   // Per-recording tracks file, null if not produced
+        final Duration     duration;        // TrackMate run time, ZERO if not processed
+        final boolean      counted;         // Counts as a processed recording
+        final boolean      failed;          // Marks the experiment as failed
+        final boolean      cancelled;       // User cancelled; stop writing rows
+
+        private RecordingOutcome(List<String> output, Path trackFilePath, Duration duration,
+                                 boolean counted, boolean failed, boolean cancelled) {
+            this.output        = output;
+            this.trackFilePath = trackFilePath;
+            this.duration      = duration;
+            this.counted       = counted;
+            this.failed        = failed;
+            this.cancelled     = cancelled;
+        }
+
+        static RecordingOutcome processed(List<String> output, Path trackFilePath, Duration duration) {
+            return new RecordingOutcome(output, trackFilePath, duration, true, false, false);
+        }
+
+        static RecordingOutcome skipped(List<String> output) {
+            return new RecordingOutcome(output, null, Duration.ZERO, false, false, false);
+        }
+
+        static RecordingOutcome notCalculated() {
+            return new RecordingOutcome(null, null, Duration.ZERO, true, false, false);
+        }
+
+        static RecordingOutcome failed() {
+            return new RecordingOutcome(null, null, Duration.ZERO, false, true, false);
+        }
+
+        static RecordingOutcome error() {
+            return new RecordingOutcome(null, null, Duration.ZERO, false, false, false);
+        }
+
+        static RecordingOutcome cancelled() {
+            return new RecordingOutcome(null, null, Duration.ZERO, false, false, true);
+        }
+    }
+}
@@ -14,6 +14,7 @@
  *    • Performs per-experiment execution of the TrackMate workflow.
  *    • Supports user interruption via {@link ProjectDialog}.
  *    • Reports overall runtime and summary status through {@link PaintLogger}.
+ *    • Writes per-experiment stage metrics and a project roll-up ("Metrics.json").
  *
  *  RESPONSIBILITIES:
  *    • Coordinate experiment-level processing into a project-level workflow.
@@ -49,6 +50,7 @@ package paint.fiji.trackmate;
 
 import paint.shared.dialogs.ProjectDialog;
 import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
 import paint.shared.validate.ValidationResult;
 
 import java.nio.file.Files;
@@ -58,6 +60,7 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 import static paint.shared.constants.PaintConstants.EXPERIMENT_INFO_CSV;
+import static paint.shared.constants.PaintConstants.METRICS_JSON;
 import static paint.shared.utils.Miscellaneous.formatDuration;
 import static paint.shared.validate.ImageRootValidator.validateImageRoot;
 import static paint.shared.validate.ValidationHandler.validateExperiments;
@@ -98,13 +101,33 @@ public class RunTrackMateOnProject extends RunTrackMateOnExperiment {
                                      ProjectDialog dialog,
                                      Path sweepDir) {
 
+        // Stage metrics of all experiments are rolled up in "Metrics.json" in the output root
+        Path         outputRoot = (sweepDir != null) ? sweepDir : projectPath;
+        PaintMetrics metrics    = PaintMetrics.begin("TrackMate", String.valueOf(projectPath.getFileName()));
+        try {
+            return runExperiments(projectPath, imagesPath, experimentNames, dialog, sweepDir);
+        } finally {
+            metrics.end();
+            metrics.writeJson(outputRoot.resolve(METRICS_JSON));
+        }
+    }
+
+    private static boolean runExperiments(Path projectPath,
+                                          Path imagesPath,
+                                          List<String> experimentNames,
+                                          ProjectDialog dialog,
+                                          Path sweepDir) {
+
         boolean status = true;                               // Overall success flag
         LocalDateTime start = LocalDateTime.now();           // Timestamp for runtime measurement
 
         // ---------------------------------------------------------------------
         // Phase 1 – Validate that required images exist
         // ---------------------------------------------------------------------
-        ValidationResult validateResult = validateImageRoot(projectPath, imagesPath, experimentNames);
+        ValidationResult validateResult;
+        try (PaintMetrics.Timing t = PaintMetrics.time("Validate")) {
+            validateResult = validateImageRoot(projectPath, imagesPath, experimentNames);
+        }
         if (!validateResult.isValid()) {
             for (String err : validateResult.getErrors()) {
                 PaintLogger.errorf(err);
@@ -115,7 +138,9 @@ public class RunTrackMateOnProject extends RunTrackMateOnExperiment {
         // ---------------------------------------------------------------------
         // Phase 2 – Validate experiment configuration (Experiment Info.csv)
         // ---------------------------------------------------------------------
-        validateResult = validateExperiments(projectPath, experimentNames, EXPERIMENT_INFO_CSV);
+        try (PaintMetrics.Timing t = PaintMetrics.time("Validate")) {
+            validateResult = validateExperiments(projectPath, experimentNames, EXPERIMENT_INFO_CSV);
+        }
         if (!validateResult.isValid()) {
             for (String err : validateResult.getErrors()) {
                 PaintLogger.errorf(err);
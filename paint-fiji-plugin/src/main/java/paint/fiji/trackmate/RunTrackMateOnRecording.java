@@ -8,11 +8,21 @@
  *    configuration setup, execution, visualization, and CSV result export.
  *
  *  DESCRIPTION:
- *    • Loads the ND2 image and optional brightfield reference.
- *    • Configures and runs TrackMate in deterministic, headless mode.
+ *    • Loads the ND2 image and optional brightfield reference. With a
+ *      detection chunk size configured, the ND2 is opened as a virtual stack
+ *      and detection runs on bounded chunks of frames.
+ *    • Configures and runs TrackMate in deterministic, headless mode, limited
+ *      to the threads granted by the {@link ThreadBudget}.
+ *    • Counts spots while detection runs and rejects recordings that exceed,
+ *      or are extrapolated to clearly exceed, the maximum number of spots.
  *    • Applies spot and track filtering based on configuration parameters.
- *    • Exports per-recording images and tracking data to the experiment directory.
+ *    • Exports per-recording images and tracking data to the experiment directory;
+ *      the track overlay is rendered off-screen by {@link TrackOverlayRenderer}.
  *    • Supports cancellation and safe cleanup of ImagePlus instances.
+ *    • Serialises the ImageJ1 calls (opening, IJ.run, saving and closing
+ *      images) behind one lock, as they share global state such as the
+ *      WindowManager and the macro options. Recordings that run concurrently
+ *      only overlap in detection, tracking and export.
  *
  *  RESPONSIBILITIES:
  *    • Manage end-to-end TrackMate processing for a single recording.
@@ -50,22 +60,23 @@
 package paint.fiji.trackmate;
 
 import fiji.plugin.trackmate.*;
-import fiji.plugin.trackmate.action.CaptureOverlayAction;
 import fiji.plugin.trackmate.detection.LogDetectorFactory;
 import fiji.plugin.trackmate.features.FeatureFilter;
 import fiji.plugin.trackmate.gui.displaysettings.DisplaySettings;
 import fiji.plugin.trackmate.gui.displaysettings.DisplaySettingsIO;
 import fiji.plugin.trackmate.tracking.jaqaman.SparseLAPTrackerFactory;
-import fiji.plugin.trackmate.visualization.hyperstack.HyperStackDisplayer;
 import ij.IJ;
 import ij.ImagePlus;
-import ij.io.FileSaver;
 import loci.common.DebugTools;
+import paint.fiji.trackmate.detection.ChunkedDetection;
+import paint.fiji.trackmate.detection.SpotCountingDetectorFactory;
+import paint.fiji.trackmate.features.PaintTrackFeatureAnalyzer;
 import paint.fiji.tracks.TrackCsvWriter;
 import paint.shared.config.TrackMateConfig;
 import paint.shared.dialogs.ProjectDialog;
 import paint.shared.objects.ExperimentInfo;
 import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
 
 import java.io.File;
 import java.nio.file.Files;
@@ -75,8 +86,9 @@ import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import static paint.shared.config.PaintConfig.getBoolean;
 
 /**
  * Provides functionality to run TrackMate analysis for a single microscopy
@@ -88,6 +100,13 @@ import static paint.shared.config.PaintConfig.getBoolean;
  */
 public class RunTrackMateOnRecording extends TrackMateHeadless {
 
+    /**
+     * Guards every ImageJ1 call. IJ.openImage, IJ.run and IJ.saveAs go through
+     * the WindowManager, the current image and the macro options, none of which
+     * are safe to use from several recordings at once.
+     */
+    private static final Object IMAGEJ_LOCK = new Object();
+
     /**
      * Executes the TrackMate pipeline on a given recording.
      * Loads the ND2 image, applies analysis parameters, and writes results.
@@ -107,14 +126,39 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
                                                            double threshold,
                                                            ExperimentInfo experimentInfoRecord,
                                                            ProjectDialog dialog) {
+        return runTrackMateOnRecording(experimentPath, imagesPath, trackMateConfig, threshold,
+                                       experimentInfoRecord, dialog, ThreadBudget.from(trackMateConfig));
+    }
+
+    /**
+     * Executes the TrackMate pipeline on a given recording using an explicit
+     * thread budget. TrackMate (detector, tracker and feature analyzers) is
+     * limited to {@link ThreadBudget#getThreadsPerRecording()} threads.
+     *
+     * @param experimentPath       directory where results will be written
+     * @param imagesPath           directory containing the ND2 image
+     * @param trackMateConfig      configuration object with TrackMate parameters
+     * @param threshold            threshold for spot detection
+     * @param experimentInfoRecord metadata describing this recording
+     * @param dialog               optional dialog for user cancellation
+     * @param threadBudget         split of the cores between recordings and TrackMate threads
+     * @return {@link TrackMateResults} containing analysis statistics,
+     *         or a cancellation result if aborted
+     */
+    public static TrackMateResults runTrackMateOnRecording(Path experimentPath,
+                                                           Path imagesPath,
+                                                           TrackMateConfig trackMateConfig,
+                                                           double threshold,
+                                                           ExperimentInfo experimentInfoRecord,
+                                                           ProjectDialog dialog,
+                                                           ThreadBudget threadBudget) {
 
-        final boolean debugFlag = getBoolean("Debug", "Debug RunTrackMateOnRecording", false);
         LocalDateTime start = LocalDateTime.now();
+        ThreadBudget.Usage cpuUsage = threadBudget.startRecordingUsage();
         DebugTools.setRootLevel("OFF");
 
         ImagePlus imp            = null;
         ImagePlus impBrightfield = null;
-        ImagePlus capture        = null;
 
         try {
             // -----------------------------------------------------------------
@@ -133,8 +177,15 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
                 return cancelEarly(imp, impBrightfield);
             }
 
-            try {
-                imp = IJ.openImage(nd2File.getAbsolutePath());
+            // With a detection chunk size the recording is opened as a virtual stack and
+            // only one chunk of frames is held in memory during detection
+            final boolean chunkedDetection = trackMateConfig.getDetectionChunkFrames() > 0;
+            try (PaintMetrics.Timing t = PaintMetrics.time("Image Load")) {
+                synchronized (IMAGEJ_LOCK) {
+                    imp = chunkedDetection
+                            ? ChunkedDetection.openVirtual(nd2File)
+                            : IJ.openImage(nd2File.getAbsolutePath());
+                }
             } catch (Exception e) {
                 if (!isCancelled(Thread.currentThread(), dialog)) {
                     PaintLogger.errorf("Could not load image file: %s", nd2File.getAbsolutePath());
@@ -153,11 +204,10 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
                 return cancelEarly(imp, impBrightfield);
             }
 
-            imp.show();
-            IJ.wait(100);
-
-            IJ.run(imp, "Enhance Contrast", "saturated=0.35");
-            IJ.run("Grays");
+            synchronized (IMAGEJ_LOCK) {
+                IJ.run(imp, "Enhance Contrast", "saturated=0.35");
+                IJ.run(imp, "Grays", "");
+            }
 
             // -----------------------------------------------------------------
             // Step 2 – Save Brightfield snapshot
@@ -192,10 +242,12 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
                 PaintLogger.warnf("      Could not open brightfield file: %s",
                                   brightFieldPath == null ? "none found" : brightFieldPath.toString());
             } else {
-                try {
-                    impBrightfield = IJ.openImage(brightFieldPath.toString());
-                    IJ.run(impBrightfield, "Enhance Contrast", "saturated=0.35");
-                    IJ.saveAs(impBrightfield, "Jpeg", jpgPath.toString());
+                try (PaintMetrics.Timing t = PaintMetrics.time("Brightfield Export")) {
+                    synchronized (IMAGEJ_LOCK) {
+                        impBrightfield = IJ.openImage(brightFieldPath.toString());
+                        IJ.run(impBrightfield, "Enhance Contrast", "saturated=0.35");
+                        IJ.saveAs(impBrightfield, "Jpeg", jpgPath.toString());
+                    }
                 } catch (Exception e) {
                     PaintLogger.errorf("Error handling brightfield file: %s", e.getMessage());
                 }
@@ -208,8 +260,15 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
             model.setLogger(Logger.VOID_LOGGER);
 
             Settings settings = new Settings(imp);
-            // Detector configuration
-            settings.detectorFactory   = new LogDetectorFactory();
+            // Detector configuration. The LoG detector is wrapped so spots are counted while
+            // detection runs and oversized recordings are rejected without detecting every frame.
+            @SuppressWarnings({"rawtypes", "unchecked"})
+            SpotCountingDetectorFactory<?> detectorFactory = new SpotCountingDetectorFactory(
+                    new LogDetectorFactory(),
+                    trackMateConfig.getMaxNumberOfSpotsInImage(),
+                    settings.tstart,
+                    settings.tend);
+            settings.detectorFactory   = detectorFactory;
             settings.detectorSettings  = settings.detectorFactory.getDefaultSettings();
             settings.detectorSettings.put("TARGET_CHANNEL",           trackMateConfig.getTargetChannel());
             settings.detectorSettings.put("RADIUS",                   trackMateConfig.getRadius());
@@ -230,15 +289,20 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
             settings.trackerSettings.put("ALLOW_TRACK_MERGING",             trackMateConfig.isAllowTrackMerging());
             settings.trackerSettings.put("MERGING_MAX_DISTANCE",            trackMateConfig.getMergingMaxDistance());
 
-            // Deterministic execution
+            // Deterministic execution. Parallelism is bounded by the thread budget
+            // below; the track export orders tracks on their content, so the
+            // number of threads does not influence the results. The common
+            // ForkJoinPool is not capped here: setting its parallelism property
+            // has no effect once Fiji has created the pool, and Paint does not
+            // use it (see ThreadBudget).
             Locale.setDefault(Locale.US);
             System.setProperty("user.language", "en");
             System.setProperty("user.country", "US");
-            System.setProperty("java.util.concurrent.ForkJoinPool.common.parallelism", "1");  // Disable JVM-level parallelism (limits common pool threads to 1)
-            System.setProperty("trackmate.deterministic", "true");                            // Request deterministic behavior from TrackMate if supportedSo where I
+            System.setProperty("trackmate.deterministic", "true");                            // Request deterministic behavior from TrackMate if supported
 
             settings.addSpotFilter(new FeatureFilter("QUALITY", 0, true));
             settings.addAllAnalyzers();
+            settings.addTrackAnalyzer(new PaintTrackFeatureAnalyzer());
             settings.addTrackFilter(new FeatureFilter("NUMBER_SPOTS", trackMateConfig.getMinNumberOfSpotsInTrack(), true));
 
             // -----------------------------------------------------------------
@@ -250,15 +314,34 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
             }
 
             TrackMate trackmate = new TrackMate(model, settings);
+            trackmate.setNumThreads(threadBudget.getThreadsPerRecording());
+            detectorFactory.attach(trackmate);
             if (!trackmate.checkInput()) {
                 PaintLogger.errorf("TrackMate input check failed: %s", trackmate.getErrorMessage());
                 return cancelEarly(imp, impBrightfield);
             }
 
             PaintLogger.raw("\n                       TrackMate - spot detection:  ");
-            try {
-                if (!trackmate.execDetection()) {
-                    PaintLogger.errorf("TrackMate - execDetection failed: %s", trackmate.getErrorMessage());
+            try (PaintMetrics.Timing t = PaintMetrics.time("Detection")) {
+                boolean detected;
+                String  detectionError;
+                if (chunkedDetection) {
+                    ChunkedDetection detection = new ChunkedDetection(settings,
+                                                                      detectorFactory,
+                                                                      trackMateConfig.getDetectionChunkFrames(),
+                                                                      threadBudget.getThreadsPerRecording());
+                    detected       = detection.execDetection(model);
+                    detectionError = detection.getErrorMessage();
+                } else {
+                    detected       = trackmate.execDetection();
+                    detectionError = trackmate.getErrorMessage();
+                }
+                if (detectorFactory.isAborted()) {
+                    PaintLogger.warnf("   TrackMate - %s", detectorFactory.getAbortReason());
+                    return cancelEarly(imp, impBrightfield);
+                }
+                if (!detected) {
+                    PaintLogger.errorf("TrackMate - execDetection failed: %s", detectionError);
                     return cancelEarly(imp, impBrightfield);
                 }
             } catch (Exception e) {
@@ -281,8 +364,8 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
             }
 
             PaintLogger.raw("\n                       TrackMate - track detection: ");
-            try {
-                if (!trackmate.process()) {
+            try (PaintMetrics.Timing t = PaintMetrics.time("Tracking")) {
+                if (!processDetectedSpots(trackmate)) {
                     PaintLogger.errorf("TrackMate process failed: %s", trackmate.getErrorMessage());
                     return cancelEarly(imp, impBrightfield);
                 }
@@ -298,24 +381,16 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
                 return cancelEarly(imp, impBrightfield);
             }
 
-            final SelectionModel  selectionModel = new SelectionModel(model);
-            final DisplaySettings ds             = DisplaySettingsIO.readUserDefault();
-            ds.setSpotVisible(false);
+            final DisplaySettings ds = DisplaySettingsIO.readUserDefault();
             ds.setTrackColorBy(DisplaySettings.TrackMateObject.TRACKS,
                                trackMateConfig.getTrackColoring());
-            final HyperStackDisplayer displayer = new HyperStackDisplayer(model, selectionModel, imp, ds);
-            displayer.render();
-            displayer.refresh();
 
-            capture = CaptureOverlayAction.capture(imp, -1, 1, null);
+            // Rendered off-screen on a background worker while the tracks CSV is written
             Path imagePath = experimentPath.resolve("TrackMate Images")
                     .resolve(experimentInfoRecord.getRecordingName() + ".jpg");
-            if (capture != null) {
-                if (!new FileSaver(capture).saveAsTiff(String.valueOf(imagePath))) {
-                    PaintLogger.errorf("Failed to save TIFF to: %s", imagePath);
-                }
-            }
-            IJ.wait(2000);
+            Files.createDirectories(imagePath.getParent());
+            Future<?> overlayWritten = new TrackOverlayRenderer(ds)
+                    .renderAsync(model, imp, imagePath);
 
             // -----------------------------------------------------------------
             // Step 6 – Write tracks CSV
@@ -324,7 +399,7 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
             Path tracksPath = experimentPath.resolve(tracksName);
             int totalSpotsInAllTracks = 0;
 
-            try {
+            try (PaintMetrics.Timing t = PaintMetrics.time("CSV Write")) {
                 totalSpotsInAllTracks = TrackCsvWriter.writeTracksCsv(
                         trackmate,
                         experimentInfoRecord.getExperimentName(),
@@ -335,6 +410,12 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
                 PaintLogger.errorf("Failed to write tracks to '%s'", tracksPath);
             }
 
+            try {
+                overlayWritten.get();
+            } catch (ExecutionException e) {
+                PaintLogger.errorf("Failed to save TrackMate image to '%s': %s", imagePath, e.getCause());
+            }
+
             // -----------------------------------------------------------------
             // Step 7 – Summarize and return results
             // -----------------------------------------------------------------
@@ -344,8 +425,16 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
             int numberOfFrames         = imp.getNFrames();
 
             Duration duration = Duration.between(start, LocalDateTime.now());
+            double cpuUtilisation = cpuUsage.utilisation();
+
+            PaintMetrics.count("Recordings", 1);
+            PaintMetrics.count("Frames", numberOfFrames);
+            PaintMetrics.count("Spots", numberOfSpotsTotal);
+            PaintMetrics.count("Tracks", numberOfFilteredTracks);
+            PaintMetrics.record("Spots per Recording", numberOfSpotsTotal);
+            PaintMetrics.record("Recording Seconds", duration.toMillis() / 1000.0);
 
-            closeImages(imp, impBrightfield, capture);
+            closeImages(imp, impBrightfield);
 
             return new TrackMateResults(true,
                                         true,
@@ -354,13 +443,15 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
                                         numberOfFilteredTracks,
                                         numberOfFrames,
                                         duration,
-                                        totalSpotsInAllTracks);
+                                        totalSpotsInAllTracks,
+                                        threadBudget.getThreadsPerRecording(),
+                                        cpuUtilisation);
 
         } catch (Exception e) {
             PaintLogger.errorf("Exception during TrackMate processing: %s", e.getMessage());
             return cancelEarly(imp, impBrightfield);
         } finally {
-            closeImages(imp, impBrightfield, capture);
+            closeImages(imp, impBrightfield);
         }
     }
 
@@ -376,16 +467,35 @@ public class RunTrackMateOnRecording extends TrackMateHeadless {
     }
 
     /**
-     * Safely closes visible images.
+     * Runs the TrackMate steps that follow spot detection, in the order of
+     * {@link TrackMate#process()}, on the spots already in the model.
+     * Calling {@code process()} itself would run the detection a second time.
+     */
+    private static boolean processDetectedSpots(TrackMate trackmate) {
+        return trackmate.execInitialSpotFiltering()
+                && trackmate.computeSpotFeatures(true)
+                && trackmate.execSpotFiltering(true)
+                && trackmate.execTracking()
+                && trackmate.computeEdgeFeatures(true)
+                && trackmate.computeTrackFeatures(true)
+                && trackmate.execTrackFiltering(true);
+    }
+
+    /**
+     * Safely closes visible images and releases the memory of hidden ones.
      */
     private static void closeImages(ImagePlus... images) {
-        for (ImagePlus img : images) {
-            try {
-                if (img != null && img.isVisible()) {
-                    img.close();
+        synchronized (IMAGEJ_LOCK) {
+            for (ImagePlus img : images) {
+                try {
+                    if (img != null && img.isVisible()) {
+                        img.close();
+                    } else if (img != null) {
+                        img.flush();
+                    }
+                } catch (Exception e) {
+                    PaintLogger.warnf("Error closing image: %s", e.getMessage());
                 }
-            } catch (Exception e) {
-                PaintLogger.warnf("Error closing image: %s", e.getMessage());
             }
         }
     }
@@ -0,0 +1,211 @@
+/******************************************************************************
+ *  Class:        ThreadBudget.java
+ *  Package:      paint.fiji.trackmate
+ *
+ *  PURPOSE:
+ *    Divides the available processor cores between concurrently processed
+ *    recordings (inter-recording parallelism) and the threads given to
+ *    TrackMate within a single recording (detector, tracker, analyzers).
+ *
+ *  DESCRIPTION:
+ *    • Reads the total thread count and the maximum number of concurrent
+ *      recordings from {@link TrackMateConfig}.
+ *    • Computes a fixed, reproducible number of threads per recording.
+ *    • Measures process CPU time to report the achieved CPU utilisation
+ *      relative to the threads that were granted. TrackMate runs its work on
+ *      threads of its own, so CPU time cannot be attributed to one recording
+ *      when several run at the same time. Per-recording utilisation is
+ *      therefore only reported when recordings run one at a time; the
+ *      experiment-wide figure is always reported.
+ *    • All parallelism within a recording is bounded by this budget: TrackMate
+ *      through setNumThreads, Paint's own steps through executors of
+ *      {@link #getThreadsPerRecording()} threads. The former cap on the common
+ *      ForkJoinPool (java.util.concurrent.ForkJoinPool.common.parallelism) was
+ *      dropped because it was set per recording, after the common pool had
+ *      already been created by Fiji, and so never took effect; Paint no longer
+ *      uses the common pool.
+ *
+ *  RESPONSIBILITIES:
+ *    • Provide a single place where the thread split is decided.
+ *    • Keep the split independent of run-time load so results are reproducible.
+ *
+ *  USAGE EXAMPLE:
+ *    ThreadBudget budget = ThreadBudget.from(trackMateConfig);
+ *    trackmate.setNumThreads(budget.getThreadsPerRecording());
+ *
+ *    ThreadBudget.Usage usage = budget.startRecordingUsage();
+ *    ...
+ *    PaintLogger.infof("CPU utilisation %.0f%%", usage.utilisation() * 100);
+ *
+ *  DEPENDENCIES:
+ *    – paint.shared.config.TrackMateConfig
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.fiji.trackmate;
+
+import paint.shared.config.TrackMateConfig;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+
+/**
+ * Immutable split of the machine's cores between recordings that run at the
+ * same time and the TrackMate threads inside each recording.
+ * <p>
+ * The split only depends on the configuration and the number of available
+ * processors, never on the momentary load, so repeated runs on the same
+ * machine use the same number of threads for every recording.
+ * </p>
+ */
+public final class ThreadBudget {
+
+    private final int totalThreads;
+    private final int concurrentRecordings;
+    private final int threadsPerRecording;
+
+    /**
+     * Constructs a budget for the given number of cores.
+     *
+     * @param availableProcessors number of processors reported by the JVM
+     * @param numberOfThreads     configured total thread count (0 or less = all processors)
+     * @param maxConcurrent       configured maximum number of concurrent recordings
+     */
+    ThreadBudget(int availableProcessors, int numberOfThreads, int maxConcurrent) {
+        int cores = Math.max(1, availableProcessors);
+
+        this.totalThreads         = numberOfThreads > 0 ? Math.min(numberOfThreads, cores) : cores;
+        this.concurrentRecordings = Math.max(1, Math.min(maxConcurrent, totalThreads));
+        this.threadsPerRecording  = Math.max(1, totalThreads / concurrentRecordings);
+    }
+
+    /**
+     * Creates the thread budget for the current machine from the TrackMate configuration.
+     *
+     * @param trackMateConfig configuration holding the thread settings
+     * @return the resulting {@code ThreadBudget}
+     */
+    public static ThreadBudget from(TrackMateConfig trackMateConfig) {
+        return new ThreadBudget(Runtime.getRuntime().availableProcessors(),
+                                trackMateConfig.getNumberOfThreads(),
+                                trackMateConfig.getMaxConcurrentRecordings());
+    }
+
+    /**
+     * @return total number of threads shared by all recordings
+     */
+    public int getTotalThreads() {
+        return totalThreads;
+    }
+
+    /**
+     * @return maximum number of recordings that are processed at the same time
+     */
+    public int getConcurrentRecordings() {
+        return concurrentRecordings;
+    }
+
+    /**
+     * @return number of threads TrackMate may use within one recording
+     */
+    public int getThreadsPerRecording() {
+        return threadsPerRecording;
+    }
+
+    /**
+     * Starts measuring CPU usage for a recording that runs with this budget.
+     * The process CPU time can only be attributed to the recording when no
+     * other recording runs at the same time; with more than one concurrent
+     * recording the measurement reports NaN.
+     *
+     * @return a running {@link Usage} measurement
+     */
+    public Usage startRecordingUsage() {
+        return new Usage(threadsPerRecording, concurrentRecordings == 1);
+    }
+
+    /**
+     * Starts measuring CPU usage for a whole experiment, relative to the total
+     * number of threads.
+     *
+     * @return a running {@link Usage} measurement
+     */
+    public Usage startExperimentUsage() {
+        return new Usage(totalThreads, true);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d %s, %d concurrent %s, %d %s per recording",
+                             totalThreads,         totalThreads == 1 ? "thread" : "threads",
+                             concurrentRecordings, concurrentRecordings == 1 ? "recording" : "recordings",
+                             threadsPerRecording,  threadsPerRecording == 1 ? "thread" : "threads");
+    }
+
+    // -------------------------------------------------------------------------
+    // CPU utilisation
+    // -------------------------------------------------------------------------
+
+    /**
+     * Measures process CPU time against wall-clock time for a number of
+     * granted threads. Only meaningful when the process does no other work in
+     * the meantime, which is why it can be created as unattributable.
+     */
+    public static final class Usage {
+
+        private final int     threads;
+        private final boolean attributable;
+        private final long    startWallNanos;
+        private final long    startCpuNanos;
+
+        private Usage(int threads, boolean attributable) {
+            this.threads        = threads;
+            this.attributable   = attributable;
+            this.startWallNanos = System.nanoTime();
+            this.startCpuNanos  = attributable ? processCpuNanos() : -1;
+        }
+
+        /**
+         * Returns the fraction of the granted threads that was kept busy since
+         * the measurement started, or {@code Double.NaN} if the JVM does not
+         * expose process CPU time or the CPU time cannot be attributed to this
+         * measurement.
+         *
+         * @return utilisation between 0 and (roughly) 1, or NaN if unavailable
+         */
+        public double utilisation() {
+            if (!attributable) {
+                return Double.NaN;
+            }
+            long cpuNanos  = processCpuNanos();
+            long wallNanos = System.nanoTime() - startWallNanos;
+            if (cpuNanos < 0 || startCpuNanos < 0 || wallNanos <= 0) {
+                return Double.NaN;
+            }
+            return (double) (cpuNanos - startCpuNanos) / ((double) wallNanos * threads);
+        }
+
+        /**
+         * @return number of threads the measurement is relative to
+         */
+        public int getThreads() {
+            return threads;
+        }
+
+        private static long processCpuNanos() {
+            OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+            if (os instanceof com.sun.management.OperatingSystemMXBean) {
+                return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+            }
+            return -1;
+        }
+    }
+}
@@ -110,6 +110,7 @@ public class TrackMateHeadless implements Command {
             }
             PaintConfig.initialise(projectPath);
             PaintConfig.reinitialise(projectPath);  // ensures consistent reload
+            PaintConsoleWindow.setMaxLines(PaintConfig.getInt("Paint Console", "Max Lines", PaintConsoleWindow.DEFAULT_MAX_LINES));
 
             Path imagesPath = Paths.get(PaintPrefs.getString("Path", "Images Root", ""));
 
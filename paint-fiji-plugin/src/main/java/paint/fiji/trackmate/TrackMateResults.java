@@ -58,6 +58,8 @@ public class TrackMateResults {
     private final int      numberOfFrames;
     private final Duration duration;
     private final int      numberOfSpotsInAllTracks;
+    private final int      numberOfThreads;
+    private final double   cpuUtilisation;
 
 
     /**
@@ -112,6 +114,35 @@ public class TrackMateResults {
                             int numberOfFrames,
                             Duration duration,
                             int numberOfSpotsInAllTracks) {
+        this(success, calculationPerformed, numberOfSpots, numberOfTracks, numberOfFilteredTracks,
+             numberOfFrames, duration, numberOfSpotsInAllTracks, 0, Double.NaN);
+    }
+
+    /**
+     * Constructs a fully detailed {@code TrackMateResults} instance including
+     * the thread budget and the CPU utilisation achieved with it.
+     *
+     * @param success                  true if the analysis succeeded
+     * @param calculationPerformed     true if processing was executed
+     * @param numberOfSpots            number of detected spots
+     * @param numberOfTracks           total number of identified tracks
+     * @param numberOfFilteredTracks   number of tracks after filtering
+     * @param numberOfFrames           total number of frames analyzed
+     * @param duration                 runtime duration of analysis
+     * @param numberOfSpotsInAllTracks total number of spots in all tracks
+     * @param numberOfThreads          number of threads granted to TrackMate
+     * @param cpuUtilisation           fraction of the granted threads kept busy, NaN if unknown
+     */
+    public TrackMateResults(boolean success,
+                            boolean calculationPerformed,
+                            int numberOfSpots,
+                            int numberOfTracks,
+                            int numberOfFilteredTracks,
+                            int numberOfFrames,
+                            Duration duration,
+                            int numberOfSpotsInAllTracks,
+                            int numberOfThreads,
+                            double cpuUtilisation) {
         this.success                  = success;
         this.calculationPerformed     = calculationPerformed;
         this.numberOfSpots            = numberOfSpots;
@@ -120,6 +151,8 @@ public class TrackMateResults {
         this.numberOfFrames           = numberOfFrames;
         this.duration                 = duration;
         this.numberOfSpotsInAllTracks = numberOfSpotsInAllTracks;
+        this.numberOfThreads          = numberOfThreads;
+        this.cpuUtilisation           = cpuUtilisation;
     }
 
     // -------------------------------------------------------------------------
@@ -182,6 +215,20 @@ public class TrackMateResults {
         return numberOfSpotsInAllTracks;
     }
 
+    /**
+     * @return number of threads granted to TrackMate for this recording
+     */
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    /**
+     * @return fraction of the granted threads kept busy, or NaN if unknown
+     */
+    public double getCpuUtilisation() {
+        return cpuUtilisation;
+    }
+
     // -------------------------------------------------------------------------
     // Representation
     // -------------------------------------------------------------------------
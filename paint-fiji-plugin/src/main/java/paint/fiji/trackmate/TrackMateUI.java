@@ -45,6 +45,7 @@ import org.scijava.command.Command;
 import org.scijava.plugin.Plugin;
 import paint.generatesquares.GenerateSquaresHeadless;
 import paint.shared.config.PaintConfig;
+import paint.shared.config.PaintConfigSnapshot;
 import paint.shared.dialogs.ProjectDialog;
 import paint.shared.utils.PaintPrefs;
 import paint.shared.utils.JarInfoLogger;
@@ -114,6 +115,7 @@ public class TrackMateUI extends RunTrackMateOnProjectSweep implements Command {
         // ---------------------------------------------------------------------
         PaintConsoleWindow.createConsoleFor("TrackMate");
         PaintConfig.initialise(projectPath);
+        PaintConsoleWindow.setMaxLines(PaintConfig.getInt("Paint Console", "Max Lines", PaintConsoleWindow.DEFAULT_MAX_LINES));
 
         String debugLevel = PaintPrefs.getString("Runtime", "Log Level", "INFO");
         PaintLogger.setLevel(debugLevel);
@@ -154,7 +156,8 @@ public class TrackMateUI extends RunTrackMateOnProjectSweep implements Command {
             dialog.setOkEnabled(false);
 
             try {
-                boolean debug = PaintConfig.getBoolean("Debug", "Debug RunTrackMateOnProject", false);
+                PaintConfigSnapshot config = PaintConfigSnapshot.resolve();
+                boolean debug = config.isDebugRunTrackMateOnProject();
                 Path imagesPath = project.getImagesRootPath();
                 Path currentProjectRoot = project.getProjectRootPath();
 
@@ -179,7 +182,7 @@ public class TrackMateUI extends RunTrackMateOnProjectSweep implements Command {
                     success = RunTrackMateOnProject.runProject(
                             projectPath, imagesPath, project.getExperimentNames(), dialog, null);
 
-                    if (success && PaintConfig.getBoolean("TrackMate", "Run Generate Squares After", true)) {
+                    if (success && config.getTrackMateConfig().isRunGenerateSquaresAfter()) {
                         PaintLogger.infof("TrackMate finished successfully. Starting Generate Squares...");
                         PaintLogger.blankline();
                         GenerateSquaresHeadless.run(currentProjectRoot, project.getExperimentNames());
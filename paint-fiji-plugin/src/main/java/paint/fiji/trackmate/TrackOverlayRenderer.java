@@ -0,0 +1,293 @@
+/******************************************************************************
+ *  Class:        TrackOverlayRenderer.java
+ *  Package:      paint.fiji.trackmate
+ *
+ *  PURPOSE:
+ *    Draws the TrackMate track overlay of a recording off-screen, straight
+ *    from the TrackMate {@link Model}, and writes it as a compressed JPEG to
+ *    the "TrackMate Images" directory.
+ *
+ *  DESCRIPTION:
+ *    • Renders the first frame of the recording, using its display range,
+ *      as a grey background.
+ *    • Colours every visible track by the configured track feature, using the
+ *      colormap, range and line thickness of the TrackMate display settings.
+ *    • Draws all tracks with one Graphics2D on a single thread: Java2D does
+ *      not guarantee that concurrent drawing into one image is safe.
+ *    • Renders and encodes on a background worker so the recording pipeline
+ *      can continue with the tracks CSV in the meantime.
+ *
+ *  RESPONSIBILITIES:
+ *    • Replace HyperStackDisplayer + CaptureOverlayAction, which needed a
+ *      visible window and the event dispatch thread.
+ *    • Produce the TrackMate image without a display.
+ *
+ *  USAGE EXAMPLE:
+ *    TrackOverlayRenderer renderer = new TrackOverlayRenderer(ds);
+ *    Future<?> written = renderer.renderAsync(model, imp, imagePath);
+ *    ...
+ *    written.get();
+ *
+ *  DEPENDENCIES:
+ *    – fiji.plugin.trackmate.Model
+ *    – fiji.plugin.trackmate.gui.displaysettings.DisplaySettings
+ *    – ij.ImagePlus
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.fiji.trackmate;
+
+import fiji.plugin.trackmate.FeatureModel;
+import fiji.plugin.trackmate.Model;
+import fiji.plugin.trackmate.Spot;
+import fiji.plugin.trackmate.TrackModel;
+import fiji.plugin.trackmate.gui.displaysettings.DisplaySettings;
+import ij.ImagePlus;
+import ij.measure.Calibration;
+import ij.process.ImageProcessor;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import paint.shared.utils.PaintMetrics;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.Paint;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Off-screen renderer for the track overlay image of a recording.
+ */
+public final class TrackOverlayRenderer {
+
+    /**
+     * JPEG quality of the written images (0 – 1).
+     */
+    public static final float JPEG_QUALITY = 0.9f;
+
+    /**
+     * Workers that render and encode overlay images in the background.
+     */
+    private static final ExecutorService OUTPUT_POOL = Executors.newFixedThreadPool(2, r -> {
+        Thread t = new Thread(r, "TrackOverlayRenderer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final DisplaySettings displaySettings;
+
+    /**
+     * Creates a renderer.
+     *
+     * @param displaySettings TrackMate display settings (track colouring, colormap, line thickness)
+     */
+    public TrackOverlayRenderer(DisplaySettings displaySettings) {
+        this.displaySettings = displaySettings;
+    }
+
+    /**
+     * Renders the overlay and writes it as a JPEG on a background worker.
+     * <p>
+     * The background frame is read from {@code imp} before this method
+     * returns, so the image may be closed afterwards. The model must not be
+     * modified until the returned future has completed.
+     * </p>
+     *
+     * @param model     TrackMate model holding the tracks
+     * @param imp       recording the tracks were detected in
+     * @param imagePath destination JPEG file
+     * @return future that completes when the file has been written
+     */
+    public Future<?> renderAsync(Model model, ImagePlus imp, Path imagePath) {
+        final BufferedImage background  = background(imp);
+        final Calibration   calibration = imp.getCalibration();
+        return OUTPUT_POOL.submit(() -> {
+            try (PaintMetrics.Timing t = PaintMetrics.time("Rendering")) {
+                writeJpeg(render(model, background, calibration), imagePath, JPEG_QUALITY);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Renders the first frame of the recording with the track overlay, on the
+     * calling thread.
+     *
+     * @param model       TrackMate model holding the tracks
+     * @param background  grey background image
+     * @param calibration spatial calibration of the recording
+     * @return a new RGB image with the overlay drawn on the background
+     */
+    public BufferedImage render(Model model, BufferedImage background, Calibration calibration) {
+        final int width  = background.getWidth();
+        final int height = background.getHeight();
+
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        final TrackLines    lines = trackLines(model, calibration);
+
+        final Graphics2D g = image.createGraphics();
+        try {
+            g.drawImage(background, 0, 0, null);
+            g.setStroke(new BasicStroke((float) displaySettings.getLineThickness(),
+                                        BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            if (displaySettings.getUseAntialiasing()) {
+                g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            }
+            lines.draw(g);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Reads the first frame of the recording as an 8-bit grey image, scaled
+     * with the display range of the recording.
+     *
+     * @param imp the recording
+     * @return the background image
+     */
+    public static BufferedImage background(ImagePlus imp) {
+        ImageProcessor ip = imp.getStack().getProcessor(imp.getStackIndex(1, 1, 1));
+        ip.setMinAndMax(imp.getDisplayRangeMin(), imp.getDisplayRangeMax());
+        return ip.getBufferedImage();
+    }
+
+    /**
+     * Writes an image as a JPEG with the given quality. The file is written
+     * under a temporary name and then moved in place.
+     *
+     * @param image     the image to write
+     * @param imagePath destination file
+     * @param quality   JPEG quality (0 – 1)
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeJpeg(BufferedImage image, Path imagePath, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+
+        Path tmp = imagePath.resolveSibling(imagePath.getFileName() + ".tmp");
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(tmp.toFile())) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        Files.move(tmp, imagePath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    // -------------------------------------------------------------------------
+    // Track geometry
+    // -------------------------------------------------------------------------
+
+    /**
+     * Collects the edges of all visible tracks as pixel-space line segments,
+     * in track ID order, with the colour of their track.
+     */
+    private TrackLines trackLines(Model model, Calibration calibration) {
+        final TrackModel   trackModel   = model.getTrackModel();
+        final FeatureModel featureModel = model.getFeatureModel();
+        final String       feature      = displaySettings.getTrackColorByFeature();
+        final double       min          = displaySettings.getTrackMin();
+        final double       max          = displaySettings.getTrackMax();
+
+        final double pixelWidth  = calibration == null || calibration.pixelWidth  <= 0 ? 1.0 : calibration.pixelWidth;
+        final double pixelHeight = calibration == null || calibration.pixelHeight <= 0 ? 1.0 : calibration.pixelHeight;
+
+        List<Integer> trackIDs = new ArrayList<>(trackModel.trackIDs(true));
+        trackIDs.sort(null);
+
+        TrackLines lines = new TrackLines();
+        for (Integer trackId : trackIDs) {
+            Paint colour = trackColour(featureModel.getTrackFeature(trackId, feature), min, max);
+            for (DefaultWeightedEdge edge : trackModel.trackEdges(trackId)) {
+                Spot source = trackModel.getEdgeSource(edge);
+                Spot target = trackModel.getEdgeTarget(edge);
+
+                // TrackMate positions are pixel centres; pixel i covers [i, i + 1)
+                lines.add(source.getDoublePosition(0) / pixelWidth  + 0.5,
+                          source.getDoublePosition(1) / pixelHeight + 0.5,
+                          target.getDoublePosition(0) / pixelWidth  + 0.5,
+                          target.getDoublePosition(1) / pixelHeight + 0.5,
+                          colour);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Maps a track feature value onto the colormap, or returns the uniform
+     * track colour if the feature is missing.
+     */
+    private Paint trackColour(Double value, double min, double max) {
+        if (value == null || value.isNaN()) {
+            return displaySettings.getTrackUniformColor();
+        }
+        double range = max - min;
+        double alpha = range <= 0 ? 0.0 : Math.max(0.0, Math.min(1.0, (value - min) / range));
+        Paint paint = displaySettings.getColormap().getPaint(alpha);
+        return paint == null ? Color.YELLOW : paint;
+    }
+
+    /**
+     * Line segments in primitive arrays, drawn in insertion order.
+     */
+    private static final class TrackLines {
+
+        private double[] coords  = new double[1024];
+        private Paint[]  colours = new Paint[256];
+        private int      size;
+
+        void add(double x1, double y1, double x2, double y2, Paint colour) {
+            if (size == colours.length) {
+                coords  = Arrays.copyOf(coords,  coords.length * 2);
+                colours = Arrays.copyOf(colours, colours.length * 2);
+            }
+            int i = size * 4;
+            coords[i]     = x1;
+            coords[i + 1] = y1;
+            coords[i + 2] = x2;
+            coords[i + 3] = y2;
+            colours[size++] = colour;
+        }
+
+        /**
+         * Draws all segments.
+         */
+        void draw(Graphics2D g) {
+            Line2D.Double line = new Line2D.Double();
+            for (int s = 0; s < size; s++) {
+                int i = s * 4;
+                line.setLine(coords[i], coords[i + 1], coords[i + 2], coords[i + 3]);
+                g.setPaint(colours[s]);
+                g.draw(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/******************************************************************************
+ *  Class:        ChunkedDetection.java
+ *  Package:      paint.fiji.trackmate.detection
+ *
+ *  PURPOSE:
+ *    Runs TrackMate spot detection on a recording that is opened as a virtual
+ *    stack, a bounded chunk of frames at a time, so peak memory depends on the
+ *    chunk size rather than on the length of the recording.
+ *
+ *  DESCRIPTION:
+ *    • Opens ND2 recordings as a Bio-Formats virtual stack.
+ *    • Copies one chunk of frames at a time into memory and runs the
+ *      frame-by-frame detector on it with its own TrackMate instance.
+ *    • Renumbers the detected spots to their frame in the recording and
+ *      collects them in the spot collection of the recording's model.
+ *
+ *  RESPONSIBILITIES:
+ *    • Produce the same spot collection as whole-stack detection.
+ *    • Keep the running spot count and early abort of
+ *      {@link SpotCountingDetectorFactory} working across chunks.
+ *
+ *  USAGE EXAMPLE:
+ *    ImagePlus imp = ChunkedDetection.openVirtual(nd2File);
+ *    Settings settings = new Settings(imp);
+ *    ...
+ *    ChunkedDetection detection = new ChunkedDetection(settings, factory, 200, threads);
+ *    if (!detection.execDetection(model)) { ... detection.getErrorMessage() ... }
+ *
+ *  DEPENDENCIES:
+ *    – fiji.plugin.trackmate.*
+ *    – loci.plugins.BF (Bio-Formats)
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-28
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.fiji.trackmate.detection;
+
+import fiji.plugin.trackmate.Logger;
+import fiji.plugin.trackmate.Model;
+import fiji.plugin.trackmate.Settings;
+import fiji.plugin.trackmate.Spot;
+import fiji.plugin.trackmate.SpotCollection;
+import fiji.plugin.trackmate.TrackMate;
+import ij.ImagePlus;
+import ij.plugin.Duplicator;
+import loci.formats.FormatException;
+import loci.plugins.BF;
+import loci.plugins.in.ImporterOptions;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Frame-chunked spot detection on a virtual stack.
+ * <p>
+ * The LoG detector works on one frame at a time, so detecting a chunk of
+ * frames gives exactly the spots whole-stack detection finds in those frames.
+ * Chunks therefore do not need to overlap: gap closing happens during
+ * tracking, which runs afterwards on the complete spot collection.
+ * </p>
+ * <p>
+ * The resulting spots carry the same FRAME, POSITION_T and VISIBILITY values
+ * as spots from {@link TrackMate#execDetection()} on the whole recording, so
+ * the remaining TrackMate steps can run unchanged on the recording's settings.
+ * </p>
+ */
+public class ChunkedDetection {
+
+    private final Settings                       settings;
+    private final SpotCountingDetectorFactory<?> detectorFactory;
+    private final int                            chunkFrames;
+    private final int                            numThreads;
+
+    private String errorMessage;
+
+    /**
+     * Creates a chunked detection for a recording.
+     *
+     * @param settings        TrackMate settings of the (virtual) recording
+     * @param detectorFactory counting detector factory shared by all chunks
+     * @param chunkFrames     maximum number of frames held in memory at once
+     * @param numThreads      number of threads used for detection within a chunk
+     */
+    public ChunkedDetection(Settings settings,
+                            SpotCountingDetectorFactory<?> detectorFactory,
+                            int chunkFrames,
+                            int numThreads) {
+        this.settings        = settings;
+        this.detectorFactory = detectorFactory;
+        this.chunkFrames     = Math.max(1, chunkFrames);
+        this.numThreads      = Math.max(1, numThreads);
+    }
+
+    /**
+     * Opens an image file as a Bio-Formats virtual stack; planes are read from
+     * disk when they are accessed.
+     *
+     * @param imageFile the ND2 (or other Bio-Formats supported) file
+     * @return the virtual image, or {@code null} if the file could not be read
+     * @throws IOException     if the file cannot be read
+     * @throws FormatException if the file format is not supported
+     */
+    public static ImagePlus openVirtual(File imageFile) throws IOException, FormatException {
+        ImporterOptions options = new ImporterOptions();
+        options.setId(imageFile.getAbsolutePath());
+        options.setVirtual(true);
+        options.setQuiet(true);
+        ImagePlus[] images = BF.openImagePlus(options);
+        return images == null || images.length == 0 ? null : images[0];
+    }
+
+    /**
+     * Detects the spots in all frames between {@code settings.tstart} and
+     * {@code settings.tend} and sets them on the model.
+     *
+     * @param model the model of the recording; its spots are replaced
+     * @return {@code true} on success, {@code false} if detection failed or was aborted
+     */
+    public boolean execDetection(Model model) {
+        final ImagePlus imp = settings.imp;
+        final int nChannels = imp.getNChannels();
+        final int nSlices   = imp.getNSlices();
+
+        final SpotCollection spots = new SpotCollection();
+        spots.setNumThreads(numThreads);
+
+        for (int chunkStart = settings.tstart; chunkStart <= settings.tend; chunkStart += chunkFrames) {
+            if (Thread.currentThread().isInterrupted()) {
+                errorMessage = "Detection interrupted.";
+                return false;
+            }
+            final int chunkEnd = Math.min(chunkStart + chunkFrames - 1, settings.tend);
+
+            // Only the frames of this chunk are read into memory
+            ImagePlus chunk = new Duplicator().run(imp, 1, nChannels, 1, nSlices, chunkStart + 1, chunkEnd + 1);
+            try {
+                if (!detectChunk(chunk, chunkStart, chunkEnd, spots)) {
+                    return false;
+                }
+            } finally {
+                chunk.close();
+            }
+        }
+
+        model.setSpots(spots, true);
+        return true;
+    }
+
+    /**
+     * @return the reason the last detection failed, or {@code null}
+     */
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    /**
+     * Runs detection on one chunk and adds its spots, renumbered to recording
+     * frames, to {@code spots}.
+     */
+    private boolean detectChunk(ImagePlus chunk, int chunkStart, int chunkEnd, SpotCollection spots) {
+        Settings chunkSettings = new Settings(chunk);
+        chunkSettings.setRoi(settings.getRoi());
+        chunkSettings.zstart           = settings.zstart;
+        chunkSettings.zend             = settings.zend;
+        chunkSettings.detectorFactory  = detectorFactory;
+        chunkSettings.detectorSettings = settings.detectorSettings;
+
+        Model chunkModel = new Model();
+        chunkModel.setLogger(Logger.VOID_LOGGER);
+
+        TrackMate chunkTrackMate = new TrackMate(chunkModel, chunkSettings);
+        chunkTrackMate.setNumThreads(numThreads);
+        detectorFactory.setFrameOffset(chunkStart);
+        detectorFactory.attach(chunkTrackMate);
+
+        boolean detected = chunkTrackMate.execDetection();
+        if (detectorFactory.isAborted()) {
+            errorMessage = detectorFactory.getAbortReason();
+            return false;
+        }
+        if (!detected) {
+            errorMessage = chunkTrackMate.getErrorMessage();
+            return false;
+        }
+
+        // Frame numbers and times relative to the recording, as whole-stack detection sets them
+        SpotCollection chunkSpots = chunkModel.getSpots();
+        for (int frame = chunkStart; frame <= chunkEnd; frame++) {
+            List<Spot> frameSpots = new ArrayList<>();
+            for (Spot spot : chunkSpots.iterable(frame - chunkStart, false)) {
+                spot.putFeature(Spot.POSITION_T, frame * settings.dt);
+                frameSpots.add(spot);
+            }
+            spots.put(frame, frameSpots);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,391 @@
+/******************************************************************************
+ *  Class:        SpotCountingDetectorFactory.java
+ *  Package:      paint.fiji.trackmate.detection
+ *
+ *  PURPOSE:
+ *    Wraps a TrackMate spot detector factory so that spots are counted frame
+ *    by frame while detection is running, allowing a recording with too many
+ *    spots to be rejected as soon as that becomes clear.
+ *
+ *  DESCRIPTION:
+ *    • Delegates all factory behaviour to the wrapped detector factory.
+ *    • Wraps every per-frame detector and adds its spot count to a running
+ *      total once the frame has been processed.
+ *    • Cancels TrackMate as soon as the running total exceeds the limit.
+ *    • Extrapolates from the first frames of the recording and cancels early
+ *      when the expected total clearly exceeds the limit.
+ *
+ *  RESPONSIBILITIES:
+ *    • Enforce MAX_NR_SPOTS_IN_IMAGE during, rather than after, detection.
+ *    • Report why detection was aborted.
+ *
+ *  USAGE EXAMPLE:
+ *    SpotCountingDetectorFactory<?> factory = new SpotCountingDetectorFactory(
+ *        new LogDetectorFactory(), maxSpots, settings.tstart, settings.tend);
+ *    settings.detectorFactory = factory;
+ *    TrackMate trackmate = new TrackMate(model, settings);
+ *    factory.attach(trackmate);
+ *    trackmate.execDetection();
+ *    if (factory.isAborted()) { ... }
+ *
+ *  DEPENDENCIES:
+ *    – fiji.plugin.trackmate.detection.*
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-28
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.fiji.trackmate.detection;
+
+import fiji.plugin.trackmate.Model;
+import fiji.plugin.trackmate.Settings;
+import fiji.plugin.trackmate.Spot;
+import fiji.plugin.trackmate.detection.SpotDetector;
+import fiji.plugin.trackmate.detection.SpotDetectorFactory;
+import fiji.plugin.trackmate.gui.components.ConfigurationPanel;
+import net.imagej.ImgPlus;
+import net.imglib2.Interval;
+import net.imglib2.algorithm.MultiThreaded;
+import net.imglib2.type.NativeType;
+import net.imglib2.type.numeric.RealType;
+import org.jdom2.Element;
+import org.scijava.Cancelable;
+
+import javax.swing.ImageIcon;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link SpotDetectorFactory} decorator that keeps a running count of the
+ * spots detected so far and cancels TrackMate once a recording is known, or
+ * can be reliably expected, to exceed the maximum number of spots.
+ * <p>
+ * TrackMate checks for cancellation before starting each frame, so frames
+ * that have not yet started are skipped once the limit is crossed.
+ * </p>
+ * <p>
+ * The extrapolation only uses the first {@link #EXTRAPOLATION_FRAMES} frames
+ * (by frame number, not by completion order), so the decision does not depend
+ * on how the frames were scheduled over the detection threads.
+ * </p>
+ *
+ * @param <T> pixel type of the image
+ */
+public class SpotCountingDetectorFactory<T extends RealType<T> & NativeType<T>> implements SpotDetectorFactory<T> {
+
+    /**
+     * Number of leading frames used to extrapolate the total number of spots.
+     */
+    public static final int EXTRAPOLATION_FRAMES = 50;
+
+    /**
+     * The extrapolated total must exceed the limit by this factor before the
+     * recording is rejected, so only obviously over-dense recordings are
+     * rejected on an estimate.
+     */
+    public static final double EXTRAPOLATION_MARGIN = 2.0;
+
+    private final SpotDetectorFactory<T> delegate;
+    private final int                    maxNumberOfSpots;
+    private final int                    firstFrame;
+    private final int                    numberOfFrames;
+
+    private final AtomicLong    spotCount         = new AtomicLong();
+    private final AtomicInteger framesDone        = new AtomicInteger();
+    private final AtomicInteger leadingFramesDone = new AtomicInteger();
+    private final AtomicLong    leadingFrameSpots = new AtomicLong();
+
+    private volatile Cancelable target;
+    private volatile String     abortReason;
+    private volatile int        frameOffset;
+
+    /**
+     * Creates a counting wrapper around a detector factory.
+     *
+     * @param delegate         the detector factory that performs the detection
+     * @param maxNumberOfSpots maximum number of spots allowed in the recording
+     * @param firstFrame       first frame that is detected ({@code settings.tstart})
+     * @param lastFrame        last frame that is detected ({@code settings.tend})
+     */
+    public SpotCountingDetectorFactory(SpotDetectorFactory<T> delegate,
+                                       int maxNumberOfSpots,
+                                       int firstFrame,
+                                       int lastFrame) {
+        this.delegate         = delegate;
+        this.maxNumberOfSpots = maxNumberOfSpots;
+        this.firstFrame       = firstFrame;
+        this.numberOfFrames   = Math.max(1, lastFrame - firstFrame + 1);
+    }
+
+    /**
+     * Sets the process that is cancelled when the spot limit is crossed,
+     * normally the {@link fiji.plugin.trackmate.TrackMate} instance that runs
+     * the detection.
+     *
+     * @param target the process to cancel
+     */
+    public void attach(Cancelable target) {
+        this.target = target;
+    }
+
+    /**
+     * Sets the offset added to the frame numbers TrackMate passes in. Used when
+     * detection runs on a chunk of the recording, whose frames start at 0.
+     *
+     * @param frameOffset recording frame number of the first frame of the chunk
+     */
+    public void setFrameOffset(int frameOffset) {
+        this.frameOffset = frameOffset;
+    }
+
+    /**
+     * @return {@code true} if detection was aborted because of the spot limit
+     */
+    public boolean isAborted() {
+        return abortReason != null;
+    }
+
+    /**
+     * @return human-readable reason for aborting, or {@code null} if not aborted
+     */
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    /**
+     * @return number of spots detected so far
+     */
+    public long getSpotCount() {
+        return spotCount.get();
+    }
+
+    /**
+     * @return number of frames for which detection has completed
+     */
+    public int getFramesDone() {
+        return framesDone.get();
+    }
+
+    // -------------------------------------------------------------------------
+    // Counting
+    // -------------------------------------------------------------------------
+
+    /**
+     * Registers the result of one frame and aborts if the limit is, or will
+     * clearly be, exceeded.
+     */
+    private void frameDetected(int frame, int numberOfSpotsInFrame) {
+        long total = spotCount.addAndGet(numberOfSpotsInFrame);
+        int  done  = framesDone.incrementAndGet();
+
+        if (total > maxNumberOfSpots) {
+            abort(String.format("Too many spots detected (%d after %d of %d frames). Limit is %d.",
+                                total, done, numberOfFrames, maxNumberOfSpots));
+            return;
+        }
+
+        if (numberOfFrames <= EXTRAPOLATION_FRAMES || frame >= firstFrame + EXTRAPOLATION_FRAMES) {
+            return;
+        }
+        long leadingSpots = leadingFrameSpots.addAndGet(numberOfSpotsInFrame);
+        if (leadingFramesDone.incrementAndGet() == EXTRAPOLATION_FRAMES) {
+            long expected = leadingSpots * numberOfFrames / EXTRAPOLATION_FRAMES;
+            if (expected > maxNumberOfSpots * EXTRAPOLATION_MARGIN) {
+                abort(String.format("Too many spots expected (about %d, extrapolated from the first %d frames). Limit is %d.",
+                                    expected, EXTRAPOLATION_FRAMES, maxNumberOfSpots));
+            }
+        }
+    }
+
+    private synchronized void abort(String reason) {
+        if (abortReason != null) {
+            return;
+        }
+        abortReason = reason;
+        Cancelable t = target;
+        if (t != null) {
+            t.cancel(reason);
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // SpotDetectorFactory
+    // -------------------------------------------------------------------------
+
+    @Override
+    public SpotDetector<T> getDetector(Interval interval, int frame) {
+        return new CountingDetector(delegate.getDetector(interval, frame), frame + frameOffset);
+    }
+
+    @Override
+    public boolean setTarget(ImgPlus<T> img, Map<String, Object> settings) {
+        return delegate.setTarget(img, settings);
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return delegate.getErrorMessage();
+    }
+
+    @Override
+    public boolean marshall(Map<String, Object> settings, Element element) {
+        return delegate.marshall(settings, element);
+    }
+
+    @Override
+    public boolean unmarshall(Element element, Map<String, Object> settings) {
+        return delegate.unmarshall(element, settings);
+    }
+
+    @Override
+    public ConfigurationPanel getDetectorConfigurationPanel(Settings settings, Model model) {
+        return delegate.getDetectorConfigurationPanel(settings, model);
+    }
+
+    @Override
+    public Map<String, Object> getDefaultSettings() {
+        return delegate.getDefaultSettings();
+    }
+
+    @Override
+    public boolean checkSettings(Map<String, Object> settings) {
+        return delegate.checkSettings(settings);
+    }
+
+    @Override
+    public boolean has2Dsegmentation() {
+        return delegate.has2Dsegmentation();
+    }
+
+    @Override
+    public boolean forbidMultithreading() {
+        return delegate.forbidMultithreading();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public SpotCountingDetectorFactory<T> copy() {
+        SpotCountingDetectorFactory<T> copy = new SpotCountingDetectorFactory<>(
+                (SpotDetectorFactory<T>) delegate.copy(),
+                maxNumberOfSpots,
+                firstFrame,
+                firstFrame + numberOfFrames - 1);
+        copy.attach(target);
+        copy.setFrameOffset(frameOffset);
+        return copy;
+    }
+
+    @Override
+    public String getInfoText() {
+        return delegate.getInfoText();
+    }
+
+    @Override
+    public ImageIcon getIcon() {
+        return delegate.getIcon();
+    }
+
+    @Override
+    public String getKey() {
+        return delegate.getKey();
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    // -------------------------------------------------------------------------
+    // Per-frame detector
+    // -------------------------------------------------------------------------
+
+    /**
+     * Forwards to the wrapped detector and reports the number of spots found
+     * in its frame. Implements {@link MultiThreaded} and {@link Cancelable} so
+     * TrackMate can still configure and cancel the wrapped detector.
+     */
+    private final class CountingDetector implements SpotDetector<T>, MultiThreaded, Cancelable {
+
+        private final SpotDetector<T> detector;
+        private final int             frame;
+
+        CountingDetector(SpotDetector<T> detector, int frame) {
+            this.detector = detector;
+            this.frame    = frame;
+        }
+
+        @Override
+        public boolean checkInput() {
+            return detector.checkInput();
+        }
+
+        @Override
+        public boolean process() {
+            boolean ok = detector.process();
+            if (ok) {
+                List<Spot> spots = detector.getResult();
+                frameDetected(frame, spots == null ? 0 : spots.size());
+            }
+            return ok;
+        }
+
+        @Override
+        public List<Spot> getResult() {
+            return detector.getResult();
+        }
+
+        @Override
+        public String getErrorMessage() {
+            return detector.getErrorMessage();
+        }
+
+        @Override
+        public long getProcessingTime() {
+            return detector.getProcessingTime();
+        }
+
+        @Override
+        public void setNumThreads() {
+            if (detector instanceof MultiThreaded) {
+                ((MultiThreaded) detector).setNumThreads();
+            }
+        }
+
+        @Override
+        public void setNumThreads(int numThreads) {
+            if (detector instanceof MultiThreaded) {
+                ((MultiThreaded) detector).setNumThreads(numThreads);
+            }
+        }
+
+        @Override
+        public int getNumThreads() {
+            return detector instanceof MultiThreaded ? ((MultiThreaded) detector).getNumThreads() : 1;
+        }
+
+        @Override
+        public boolean isCanceled() {
+            return detector instanceof Cancelable && ((Cancelable) detector).isCanceled();
+        }
+
+        @Override
+        public void cancel(String reason) {
+            if (detector instanceof Cancelable) {
+                ((Cancelable) detector).cancel(reason);
+            }
+        }
+
+        @Override
+        public String getCancelReason() {
+            return detector instanceof Cancelable ? ((Cancelable) detector).getCancelReason() : null;
+        }
+    }
+}
@@ -1,18 +1,78 @@
+/******************************************************************************
+ *  Class:        PaintTrackFeatureAnalyzer.java
+ *  Package:      paint.fiji.trackmate.features
+ *
+ *  PURPOSE:
+ *    TrackMate track analyzer that adds the PAINT motion features (diffusion
+ *    coefficients, total distance and confinement ratio) to the feature model
+ *    while TrackMate computes its own track features.
+ *
+ *  DESCRIPTION:
+ *    • Uses the primitive kernel of {@link paint.fiji.tracks.TrackAttributeCalculations}.
+ *    • Splits the track IDs into chunks that are processed in parallel on
+ *      the number of threads TrackMate assigns to the analyzer.
+ *    • Stores the unrounded values as track features, so they can be used in
+ *      track filters and are picked up by {@link paint.fiji.tracks.TrackCsvWriter}.
+ *
+ *  RESPONSIBILITIES:
+ *    • Declare the PAINT track features (names, units, dimensions).
+ *    • Compute the features for the tracks TrackMate hands over.
+ *
+ *  USAGE EXAMPLE:
+ *    settings.addAllAnalyzers();
+ *    settings.addTrackAnalyzer(new PaintTrackFeatureAnalyzer());
+ *    settings.addTrackFilter(new FeatureFilter(
+ *        PaintTrackFeatureAnalyzer.DIFFUSION_COEFF, 0.1, true));
+ *
+ *  DEPENDENCIES:
+ *    – fiji.plugin.trackmate.features.track.TrackAnalyzer
+ *    – paint.fiji.tracks.TrackAttributeCalculations
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-28
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
 package paint.fiji.trackmate.features;
 
-/* IGNORE START
 import fiji.plugin.trackmate.Dimension;
+import fiji.plugin.trackmate.FeatureModel;
 import fiji.plugin.trackmate.Logger;
 import fiji.plugin.trackmate.Model;
+import fiji.plugin.trackmate.TrackModel;
 import fiji.plugin.trackmate.features.track.TrackAnalyzer;
-import paint.fiji.tracks.TrackAttributeCalculations;
 import paint.fiji.tracks.TrackAttributes;
 
 import javax.swing.ImageIcon;
-import java.util.*;
-
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static paint.fiji.tracks.TrackAttributeCalculations.calculateTrackAttributes;
+import static paint.fiji.tracks.TrackAttributeCalculations.sortedPositions;
 import static paint.shared.constants.PaintConstants.TIME_INTERVAL;
 
+/**
+ * Multithreaded {@link TrackAnalyzer} computing the PAINT track features.
+ * <p>
+ * The features are calculated per track with the same kernel that is used
+ * for the Tracks CSV, so a value used in a track filter is exactly the value
+ * that is later exported (before rounding).
+ * </p>
+ */
 public class PaintTrackFeatureAnalyzer implements TrackAnalyzer {
 
     public static final String KEY = "PAINT_TRACK_FEATURES";
@@ -22,42 +82,54 @@ public class PaintTrackFeatureAnalyzer implements TrackAnalyzer {
     public static final String TOTAL_DISTANCE      = "PAINT_TOTAL_DISTANCE";
     public static final String CONFINEMENT_RATIO   = "PAINT_CONFINEMENT_RATIO";
 
-    private static final List<String> FEATURES = Arrays.asList(
+    /**
+     * Number of chunks per thread; more chunks than threads balances long and short tracks.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final List<String> FEATURES = Collections.unmodifiableList(Arrays.asList(
             DIFFUSION_COEFF,
             DIFFUSION_COEFF_EXT,
             TOTAL_DISTANCE,
             CONFINEMENT_RATIO
-    );
+    ));
 
-    private static final Map<String, String> FEATURE_NAMES = new LinkedHashMap<>();
-    private static final Map<String, String> FEATURE_SHORT_NAMES = new LinkedHashMap<>();
-    private static final Map<String, String> FEATURE_UNITS = new LinkedHashMap<>();
-    private static final Map<String, Boolean> IS_INT = new LinkedHashMap<>();
-    private static final Map<String, Dimension> FEATURE_DIMENSIONS = new LinkedHashMap<>();
+    private static final Map<String, String>    FEATURE_NAMES       = new LinkedHashMap<>();
+    private static final Map<String, String>    FEATURE_SHORT_NAMES = new LinkedHashMap<>();
+    private static final Map<String, Boolean>   IS_INT              = new LinkedHashMap<>();
+    private static final Map<String, Dimension> FEATURE_DIMENSIONS  = new LinkedHashMap<>();
 
     static {
-        FEATURE_NAMES.put(DIFFUSION_COEFF, "Diffusion Coefficient");
+        FEATURE_NAMES.put(DIFFUSION_COEFF,     "Diffusion Coefficient");
         FEATURE_NAMES.put(DIFFUSION_COEFF_EXT, "Extended Diffusion Coefficient");
-        FEATURE_NAMES.put(TOTAL_DISTANCE, "Total Distance");
-        FEATURE_NAMES.put(CONFINEMENT_RATIO, "Confinement Ratio");
+        FEATURE_NAMES.put(TOTAL_DISTANCE,      "Total Distance");
+        FEATURE_NAMES.put(CONFINEMENT_RATIO,   "Confinement Ratio");
 
-        FEATURE_SHORT_NAMES.put(DIFFUSION_COEFF, "D");
+        FEATURE_SHORT_NAMES.put(DIFFUSION_COEFF,     "D");
         FEATURE_SHORT_NAMES.put(DIFFUSION_COEFF_EXT, "Dext");
-        FEATURE_SHORT_NAMES.put(TOTAL_DISTANCE, "Dist");
-        FEATURE_SHORT_NAMES.put(CONFINEMENT_RATIO, "ConfR");
+        FEATURE_SHORT_NAMES.put(TOTAL_DISTANCE,      "Dist");
+        FEATURE_SHORT_NAMES.put(CONFINEMENT_RATIO,   "ConfR");
 
-        FEATURE_UNITS.put(DIFFUSION_COEFF, "µm²/s");
-        FEATURE_UNITS.put(DIFFUSION_COEFF_EXT, "µm²/s");
-        FEATURE_UNITS.put(TOTAL_DISTANCE, "µm");
-        FEATURE_UNITS.put(CONFINEMENT_RATIO, "ratio");
-
-        FEATURE_DIMENSIONS.put(DIFFUSION_COEFF, Dimension.NONE);
+        FEATURE_DIMENSIONS.put(DIFFUSION_COEFF,     Dimension.NONE);
         FEATURE_DIMENSIONS.put(DIFFUSION_COEFF_EXT, Dimension.NONE);
-        FEATURE_DIMENSIONS.put(TOTAL_DISTANCE, Dimension.LENGTH);
-        FEATURE_DIMENSIONS.put(CONFINEMENT_RATIO, Dimension.NONE);
+        FEATURE_DIMENSIONS.put(TOTAL_DISTANCE,      Dimension.LENGTH);
+        FEATURE_DIMENSIONS.put(CONFINEMENT_RATIO,   Dimension.NONE);
 
-        for (String f : FEATURES)
+        for (String f : FEATURES) {
             IS_INT.put(f, false);
+        }
+    }
+
+    private int    numThreads;
+    private long   processingTime;
+    private Logger logger = Logger.VOID_LOGGER;
+
+    /**
+     * Creates the analyzer using all available processors until TrackMate
+     * assigns a thread count.
+     */
+    public PaintTrackFeatureAnalyzer() {
+        setNumThreads();
     }
 
     // -----------------------------------------------------------------
@@ -66,14 +138,66 @@ public class PaintTrackFeatureAnalyzer implements TrackAnalyzer {
 
     @Override
     public void process(Collection<Integer> trackIDs, Model model) {
-        for (Integer trackId : trackIDs) {
-            TrackAttributes ca = TrackAttributeCalculations.calculateTrackAttributes(
-                    model.getTrackModel(), trackId, TIME_INTERVAL);
-
-            model.getFeatureModel().putTrackFeature(trackId, DIFFUSION_COEFF, ca.diffusionCoeff);
-            model.getFeatureModel().putTrackFeature(trackId, DIFFUSION_COEFF_EXT, ca.diffusionCoeffExt);
-            model.getFeatureModel().putTrackFeature(trackId, TOTAL_DISTANCE, ca.totalDistance);
-            model.getFeatureModel().putTrackFeature(trackId, CONFINEMENT_RATIO, ca.confinementRatio);
+        if (trackIDs.isEmpty()) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+
+        final TrackModel trackModel = model.getTrackModel();
+        final int[] ids = trackIDs.stream().mapToInt(Integer::intValue).toArray();
+        final TrackAttributes[] results = new TrackAttributes[ids.length];
+
+        // Compute in parallel chunks; the model is only read here
+        final int threads = Math.max(1, Math.min(numThreads, ids.length));
+        if (threads == 1) {
+            analyzeChunk(trackModel, ids, results, 0, ids.length);
+        } else {
+            final int numberOfChunks = Math.min(ids.length, threads * CHUNKS_PER_THREAD);
+            final int chunkSize      = (ids.length + numberOfChunks - 1) / numberOfChunks;
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int lo = 0; lo < ids.length; lo += chunkSize) {
+                    final int from = lo;
+                    final int to   = Math.min(lo + chunkSize, ids.length);
+                    futures.add(pool.submit(() -> analyzeChunk(trackModel, ids, results, from, to)));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.error("PAINT track feature analysis interrupted.\n");
+                return;
+            } catch (ExecutionException e) {
+                logger.error("PAINT track feature analysis failed: " + e.getCause() + "\n");
+                return;
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        // Store the features in one pass (putTrackFeature is synchronized)
+        final FeatureModel featureModel = model.getFeatureModel();
+        for (int i = 0; i < ids.length; i++) {
+            TrackAttributes ca = results[i];
+            featureModel.putTrackFeature(ids[i], DIFFUSION_COEFF,     ca.diffusionCoeff);
+            featureModel.putTrackFeature(ids[i], DIFFUSION_COEFF_EXT, ca.diffusionCoeffExt);
+            featureModel.putTrackFeature(ids[i], TOTAL_DISTANCE,      ca.totalDistance);
+            featureModel.putTrackFeature(ids[i], CONFINEMENT_RATIO,   ca.confinementRatio);
+        }
+
+        processingTime = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Computes the attributes for the tracks {@code ids[from]} up to (excluding) {@code ids[to]}.
+     */
+    private static void analyzeChunk(TrackModel trackModel, int[] ids, TrackAttributes[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double[][] positions = sortedPositions(trackModel.trackSpots(ids[i]));
+            results[i] = calculateTrackAttributes(positions[0], positions[1], TIME_INTERVAL);
         }
     }
 
@@ -83,7 +207,7 @@ public class PaintTrackFeatureAnalyzer implements TrackAnalyzer {
     }
 
     @Override
-    public Collection<String> getFeatures() {
+    public List<String> getFeatures() {
         return FEATURES;
     }
 
@@ -97,11 +221,6 @@ public class PaintTrackFeatureAnalyzer implements TrackAnalyzer {
         return FEATURE_SHORT_NAMES;
     }
 
-    @Override
-    public Map<String, String> getFeatureUnits() {
-        return FEATURE_UNITS;
-    }
-
     @Override
     public Map<String, Boolean> getIsIntFeature() {
         return IS_INT;
@@ -119,17 +238,31 @@ public class PaintTrackFeatureAnalyzer implements TrackAnalyzer {
 
     @Override
     public void setNumThreads() {
-        // Not multithreaded
+        setNumThreads(Runtime.getRuntime().availableProcessors());
     }
 
     @Override
+    public void setNumThreads(int numThreads) {
+        this.numThreads = Math.max(1, numThreads);
+    }
+
+    @Override
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Sets the logger used to report failures.
+     *
+     * @param logger TrackMate logger, or {@code null} to discard messages
+     */
     public void setLogger(Logger logger) {
-        // Optional: not used
+        this.logger = logger == null ? Logger.VOID_LOGGER : logger;
     }
 
     @Override
     public long getProcessingTime() {
-        return 0;
+        return processingTime;
     }
 
     @Override
@@ -152,5 +285,3 @@ public class PaintTrackFeatureAnalyzer implements TrackAnalyzer {
         return null;
     }
 }
-
-IGNORE END*/
\ No newline at end of file
@@ -11,6 +11,8 @@
  *  DESCRIPTION:
  *    Includes methods to:
  *      • Compute key track attributes from the track model, track ID and time delta.
+ *      • Extract frame-ordered spot positions into primitive arrays.
+ *      • Compute the attributes from those arrays (thread-safe kernel).
  *      • Safely retrieve feature values from individual spots.
  *
  *  RESPONSIBILITIES:
@@ -41,9 +43,8 @@ package paint.fiji.tracks;
 import fiji.plugin.trackmate.Spot;
 import fiji.plugin.trackmate.TrackModel;
 
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Collection;
 
 import static paint.shared.utils.Miscellaneous.round;
 
@@ -82,15 +83,33 @@ public final class TrackAttributeCalculations {
      * @return a {@link TrackAttributes} object containing all computed metrics
      */
     public static TrackAttributes calculateTrackAttributes(TrackModel trackModel, int trackId, double dtSeconds) {
+        final double[][] positions = sortedPositions(trackModel.trackSpots(trackId));
+        return calculateTrackAttributes(positions[0], positions[1], dtSeconds);
+    }
+
+    /**
+     * Computes motion and diffusion-related attributes from the spot positions
+     * of a single track, ordered by frame.
+     * <p>
+     * This is the primitive kernel behind
+     * {@link #calculateTrackAttributes(TrackModel, int, double)}; it does not
+     * touch the TrackMate model and can be called concurrently for different tracks.
+     * </p>
+     *
+     * @param x         x positions of the spots, ordered by frame
+     * @param y         y positions of the spots, ordered by frame
+     * @param dtSeconds the time interval between consecutive frames, in seconds
+     * @return a {@link TrackAttributes} object containing all computed metrics
+     */
+    public static TrackAttributes calculateTrackAttributes(double[] x, double[] y, double dtSeconds) {
 
         // ---------------------------------------------------------------------
-        // Step 1 – Collect and sort track spots
+        // Step 1 – Check the number of spots
         // ---------------------------------------------------------------------
-        final List<Spot> spots = new ArrayList<>(trackModel.trackSpots(trackId));
-        if (spots.size() < 2) {
+        final int numberSpotsInTrack = x.length;
+        if (numberSpotsInTrack < 2) {
             return new TrackAttributes();
         }
-        spots.sort(Comparator.comparingInt(s -> (int) Math.round(s.getFeature(Spot.FRAME))));
 
         // ---------------------------------------------------------------------
         // Step 2 – Initialize variables
@@ -101,36 +120,27 @@ public final class TrackAttributeCalculations {
         double diffusionCoeff      = Double.NaN;
         double diffusionCoeffExt   = Double.NaN;
         double confinementRatio    = Double.NaN;
-        int    numberSpotsInTrack  = spots.size();
 
         // ---------------------------------------------------------------------
         // Step 3 – Reference coordinates
         // ---------------------------------------------------------------------
-        final double x0     = get(spots.get(0), Spot.POSITION_X);
-        final double y0     = get(spots.get(0), Spot.POSITION_Y);
-        final double xLast  = get(spots.get(spots.size() - 1), Spot.POSITION_X);
-        final double yLast  = get(spots.get(spots.size() - 1), Spot.POSITION_Y);
+        final double x0     = x[0];
+        final double y0     = y[0];
+        final double xLast  = x[numberSpotsInTrack - 1];
+        final double yLast  = y[numberSpotsInTrack - 1];
 
         // ---------------------------------------------------------------------
         // Step 4 – Compute distances and MSD values
         // ---------------------------------------------------------------------
-        for (int i = 1; i < spots.size(); i++) {
-
-            // The previous point
-            final double x1 = get(spots.get(i - 1), Spot.POSITION_X);
-            final double y1 = get(spots.get(i - 1), Spot.POSITION_Y);
-
-            // The current point
-            final double x2 = get(spots.get(i), Spot.POSITION_X);
-            final double y2 = get(spots.get(i), Spot.POSITION_Y);
+        for (int i = 1; i < numberSpotsInTrack; i++) {
 
             // For MSD Ext, take the distance to the previous point
-            final double dx = x2 - x1;
-            final double dy = y2 - y1;
+            final double dx = x[i] - x[i - 1];
+            final double dy = y[i] - y[i - 1];
 
             // For MSD, take the distance to the first point
-            final double dx0   = x2 - x0;
-            final double dy0   = y2 - y0;
+            final double dx0   = x[i] - x0;
+            final double dy0   = y[i] - y0;
 
             // Calculate the cumulative values
             cumMsd            += dx0 * dx0 + dy0 * dy0;
@@ -141,7 +151,7 @@ public final class TrackAttributeCalculations {
         }
 
         // Diffusion coefficients (remain NaN if insufficient data or dtSeconds <= 0)
-        final int nSteps = spots.size() - 1;
+        final int nSteps = numberSpotsInTrack - 1;
 
         if (nSteps > 0 && dtSeconds > 0.0) {
             final double msd = cumMsd / nSteps;
@@ -165,7 +175,7 @@ public final class TrackAttributeCalculations {
         }
 
         // ---------------------------------------------------------------------
-        // Step 6 – Return immutable result
+        // Step 5 – Return immutable result
         // ---------------------------------------------------------------------
         return new TrackAttributes(
                 numberSpotsInTrack,
@@ -177,6 +187,41 @@ public final class TrackAttributeCalculations {
         );
     }
 
+    /**
+     * Extracts the x and y positions of a set of spots into primitive arrays,
+     * ordered by frame. Spots in the same frame keep their iteration order.
+     *
+     * @param spots the spots of one track
+     * @return a two-element array holding the x positions and the y positions
+     */
+    public static double[][] sortedPositions(Collection<Spot> spots) {
+        final int n = spots.size();
+        final double[] xs = new double[n];
+        final double[] ys = new double[n];
+
+        // Frame in the high 32 bits, original index in the low 32 bits: a plain
+        // primitive sort then orders by frame and keeps ties in original order
+        final long[] frameAndIndex = new long[n];
+        int i = 0;
+        for (Spot spot : spots) {
+            final int frame = (int) Math.round(spot.getFeature(Spot.FRAME));
+            xs[i] = get(spot, Spot.POSITION_X);
+            ys[i] = get(spot, Spot.POSITION_Y);
+            frameAndIndex[i] = ((long) frame << 32) | i;
+            i++;
+        }
+        Arrays.sort(frameAndIndex);
+
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        for (int k = 0; k < n; k++) {
+            final int index = (int) frameAndIndex[k];
+            x[k] = xs[index];
+            y[k] = ys[index];
+        }
+        return new double[][]{x, y};
+    }
+
     // -------------------------------------------------------------------------
     // Helper methods
     // -------------------------------------------------------------------------
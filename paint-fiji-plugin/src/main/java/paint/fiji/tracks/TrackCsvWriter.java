@@ -8,8 +8,10 @@
  *    features and custom PAINT-calculated attributes.
  *
  *  DESCRIPTION:
- *    • Extracts core TrackMate features and custom diffusion metrics.
- *    • Constructs a tabular dataset of per-track attributes.
+ *    • Extracts core TrackMate features and custom diffusion metrics into
+ *      primitive columns. The PAINT metrics are read from the feature model
+ *      when PaintTrackFeatureAnalyzer ran (on TrackMate's own threads).
+ *    • Orders the tracks with a primitive multi-key sort.
  *    • Assigns deterministic Track IDs and unique recording-based keys.
  *    • Exports all track data to CSV via {@link paint.shared.io.TrackTableIO}.
  *
@@ -35,7 +37,7 @@
  *    Hans Bakker (jjabakker)
  *
  *  UPDATED:
- *    2025-10-28
+ *    2025-10-30
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -47,20 +49,19 @@ import fiji.plugin.trackmate.FeatureModel;
 import fiji.plugin.trackmate.Model;
 import fiji.plugin.trackmate.TrackMate;
 import fiji.plugin.trackmate.TrackModel;
+import paint.fiji.trackmate.features.PaintTrackFeatureAnalyzer;
 import paint.shared.io.TrackTableIO;
 import paint.shared.objects.Track;
 import paint.shared.utils.PaintLogger;
-import tech.tablesaw.api.IntColumn;
-import tech.tablesaw.api.StringColumn;
 import tech.tablesaw.api.Table;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
 import static paint.fiji.tracks.TrackAttributeCalculations.calculateTrackAttributes;
+import static paint.fiji.tracks.TrackAttributeCalculations.sortedPositions;
 import static paint.shared.constants.PaintConstants.TIME_INTERVAL;
 
 /**
@@ -72,6 +73,27 @@ import static paint.shared.constants.PaintConstants.TIME_INTERVAL;
  */
 public final class TrackCsvWriter {
 
+    /**
+     * Columns the exported tracks are sorted on, in order of precedence. The
+     * Recording Name is the same for every track written in one call and is
+     * therefore not needed as a key.
+     */
+    private static final String[] SORT_KEYS = {
+            "Number of Spots",
+            "Number of Gaps",
+            "Longest Gap",
+            "Track Duration",
+            "Track X Location",
+            "Track Y Location",
+            "Track Displacement",
+            "Track Max Speed",
+            "Track Median Speed",
+            "Diffusion Coefficient",
+            "Diffusion Coefficient Ext",
+            "Total Distance",
+            "Confinement Ratio"
+    };
+
     private TrackCsvWriter() {
         // Utility class; prevent instantiation
     }
@@ -105,80 +127,87 @@ public final class TrackCsvWriter {
 
         // Collect and sort track IDs for deterministic output order
         final Set<Integer> trackIDsSet = trackModel.trackIDs(visibleOnly);
-        final List<Integer> trackIDs = new ArrayList<>(trackIDsSet);
-        Collections.sort(trackIDs);
+        final int[] trackIDs = trackIDsSet.stream().mapToInt(Integer::intValue).sorted().toArray();
+        final int numberOfTracks = trackIDs.length;
+
+        // One primitive column per sort key, in sort order (see SORT_KEYS)
+        final double[][] keys = new double[SORT_KEYS.length][numberOfTracks];
+        final int[] spotsInTracks = new int[numberOfTracks];
+
+        // ---------------------------------------------------------------------
+        // Step 2 – Process the tracks. Sequential: the attributes normally come
+        // from the feature model, and a parallel stream would run on the common
+        // pool, outside the thread budget of the recording.
+        // ---------------------------------------------------------------------
+        for (int i = 0; i < numberOfTracks; i++) {
+            final int trackId = trackIDs[i];
+            final TrackAttributes trackAttributes = trackAttributes(trackModel, featureModel, trackId);
+
+            // Native TrackMate features
+            keys[0][i]  = asInt(    featureModel.getTrackFeature(trackId, "NUMBER_SPOTS"));
+            keys[1][i]  = asInt(    featureModel.getTrackFeature(trackId, "NUMBER_GAPS"));
+            keys[2][i]  = asInt(    featureModel.getTrackFeature(trackId, "LONGEST_GAP"));
+            keys[3][i]  = roundOr(  featureModel.getTrackFeature(trackId, "TRACK_DURATION"),     3, -1);
+            keys[4][i]  = roundOr(  featureModel.getTrackFeature(trackId, "TRACK_X_LOCATION"),   2, -1);
+            keys[5][i]  = roundOr(  featureModel.getTrackFeature(trackId, "TRACK_Y_LOCATION"),   2, -1);
+            keys[6][i]  = roundOr(  featureModel.getTrackFeature(trackId, "TRACK_DISPLACEMENT"), 2, -1);
+            keys[7][i]  = roundOr(  featureModel.getTrackFeature(trackId, "TRACK_MAX_SPEED"),    2, -1);
+            keys[8][i]  = roundOr(  featureModel.getTrackFeature(trackId, "TRACK_MEDIAN_SPEED"), 2, -1);
+
+            // Custom PAINT-calculated attributes
+            keys[9][i]  = roundOr(trackAttributes.diffusionCoeff,    2, -1);
+            keys[10][i] = roundOr(trackAttributes.diffusionCoeffExt, 2, -1);
+            keys[11][i] = roundOr(trackAttributes.totalDistance,     2, -1);
+            keys[12][i] = roundOr(trackAttributes.confinementRatio,  2, -1);
+
+            spotsInTracks[i] = trackAttributes.numberOfSpotsInTracks;
+        }
 
-        final List<Track> tracks = new ArrayList<>();
         int totalSpots = 0;
+        for (int spots : spotsInTracks) {
+            totalSpots += spots;
+        }
 
         // ---------------------------------------------------------------------
-        // Step 2 – Process each track
+        // Step 3 – Order the tracks and assign Track Ids and unique keys
         // ---------------------------------------------------------------------
-        for (Integer trackId : trackIDs) {
-            TrackAttributes trackAttributes = calculateTrackAttributes(trackModel, trackId, TIME_INTERVAL);
+        final int[] order = sortedOrder(keys, numberOfTracks);
+        final List<Track> tracks = new ArrayList<>(numberOfTracks);
+
+        for (int rank = 0; rank < numberOfTracks; rank++) {
+            final int i = order[rank];
 
             Track track = new Track();
+            track.setUniqueKey(recordingName + "-" + rank);
             track.setExperimentName(experimentName);
             track.setRecordingName(recordingName);
+            track.setTrackId(rank);
 
-            // Native TrackMate features
-            track.setNumberOfSpots(     asInt(    featureModel.getTrackFeature(trackId, "NUMBER_SPOTS")));
-            track.setNumberOfGaps(      asInt(   featureModel.getTrackFeature(trackId, "NUMBER_GAPS")));
-            track.setLongestGap(        asInt(   featureModel.getTrackFeature(trackId, "LONGEST_GAP")));
-            track.setTrackDuration(     roundOr( featureModel.getTrackFeature(trackId, "TRACK_DURATION"),     3, -1));
-            track.setTrackXLocation(    roundOr( featureModel.getTrackFeature(trackId, "TRACK_X_LOCATION"),   2, -1));
-            track.setTrackYLocation(    roundOr( featureModel.getTrackFeature(trackId, "TRACK_Y_LOCATION"),   2, -1));
-            track.setTrackDisplacement( roundOr( featureModel.getTrackFeature(trackId, "TRACK_DISPLACEMENT"), 2, -1));
-            track.setTrackMaxSpeed(     roundOr( featureModel.getTrackFeature(trackId, "TRACK_MAX_SPEED"),    2, -1));
-            track.setTrackMedianSpeed(  roundOr( featureModel.getTrackFeature(trackId, "TRACK_MEDIAN_SPEED"), 2, -1));
-
-            // Custom PAINT-calculated attributes
-            track.setDiffusionCoefficient(    roundOr(trackAttributes.diffusionCoeff,    2, -1));
-            track.setDiffusionCoefficientExt( roundOr(trackAttributes.diffusionCoeffExt, 2, -1));
-            track.setTotalDistance(           roundOr(trackAttributes.totalDistance,     2, -1));
-            track.setConfinementRatio(        roundOr(trackAttributes.confinementRatio,  2, -1));
+            track.setNumberOfSpots(           (int) keys[0][i]);
+            track.setNumberOfGaps(            (int) keys[1][i]);
+            track.setLongestGap(              (int) keys[2][i]);
+            track.setTrackDuration(           keys[3][i]);
+            track.setTrackXLocation(          keys[4][i]);
+            track.setTrackYLocation(          keys[5][i]);
+            track.setTrackDisplacement(       keys[6][i]);
+            track.setTrackMaxSpeed(           keys[7][i]);
+            track.setTrackMedianSpeed(        keys[8][i]);
+            track.setDiffusionCoefficient(    keys[9][i]);
+            track.setDiffusionCoefficientExt( keys[10][i]);
+            track.setTotalDistance(           keys[11][i]);
+            track.setConfinementRatio(        keys[12][i]);
             track.setSquareNumber(-1);
             track.setLabelNumber(-1);
 
-            totalSpots += trackAttributes.numberOfSpotsInTracks;
             tracks.add(track);
         }
 
         // ---------------------------------------------------------------------
-        // Step 3 – Build and export table
+        // Step 4 – Build and export table
         // ---------------------------------------------------------------------
         try {
             TrackTableIO trackTableIO = new TrackTableIO();
             Table tracksTable = trackTableIO.toTable(tracks);
-
-            tracksTable = tracksTable.sortOn(
-                    "Recording Name",
-                    "Number of Spots",
-                    "Number of Gaps",
-                    "Longest Gap",
-                    "Track Duration",
-                    "Track X Location",
-                    "Track Y Location",
-                    "Track Displacement",
-                    "Track Max Speed",
-                    "Track Median Speed",
-                    "Diffusion Coefficient",
-                    "Diffusion Coefficient Ext",
-                    "Total Distance",
-                    "Confinement Ratio"
-            );
-
-            // Replace Track Ids and generate unique keys
-            IntColumn newIds       = IntColumn.create("Track Id");
-            StringColumn newUniqueKey = StringColumn.create("Unique Key");
-
-            for (int i = 0; i < tracksTable.rowCount(); i++) {
-                newIds.append(i);
-                newUniqueKey.append(recordingName + "-" + i);
-            }
-            tracksTable.replaceColumn("Track Id", newIds);
-            tracksTable.replaceColumn("Unique Key", newUniqueKey);
-
             trackTableIO.writeCsv(tracksTable, csvFile.toPath());
         } catch (Exception e) {
             PaintLogger.errorf("Failed writing track CSV: %s", e.getMessage());
@@ -188,6 +217,88 @@ public final class TrackCsvWriter {
         return totalSpots;
     }
 
+    /**
+     * Returns the PAINT attributes of a track, taken from the features computed by
+     * {@link PaintTrackFeatureAnalyzer} when it ran, and calculated otherwise.
+     */
+    private static TrackAttributes trackAttributes(TrackModel trackModel, FeatureModel featureModel, int trackId) {
+        final Double diffusionCoeff = featureModel.getTrackFeature(trackId, PaintTrackFeatureAnalyzer.DIFFUSION_COEFF);
+        if (diffusionCoeff == null) {
+            final double[][] positions = sortedPositions(trackModel.trackSpots(trackId));
+            return calculateTrackAttributes(positions[0], positions[1], TIME_INTERVAL);
+        }
+
+        final int numberOfSpots = trackModel.trackSpots(trackId).size();
+        if (numberOfSpots < 2) {
+            return new TrackAttributes();
+        }
+        return new TrackAttributes(
+                numberOfSpots,
+                featureModel.getTrackFeature(trackId, PaintTrackFeatureAnalyzer.TOTAL_DISTANCE),
+                diffusionCoeff,
+                featureModel.getTrackFeature(trackId, PaintTrackFeatureAnalyzer.DIFFUSION_COEFF_EXT),
+                featureModel.getTrackFeature(trackId, PaintTrackFeatureAnalyzer.CONFINEMENT_RATIO),
+                Double.NaN);   // Displacement is not exported; TRACK_DISPLACEMENT is used instead
+    }
+
+    // -------------------------------------------------------------------------
+    // Ordering
+    // -------------------------------------------------------------------------
+
+    /**
+     * Returns the row order that sorts the tracks ascending on all key columns,
+     * compared left to right.
+     * <p>
+     * A stable merge sort on primitive row indices; rows that are equal on every
+     * key keep their Track Id order and produce identical CSV rows anyway.
+     * </p>
+     *
+     * @param keys           key columns, in order of precedence
+     * @param numberOfTracks number of rows
+     * @return row indices in sorted order
+     */
+    static int[] sortedOrder(double[][] keys, int numberOfTracks) {
+        int[] order = new int[numberOfTracks];
+        for (int i = 0; i < numberOfTracks; i++) {
+            order[i] = i;
+        }
+        int[] buffer = new int[numberOfTracks];
+
+        for (int width = 1; width < numberOfTracks; width *= 2) {
+            for (int lo = 0; lo < numberOfTracks; lo += 2 * width) {
+                int mid = Math.min(lo + width, numberOfTracks);
+                int hi  = Math.min(lo + 2 * width, numberOfTracks);
+                int a = lo, b = mid, k = lo;
+                while (a < mid && b < hi) {
+                    buffer[k++] = compareRows(keys, order[b], order[a]) < 0 ? order[b++] : order[a++];
+                }
+                while (a < mid) {
+                    buffer[k++] = order[a++];
+                }
+                while (b < hi) {
+                    buffer[k++] = order[b++];
+                }
+            }
+            int[] swap = order;
+            order  = buffer;
+            buffer = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Compares two rows on all key columns, left to right.
+     */
+    private static int compareRows(double[][] keys, int rowA, int rowB) {
+        for (double[] column : keys) {
+            int c = Double.compare(column[rowA], column[rowB]);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return 0;
+    }
+
     // -------------------------------------------------------------------------
     // Helper Methods
     // -------------------------------------------------------------------------
@@ -0,0 +1,120 @@
+package paint.fiji.tracks;
+
+import org.junit.jupiter.api.Test;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.IntColumn;
+import tech.tablesaw.api.StringColumn;
+import tech.tablesaw.api.Table;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the primitive multi-key sort of {@link TrackCsvWriter} orders
+ * the tracks as the Tablesaw {@code sortOn} it replaced.
+ */
+public class TrackCsvWriterTest {
+
+    private static final int    KEYS       = 13;
+    private static final int    INT_KEYS   = 3;     // Number of Spots, Number of Gaps, Longest Gap
+    private static final String RECORDING  = "Recording Name";
+
+    @Test
+    public void sortedOrderMatchesTablesawSortOn() {
+        Random random = new Random(20251030L);
+        for (int run = 0; run < 20; run++) {
+            int        n    = 1 + random.nextInt(2000);
+            double[][] keys = randomKeys(random, n);
+            assertSameOrder(keys, n);
+        }
+    }
+
+    @Test
+    public void sortedOrderHandlesEmptyAndSingleTrack() {
+        assertEquals(0, TrackCsvWriter.sortedOrder(new double[KEYS][0], 0).length);
+        assertArrayEquals(new int[]{0}, TrackCsvWriter.sortedOrder(new double[KEYS][1], 1));
+    }
+
+    @Test
+    public void sortedOrderIsStableForEqualTracks() {
+        int        n    = 50;
+        double[][] keys = new double[KEYS][n];
+        int[]      expected = new int[n];
+        for (int i = 0; i < n; i++) {
+            expected[i] = i;
+        }
+        assertArrayEquals(expected, TrackCsvWriter.sortedOrder(keys, n));
+    }
+
+    // ----------------------------------------------------------------------
+
+    /**
+     * Tracks that are copies of a few base tracks with one key changed, so
+     * ties are decided at every key depth, including the -1 used for missing
+     * features.
+     */
+    private static double[][] randomKeys(Random random, int n) {
+        double[][] base = new double[4][KEYS];
+        for (double[] row : base) {
+            for (int k = 0; k < KEYS; k++) {
+                row[k] = randomValue(random, k);
+            }
+        }
+
+        double[][] keys = new double[KEYS][n];
+        for (int i = 0; i < n; i++) {
+            double[] row     = base[random.nextInt(base.length)];
+            int      changed = random.nextInt(KEYS);
+            for (int k = 0; k < KEYS; k++) {
+                keys[k][i] = k == changed ? randomValue(random, k) : row[k];
+            }
+        }
+        return keys;
+    }
+
+    private static double randomValue(Random random, int key) {
+        if (key < INT_KEYS) {
+            return random.nextInt(5) - 1;
+        }
+        if (random.nextInt(10) == 0) {
+            return -1;
+        }
+        return Math.round(random.nextInt(4) * 0.37 * 100) / 100.0;
+    }
+
+    private static void assertSameOrder(double[][] keys, int n) {
+        Table    table   = Table.create("Tracks");
+        String[] columns = new String[KEYS + 1];
+        columns[0] = RECORDING;
+        table.addColumns(StringColumn.create(RECORDING, n));
+        for (int i = 0; i < n; i++) {
+            table.stringColumn(RECORDING).set(i, "Recording");
+        }
+        for (int k = 0; k < KEYS; k++) {
+            columns[k + 1] = "Key " + k;
+            if (k < INT_KEYS) {
+                IntColumn column = IntColumn.create(columns[k + 1], n);
+                for (int i = 0; i < n; i++) {
+                    column.set(i, (int) keys[k][i]);
+                }
+                table.addColumns(column);
+            } else {
+                table.addColumns(DoubleColumn.create(columns[k + 1], keys[k]));
+            }
+        }
+        Table sorted = table.sortOn(columns);
+
+        int[] order = TrackCsvWriter.sortedOrder(keys, n);
+        assertEquals(n, order.length);
+        for (int rank = 0; rank < n; rank++) {
+            for (int k = 0; k < KEYS; k++) {
+                double expected = k < INT_KEYS
+                        ? sorted.intColumn(k + 1).getInt(rank)
+                        : sorted.doubleColumn(k + 1).getDouble(rank);
+                assertEquals(expected, keys[k][order[rank]], "rank " + rank + ", key " + k);
+            }
+        }
+    }
+}
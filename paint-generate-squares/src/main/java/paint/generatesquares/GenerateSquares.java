@@ -96,6 +96,7 @@ public class GenerateSquares {
             PaintConsoleWindow.createConsoleFor("Generate Squares");
             PaintLogger.initialise(projectPath, "Generate Squares.log");
             PaintConfig.initialise(projectPath);
+            PaintConsoleWindow.setMaxLines(PaintConfig.getInt("Paint Console", "Max Lines", PaintConsoleWindow.DEFAULT_MAX_LINES));
 
             JarInfoLogger.JarInfo info = getJarInfo(GenerateSquares.class);
             if (info != null) {
@@ -18,13 +18,14 @@
  *    • Execute square-based calculations for each experiment
  *    • Export per-experiment histogram PDFs
  *    • Concatenate experiment-level CSVs into project summaries
+ *    • Record stage metrics in "Output/Metrics.json" per experiment and a project roll-up
  *
  *  USAGE EXAMPLE:
  *    GenerateSquaresHeadless.run(projectPath, Arrays.asList("Exp01", "Exp02"));
  *
  *  DEPENDENCIES:
- *    - paint.shared.config.{PaintConfig, GenerateSquaresConfig}
- *    - paint.shared.objects.{Project, Experiment}
+ *    - paint.shared.config.{PaintConfigSnapshot, GenerateSquaresConfig}
+ *    - paint.shared.objects.Project
  *    - paint.shared.utils.{PaintLogger, HistogramPdfExporter}
  *    - paint.shared.validate.ValidationHandler
  *    - generatesquares.calc.GenerateSquaresProcessor
@@ -41,11 +42,12 @@
 
 package paint.generatesquares;
 
+import paint.generatesquares.calc.RecordingAnalysisContext;
 import paint.shared.config.GenerateSquaresConfig;
-import paint.shared.config.PaintConfig;
-import paint.shared.objects.Experiment;
+import paint.shared.config.PaintConfigSnapshot;
 import paint.shared.objects.Project;
 import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
 import paint.shared.validate.ValidationResult;
 
 import java.nio.file.Files;
@@ -60,7 +62,6 @@ import static paint.generatesquares.calc.GenerateSquaresProcessor.generateSquare
 import static paint.generatesquares.calc.PlotUtils.exportExperimentHistogramsToPdf;
 import static paint.generatesquares.calc.PlotUtils.exportExperimentHistogramsToPngs;
 import static paint.shared.constants.PaintConstants.*;
-import static paint.shared.io.ExperimentDataLoader.loadExperiment;
 import static paint.shared.utils.CsvUtils.concatenateNamedCsvFiles;
 import static paint.shared.utils.Miscellaneous.formatDuration;
 import static paint.shared.validate.ValidationHandler.validateExperiments;
@@ -72,7 +73,25 @@ import static paint.shared.validate.ValidationHandler.validateExperiments;
  */
 public class GenerateSquaresHeadless {
 
+    /**
+     * Runs Generate Squares on the given experiments and writes the stage
+     * metrics to "Output/Metrics.json" of every experiment, with a roll-up
+     * for the whole run in "Metrics.json" in the project directory.
+     *
+     * @param projectPath     the project directory
+     * @param experimentNames the experiments to process
+     */
     public static void run(Path projectPath, List<String> experimentNames)  {
+        PaintMetrics metrics = PaintMetrics.begin("Generate Squares", String.valueOf(projectPath.getFileName()));
+        try {
+            runExperiments(projectPath, experimentNames);
+        } finally {
+            metrics.end();
+            metrics.writeJson(projectPath.resolve(METRICS_JSON));
+        }
+    }
+
+    private static void runExperiments(Path projectPath, List<String> experimentNames)  {
 
         // --- Early abort check ---
         if (Thread.currentThread().isInterrupted()) {
@@ -83,11 +102,14 @@ public class GenerateSquaresHeadless {
         // --- Validate input data ---
         PaintLogger.infof("Validating input data...");
 
-        ValidationResult validateResult = validateExperiments(
-                projectPath,
-                experimentNames,
-                Arrays.asList(EXPERIMENT_INFO_CSV, RECORDINGS_CSV, TRACKS_CSV)
-        );
+        ValidationResult validateResult;
+        try (PaintMetrics.Timing t = PaintMetrics.time("Validate")) {
+            validateResult = validateExperiments(
+                    projectPath,
+                    experimentNames,
+                    Arrays.asList(EXPERIMENT_INFO_CSV, RECORDINGS_CSV, TRACKS_CSV)
+            );
+        }
 
         if (!validateResult.isValid()) {
             for (String line : validateResult.getReport().split("\n")) {
@@ -96,11 +118,13 @@ public class GenerateSquaresHeadless {
             throw new IllegalStateException("Experiment validation failed.");
         }
 
-        logContextAndConfiguration(projectPath, experimentNames);
+        // --- Resolve the configuration once for the whole run ---
+        GenerateSquaresConfig generateSquaresConfig = PaintConfigSnapshot.resolve().getGenerateSquaresConfig();
+
+        logContextAndConfiguration(projectPath, experimentNames, generateSquaresConfig);
         LocalDateTime start = LocalDateTime.now();
 
         // --- Prepare project ---
-        GenerateSquaresConfig generateSquaresConfig = new GenerateSquaresConfig();
         Project project = new Project();
         project.setProjectRootPath(projectPath);
         project.setExperimentNames(experimentNames);
@@ -116,30 +140,14 @@ public class GenerateSquaresHeadless {
 
             PaintLogger.infof("Running Generate Squares for experiment: %s", experimentName);
 
+            PaintMetrics experimentMetrics = PaintMetrics.begin("Generate Squares", experimentName);
             try {
-                generateSquaresForExperiment(project, experimentName);
-            } catch (Exception e) {
-                PaintLogger.errorf("Error processing experiment %s: %s", experimentName, e.getMessage());
-                continue;
-            }
-
-            if (Thread.currentThread().isInterrupted()) {
-                PaintLogger.infof("Cancelled before exporting histograms for %s", experimentName);
-                return;
-            }
-
-            try {
-                Experiment experiment = loadExperiment(projectPath, experimentName, true);
-                Path pdfOut = projectPath
-                        .resolve(experimentName)
-                        .resolve("Output")
-                        .resolve("Background.pdf");
-
-                Files.createDirectories(pdfOut.getParent());
-                exportExperimentHistogramsToPngs(experiment, projectPath.resolve(experimentName));
-
-            } catch (Exception e) {
-                PaintLogger.errorf("Failed to export histograms for %s: %s", experimentName, e.getMessage());
+                if (!runExperiment(project, experimentName)) {
+                    return;
+                }
+            } finally {
+                experimentMetrics.end();
+                experimentMetrics.writeJson(projectPath.resolve(experimentName).resolve("Output").resolve(METRICS_JSON));
             }
         }
 
@@ -152,26 +160,28 @@ public class GenerateSquaresHeadless {
         try {
             PaintLogger.infof("Creating project-level summary files...");
 
-            PaintLogger.infof("   Creating %s", projectPath.resolve(SQUARES_CSV));
-            concatenateNamedCsvFiles(projectPath, SQUARES_CSV, experimentNames);
-            if (Thread.currentThread().isInterrupted()) {
-                return;
-            }
+            try (PaintMetrics.Timing t = PaintMetrics.time("Project CSV Write")) {
+                PaintLogger.infof("   Creating %s", projectPath.resolve(SQUARES_CSV));
+                concatenateNamedCsvFiles(projectPath, SQUARES_CSV, experimentNames);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
 
-            PaintLogger.infof("   Creating %s", projectPath.resolve(RECORDINGS_CSV));
-            concatenateNamedCsvFiles(projectPath, RECORDINGS_CSV, experimentNames);
-            if (Thread.currentThread().isInterrupted()) {
-                return;
-            }
+                PaintLogger.infof("   Creating %s", projectPath.resolve(RECORDINGS_CSV));
+                concatenateNamedCsvFiles(projectPath, RECORDINGS_CSV, experimentNames);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
 
-            PaintLogger.infof("   Creating %s", projectPath.resolve(EXPERIMENT_INFO_CSV));
-            concatenateNamedCsvFiles(projectPath, EXPERIMENT_INFO_CSV, experimentNames);
-            if (Thread.currentThread().isInterrupted()) {
-                return;
-            }
+                PaintLogger.infof("   Creating %s", projectPath.resolve(EXPERIMENT_INFO_CSV));
+                concatenateNamedCsvFiles(projectPath, EXPERIMENT_INFO_CSV, experimentNames);
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
 
-            PaintLogger.infof("   Creating %s", projectPath.resolve(TRACKS_CSV));
-            concatenateNamedCsvFiles(projectPath, TRACKS_CSV, experimentNames);
+                PaintLogger.infof("   Creating %s", projectPath.resolve(TRACKS_CSV));
+                concatenateNamedCsvFiles(projectPath, TRACKS_CSV, experimentNames);
+            }
 
             PaintLogger.blankline();
 
@@ -183,14 +193,54 @@ public class GenerateSquaresHeadless {
         }
     }
 
-    private static void logContextAndConfiguration(Path projectPath, List<String> experimentNames) {
+    /**
+     * Generates the squares of one experiment and exports its histograms.
+     *
+     * @return {@code false} if the run was cancelled
+     */
+    private static boolean runExperiment(Project project, String experimentName) {
+        Path                           projectPath = project.getProjectRootPath();
+        List<RecordingAnalysisContext> contexts;
+        try {
+            contexts = generateSquaresForExperiment(project, experimentName);
+        } catch (Exception e) {
+            PaintLogger.errorf("Error processing experiment %s: %s", experimentName, e.getMessage());
+            return true;
+        }
+
+        if (Thread.currentThread().isInterrupted()) {
+            PaintLogger.infof("Cancelled before exporting histograms for %s", experimentName);
+            return false;
+        }
+
+        try {
+            // The squares are still in memory; the plots reuse their analysis contexts
+            Path pdfOut = projectPath
+                    .resolve(experimentName)
+                    .resolve("Output")
+                    .resolve("Background.pdf");
+
+            Files.createDirectories(pdfOut.getParent());
+            try (PaintMetrics.Timing t = PaintMetrics.time("Plot Export")) {
+                exportExperimentHistogramsToPngs(contexts, projectPath.resolve(experimentName));
+            }
+
+        } catch (Exception e) {
+            PaintLogger.errorf("Failed to export histograms for %s: %s", experimentName, e.getMessage());
+        }
+        return true;
+    }
+
+    private static void logContextAndConfiguration(Path projectPath,
+                                                   List<String> experimentNames,
+                                                   GenerateSquaresConfig config) {
 
-        int nSquares      = PaintConfig.getInt("Generate Squares", "Number of Squares in Recording", 400);
+        int nSquares      = config.getNumberOfSquaresInRecording();
         int side          = (int) Math.round(Math.sqrt(nSquares));
-        int minTracks     = PaintConfig.getInt("Generate Squares", "Min Tracks to Calculate Tau", 20);
-        double minRSq     = PaintConfig.getDouble("Generate Squares", "Min Required R Squared", 0.1);
-        double minDensity = PaintConfig.getDouble("Generate Squares", "Min Required Density Ratio", 2.0);
-        double maxVar     = PaintConfig.getDouble("Generate Squares", "Max Allowable Variability", 10.0);
+        int minTracks     = config.getMinTracksToCalculateTau();
+        double minRSq     = config.getMinRequiredRSquared();
+        double minDensity = config.getMinRequiredDensityRatio();
+        double maxVar     = config.getMaxAllowableVariability();
 
         // Neatly wrapped experiment list
         String formattedExperiments;
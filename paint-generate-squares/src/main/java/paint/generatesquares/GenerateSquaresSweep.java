@@ -0,0 +1,463 @@
+/******************************************************************************
+ *  Class:        GenerateSquaresSweep.java
+ *  Package:      generatesquares
+ *
+ *  PURPOSE:
+ *    Performs a parameter sweep over the Generate Squares selection thresholds
+ *    without rerunning Generate Squares for every value.
+ *
+ *  DESCRIPTION:
+ *    Only the visibility selection and the recording-level Tau and density
+ *    depend on the thresholds. Each recording is therefore binned once into a
+ *    {@link MultiResolutionGrid}, from which the squares and square attributes
+ *    of every swept grid size are aggregated, and the Tau of a square is
+ *    fitted at most once. Each threshold combination ("case") then only masks
+ *    the square Tau values (Min Tracks to Calculate Tau, Min Required
+ *    R Squared), reapplies the visibility filter and recalculates the
+ *    recording attributes. Recordings are evaluated in parallel; the cases of
+ *    one recording run on the same thread because they share its squares.
+ *    The number of recordings evaluated at the same time is the configured
+ *    thread count (TrackMate "Number of Threads", 0 = all processors),
+ *    further limited so that the estimated grids of all running recordings
+ *    fit in half of the maximum heap.
+ *
+ *    The result is one long-format Recordings table, one row per case and
+ *    recording, with a "Case" column, written to "Sweep/Generate Squares".
+ *
+ *  RESPONSIBILITIES:
+ *    • Read the active "Generate Squares Sweep" parameters
+ *    • Build every combination of the swept values
+ *    • Aggregate square attributes per grid size from one track histogram
+ *    • Fit square Tau lazily, once per square
+ *    • Evaluate all cases and write the combined Recordings table
+ *
+ *  USAGE EXAMPLE:
+ *    GenerateSquaresSweep.runWithSweep(projectPath, Arrays.asList("Exp01", "Exp02"));
+ *
+ *  DEPENDENCIES:
+ *    - paint.shared.config.{SweepConfig, PaintConfigSnapshot, GenerateSquaresConfig}
+ *    - paint.shared.io.RecordingTableIO
+ *    - generatesquares.calc.{MultiResolutionGrid, CalculateSquareAttributes}
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.generatesquares;
+
+import paint.generatesquares.calc.CalculateSquareAttributes;
+import paint.generatesquares.calc.MultiResolutionGrid;
+import paint.shared.config.GenerateSquaresConfig;
+import paint.shared.config.PaintConfig;
+import paint.shared.config.PaintConfigSnapshot;
+import paint.shared.config.SweepConfig;
+import paint.shared.io.RecordingTableIO;
+import paint.shared.objects.Experiment;
+import paint.shared.objects.Recording;
+import paint.shared.objects.Square;
+import paint.shared.utils.CalculateTau.CalculateTauResult;
+import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
+import tech.tablesaw.api.StringColumn;
+import tech.tablesaw.api.Table;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static paint.shared.constants.PaintConstants.*;
+import static paint.shared.io.ExperimentDataLoader.loadExperiment;
+import static paint.shared.utils.Miscellaneous.formatDuration;
+import static paint.shared.utils.Miscellaneous.round;
+import static paint.shared.utils.SharedSquareUtils.applyVisibilityFilter;
+
+/**
+ * Sweeps the Generate Squares thresholds over already computed square
+ * attributes and writes one Recordings table with a "Case" column.
+ */
+public class GenerateSquaresSweep {
+
+    /**
+     * Section of the sweep configuration listing the Generate Squares parameters.
+     */
+    public static final String SWEEP_SECTION = "Generate Squares Sweep";
+
+    /**
+     * Sub-cells per square side for variability, as in Generate Squares.
+     */
+    private static final int VARIABILITY_GRANULARITY = 10;
+
+    /**
+     * Estimated heap use of one square with its attributes and track list.
+     */
+    private static final long SQUARE_BYTES = 1024;
+
+    /**
+     * Parameters that can be swept post hoc.
+     */
+    private static final List<String> SWEEPABLE = Arrays.asList(
+            NUMBER_OF_SQUARES_IN_RECORDING,
+            MIN_REQUIRED_R_SQUARED,
+            MIN_TRACKS_TO_CALCULATE_TAU,
+            MAX_ALLOWABLE_VARIABILITY,
+            MIN_REQUIRED_DENSITY_RATIO);
+
+    /**
+     * One threshold combination.
+     */
+    private static final class SweepCase {
+        final String                name;
+        final GenerateSquaresConfig config;
+
+        SweepCase(String name, GenerateSquaresConfig config) {
+            this.name   = name;
+            this.config = config;
+        }
+    }
+
+    /**
+     * Runs the sweep defined in the project's sweep configuration on the
+     * given experiments. The experiments must have TrackMate results.
+     *
+     * @param projectPath     the project directory
+     * @param experimentNames the experiments to include
+     * @return {@code true} if the combined table was written; {@code false} otherwise
+     * @throws IOException if the sweep configuration cannot be read
+     */
+    public static boolean runWithSweep(Path projectPath, List<String> experimentNames) throws IOException {
+
+        // --- Load sweep configuration ---
+        Path sweepFile = projectPath.resolve(PAINT_SWEEP_CONFIGURATION_JSON);
+        if (!Files.exists(sweepFile)) {
+            PaintLogger.infof("No sweep configuration found at %s", sweepFile);
+            return false;
+        }
+
+        Map<String, List<Number>> sweeps = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Number>> entry : new SweepConfig(sweepFile.toString()).getActiveSweepValues(SWEEP_SECTION).entrySet()) {
+            if (!SWEEPABLE.contains(entry.getKey())) {
+                PaintLogger.warnf("Sweep parameter '%s' cannot be swept post hoc and is skipped; run Generate Squares for it instead.",
+                                  entry.getKey());
+                continue;
+            }
+            List<Number> values = new ArrayList<>();
+            for (Number value : entry.getValue()) {
+                int root = (int) Math.round(Math.sqrt(value.doubleValue()));
+                if (NUMBER_OF_SQUARES_IN_RECORDING.equals(entry.getKey()) && (root <= 0 || root * root != value.intValue())) {
+                    PaintLogger.warnf("Number of Squares in Recording %s is not a square number and is skipped", value);
+                } else {
+                    values.add(value);
+                }
+            }
+            if (!values.isEmpty()) {
+                sweeps.put(entry.getKey(), values);
+            }
+        }
+        if (sweeps.isEmpty()) {
+            PaintLogger.infof("Sweep enabled, but no active Generate Squares sweep parameters defined.");
+            return false;
+        }
+
+        // The project's own configuration, whichever project the global instance was initialised for
+        PaintConfigSnapshot   snapshot   = PaintConfigSnapshot.of(PaintConfig.forProject(projectPath));
+        GenerateSquaresConfig baseConfig = snapshot.getGenerateSquaresConfig();
+        List<SweepCase>       cases      = buildCases(baseConfig, sweeps);
+
+        List<String> sweepSummary = new ArrayList<>();
+        sweepSummary.add("");
+        for (Map.Entry<String, List<Number>> entry : sweeps.entrySet()) {
+            sweepSummary.add(String.format("Parameter: %s", entry.getKey()));
+            sweepSummary.add(String.format("Values:    %s", entry.getValue()));
+            sweepSummary.add("");
+        }
+        sweepSummary.add(String.format("Cases:       %d", cases.size()));
+        sweepSummary.add(String.format("Experiments: %s", String.join(", ", experimentNames)));
+        PaintLogger.doc("Generate Squares sweep to be performed", sweepSummary);
+
+        PaintMetrics metrics = PaintMetrics.begin("Generate Squares Sweep", String.valueOf(projectPath.getFileName()));
+        try {
+            Table recordingsTable = runCases(projectPath, experimentNames, cases,
+                                             snapshot.getTrackMateConfig().getNumberOfThreads());
+            if (recordingsTable == null) {
+                return false;
+            }
+            Path target = projectPath.resolve("Sweep").resolve("Generate Squares").resolve(RECORDINGS_CSV);
+            try (PaintMetrics.Timing t = PaintMetrics.time("CSV Write")) {
+                new RecordingTableIO().writeCsv(recordingsTable, target);
+            }
+            PaintLogger.infof("Wrote %d rows for %d cases to %s", recordingsTable.rowCount(), cases.size(), target);
+            return true;
+        } finally {
+            metrics.end();
+            metrics.writeJson(projectPath.resolve(METRICS_JSON));
+        }
+    }
+
+    /**
+     * Builds every combination of the swept values, with the remaining
+     * parameters taken from the base configuration.
+     */
+    private static List<SweepCase> buildCases(GenerateSquaresConfig baseConfig, Map<String, List<Number>> sweeps) {
+        List<SweepCase> cases = new ArrayList<>();
+        cases.add(new SweepCase("", baseConfig));
+
+        for (Map.Entry<String, List<Number>> entry : sweeps.entrySet()) {
+            List<SweepCase> expanded = new ArrayList<>(cases.size() * entry.getValue().size());
+            for (SweepCase sweepCase : cases) {
+                for (Number value : entry.getValue()) {
+                    String name = (sweepCase.name.isEmpty() ? "" : sweepCase.name + " ")
+                            + "[" + entry.getKey() + "]-[" + value + "]";
+                    expanded.add(new SweepCase(name, sweepCase.config.withValue(entry.getKey(), value)));
+                }
+            }
+            cases = expanded;
+        }
+        return cases;
+    }
+
+    /**
+     * Evaluates all cases experiment by experiment and returns the combined
+     * table, ordered by case and then by recording.
+     */
+    private static Table runCases(Path projectPath,
+                                  List<String> experimentNames,
+                                  List<SweepCase> cases,
+                                  int configuredThreads) {
+
+        LocalDateTime    start            = LocalDateTime.now();
+        RecordingTableIO recordingTableIO = new RecordingTableIO();
+        List<Table>      caseTables       = new ArrayList<>(cases.size());
+        for (int i = 0; i < cases.size(); i++) {
+            caseTables.add(recordingTableIO.emptyTable());
+        }
+
+        // Every grid size any case needs is aggregated from the same base histogram
+        Set<Integer> distinctGridSizes = new LinkedHashSet<>();
+        for (SweepCase sweepCase : cases) {
+            distinctGridSizes.add(sweepCase.config.getNumberOfSquaresInRecording());
+        }
+        final List<Integer> gridSizes = new ArrayList<>(distinctGridSizes);
+
+        int threads = sweepThreads(configuredThreads, gridSizes);
+        PaintLogger.infof("Evaluating up to %d recordings at the same time", threads);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "GenerateSquaresSweep");
+            t.setDaemon(true);
+            return t;
+        });
+
+        try {
+            for (String experimentName : experimentNames) {
+                if (Thread.currentThread().isInterrupted()) {
+                    PaintLogger.infof("Generate Squares sweep stopped early (user cancelled).");
+                    return null;
+                }
+
+                Experiment experiment;
+                try (PaintMetrics.Timing t = PaintMetrics.time("Load")) {
+                    experiment = loadExperiment(projectPath, experimentName, false);
+                }
+                if (experiment == null) {
+                    PaintLogger.errorf("Failed to load experiment: %s", experimentName);
+                    continue;
+                }
+                PaintLogger.infof("Sweeping %d cases for experiment '%s'", cases.size(), experimentName);
+
+                List<Recording> recordings = experiment.getRecordings();
+
+                List<Future<double[][]>> futures = new ArrayList<>(recordings.size());
+                for (Recording recording : recordings) {
+                    futures.add(pool.submit(() -> evaluateRecording(recording, gridSizes, cases)));
+                }
+
+                List<double[][]> results = new ArrayList<>(recordings.size());
+                for (int i = 0; i < futures.size(); i++) {
+                    try {
+                        results.add(futures.get(i).get());
+                    } catch (ExecutionException e) {
+                        PaintLogger.errorf("Sweep failed for recording '%s': %s",
+                                           recordings.get(i).getRecordingName(), e.getCause());
+                        results.add(null);
+                    }
+                }
+
+                // Emit one row per case and recording
+                for (int c = 0; c < cases.size(); c++) {
+                    List<Recording> evaluated = new ArrayList<>(recordings.size());
+                    for (int r = 0; r < recordings.size(); r++) {
+                        if (results.get(r) == null) {
+                            continue;
+                        }
+                        Recording recording = recordings.get(r);
+                        double[]  result    = results.get(r)[c];
+                        recording.setTau(                        result[0]);
+                        recording.setRSquared(                   result[1]);
+                        recording.setDensity(                    result[2]);
+                        recording.setNumberOfSquaresInBackground((int) result[3]);
+                        recording.setNumberOfTracksInBackground( (int) result[4]);
+                        recording.setAverageTracksInBackGround(  result[5]);
+                        evaluated.add(recording);
+                    }
+                    recordingTableIO.appendInPlace(caseTables.get(c), recordingTableIO.toTable(evaluated));
+                }
+                PaintMetrics.count("Recordings", recordings.size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            PaintLogger.warnf("Generate Squares sweep was interrupted.");
+            return null;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        Table        combined   = recordingTableIO.emptyTable();
+        StringColumn caseColumn = StringColumn.create("Case");
+        for (int c = 0; c < cases.size(); c++) {
+            Table caseTable = caseTables.get(c);
+            recordingTableIO.appendInPlace(combined, caseTable);
+            for (int i = 0; i < caseTable.rowCount(); i++) {
+                caseColumn.append(cases.get(c).name);
+            }
+        }
+        combined.addColumns(caseColumn);
+        PaintMetrics.count("Cases", cases.size());
+
+        PaintLogger.infof("Generate Squares sweep of %d cases finished in %s",
+                          cases.size(), formatDuration(Duration.between(start, LocalDateTime.now())));
+        return combined;
+    }
+
+    /**
+     * Returns the number of recordings to evaluate at the same time: the
+     * configured thread count, bounded by the processors and by the number of
+     * grids of the estimated size that fit in half of the maximum heap. The
+     * tracks are not counted; they are loaded with the experiment anyway.
+     */
+    private static int sweepThreads(int configuredThreads, List<Integer> gridSizes) {
+        int processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+        int threads    = configuredThreads > 0 ? Math.min(configuredThreads, processors) : processors;
+
+        long bytesPerRecording = MultiResolutionGrid.estimateHistogramBytes(gridSizes, VARIABILITY_GRANULARITY);
+        for (int numberOfSquares : gridSizes) {
+            bytesPerRecording += SQUARE_BYTES * numberOfSquares;
+        }
+        long byMemory = Runtime.getRuntime().maxMemory() / 2 / Math.max(1, bytesPerRecording);
+        if (byMemory < threads) {
+            PaintLogger.infof("Sweep concurrency limited to %d by memory (about %d MB per recording)",
+                              Math.max(1, byMemory), bytesPerRecording >> 20);
+        }
+        return (int) Math.max(1, Math.min(threads, byMemory));
+    }
+
+    /**
+     * Bins one recording once and evaluates every case on the grids derived
+     * from it. Returns per case: Tau, R², density, squares in background,
+     * tracks in background and average tracks in background.
+     */
+    private static double[][] evaluateRecording(Recording recording,
+                                                List<Integer> gridSizes,
+                                                List<SweepCase> cases) {
+
+        MultiResolutionGrid grid = MultiResolutionGrid.build(recording, gridSizes, VARIABILITY_GRANULARITY);
+
+        // Cases that select the same squares of the same grid with the same R² threshold share the result
+        Map<Integer, Map<BitSet, Map<Double, double[]>>> evaluated = new HashMap<>();
+        double[][]                                       results   = new double[cases.size()][];
+
+        for (int c = 0; c < cases.size(); c++) {
+            GenerateSquaresConfig config          = cases.get(c).config;
+            int                   numberOfSquares = config.getNumberOfSquaresInRecording();
+            List<Square>          squares         = grid.getSquares(numberOfSquares);
+            recording.setSquaresOfRecording(squares);
+
+            for (int i = 0; i < squares.size(); i++) {
+                Square             square = squares.get(i);
+                int                count  = square.getNumberOfTracks();
+                CalculateTauResult fit    = count > 0 && count >= config.getMinTracksToCalculateTau()
+                        ? grid.getFit(numberOfSquares, i)
+                        : null;
+                if (fit != null
+                        && fit.getStatus() != CalculateTauResult.Status.TAU_NO_FIT
+                        && fit.getRSquared() >= config.getMinRequiredRSquared()) {
+                    square.setTau(round(fit.getTau(), 0));
+                    square.setRSquared(round(fit.getRSquared(), 3));
+                } else {
+                    square.setTau(Double.NaN);
+                    square.setRSquared(Double.NaN);
+                }
+            }
+
+            try (PaintMetrics.Timing t = PaintMetrics.time("Visibility Filter")) {
+                applyVisibilityFilter(squares,
+                                      config.getMinRequiredDensityRatio(),
+                                      config.getMaxAllowableVariability(),
+                                      config.getMinRequiredRSquared(),
+                                      config.getNeighbourMode());
+            }
+
+            BitSet selected = new BitSet(squares.size());
+            for (int i = 0; i < squares.size(); i++) {
+                if (squares.get(i).isSelected()) {
+                    selected.set(i);
+                }
+            }
+
+            Map<Double, double[]> byRSquared = evaluated
+                    .computeIfAbsent(numberOfSquares, k -> new HashMap<>())
+                    .computeIfAbsent(selected, k -> new HashMap<>());
+            double[] result = byRSquared.get(config.getMinRequiredRSquared());
+            if (result == null) {
+                CalculateSquareAttributes.calculateRecordingAttributes(grid.getContext(numberOfSquares), config);
+                result = new double[]{
+                        recording.getTau(),
+                        recording.getRSquared(),
+                        recording.getDensity(),
+                        recording.getNumberOfSquaresInBackground(),
+                        recording.getNumberOfTracksInBackground(),
+                        recording.getAverageTracksInBackGround()};
+                byRSquared.put(config.getMinRequiredRSquared(), result);
+            } else {
+                PaintMetrics.count("Reused Case Results", 1);
+            }
+            results[c] = result;
+        }
+
+        recording.setSquaresOfRecording(null);   // Release the grids with the recording's task
+        return results;
+    }
+
+    /**
+     * Command-line entry point: project directory followed by experiment names.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GenerateSquaresSweep <project directory> <experiment> [<experiment> ...]");
+            return;
+        }
+        Path projectPath = Paths.get(args[0]);
+        PaintConfig.initialise(projectPath);
+        runWithSweep(projectPath, Arrays.asList(args).subList(1, args.length));
+    }
+}
@@ -21,12 +21,16 @@
  *  USAGE EXAMPLE:
  *    CalculateAttributes.calculateSquareAttributes(experimentPath, recording, config);
  *    CalculateAttributes.calculateRecordingAttributes(recording, config);
+ *    // or, sharing one background estimate:
+ *    RecordingAnalysisContext context = RecordingAnalysisContext.of(recording);
+ *    CalculateAttributes.calculateSquareAttributes(experimentPath, context, config);
+ *    CalculateAttributes.calculateRecordingAttributes(context, config);
  *
  *  DEPENDENCIES:
  *    - paint.shared.config.GenerateSquaresConfig
  *    - paint.shared.objects.{Square, Recording, Track}
  *    - paint.shared.utils.{SquareUtils, PaintLogger}
- *    - generatesquares.calc.CalculateTau
+ *    - generatesquares.calc.{CalculateTau, RecordingAnalysisContext, PlotExportService}
  *    - tech.tablesaw.api.Table
  *
  *  AUTHOR:
@@ -47,13 +51,13 @@ import paint.shared.objects.Square;
 import paint.shared.objects.Track;
 import paint.shared.utils.CalculateTau;
 import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
 import tech.tablesaw.api.DoubleColumn;
 import tech.tablesaw.api.Table;
 
 import java.nio.file.Path;
 import java.util.List;
 
-import static paint.generatesquares.calc.PlotUtils.saveTauFitPlot;
 import static paint.generatesquares.calc.SquareUtils.*;
 import static paint.shared.constants.PaintConstants.IMAGE_WIDTH;
 import static paint.shared.constants.PaintConstants.RECORDING_DURATION;
@@ -75,22 +79,55 @@ public class CalculateSquareAttributes {
     public static void calculateSquareAttributes(Path experimentPath,
                                                  Recording recording,
                                                  GenerateSquaresConfig generateSquaresConfig) {
+        calculateSquareAttributes(experimentPath, RecordingAnalysisContext.of(recording), generateSquaresConfig);
+    }
+
+    /**
+     * Calculates the square attributes as {@link #calculateSquareAttributes(Path, Recording, GenerateSquaresConfig)},
+     * using the background estimate of an existing analysis context.
+     *
+     * @param experimentPath        the file path of the current experiment for saving generated files
+     * @param context               the analysis context of the recording, created after track assignment
+     * @param generateSquaresConfig the configuration parameters used for generating square attributes and analysis
+     */
+    public static void calculateSquareAttributes(Path experimentPath,
+                                                 RecordingAnalysisContext context,
+                                                 GenerateSquaresConfig generateSquaresConfig) {
+        try (PlotExportService plots = PlotExportService.forTauFits(generateSquaresConfig)) {
+            calculateSquareAttributes(experimentPath, context, generateSquaresConfig, plots);
+        }
+    }
+
+    /**
+     * Calculates the square attributes as {@link #calculateSquareAttributes(Path, RecordingAnalysisContext, GenerateSquaresConfig)},
+     * queueing the Tau-fit plots (if enabled) on a plot export service that the caller closes.
+     *
+     * @param experimentPath        the file path of the current experiment for saving generated files
+     * @param context               the analysis context of the recording, created after track assignment
+     * @param generateSquaresConfig the configuration parameters used for generating square attributes and analysis
+     * @param plots                 the service that writes the Tau-fit plots
+     */
+    public static void calculateSquareAttributes(Path experimentPath,
+                                                 RecordingAnalysisContext context,
+                                                 GenerateSquaresConfig generateSquaresConfig,
+                                                 PlotExportService plots) {
+        Recording    recording                  = context.getRecording();
         double       minRequiredRSquared        = generateSquaresConfig.getMinRequiredRSquared();
         int          minTracksForTau            = generateSquaresConfig.getMinTracksToCalculateTau();
         double       maxAllowableVariability    = generateSquaresConfig.getMaxAllowableVariability();
         double       minRequiredDensityRatio    = generateSquaresConfig.getMinRequiredDensityRatio();
         String       neighbourMode              = generateSquaresConfig.getNeighbourMode();
         int          numberOfSquaresInRecording = generateSquaresConfig.getNumberOfSquaresInRecording();
+        boolean      plotCurveFitting           = generateSquaresConfig.isPlotCurveFitting();
         double       squareArea                 = calculateSquareArea(numberOfSquaresInRecording);    // Here we look at the single square
         double       concentration              = recording.getConcentration();
         List<Square> squaresOfRecording         = recording.getSquaresOfRecording();
 
-        SquareUtils.BackgroundEstimationResult result = calculateBackgroundDensity(squaresOfRecording);
-        double meanBackgroundTracks                   = result.getBackgroundMean();
-        double backgroundTracksOri                    = calcAverageTrackCountInBackgroundSquares(recording.getSquaresOfRecording(), (int) (0.1 * numberOfSquaresInRecording));
+        double meanBackgroundTracks = context.getBackgroundMean();
+        double backgroundTracksOri  = context.getAverageTrackCountOfLowestSquares((int) (0.1 * numberOfSquaresInRecording));
 
         PaintLogger.debugf("Estimated Background track count = %.2f, n = %d%n",
-                           meanBackgroundTracks, result.getBackgroundSquares().size());
+                           meanBackgroundTracks, context.getNumberOfBackgroundSquares());
 
         for (Square square : squaresOfRecording) {
             List<Track> tracksInSquare  = square.getTracks();
@@ -98,19 +135,23 @@ public class CalculateSquareAttributes {
             int         squareNumber    = square.getSquareNumber();
             Table tracksInSquareTable   = square.getTracksTable();
 
+            PaintMetrics.record("Tracks per Square", tracksInSquare == null ? 0 : tracksInSquare.size());
             if (tracksInSquare == null || tracksInSquare.isEmpty()) {
                 continue;
             }
 
             if (tracksInSquare.size() >= minTracksForTau) {
-                CalculateTau.CalculateTauResult results = calculateTau(tracksInSquare, minRequiredRSquared);
+                CalculateTau.CalculateTauResult results;
+                try (PaintMetrics.Timing t = PaintMetrics.time("Tau Fitting")) {
+                    results = calculateTau(tracksInSquare, minRequiredRSquared);
+                }
 
-                if (paint.shared.config.PaintConfig.getBoolean("Generate Squares", "Plot Curve Fitting", false) &&
-                        tracksInSquare.size() >= minTracksForTau) {
-                    saveTauFitPlot(tracksInSquare, results, experimentPath, recording.getRecordingName(), squareNumber);
+                if (plotCurveFitting) {
+                    plots.submitTauFit(tracksInSquare, results, experimentPath, recording.getRecordingName(), squareNumber);
                 }
 
                 if (results.getStatus() == CalculateTau.CalculateTauResult.Status.TAU_SUCCESS) {
+                    PaintMetrics.count("Squares with Tau", 1);
                     square.setTau(round(results.getTau(), 0));
                     square.setRSquared(round(results.getRSquared(), 3));
                 } else {
@@ -152,11 +193,13 @@ public class CalculateSquareAttributes {
 
         }
 
-        applyVisibilityFilter(squaresOfRecording,
-                              minRequiredDensityRatio,
-                              maxAllowableVariability,
-                              minRequiredRSquared,
-                              neighbourMode);
+        try (PaintMetrics.Timing t = PaintMetrics.time("Visibility Filter")) {
+            applyVisibilityFilter(squaresOfRecording,
+                                  minRequiredDensityRatio,
+                                  maxAllowableVariability,
+                                  minRequiredRSquared,
+                                  neighbourMode);
+        }
 
         int labelNumber = 0;
         for (Square sq : recording.getSquaresOfRecording()) {
@@ -164,6 +207,7 @@ public class CalculateSquareAttributes {
                 sq.setLabelNumber(labelNumber++);
             }
         }
+        PaintMetrics.count("Selected Squares", labelNumber);
     }
 
     /**
@@ -177,21 +221,34 @@ public class CalculateSquareAttributes {
      */
     public static void calculateRecordingAttributes(Recording recording,
                                                     GenerateSquaresConfig generateSquaresConfig) {
+        calculateRecordingAttributes(RecordingAnalysisContext.of(recording), generateSquaresConfig);
+    }
 
-        double minRequiredRSquared = generateSquaresConfig.getMinRequiredRSquared();
+    /**
+     * Calculates the recording attributes as {@link #calculateRecordingAttributes(Recording, GenerateSquaresConfig)},
+     * using the background estimate of an existing analysis context.
+     *
+     * @param context               the analysis context of the recording's current squares
+     * @param generateSquaresConfig the configuration parameters for generating square attributes
+     */
+    public static void calculateRecordingAttributes(RecordingAnalysisContext context,
+                                                    GenerateSquaresConfig generateSquaresConfig) {
 
-        BackgroundEstimationResult result = SquareUtils.calculateBackgroundDensity(recording.getSquaresOfRecording());
-        double       meanBackgroundTracks = result.getBackgroundMean();
-        int          backgroundTracks     = result.getBackgroundSquares().stream().mapToInt(Square::getNumberOfTracks).sum();
+        Recording recording            = context.getRecording();
+        double    minRequiredRSquared  = generateSquaresConfig.getMinRequiredRSquared();
+        double    meanBackgroundTracks = context.getBackgroundMean();
 
-        PaintLogger.debugf("Estimated Background track count = %.2f, n = %d%n", meanBackgroundTracks, result.getBackgroundSquares().size());
+        PaintLogger.debugf("Estimated Background track count = %.2f, n = %d%n", meanBackgroundTracks, context.getNumberOfBackgroundSquares());
 
-        recording.setNumberOfSquaresInBackground(result.getBackgroundSquares().size());
-        recording.setNumberOfTracksInBackground(backgroundTracks);
+        recording.setNumberOfSquaresInBackground(context.getNumberOfBackgroundSquares());
+        recording.setNumberOfTracksInBackground(context.getNumberOfTracksInBackground());
         recording.setAverageTracksInBackGround(round(meanBackgroundTracks, 3));
 
         List<Track> tracksFromSelectedSquares = getTracksFromSelectedSquares(recording.getSquaresOfRecording());
-        CalculateTau.CalculateTauResult results = calculateTau(tracksFromSelectedSquares, minRequiredRSquared);
+        CalculateTau.CalculateTauResult results;
+        try (PaintMetrics.Timing t = PaintMetrics.time("Tau Fitting")) {
+            results = calculateTau(tracksFromSelectedSquares, minRequiredRSquared);
+        }
         if (results.getStatus() == CalculateTau.CalculateTauResult.Status.TAU_SUCCESS) {
             recording.setTau(round(results.getTau(), 0));
             recording.setRSquared(round(results.getRSquared(), 3));
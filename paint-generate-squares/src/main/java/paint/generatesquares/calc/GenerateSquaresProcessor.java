@@ -26,7 +26,7 @@
  *    - paint.shared.config.GenerateSquaresConfig
  *    - paint.shared.objects.{Project, Experiment, Recording, Square, Track}
  *    - paint.shared.io.{SquareTableIO, TrackTableIO}
- *    - generatesquares.calc.CalculateAttributes
+ *    - generatesquares.calc.{CalculateAttributes, RecordingAnalysisContext, PlotExportService}
  *    - tech.tablesaw.api.Table
  *
  *  AUTHOR:
@@ -46,6 +46,7 @@ import paint.shared.io.SquareTableIO;
 import paint.shared.io.TrackTableIO;
 import paint.shared.objects.*;
 import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
 import tech.tablesaw.api.Table;
 
 import java.nio.file.Path;
@@ -55,7 +56,6 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-import static paint.shared.config.PaintConfig.getBoolean;
 import static paint.shared.constants.PaintConstants.IMAGE_HEIGHT;
 import static paint.shared.constants.PaintConstants.IMAGE_WIDTH;
 import static paint.shared.io.ExperimentDataLoader.loadExperiment;
@@ -76,14 +76,16 @@ public class GenerateSquaresProcessor {
      *
      * @param project        the project containing configurations and experiment data
      * @param experimentName the name of the experiment to process
+     * @return the analysis contexts of the processed recordings, for reuse by the background plots;
+     *         incomplete if the experiment could not be loaded or the run was cancelled
      */
-    public static void generateSquaresForExperiment(Project project, String experimentName) {
-        GenerateSquaresConfig generateSquaresConfig = project.getGenerateSquaresConfig();
-        Experiment            experiment            = null;
-        List<Recording>       recordings;
+    public static List<RecordingAnalysisContext> generateSquaresForExperiment(Project project, String experimentName) {
+        GenerateSquaresConfig          generateSquaresConfig = project.getGenerateSquaresConfig();
+        Experiment                     experiment            = null;
+        List<Recording>                recordings;
+        List<RecordingAnalysisContext> contexts              = new ArrayList<>();
 
         Path    projectPath       = project.getProjectRootPath();
-        boolean plotFittingCurves = getBoolean("Generate Squares", "Plot Curve Fitting", false);
 
         LocalDateTime start = LocalDateTime.now();
         PaintLogger.debugf("Loading Experiment '%s'", experimentName);
@@ -91,9 +93,9 @@ public class GenerateSquaresProcessor {
         // Early Exit if the user cancelled before we start
         if (Thread.currentThread().isInterrupted()) {
             PaintLogger.infof("Cancelled before starting experiment %s", experimentName);
-            return;
+            return contexts;
         }
-        try {
+        try (PaintMetrics.Timing t = PaintMetrics.time("Load")) {
             experiment = loadExperiment(project.getProjectRootPath(), experimentName, false);
         } catch (Exception e) {
             PaintLogger.errorf("Failed to load Experiment '%s'", experimentName);
@@ -101,64 +103,94 @@ public class GenerateSquaresProcessor {
 
         if (experiment == null) {
             PaintLogger.errorf("Failed to load experiment: %s", experimentName);
-            return;
+            return contexts;
         }
 
         PaintLogger.infof("Starting processing experiment '%s'", experimentName);
 
-        recordings = experiment.getRecordings();
-        for (Recording recording : recordings) {
-
-            // CHECK before starting each recording
-            if (Thread.currentThread().isInterrupted()) {
-                PaintLogger.infof("Cancelled before processing recording %s", recording.getRecordingName());
-                return;
+        // Tau-fit plots are written in the background; the experiment only waits for them at the end
+        try (PlotExportService plots = PlotExportService.forTauFits(generateSquaresConfig)) {
+            recordings = experiment.getRecordings();
+            for (Recording recording : recordings) {
+
+                // CHECK before starting each recording
+                if (Thread.currentThread().isInterrupted()) {
+                    PaintLogger.infof("Cancelled before processing recording %s", recording.getRecordingName());
+                    return contexts;
+                }
+                PaintLogger.infof("   Processing: %s", recording.getRecordingName());
+                PaintLogger.debugf(recording::toString);
+                long recordingStart = System.nanoTime();
+
+                // Create the squares with basic geometric information
+                try (PaintMetrics.Timing t = PaintMetrics.time("Square Generation")) {
+                    List<Square> squares = generateSquaresForRecording(recording, generateSquaresConfig);
+                    recording.setSquaresOfRecording(squares);
+                }
+
+                // Assign the recording tracks to the squares
+                try (PaintMetrics.Timing t = PaintMetrics.time("Track Assignment")) {
+                    assignTracksToSquares(recording);
+                }
+
+                // CHECK mid-work before calculating attributes
+                if (Thread.currentThread().isInterrupted()) {
+                    PaintLogger.infof("Cancelled before attribute calculation for %s", recording.getRecordingName());
+                    return contexts;
+                }
+
+                // Calculate square-level and recording-level attributes
+                Path experimentPath = project.getProjectRootPath().resolve(experiment.getExperimentName());
+                RecordingAnalysisContext context = RecordingAnalysisContext.of(recording);
+                CalculateSquareAttributes.calculateSquareAttributes(experimentPath, context, generateSquaresConfig, plots);
+                CalculateSquareAttributes.calculateRecordingAttributes(context, generateSquaresConfig);
+                contexts.add(context);
+
+                PaintMetrics.count("Recordings", 1);
+                PaintMetrics.count("Squares", recording.getSquaresOfRecording().size());
+                PaintMetrics.count("Tracks", recording.getTracksTable().rowCount());
+                PaintMetrics.record("Recording Seconds", (System.nanoTime() - recordingStart) / 1e9);
             }
-            PaintLogger.infof("   Processing: %s", recording.getRecordingName());
-            PaintLogger.debugf(recording.toString());
 
-            // Create the squares with basic geometric information
-            List<Square> squares = generateSquaresForRecording(recording, generateSquaresConfig);
-            recording.setSquaresOfRecording(squares);
+            Duration duration = Duration.between(start, LocalDateTime.now());
+            PaintLogger.infof("Finished processing experiment '%s' in %s", experimentName, formatDuration(duration));
+            PaintLogger.blankline();
 
-            // Assign the recording tracks to the squares
-            assignTracksToSquares(recording);
-
-            // CHECK mid-work before calculating attributes
+            // CHECK before writing output files
             if (Thread.currentThread().isInterrupted()) {
-                PaintLogger.infof("Cancelled before attribute calculation for %s", recording.getRecordingName());
-                return;
+                PaintLogger.infof("Cancelled before writing output for %s", experimentName);
+                return contexts;
             }
 
-            // Calculate square-level and recording-level attributes
-            Path experimentPath = project.getProjectRootPath().resolve(experiment.getExperimentName());
-            CalculateSquareAttributes.calculateSquareAttributes(experimentPath, recording, generateSquaresConfig);
-            CalculateSquareAttributes.calculateRecordingAttributes(recording, generateSquaresConfig);
-        }
-
-        Duration duration = Duration.between(start, LocalDateTime.now());
-        PaintLogger.infof("Finished processing experiment '%s' in %s", experimentName, formatDuration(duration));
-        PaintLogger.blankline();
-
-        // CHECK before writing output files
-        if (Thread.currentThread().isInterrupted()) {
-            PaintLogger.infof("Cancelled before writing output for %s", experimentName);
-            return;
-        }
+            // Compile all squares and write
+            Path  experimentPath = project.getProjectRootPath().resolve(experiment.getExperimentName());
+            Table allSquaresTable;
+            try (PaintMetrics.Timing t = PaintMetrics.time("Table Compile")) {
+                allSquaresTable = compileAllSquares(experiment);
+            }
+            try (PaintMetrics.Timing t = PaintMetrics.time("CSV Write")) {
+                writeAllSquares(experimentPath, allSquaresTable);
 
-        // Compile all squares and write
-        Table allSquaresTable = compileAllSquares(experiment);
-        Path experimentPath = project.getProjectRootPath().resolve(experiment.getExperimentName());
-        writeAllSquares(experimentPath, allSquaresTable);
+                // Write recordings
+                writeAllRecordings(experimentPath, experiment.getRecordings());
+            }
 
-        // Write recordings
-        writeAllRecordings(experimentPath, experiment.getRecordings());
+            // All Tracks
+            Table allTracksTable;
+            try (PaintMetrics.Timing t = PaintMetrics.time("Table Compile")) {
+                allTracksTable = compileAllTracks(experiment);
+                allTracksTable = allTracksTable.sortOn("Recording Name", "Track Id");
+            }
+            try (PaintMetrics.Timing t = PaintMetrics.time("CSV Write")) {
+                writeAllTracks(experimentPath, allTracksTable);
+            }
 
-        // All Tracks
-        Table allTracksTable = compileAllTracks(experiment);
-        allTracksTable = allTracksTable.sortOn("Recording Name", "Track Id");
-        writeAllTracks(experimentPath, allTracksTable);
+            try (PaintMetrics.Timing t = PaintMetrics.time("Plot Export Wait")) {
+                plots.awaitCompletion();
+            }
+        }
 
+        return contexts;
     }
 
     /**
@@ -259,8 +291,10 @@ public class GenerateSquaresProcessor {
             square.setNumberOfTracks(tracks.size());
 
             // Log info
-            PaintLogger.debugf("Square %d: %d tracks assigned (label %d)",
-                               square.getSquareNumber(), tracks.size(), labelNumber);
+            if (PaintLogger.isDebugEnabled()) {
+                PaintLogger.debugf("Square %d: %d tracks assigned (label %d)",
+                                   square.getSquareNumber(), tracks.size(), labelNumber);
+            }
 
             labelNumber++;
         }
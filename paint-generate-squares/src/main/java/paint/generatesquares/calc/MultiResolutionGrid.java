@@ -0,0 +1,608 @@
+/******************************************************************************
+ *  Class:        MultiResolutionGrid.java
+ *  Package:      generatesquares.calc
+ *
+ *  PURPOSE:
+ *    Derives square grids of several sizes for one recording from a single
+ *    fine-grained track histogram.
+ *
+ *  DESCRIPTION:
+ *    The recording is binned once, in a single pass over its tracks, at the
+ *    base dimension: the least common multiple of the requested grid
+ *    dimensions. Summed-area tables then give the track count of any block of
+ *    cells in constant time, so for every grid that divides the base
+ *    dimension the squares are aggregated rather than rebuilt:
+ *      • the number of tracks per square is one block sum over the base
+ *        cells, whose boundaries are rounded exactly as {@link Square} rounds
+ *        its corners, so square membership matches filterTracksInSquare,
+ *      • the variability is the coefficient of variation of the
+ *        granularity × granularity sub-blocks of a fine histogram of
+ *        (base dimension × granularity)² cells, as
+ *        {@link CalculateSquareAttributes#calculateVariability} computes it,
+ *      • density and density ratio follow from the counts.
+ *    The few tracks that lie between a rounded and an exact boundary, or on a
+ *    fine cell boundary where floating-point rounding may differ per grid, are
+ *    kept aside and placed in their sub-cell per grid with the original formula.
+ *    The tracks of each base cell are indexed as well, so a square's track
+ *    list is gathered without filtering the tracks table. Tau is fitted lazily,
+ *    only for squares of grids that are actually evaluated, and remembered.
+ *
+ *    The fine histogram grows with the square of the base dimension, and the
+ *    least common multiple of a few dimensions can be large (20, 25, 30, 35
+ *    and 40 give 4200). The base dimension is therefore capped at
+ *    {@link #MAX_BASE_DIMENSION}: dimensions that do not fit one base are
+ *    split into families, each binned into its own histogram, and a single
+ *    dimension above the cap gets a histogram of its own dimension.
+ *
+ *  RESPONSIBILITIES:
+ *    • Group the grid dimensions into families with a bounded base dimension
+ *    • Build the histograms, summed-area tables and cell index of each family
+ *    • Create the squares of any supported grid with counts and attributes
+ *    • Fit and cache square Tau on demand
+ *
+ *  USAGE EXAMPLE:
+ *    MultiResolutionGrid grid = MultiResolutionGrid.build(recording, Arrays.asList(100, 400, 1600), 10);
+ *    List<Square> squares = grid.getSquares(400);
+ *    CalculateTau.CalculateTauResult fit = grid.getFit(400, 17);
+ *
+ *  DEPENDENCIES:
+ *    - paint.shared.objects.{Recording, Square, Track}
+ *    - paint.shared.utils.CalculateTau
+ *    - generatesquares.calc.RecordingAnalysisContext
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.generatesquares.calc;
+
+import paint.shared.objects.Recording;
+import paint.shared.objects.Square;
+import paint.shared.objects.Track;
+import paint.shared.utils.CalculateTau.CalculateTauResult;
+import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
+import tech.tablesaw.api.DoubleColumn;
+import tech.tablesaw.api.Table;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static paint.generatesquares.calc.CalculateSquareAttributes.calculateDensityRatio;
+import static paint.shared.constants.PaintConstants.IMAGE_HEIGHT;
+import static paint.shared.constants.PaintConstants.IMAGE_WIDTH;
+import static paint.shared.constants.PaintConstants.RECORDING_DURATION;
+import static paint.shared.objects.Square.calculateSquareArea;
+import static paint.shared.utils.CalculateTau.calculateTau;
+import static paint.shared.utils.Miscellaneous.round;
+import static paint.shared.utils.SharedSquareUtils.calculateDensity;
+
+/**
+ * Square grids of several resolutions for one recording, derived from one
+ * pass over its tracks per histogram. Not thread-safe; use one instance per thread.
+ */
+public final class MultiResolutionGrid {
+
+    /**
+     * Largest base dimension of one histogram. The fine histogram of a base
+     * dimension of 300 with granularity 10 has 3000 × 3000 cells (36 MB).
+     */
+    public static final int MAX_BASE_DIMENSION = 300;
+
+    private final Recording   recording;
+    private final List<Track> tracks;
+    private final int         granularity;     // Variability sub-cells per square side
+
+    private final Map<Integer, Histogram>                histograms = new HashMap<>();   // By grid dimension
+    private final Map<Integer, List<Square>>             grids      = new HashMap<>();
+    private final Map<Integer, RecordingAnalysisContext> contexts   = new HashMap<>();
+    private final Map<Integer, CalculateTauResult[]>     fits       = new HashMap<>();
+
+    private MultiResolutionGrid(Recording recording, Map<Integer, List<Integer>> families, int granularity) {
+        this.recording   = recording;
+        this.tracks      = recording.getTracks() != null ? recording.getTracks() : Collections.emptyList();
+        this.granularity = granularity;
+
+        for (Map.Entry<Integer, List<Integer>> family : families.entrySet()) {
+            Histogram histogram = new Histogram(family.getKey());
+            for (int dimension : family.getValue()) {
+                histograms.put(dimension, histogram);
+            }
+        }
+    }
+
+    /**
+     * Builds the histograms of a recording for the given grid sizes.
+     *
+     * @param recording        the recording, with its tracks and tracks table loaded
+     * @param numbersOfSquares the grid sizes that will be requested, each a square number
+     * @param granularity      sub-cells per square side used for variability (10 in Generate Squares)
+     * @return the grid
+     * @throws IllegalArgumentException if a grid size is not a square number, or its fine histogram is too large
+     */
+    public static MultiResolutionGrid build(Recording recording, Collection<Integer> numbersOfSquares, int granularity) {
+        Map<Integer, List<Integer>> families = families(numbersOfSquares);
+        if (families.size() > 1) {
+            PaintLogger.debugf("Recording '%s': grid dimensions binned in %d histograms with base dimensions %s",
+                               recording.getRecordingName(), families.size(), families.keySet());
+        }
+        try (PaintMetrics.Timing t = PaintMetrics.time("Base Histogram")) {
+            return new MultiResolutionGrid(recording, families, granularity);
+        }
+    }
+
+    /**
+     * Returns the base dimensions of the histograms that {@link #build} creates
+     * for the given grid sizes: one per family of dimensions whose least common
+     * multiple stays within {@link #MAX_BASE_DIMENSION}.
+     *
+     * @param numbersOfSquares the grid sizes, each a square number
+     * @return the base dimensions, largest family first
+     * @throws IllegalArgumentException if a grid size is not a square number
+     */
+    public static List<Integer> baseDimensions(Collection<Integer> numbersOfSquares) {
+        return new ArrayList<>(families(numbersOfSquares).keySet());
+    }
+
+    /**
+     * Estimates the memory taken by the histograms of one recording, excluding
+     * the squares and the tracks themselves.
+     *
+     * @param numbersOfSquares the grid sizes, each a square number
+     * @param granularity      sub-cells per square side used for variability
+     * @return the estimate in bytes
+     */
+    public static long estimateHistogramBytes(Collection<Integer> numbersOfSquares, int granularity) {
+        long bytes = 0;
+        for (int baseDimension : baseDimensions(numbersOfSquares)) {
+            long fine = (long) baseDimension * granularity + 1;
+            long base = baseDimension + 1;
+            bytes += Integer.BYTES * (2 * fine * fine + 3 * base * base);   // Fine counts and table, base counts, table and index
+        }
+        return bytes;
+    }
+
+    /**
+     * Groups the dimensions of the grid sizes, largest first, into families
+     * whose least common multiple does not exceed {@link #MAX_BASE_DIMENSION}.
+     *
+     * @return the dimensions per family, keyed by the base dimension of the family
+     */
+    private static Map<Integer, List<Integer>> families(Collection<Integer> numbersOfSquares) {
+        List<Integer> dimensions = new ArrayList<>();
+        for (int numberOfSquares : numbersOfSquares) {
+            int dimension = dimensionOf(numberOfSquares);
+            if (!dimensions.contains(dimension)) {
+                dimensions.add(dimension);
+            }
+        }
+        dimensions.sort(Collections.reverseOrder());
+
+        List<Integer>       bases   = new ArrayList<>();
+        List<List<Integer>> members = new ArrayList<>();
+        for (int dimension : dimensions) {
+            int family = 0;
+            while (family < bases.size() && lcm(bases.get(family), dimension) > MAX_BASE_DIMENSION) {
+                family++;
+            }
+            if (family == bases.size()) {
+                bases.add(dimension);   // May exceed the cap on its own; it then needs that resolution anyway
+                members.add(new ArrayList<>());
+            } else {
+                bases.set(family, (int) lcm(bases.get(family), dimension));
+            }
+            members.get(family).add(dimension);
+        }
+
+        Map<Integer, List<Integer>> families = new LinkedHashMap<>();
+        for (int family = 0; family < bases.size(); family++) {
+            families.computeIfAbsent(bases.get(family), k -> new ArrayList<>()).addAll(members.get(family));
+        }
+        return families;
+    }
+
+    /**
+     * Returns the squares of a grid, with track lists, number of tracks,
+     * variability, density and density ratio set as in
+     * {@link CalculateSquareAttributes#calculateSquareAttributes}. Tau and R²
+     * are left unset; see {@link #getFit(int, int)}. The squares are created on
+     * the first call and shared afterwards.
+     *
+     * @param numberOfSquares the grid size; it must have been requested when the grid was built
+     * @return the squares in row-major order
+     */
+    public List<Square> getSquares(int numberOfSquares) {
+        List<Square> squares = grids.get(numberOfSquares);
+        if (squares == null) {
+            try (PaintMetrics.Timing t = PaintMetrics.time("Grid Aggregation")) {
+                squares = createSquares(numberOfSquares);
+            }
+            grids.put(numberOfSquares, squares);
+        }
+        return squares;
+    }
+
+    /**
+     * Returns the analysis context (background estimate) of a grid, which
+     * does not depend on any threshold and is therefore shared by all cases.
+     *
+     * @param numberOfSquares the grid size
+     * @return the context of the squares returned by {@link #getSquares(int)}
+     */
+    public RecordingAnalysisContext getContext(int numberOfSquares) {
+        getSquares(numberOfSquares);
+        return contexts.get(numberOfSquares);
+    }
+
+    /**
+     * Returns the Tau fit of one square, fitting it on first use. The fit is
+     * made without an R² threshold, so callers apply their own.
+     *
+     * @param numberOfSquares the grid size
+     * @param squareNumber    the square within that grid
+     * @return the fit, or {@code null} if the square has no tracks
+     */
+    public CalculateTauResult getFit(int numberOfSquares, int squareNumber) {
+        CalculateTauResult[] gridFits = fits.computeIfAbsent(numberOfSquares, k -> new CalculateTauResult[numberOfSquares]);
+        CalculateTauResult   fit      = gridFits[squareNumber];
+        if (fit == null) {
+            List<Track> squareTracks = getSquares(numberOfSquares).get(squareNumber).getTracks();
+            if (squareTracks == null || squareTracks.isEmpty()) {
+                return null;
+            }
+            try (PaintMetrics.Timing t = PaintMetrics.time("Tau Fitting")) {
+                fit = calculateTau(squareTracks, Double.NEGATIVE_INFINITY);
+            }
+            gridFits[squareNumber] = fit;
+        }
+        return fit;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // AGGREGATION
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    private List<Square> createSquares(int numberOfSquares) {
+        int       dimension = dimensionOf(numberOfSquares);
+        Histogram histogram = histograms.get(dimension);
+        if (histogram == null) {
+            throw new IllegalArgumentException("Grid of " + numberOfSquares + " squares was not requested when the histogram was built");
+        }
+
+        int    block         = histogram.baseDimension / dimension;   // Base cells per square side, and fine cells per sub-cell side
+        double squareWidth   = IMAGE_WIDTH / dimension;
+        double squareHeight  = IMAGE_HEIGHT / dimension;
+        double squareArea    = calculateSquareArea(numberOfSquares);
+        double concentration = recording.getConcentration();
+        int[][] strayCells   = histogram.placeStrays(dimension, block);
+
+        List<Square> squares = new ArrayList<>(numberOfSquares);
+        int squareNumber = 0;
+        for (int row = 0; row < dimension; row++) {
+            for (int col = 0; col < dimension; col++) {
+                Square square = new Square(
+                        recording.getRecordingName() + '-' + squareNumber,
+                        recording.getExperimentName(),
+                        recording.getRecordingName(),
+                        squareNumber,
+                        row,
+                        col,
+                        col * squareWidth,
+                        row * squareHeight,
+                        (col + 1) * squareWidth,
+                        (row + 1) * squareHeight);
+
+                int count = blockSum(histogram.baseArea, histogram.baseDimension, row * block, col * block, block);
+                square.setNumberOfTracks(count);
+                square.setTracks(histogram.gatherTracks(row * block, col * block, block));
+
+                if (count > 0) {
+                    square.setVariability(round(histogram.variability(row, col, block, strayCells[squareNumber]), 2));
+                    square.setDensity(round(calculateDensity(count, squareArea, RECORDING_DURATION, concentration), 3));
+                }
+                squares.add(square);
+                squareNumber++;
+            }
+        }
+
+        RecordingAnalysisContext context              = RecordingAnalysisContext.of(recording, squares);
+        double                   meanBackgroundTracks = context.getBackgroundMean();
+        contexts.put(numberOfSquares, context);
+        for (Square square : squares) {
+            if (square.getNumberOfTracks() > 0) {
+                square.setDensityRatio(round(calculateDensityRatio(square.getNumberOfTracks(), meanBackgroundTracks), 2));
+            }
+        }
+        return squares;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // HISTOGRAM
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * The histograms, summed-area tables and cell index of one family of
+     * grid dimensions, all of which divide its base dimension.
+     */
+    private final class Histogram {
+
+        private final int      baseDimension;   // Least common multiple of the family's dimensions
+        private final int      fineCells;       // Fine histogram cells per image side
+
+        private final double[] xBounds;         // Rounded base cell boundaries, as Square rounds them
+        private final double[] yBounds;
+        private final int[]    baseArea;        // Summed-area table of the base cell counts
+        private final int[]    cellStart;       // Index into cellTracks of the first track of each base cell
+        private final int[]    cellTracks;      // Track indices grouped by base cell
+        private final int[]    fineArea;        // Summed-area table of the fine cell counts
+
+        private final int[]    strayTracks;     // Tracks whose rounded and exact cells differ or are ambiguous
+        private final int[]    strayRow;        // Their base row and column
+        private final int[]    strayCol;
+        private final double[] strayX;
+        private final double[] strayY;
+
+        Histogram(int baseDimension) {
+            long fineSide = (long) baseDimension * granularity;
+            if ((fineSide + 1) * (fineSide + 1) > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Grid dimension " + baseDimension + " is too large for a variability histogram");
+            }
+            this.baseDimension = baseDimension;
+            this.fineCells     = (int) fineSide;
+            this.xBounds       = roundedBounds(IMAGE_WIDTH,  baseDimension);
+            this.yBounds       = roundedBounds(IMAGE_HEIGHT, baseDimension);
+
+            Table        table = recording.getTracksTable();
+            DoubleColumn xCol  = table.doubleColumn("Track X Location");
+            DoubleColumn yCol  = table.doubleColumn("Track Y Location");
+            int          n     = table.rowCount();
+
+            int[]       baseCellOfTrack = new int[n];
+            int[]       baseCounts      = new int[baseDimension * baseDimension];
+            int[]       fineCounts      = new int[fineCells * fineCells];
+            List<int[]> strays          = new ArrayList<>();
+
+            // One pass over the tracks: base cell (membership) and fine cell (variability)
+            for (int i = 0; i < n; i++) {
+                double x   = xCol.getDouble(i);
+                double y   = yCol.getDouble(i);
+                int    col = baseIndex(x, xBounds);
+                int    row = baseIndex(y, yBounds);
+                if (col < 0 || row < 0) {
+                    baseCellOfTrack[i] = -1;            // Outside every square
+                    continue;
+                }
+                baseCellOfTrack[i] = row * baseDimension + col;
+                baseCounts[baseCellOfTrack[i]]++;
+
+                // Variability uses exact, unrounded sub-cells, with the image width for both axes
+                int fineCol = onFineBoundary(x) ? -1 : fineIndex(x);
+                int fineRow = onFineBoundary(y) ? -1 : fineIndex(y);
+                if (fineCol >= 0 && fineRow >= 0 && fineCol / granularity == col && fineRow / granularity == row) {
+                    fineCounts[fineRow * fineCells + fineCol]++;
+                } else {
+                    strays.add(new int[]{i, row, col});
+                }
+            }
+
+            // Group the track indices by base cell, keeping the table order within a cell
+            this.cellStart = new int[baseCounts.length + 1];
+            for (int cell = 0; cell < baseCounts.length; cell++) {
+                cellStart[cell + 1] = cellStart[cell] + baseCounts[cell];
+            }
+            this.cellTracks = new int[cellStart[baseCounts.length]];
+            int[] fill = Arrays.copyOf(cellStart, baseCounts.length);
+            for (int i = 0; i < n; i++) {
+                if (baseCellOfTrack[i] >= 0) {
+                    cellTracks[fill[baseCellOfTrack[i]]++] = i;
+                }
+            }
+
+            this.baseArea = summedArea(baseCounts, baseDimension);
+            this.fineArea = summedArea(fineCounts, fineCells);
+
+            this.strayTracks = new int[strays.size()];
+            this.strayRow    = new int[strays.size()];
+            this.strayCol    = new int[strays.size()];
+            this.strayX      = new double[strays.size()];
+            this.strayY      = new double[strays.size()];
+            for (int k = 0; k < strays.size(); k++) {
+                int[] stray = strays.get(k);
+                strayTracks[k] = stray[0];
+                strayRow[k]    = stray[1];
+                strayCol[k]    = stray[2];
+                strayX[k]      = xCol.getDouble(stray[0]);
+                strayY[k]      = yCol.getDouble(stray[0]);
+            }
+        }
+
+        /**
+         * Places the stray tracks in the variability sub-cell of their square in
+         * a grid, with the formula of {@link CalculateSquareAttributes#calculateVariability}.
+         * Tracks that formula leaves out of the matrix are left out here too.
+         *
+         * @return per square, the sub-cell indices to add (or {@code null})
+         */
+        private int[][] placeStrays(int dimension, int block) {
+            int[][] placed = new int[dimension * dimension][];
+            double  width  = IMAGE_WIDTH / dimension;
+            for (int k = 0; k < strayTracks.length; k++) {
+                int row = strayRow[k] / block;
+                int col = strayCol[k] / block;
+                int xi  = (int) (((strayX[k] - col * width) / width) * granularity);
+                int yi  = (int) (((strayY[k] - row * width) / width) * granularity);
+                if (xi < 0 || xi >= granularity || yi < 0 || yi >= granularity) {
+                    continue;
+                }
+                int   square = row * dimension + col;
+                int[] cells  = placed[square] == null ? new int[1] : Arrays.copyOf(placed[square], placed[square].length + 1);
+                cells[cells.length - 1] = yi * granularity + xi;
+                placed[square] = cells;
+            }
+            return placed;
+        }
+
+        /**
+         * Coefficient of variation of the granularity × granularity sub-cell
+         * counts of one square.
+         */
+        private double variability(int row, int col, int subBlock, int[] strayCells) {
+            int[]  counts = new int[granularity * granularity];
+            int    r0     = row * granularity * subBlock;
+            int    c0     = col * granularity * subBlock;
+            int    idx    = 0;
+            for (int i = 0; i < granularity; i++) {
+                for (int j = 0; j < granularity; j++) {
+                    counts[idx++] = blockSum(fineArea, fineCells, r0 + i * subBlock, c0 + j * subBlock, subBlock);
+                }
+            }
+            if (strayCells != null) {
+                for (int cell : strayCells) {
+                    counts[cell]++;
+                }
+            }
+
+            double sum = 0.0;
+            for (int count : counts) {
+                sum += count;
+            }
+            double mean = sum / counts.length;
+            if (mean == 0) {
+                return 0.0;
+            }
+            double sumSq = 0.0;
+            for (int count : counts) {
+                double diff = count - mean;
+                sumSq += diff * diff;
+            }
+            return Math.sqrt(sumSq / counts.length) / mean;
+        }
+
+        private List<Track> gatherTracks(int r0, int c0, int block) {
+            int count = blockSum(baseArea, baseDimension, r0, c0, block);
+            if (count == 0) {
+                return Collections.emptyList();
+            }
+            int[] indices = new int[count];
+            int   k       = 0;
+            for (int r = r0; r < r0 + block; r++) {
+                int from = cellStart[r * baseDimension + c0];
+                int to   = cellStart[r * baseDimension + c0 + block];
+                System.arraycopy(cellTracks, from, indices, k, to - from);
+                k += to - from;
+            }
+            Arrays.sort(indices);   // Table order, as filterTracksInSquare returns them
+
+            List<Track> squareTracks = new ArrayList<>(count);
+            for (int index : indices) {
+                squareTracks.add(tracks.get(index));
+            }
+            return squareTracks;
+        }
+
+        /**
+         * Base cell of a coordinate under the rounded boundaries: lower bound
+         * inclusive, upper bound exclusive except for the last cell, as in
+         * {@code SharedSquareUtils.filterTracksInSquare}.
+         */
+        private int baseIndex(double value, double[] bounds) {
+            int last = bounds.length - 2;
+            if (Double.isNaN(value) || value < bounds[0] || value > bounds[last + 1]) {
+                return -1;
+            }
+            int k = Math.min(last, (int) (value / bounds[last + 1] * (last + 1)));
+            while (k > 0 && value < bounds[k]) {
+                k--;
+            }
+            while (k < last && value >= bounds[k + 1]) {
+                k++;
+            }
+            return k;
+        }
+
+        /**
+         * Fine cell of a coordinate under the exact boundaries, or -1 outside the image.
+         */
+        private int fineIndex(double value) {
+            if (Double.isNaN(value) || value < 0 || value >= IMAGE_WIDTH) {
+                return -1;
+            }
+            return Math.min(fineCells - 1, (int) (value / IMAGE_WIDTH * fineCells));
+        }
+
+        /**
+         * Whether a coordinate lies on, or within rounding error of, a fine cell
+         * boundary. The original formula may then round to either side,
+         * depending on the grid.
+         */
+        private boolean onFineBoundary(double value) {
+            double cell = value / IMAGE_WIDTH * fineCells;
+            return Math.abs(cell - Math.rint(cell)) < 1e-9 * Math.max(1.0, cell);
+        }
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // INDEXING
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    private static double[] roundedBounds(double extent, int dimension) {
+        double   width  = extent / dimension;
+        double[] bounds = new double[dimension + 1];
+        for (int k = 0; k <= dimension; k++) {
+            bounds[k] = round(k * width, 2);
+        }
+        return bounds;
+    }
+
+    private static int[] summedArea(int[] counts, int size) {
+        int   stride = size + 1;
+        int[] area   = new int[stride * stride];
+        for (int r = 0; r < size; r++) {
+            int rowSum = 0;
+            for (int c = 0; c < size; c++) {
+                rowSum += counts[r * size + c];
+                area[(r + 1) * stride + (c + 1)] = area[r * stride + (c + 1)] + rowSum;
+            }
+        }
+        return area;
+    }
+
+    private static int blockSum(int[] area, int size, int r0, int c0, int block) {
+        int stride = size + 1;
+        int r1     = r0 + block;
+        int c1     = c0 + block;
+        return area[r1 * stride + c1] - area[r0 * stride + c1]
+             - area[r1 * stride + c0] + area[r0 * stride + c0];
+    }
+
+    private static int dimensionOf(int numberOfSquares) {
+        int dimension = (int) Math.round(Math.sqrt(numberOfSquares));
+        if (dimension <= 0 || dimension * dimension != numberOfSquares) {
+            throw new IllegalArgumentException("Number of squares must be a square number: " + numberOfSquares);
+        }
+        return dimension;
+    }
+
+    private static long lcm(int a, int b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+}
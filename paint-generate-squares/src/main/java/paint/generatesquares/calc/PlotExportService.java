@@ -0,0 +1,316 @@
+/******************************************************************************
+ *  Class:        PlotExportService.java
+ *  Package:      generatesquares.calc
+ *
+ *  PURPOSE:
+ *    Renders and writes Tau-fit plots and background histograms as PNG files
+ *    on background workers, so the square calculations do not wait for
+ *    image encoding.
+ *
+ *  DESCRIPTION:
+ *    Plots are submitted from the calculation thread and rendered by a small
+ *    pool of daemon workers, started on the first submission. Each worker
+ *    draws into its own reusable opaque image buffer, so no image is
+ *    allocated per plot. A semaphore bounds the number of plots that are
+ *    queued or being written: when the workers fall behind, submitting blocks
+ *    until a plot is finished, so memory stays bounded however many squares a
+ *    recording has.
+ *
+ *    Tau-fit plots can be limited to the failed fits or to a sample of the
+ *    squares ("Plot Curve Fitting Selection"). Generate Squares opens one
+ *    service per experiment and only waits for it when the experiment is
+ *    complete. A plot that cannot be written is logged and does not stop the
+ *    run, as before.
+ *
+ *  RESPONSIBILITIES:
+ *    • Select which Tau-fit plots are written
+ *    • Render and encode plots asynchronously with bounded back-pressure
+ *    • Wait for all outstanding plots on close
+ *
+ *  USAGE EXAMPLE:
+ *    try (PlotExportService plots = PlotExportService.forTauFits(config)) {
+ *        plots.submitTauFit(tracks, result, experimentPath, recordingName, squareNumber);
+ *    }
+ *
+ *  DEPENDENCIES:
+ *    - paint.shared.config.GenerateSquaresConfig
+ *    - paint.shared.utils.{CalculateTau, PaintLogger, PaintMetrics}
+ *    - generatesquares.calc.{PlotUtils, RecordingAnalysisContext}
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.generatesquares.calc;
+
+import paint.shared.config.GenerateSquaresConfig;
+import paint.shared.objects.Track;
+import paint.shared.utils.CalculateTau;
+import paint.shared.utils.PaintLogger;
+import paint.shared.utils.PaintMetrics;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import static paint.generatesquares.calc.PlotUtils.drawHistogram;
+import static paint.generatesquares.calc.PlotUtils.drawTauPlot;
+import static paint.generatesquares.calc.PlotUtils.frequencyDistribution;
+import static paint.generatesquares.calc.PlotUtils.isFitFailed;
+import static paint.generatesquares.calc.PlotUtils.tauFitPlotPath;
+
+/**
+ * Bounded asynchronous writer of plot PNGs. Submitting is meant for one
+ * thread; rendering happens on the service's own workers.
+ */
+public final class PlotExportService implements AutoCloseable {
+
+    /**
+     * Which Tau-fit plots are written.
+     */
+    public enum Selection {
+        ALL,        // Every fitted square
+        FAILED,     // Only squares whose fit failed
+        SAMPLE;     // Every n-th square
+
+        /**
+         * Parses a configuration value, case-insensitively. Unknown values select all plots.
+         */
+        public static Selection parse(String value) {
+            if (value != null) {
+                for (Selection selection : values()) {
+                    if (selection.name().equalsIgnoreCase(value.trim())) {
+                        return selection;
+                    }
+                }
+                PaintLogger.warnf("Unknown Plot Curve Fitting Selection '%s', plotting all fits", value);
+            }
+            return ALL;
+        }
+    }
+
+    private static final int PLOT_WIDTH        = 900;
+    private static final int PLOT_HEIGHT       = 600;
+    private static final int PLOTS_PER_WORKER  = 8;     // Plots that may be pending per worker before submitting blocks
+
+    /**
+     * Image buffer of each worker thread, reused for every plot it renders.
+     */
+    private static final ThreadLocal<BufferedImage> BUFFER = ThreadLocal.withInitial(
+            () -> new BufferedImage(PLOT_WIDTH, PLOT_HEIGHT, BufferedImage.TYPE_INT_RGB));
+
+    private final Selection selection;
+    private final int       sampleInterval;
+    private final int       threads;
+    private final int       capacity;
+    private final Semaphore slots;
+    private ExecutorService workers;                     // Started on the first submission
+
+    /**
+     * Creates a service.
+     *
+     * @param selection      which Tau-fit plots to write
+     * @param sampleInterval with {@link Selection#SAMPLE}, every n-th square is plotted
+     * @param threads        number of worker threads
+     */
+    public PlotExportService(Selection selection, int sampleInterval, int threads) {
+        this.selection      = selection;
+        this.sampleInterval = Math.max(1, sampleInterval);
+        this.threads        = Math.max(1, threads);
+        this.capacity       = this.threads * PLOTS_PER_WORKER;
+        this.slots          = new Semaphore(capacity);
+    }
+
+    /**
+     * Creates a service for the Tau-fit plots of Generate Squares, with the
+     * selection of the configuration.
+     *
+     * @param config the Generate Squares configuration
+     * @return the service
+     */
+    public static PlotExportService forTauFits(GenerateSquaresConfig config) {
+        return new PlotExportService(Selection.parse(config.getPlotCurveFittingSelection()),
+                                     config.getPlotCurveFittingSampleInterval(),
+                                     defaultThreads());
+    }
+
+    /**
+     * Creates a service that writes every submitted plot, e.g. for the
+     * background histograms.
+     *
+     * @return the service
+     */
+    public static PlotExportService forAllPlots() {
+        return new PlotExportService(Selection.ALL, 1, defaultThreads());
+    }
+
+    private static int defaultThreads() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // SUBMISSION
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Decides whether the Tau-fit plot of a square is written.
+     *
+     * @param squareNumber the square number within its recording
+     * @param fitFailed    whether the fit failed
+     * @return {@code true} if the plot is selected
+     */
+    public boolean isSelected(int squareNumber, boolean fitFailed) {
+        switch (selection) {
+            case FAILED:
+                return fitFailed;
+            case SAMPLE:
+                return squareNumber % sampleInterval == 0;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Queues the Tau-fit plot of a square, if it is selected. The frequency
+     * distribution is taken from the tracks before this method returns.
+     * Blocks while the maximum number of plots is pending.
+     *
+     * @param tracks         the tracks of the square
+     * @param tauResult      the result of the Tau calculation (may indicate failure)
+     * @param experimentPath the base path of the experiment directory
+     * @param recordingName  the name of the recording
+     * @param squareNumber   the square number, used to name the file
+     */
+    public void submitTauFit(List<Track> tracks,
+                             CalculateTau.CalculateTauResult tauResult,
+                             Path experimentPath,
+                             String recordingName,
+                             int squareNumber) {
+        boolean fitFailed = isFitFailed(tauResult);
+        if (!isSelected(squareNumber, fitFailed)) {
+            return;
+        }
+        double[][] xy       = frequencyDistribution(tracks);
+        Path       plotPath = tauFitPlotPath(experimentPath, recordingName, squareNumber, fitFailed);
+
+        submit(plotPath, String.format("Tau-fit plot for '%s' square %03d", recordingName, squareNumber), image -> {
+            Graphics2D g2 = image.createGraphics();
+            try {
+                drawTauPlot(g2, xy[0], xy[1], tauResult, fitFailed, PLOT_WIDTH, PLOT_HEIGHT);
+            } finally {
+                g2.dispose();
+            }
+        });
+    }
+
+    /**
+     * Queues the background histogram of a recording. Blocks while the
+     * maximum number of plots is pending.
+     *
+     * @param context    the analysis context of the recording
+     * @param outputFile the PNG file to write
+     */
+    public void submitHistogram(RecordingAnalysisContext context, Path outputFile) {
+        context.getHistogram();     // Derived here, so the worker only reads it
+
+        submit(outputFile, "background histogram for '" + context.getRecording().getRecordingName() + "'", image -> {
+            Graphics2D g2 = image.createGraphics();
+            try {
+                drawHistogram(g2, PLOT_WIDTH, PLOT_HEIGHT, context);
+            } finally {
+                g2.dispose();
+            }
+        });
+    }
+
+    private void submit(Path outputFile, String description, Drawing drawing) {
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();     // Cancelled: skip the plot, keep the flag for the caller
+            return;
+        }
+
+        try {
+            workers().execute(() -> {
+                try (PaintMetrics.Timing t = PaintMetrics.time("Plot Export")) {
+                    BufferedImage image = BUFFER.get();
+                    drawing.draw(image);
+                    Files.createDirectories(outputFile.getParent());
+                    ImageIO.write(image, "png", outputFile.toFile());
+                    PaintMetrics.count("Plots Written", 1);
+                } catch (Exception e) {
+                    // Log failure but do *not* throw
+                    PaintLogger.errorf("Failed to save %s: %s", description, e.getMessage());
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            slots.release();
+            PaintLogger.errorf("Plot export service is closed, skipped %s", description);
+        }
+    }
+
+    private synchronized ExecutorService workers() {
+        if (workers == null) {
+            workers = Executors.newFixedThreadPool(threads, r -> {
+                Thread t = new Thread(r, "PlotExport");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return workers;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // COMPLETION
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Waits until every submitted plot has been written. Returns early, with
+     * the interrupt flag set, if the calling thread is interrupted.
+     */
+    public void awaitCompletion() {
+        try {
+            slots.acquire(capacity);
+            slots.release(capacity);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the outstanding plots and stops the workers.
+     */
+    @Override
+    public void close() {
+        awaitCompletion();
+        synchronized (this) {
+            if (workers != null) {
+                workers.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Draws one plot into a worker's image buffer.
+     */
+    @FunctionalInterface
+    private interface Drawing {
+        void draw(BufferedImage image);
+    }
+}
@@ -18,7 +18,8 @@
  *  RESPONSIBILITIES:
  *    • Draw frequency–duration scatter plots and fitted exponential curves
  *    • Display Tau and R² annotations on plots
- *    • Build histograms of track counts and background counts per square
+ *    • Draw histograms of track counts and background counts per square,
+ *      taken from the recording's analysis context
  *    • Save Tau-fit images, handling directory structure and failure/success classification
  *    • Produce antialiased BufferedImage or PDF or PNG output for use in Paint analysis
  *
@@ -30,7 +31,7 @@
  *  DEPENDENCIES:
  *    – paint.shared.objects.{Experiment, Recording, Square, Track}
  *    – paint.shared.utils.PaintLogger
- *    – paint.generatesquares.calc.SquareUtils
+ *    – paint.generatesquares.calc.RecordingAnalysisContext
  *    – org.apache.pdfbox and de.rototor.pdfbox.graphics2d.PdfBoxGraphics2D
  *
  *  AUTHOR:
@@ -67,8 +68,6 @@ import java.nio.file.Path;
 import java.util.*;
 import java.util.List;
 
-import static paint.generatesquares.calc.SquareUtils.calculateBackgroundDensity;
-
 public class PlotUtils {
 
     private PlotUtils() {
@@ -94,6 +93,22 @@ public class PlotUtils {
         // --- Initialize blank image and 2D context ---
         BufferedImage img = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g2 = img.createGraphics();
+        drawTauPlot(g2, x, y, result, fitFailed, width, height);
+        g2.dispose();
+        return img;
+    }
+
+    /**
+     * Draws a Tau plot, as {@link #renderTauPlot}, into an existing graphics
+     * context covering {@code width × height} pixels. The whole area is
+     * repainted, so an image buffer can be reused. The context is not disposed.
+     */
+    static void drawTauPlot(Graphics2D g2,
+                            double[] x, double[] y,
+                            CalculateTau.CalculateTauResult result,
+                            boolean fitFailed,
+                            int width, int height) {
+
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
         // --- Draw background ---
@@ -196,10 +211,6 @@ public class PlotUtils {
                                 result.getTau(), result.getRSquared());
         g2.setFont(g2.getFont().deriveFont(Font.BOLD, 14f));
         g2.drawString(msg, marginLeft + 10, marginTop + 20);
-
-        // --- Cleanup and return image ---
-        g2.dispose();
-        return img;
     }
 
     /**
@@ -211,39 +222,26 @@ public class PlotUtils {
      * @throws IOException If an error occurs during the creation or saving of the PDF file.
      */
     public static void exportExperimentHistogramsToPdf(Experiment experiment, Path outputFile) throws IOException {
+        exportExperimentHistogramsToPdf(createContexts(experiment), outputFile);
+    }
+
+    /**
+     * Exports the histograms of recordings whose analysis contexts already exist
+     * to a PDF file, one page per recording.
+     *
+     * @param contexts   the analysis contexts of the recordings, in page order
+     * @param outputFile The output {@code Path} where the generated PDF file will be saved.
+     * @throws IOException If an error occurs during the creation or saving of the PDF file.
+     */
+    public static void exportExperimentHistogramsToPdf(List<RecordingAnalysisContext> contexts, Path outputFile) throws IOException {
         try (PDDocument doc = new PDDocument()) {
-            for (Recording recording : experiment.getRecordings()) {
-                List<Square> squares = recording.getSquaresOfRecording();
-                if (squares == null || squares.isEmpty()) {
+            for (RecordingAnalysisContext context : contexts) {
+                Recording recording = context.getRecording();
+                if (context.getNumberOfSquares() == 0) {
                     System.out.printf("Recording '%s': no squares%n", recording.getRecordingName());
                     continue;
                 }
 
-                SquareUtils.BackgroundEstimationResult backgroundResult = calculateBackgroundDensity(squares);
-                Set<Square> backgroundSet = new HashSet<>(backgroundResult.getBackgroundSquares());
-                double backgroundTracksPerSquare = backgroundResult.getBackgroundMean();
-
-                int totalSquares = squares.size();
-                int nBackground  = backgroundSet.size();
-                int totalTracks  = squares.stream().mapToInt(Square::getNumberOfTracks).sum();
-                int backgroundTracksTotal = backgroundSet.stream().mapToInt(Square::getNumberOfTracks).sum();
-
-                int maxTracks = squares.stream().mapToInt(Square::getNumberOfTracks).max().orElse(0);
-                int binSize   = Math.max(1, maxTracks / 20);
-                int binCount  = (maxTracks / binSize) + 1;
-
-                int[] allBins = new int[binCount];
-                int[] bgBins  = new int[binCount];
-
-                for (Square sq : squares) {
-                    int n   = sq.getNumberOfTracks();
-                    int bin = Math.min(n / binSize, binCount - 1);
-                    allBins[bin]++;
-                    if (backgroundSet.contains(sq)) {
-                        bgBins[bin]++;
-                    }
-                }
-
                 PDPage page = new PDPage(PDRectangle.A4);
                 doc.addPage(page);
 
@@ -255,18 +253,7 @@ public class PlotUtils {
 
                 PdfBoxGraphics2D g2 = new PdfBoxGraphics2D(doc, plotWidth, plotHeight);
 
-                drawHistogram(g2,
-                              plotWidth,
-                              plotHeight,
-                              allBins,
-                              bgBins,
-                              binSize,
-                              recording.getRecordingName(),
-                              totalSquares,
-                              totalTracks,
-                              nBackground,
-                              backgroundTracksTotal,
-                              backgroundTracksPerSquare);
+                drawHistogram(g2, plotWidth, plotHeight, context);
 
                 g2.dispose();
                 PDFormXObject formXObject = g2.getXFormObject();
@@ -307,63 +294,35 @@ public class PlotUtils {
      * @throws IOException If any image cannot be written.
      */
     public static void exportExperimentHistogramsToPngs(Experiment experiment, Path experimentPath) throws IOException {
+        exportExperimentHistogramsToPngs(createContexts(experiment), experimentPath);
+    }
+
+    /**
+     * Exports the histograms of recordings whose analysis contexts already exist
+     * as individual PNG images, without reloading or re-estimating anything.
+     * The images are rendered and written in parallel; the method returns
+     * when all of them have been written.
+     *
+     * @param contexts       the analysis contexts of the recordings
+     * @param experimentPath The root directory of the experiment (used to resolve Output path).
+     * @throws IOException If any image cannot be written.
+     */
+    public static void exportExperimentHistogramsToPngs(List<RecordingAnalysisContext> contexts, Path experimentPath) throws IOException {
         Path outputDir = experimentPath.resolve("Output").resolve("Background Plots");
         Files.createDirectories(outputDir);
 
-        for (Recording recording : experiment.getRecordings()) {
-            List<Square> squares = recording.getSquaresOfRecording();
-            if (squares == null || squares.isEmpty()) {
-                PaintLogger.debugf("Recording '%s': no squares%n", recording.getRecordingName());
-                continue;
-            }
-
-            SquareUtils.BackgroundEstimationResult backgroundResult = calculateBackgroundDensity(squares);
-            Set<Square> backgroundSet = new HashSet<>(backgroundResult.getBackgroundSquares());
-            double backgroundTracksPerSquare = backgroundResult.getBackgroundMean();
-
-            int totalSquares = squares.size();
-            int nBackground  = backgroundSet.size();
-            int totalTracks  = squares.stream().mapToInt(Square::getNumberOfTracks).sum();
-            int backgroundTracksTotal = backgroundSet.stream().mapToInt(Square::getNumberOfTracks).sum();
-
-            int maxTracks = squares.stream()
-                    .mapToInt(Square::getNumberOfTracks).max().orElse(0);
-            int binSize   = Math.max(1, maxTracks / 20);
-            int binCount  = (maxTracks / binSize) + 1;
-
-            int[] allBins = new int[binCount];
-            int[] bgBins  = new int[binCount];
-
-            for (Square sq : squares) {
-                int n   = sq.getNumberOfTracks();
-                int bin = Math.min(n / binSize, binCount - 1);
-                allBins[bin]++;
-                if (backgroundSet.contains(sq)) {
-                    bgBins[bin]++;
+        try (PlotExportService plots = PlotExportService.forAllPlots()) {
+            for (RecordingAnalysisContext context : contexts) {
+                Recording recording = context.getRecording();
+                if (context.getNumberOfSquares() == 0) {
+                    PaintLogger.debugf("Recording '%s': no squares%n", recording.getRecordingName());
+                    continue;
                 }
-            }
 
-            int plotWidth  = 900;
-            int plotHeight = 600;
-            BufferedImage img = new BufferedImage(plotWidth, plotHeight, BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2 = img.createGraphics();
-            drawHistogram(g2,
-                          plotWidth,
-                          plotHeight,
-                          allBins,
-                          bgBins,
-                          binSize,
-                          recording.getRecordingName(),
-                          totalSquares,
-                          totalTracks,
-                          nBackground,
-                          backgroundTracksTotal,
-                          backgroundTracksPerSquare);
-            g2.dispose();
-
-            Path outFile = outputDir.resolve(recording.getRecordingName() + ".png");
-            ImageIO.write(img, "png", outFile.toFile());
-            PaintLogger.debugf("Wrote background histogram to %s%n", outFile);
+                Path outFile = outputDir.resolve(recording.getRecordingName() + ".png");
+                plots.submitHistogram(context, outFile);
+                PaintLogger.debugf("Queued background histogram for %s%n", outFile);
+            }
         }
     }
 
@@ -385,11 +344,39 @@ public class PlotUtils {
                                       Path experimentPath,
                                       String recordingName,
                                       int squareIndex) {
-        boolean fitFailed = (tauResult == null ||
+        boolean    fitFailed = isFitFailed(tauResult);
+        double[][] xy        = frequencyDistribution(tracks);
+
+        BufferedImage img = renderTauPlot(xy[0], xy[1], tauResult, fitFailed, 900, 600);
+
+        try {
+            Path plotPath = tauFitPlotPath(experimentPath, recordingName, squareIndex, fitFailed);
+            Files.createDirectories(plotPath.getParent());
+            ImageIO.write(img, "png", plotPath.toFile());
+        } catch (Exception e) {
+            // Log failure but do *not* throw
+            PaintLogger.errorf("Failed to save Tau-fit plot for '%s' square %03d: %s",
+                               recordingName, squareIndex, e.getMessage());
+        }
+    }
+
+    /**
+     * @return whether a Tau result counts as a failed fit for plotting
+     */
+    static boolean isFitFailed(CalculateTau.CalculateTauResult tauResult) {
+        return tauResult == null ||
                 tauResult.getStatus() != CalculateTau.CalculateTauResult.Status.TAU_SUCCESS ||
                 !Double.isFinite(tauResult.getTau()) ||
-                !Double.isFinite(tauResult.getRSquared()));
+                !Double.isFinite(tauResult.getRSquared());
+    }
 
+    /**
+     * Builds the frequency distribution of the track durations, as plotted by
+     * {@link #renderTauPlot}.
+     *
+     * @return the distinct durations (ascending) and their frequencies
+     */
+    static double[][] frequencyDistribution(List<Track> tracks) {
         Map<Double, Integer> freqMap = new TreeMap<>();
         for (Track track : tracks) {
             double d = track.getTrackDuration();
@@ -404,24 +391,43 @@ public class PlotUtils {
             y[idx] = e.getValue();
             idx++;
         }
+        return new double[][]{x, y};
+    }
 
-        BufferedImage img = renderTauPlot(x, y, tauResult, fitFailed, 900, 600);
+    /**
+     * @return the file a Tau-fit plot is written to, under "Success" or "Failed"
+     */
+    static Path tauFitPlotPath(Path experimentPath, String recordingName, int squareIndex, boolean fitFailed) {
+        Path rootDir = experimentPath.resolve("Output").resolve("Tau Fitting Plots");
+        return rootDir.resolve(fitFailed ? "Failed" : "Success")
+                      .resolve(String.format("%s_square_%03d.png", recordingName, squareIndex));
+    }
 
-        Path rootDir   = experimentPath.resolve("Output").resolve("Tau Fitting Plots");
-        Path targetDir = rootDir.resolve(fitFailed ? "Failed" : "Success");
+    // ========== Helper methods: contexts and drawHistogram ==========
 
-        try {
-            Files.createDirectories(targetDir);
-            Path plotPath = targetDir.resolve(String.format("%s_square_%03d.png", recordingName, squareIndex));
-            ImageIO.write(img, "png", plotPath.toFile());
-        } catch (Exception e) {
-            // Log failure but do *not* throw
-            PaintLogger.errorf("Failed to save Tau-fit plot for '%s' square %03d: %s",
-                               recordingName, squareIndex, e.getMessage());
+    private static List<RecordingAnalysisContext> createContexts(Experiment experiment) {
+        List<RecordingAnalysisContext> contexts = new ArrayList<>();
+        for (Recording recording : experiment.getRecordings()) {
+            contexts.add(RecordingAnalysisContext.of(recording));
         }
+        return contexts;
     }
 
-    // ========== Helper method: drawHistogram ==========
+    static void drawHistogram(Graphics2D g2, int w, int h, RecordingAnalysisContext context) {
+        RecordingAnalysisContext.Histogram histogram = context.getHistogram();
+        drawHistogram(g2,
+                      w,
+                      h,
+                      histogram.getAllBins(),
+                      histogram.getBackgroundBins(),
+                      histogram.getBinSize(),
+                      context.getRecording().getRecordingName(),
+                      context.getNumberOfSquares(),
+                      context.getTotalTracks(),
+                      context.getNumberOfBackgroundSquares(),
+                      context.getNumberOfTracksInBackground(),
+                      context.getBackgroundMean());
+    }
 
     private static void drawHistogram(Graphics2D g2,
                                       int w,
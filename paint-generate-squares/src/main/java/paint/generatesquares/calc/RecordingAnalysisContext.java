@@ -0,0 +1,358 @@
+/******************************************************************************
+ *  Class:        RecordingAnalysisContext.java
+ *  Package:      generatesquares.calc
+ *
+ *  PURPOSE:
+ *    Holds the track-count statistics of the squares of one recording, so the
+ *    background estimate, the sorted counts and the histogram bins are
+ *    computed once and shared by every consumer.
+ *
+ *  DESCRIPTION:
+ *    The number of tracks of every square is copied once into a primitive
+ *    int[]. The iterative background estimation (mean + 2σ clipping) runs on
+ *    that array with a boolean mask instead of rebuilding lists of squares on
+ *    every iteration, and its outcome is kept. Square attributes (density
+ *    ratio), recording attributes (background counts) and the background
+ *    histogram plots all read the same context instead of estimating the
+ *    background again, and the plots no longer need the experiment reloaded
+ *    from disk. The sorted counts and the histogram bins are derived lazily.
+ *
+ *    The context reflects the track counts at the time it was created; it is
+ *    created after the tracks have been assigned to the squares.
+ *
+ *  RESPONSIBILITIES:
+ *    • Estimate the background once per set of squares
+ *    • Average the lowest non-zero track counts from one sorted array
+ *    • Provide the track-count histogram with its background bins
+ *
+ *  USAGE EXAMPLE:
+ *    RecordingAnalysisContext context = RecordingAnalysisContext.of(recording);
+ *    double background = context.getBackgroundMean();
+ *    RecordingAnalysisContext.Histogram histogram = context.getHistogram();
+ *
+ *  DEPENDENCIES:
+ *    - paint.shared.objects.{Recording, Square}
+ *    - generatesquares.calc.SquareUtils
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.generatesquares.calc;
+
+import paint.shared.objects.Recording;
+import paint.shared.objects.Square;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Track-count statistics of the squares of one recording. Not thread-safe;
+ * the lazily derived values are meant to be used by the thread that owns the
+ * recording.
+ */
+public final class RecordingAnalysisContext {
+
+    private static final double EPSILON        = 0.01;   // Relative change of the mean at which the estimation stops
+    private static final int    MAX_ITERATIONS = 10;
+    private static final int    HISTOGRAM_BINS = 20;
+
+    private final Recording    recording;
+    private final List<Square> squares;
+    private final int[]        trackCounts;         // Per square, in square order
+    private final boolean[]    background;          // Per square, whether it is part of the background
+    private final double       backgroundMean;
+    private final int          backgroundSquares;
+    private final int          backgroundTracks;
+    private final int          totalTracks;
+    private final int          maxTracks;
+
+    private int[]                                  sortedTrackCounts;    // Ascending, derived on first use
+    private Histogram                              histogram;
+    private SquareUtils.BackgroundEstimationResult backgroundEstimate;
+
+    private RecordingAnalysisContext(Recording recording, List<Square> squares) {
+        this.recording   = recording;
+        this.squares     = squares != null ? squares : Collections.emptyList();
+        this.trackCounts = new int[this.squares.size()];
+        this.background  = new boolean[trackCounts.length];
+
+        int total = 0;
+        int max   = 0;
+        for (int i = 0; i < trackCounts.length; i++) {
+            trackCounts[i] = this.squares.get(i).getNumberOfTracks();
+            total += trackCounts[i];
+            max    = Math.max(max, trackCounts[i]);
+        }
+        this.totalTracks    = total;
+        this.maxTracks      = max;
+        this.backgroundMean = estimateBackground();
+
+        int nSquares = 0;
+        int nTracks  = 0;
+        for (int i = 0; i < trackCounts.length; i++) {
+            if (background[i]) {
+                nSquares++;
+                nTracks += trackCounts[i];
+            }
+        }
+        this.backgroundSquares = nSquares;
+        this.backgroundTracks  = nTracks;
+    }
+
+    /**
+     * Creates the context of the current squares of a recording.
+     *
+     * @param recording the recording, with tracks assigned to its squares
+     * @return the context
+     */
+    public static RecordingAnalysisContext of(Recording recording) {
+        return new RecordingAnalysisContext(recording, recording.getSquaresOfRecording());
+    }
+
+    /**
+     * Creates the context of a set of squares, for example a grid that is not
+     * (yet) set on the recording.
+     *
+     * @param recording the recording the squares belong to, or {@code null} if not known
+     * @param squares   the squares, with their number of tracks set
+     * @return the context
+     */
+    public static RecordingAnalysisContext of(Recording recording, List<Square> squares) {
+        return new RecordingAnalysisContext(recording, squares);
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // BACKGROUND
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Iteratively excludes squares with more than mean + 2σ tracks and
+     * recalculates the mean, until the mean stabilises or the maximum number
+     * of iterations is reached. Marks the remaining squares as background.
+     *
+     * @return the mean track count of the background squares
+     */
+    private double estimateBackground() {
+        int n = trackCounts.length;
+        if (n == 0) {
+            return Double.NaN;
+        }
+
+        double mean = (double) totalTracks / n;
+        if (mean == 0) {
+            return mean;                         // No background squares, as before
+        }
+
+        boolean[] current = new boolean[n];
+        Arrays.fill(current, true);
+        int currentCount = n;
+
+        for (int iter = 0; iter < MAX_ITERATIONS; iter++) {
+            double prevMean = mean;
+
+            double sumSq = 0.0;
+            for (int i = 0; i < n; i++) {
+                if (current[i]) {
+                    double diff = trackCounts[i] - mean;
+                    sumSq += diff * diff;
+                }
+            }
+            double threshold = mean + 2 * Math.sqrt(sumSq / currentCount);
+
+            int  filteredCount = 0;
+            long filteredSum   = 0;
+            for (int i = 0; i < n; i++) {
+                if (current[i] && trackCounts[i] <= threshold) {
+                    filteredCount++;
+                    filteredSum += trackCounts[i];
+                }
+            }
+            if (filteredCount == 0) {
+                break;
+            }
+
+            for (int i = 0; i < n; i++) {
+                current[i] = current[i] && trackCounts[i] <= threshold;
+            }
+            currentCount = filteredCount;
+            mean         = (double) filteredSum / filteredCount;
+
+            // Stop if the mean stabilizes
+            if (Math.abs(mean - prevMean) / prevMean < EPSILON) {
+                break;
+            }
+        }
+
+        System.arraycopy(current, 0, background, 0, n);
+        return mean;
+    }
+
+    /**
+     * @return the estimated mean track count of the background squares
+     */
+    public double getBackgroundMean() {
+        return backgroundMean;
+    }
+
+    /**
+     * @return the number of squares classified as background
+     */
+    public int getNumberOfBackgroundSquares() {
+        return backgroundSquares;
+    }
+
+    /**
+     * @return the total number of tracks in the background squares
+     */
+    public int getNumberOfTracksInBackground() {
+        return backgroundTracks;
+    }
+
+    /**
+     * @param squareIndex the position of the square in the list of squares
+     * @return whether the square is classified as background
+     */
+    public boolean isBackground(int squareIndex) {
+        return background[squareIndex];
+    }
+
+    /**
+     * Returns the background estimate in the form of
+     * {@link SquareUtils#calculateBackgroundDensity(List)}. The list of
+     * background squares is built on first use.
+     *
+     * @return the background estimate
+     */
+    public SquareUtils.BackgroundEstimationResult getBackgroundEstimate() {
+        if (backgroundEstimate == null) {
+            List<Square> backgroundList = new ArrayList<>(backgroundSquares);
+            for (int i = 0; i < trackCounts.length; i++) {
+                if (background[i]) {
+                    backgroundList.add(squares.get(i));
+                }
+            }
+            backgroundEstimate = new SquareUtils.BackgroundEstimationResult(backgroundMean, backgroundList);
+        }
+        return backgroundEstimate;
+    }
+
+    /**
+     * Averages the smallest non-zero track counts, as
+     * {@link SquareUtils#calcAverageTrackCountInBackgroundSquares(List, int)}.
+     *
+     * @param nrOfAverageCountSquares the number of smallest non-zero counts to average
+     * @return the average, or 0.0 if all squares are empty
+     */
+    public double getAverageTrackCountOfLowestSquares(int nrOfAverageCountSquares) {
+        if (sortedTrackCounts == null) {
+            sortedTrackCounts = Arrays.copyOf(trackCounts, trackCounts.length);
+            Arrays.sort(sortedTrackCounts);
+        }
+
+        double total = 0.0;
+        int    n     = 0;
+        for (int value : sortedTrackCounts) {
+            if (value > 0) {
+                total += value;
+                n++;
+                if (n >= nrOfAverageCountSquares) {
+                    break;
+                }
+            }
+        }
+        return n == 0 ? 0.0 : total / n;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // HISTOGRAM
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Returns the histogram of track counts per square, with the background
+     * squares counted separately. Built on first use.
+     *
+     * @return the histogram
+     */
+    public Histogram getHistogram() {
+        if (histogram == null) {
+            int   binSize  = Math.max(1, maxTracks / HISTOGRAM_BINS);
+            int   binCount = (maxTracks / binSize) + 1;
+            int[] allBins  = new int[binCount];
+            int[] bgBins   = new int[binCount];
+            for (int i = 0; i < trackCounts.length; i++) {
+                int bin = Math.min(trackCounts[i] / binSize, binCount - 1);
+                allBins[bin]++;
+                if (background[i]) {
+                    bgBins[bin]++;
+                }
+            }
+            histogram = new Histogram(binSize, allBins, bgBins);
+        }
+        return histogram;
+    }
+
+    /**
+     * Track-count histogram of the squares of a recording.
+     */
+    public static final class Histogram {
+        private final int   binSize;
+        private final int[] allBins;
+        private final int[] backgroundBins;
+
+        private Histogram(int binSize, int[] allBins, int[] backgroundBins) {
+            this.binSize        = binSize;
+            this.allBins        = allBins;
+            this.backgroundBins = backgroundBins;
+        }
+
+        public int getBinSize() {
+            return binSize;
+        }
+
+        /**
+         * @return the number of squares per bin (not to be modified)
+         */
+        public int[] getAllBins() {
+            return allBins;
+        }
+
+        /**
+         * @return the number of background squares per bin (not to be modified)
+         */
+        public int[] getBackgroundBins() {
+            return backgroundBins;
+        }
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // ACCESSORS
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * @return the recording, or {@code null} if the context was created from squares only
+     */
+    public Recording getRecording() {
+        return recording;
+    }
+
+    public List<Square> getSquares() {
+        return squares;
+    }
+
+    public int getNumberOfSquares() {
+        return trackCounts.length;
+    }
+
+    public int getTotalTracks() {
+        return totalTracks;
+    }
+}
@@ -26,7 +26,7 @@
  *
  *  DEPENDENCIES:
  *    – paint.shared.objects.{Recording, Square, Track}
- *    – java.util.{List, ArrayList, Collections, Comparator}
+ *    – generatesquares.calc.RecordingAnalysisContext
  *
  *  AUTHOR:
  *    Hans Bakker (jjabakker)
@@ -42,11 +42,7 @@ package paint.generatesquares.calc;
 
 import paint.shared.objects.Square;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class SquareUtils {
 
@@ -66,60 +62,10 @@ public class SquareUtils {
      *                Must not be null or empty.
      * @return A BackgroundEstimationResult object containing the estimated mean track count
      * for the background and the list of squares identified as background.
+     * @see RecordingAnalysisContext to estimate once and share the result
      */
     public static BackgroundEstimationResult calculateBackgroundDensity(List<Square> squares) {
-        if (squares == null || squares.isEmpty()) {
-            return new BackgroundEstimationResult(Double.NaN, Collections.emptyList());
-        }
-
-        double mean = squares.stream()
-                .mapToDouble(Square::getNumberOfTracks)
-                .average().orElse(Double.NaN);
-
-        if (Double.isNaN(mean) || mean == 0) {
-            return new BackgroundEstimationResult(mean, Collections.emptyList());
-        }
-
-        final double EPSILON = 0.01;
-        final int MAX_ITER   = 10;
-        double prevMean;
-
-        List<Square> current = new ArrayList<>(squares);
-
-        for (int iter = 0; iter < MAX_ITER; iter++) {
-            prevMean = mean;
-            final double meanForLambda = mean;
-
-            double std = Math.sqrt(current.stream()
-                                           .mapToDouble(sq -> Math.pow(sq.getNumberOfTracks() - meanForLambda, 2))
-                                           .average().orElse(0));
-
-            final double threshold = meanForLambda + 2 * std;
-
-            List<Square> filtered = new ArrayList<>();
-            for (Square sq : current) {
-                if (sq.getNumberOfTracks() <= threshold) {
-                    filtered.add(sq);
-                }
-            }
-
-            if (filtered.isEmpty()) {
-                break;
-            }
-
-            mean = filtered.stream()
-                    .mapToDouble(Square::getNumberOfTracks)
-                    .average().orElse(mean);
-
-            current = filtered;
-
-            // Stop if the mean stabilizes
-            if (Math.abs(mean - prevMean) / prevMean < EPSILON) {
-                break;
-            }
-        }
-
-        return new BackgroundEstimationResult(mean, current);
+        return RecordingAnalysisContext.of(null, squares).getBackgroundEstimate();
     }
 
     /**
@@ -173,29 +119,6 @@ public class SquareUtils {
      */
     public static double calcAverageTrackCountInBackgroundSquares(List<Square> squaresOfRecording,
                                                                   int nrOfAverageCountSquares) {
-
-        List<Integer> trackCounts = squaresOfRecording.stream()
-                .map(Square::getNumberOfTracks)
-                .collect(Collectors.toList());
-
-        // Sort descending
-        trackCounts.sort(Comparator.reverseOrder());
-
-        double total = 0.0;
-        int n = 0;
-
-        // Traverse backward (smallest to largest)
-        for (int i = trackCounts.size() - 1; i >= 0; i--) {
-            int value = trackCounts.get(i);
-            if (value > 0) {
-                total += value;
-                n++;
-                if (n >= nrOfAverageCountSquares) {
-                    break;
-                }
-            }
-        }
-
-        return n == 0 ? 0.0 : total / n;
+        return RecordingAnalysisContext.of(null, squaresOfRecording).getAverageTrackCountOfLowestSquares(nrOfAverageCountSquares);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,165 @@
+package paint.generatesquares.calc;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import paint.shared.config.GenerateSquaresConfig;
+import paint.shared.config.PaintConfig;
+import paint.shared.config.PaintConfigSnapshot;
+import paint.shared.io.TrackTableIO;
+import paint.shared.objects.Recording;
+import paint.shared.objects.Square;
+import paint.shared.objects.Track;
+import paint.shared.utils.CalculateTau.CalculateTauResult;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static paint.shared.constants.PaintConstants.IMAGE_WIDTH;
+import static paint.shared.constants.PaintConstants.NUMBER_OF_SQUARES_IN_RECORDING;
+import static paint.shared.utils.Miscellaneous.round;
+
+/**
+ * Checks that the squares aggregated by {@link MultiResolutionGrid} match the
+ * squares of the classic Generate Squares path (generateSquaresForRecording,
+ * assignTracksToSquares and calculateSquareAttributes) on seeded recordings.
+ */
+public class MultiResolutionGridTest {
+
+    private static final int    GRANULARITY = 10;
+    private static final long   SEED        = 20251030L;
+    private static final double DELTA       = 1e-9;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void squaresMatchClassicPathWithinOneHistogram() {
+        assertSameSquares(Arrays.asList(100, 400, 1600), 6000);
+    }
+
+    @Test
+    public void squaresMatchClassicPathAcrossHistogramFamilies() {
+        // Dimensions 20, 25, 30, 35 and 40 have a least common multiple of 4200
+        List<Integer> gridSizes = Arrays.asList(400, 625, 900, 1225, 1600);
+        assertTrue(MultiResolutionGrid.baseDimensions(gridSizes).size() > 1);
+        assertSameSquares(gridSizes, 6000);
+    }
+
+    @Test
+    public void baseDimensionsAreCappedAndCoverEveryGrid() {
+        List<Integer> gridSizes = Arrays.asList(25, 100, 225, 400, 625, 900, 1225, 1600, 2025);
+        List<Integer> bases     = MultiResolutionGrid.baseDimensions(gridSizes);
+        for (int base : bases) {
+            assertTrue(base <= MultiResolutionGrid.MAX_BASE_DIMENSION, "base dimension " + base);
+        }
+        for (int numberOfSquares : gridSizes) {
+            int     dimension = (int) Math.round(Math.sqrt(numberOfSquares));
+            boolean covered   = false;
+            for (int base : bases) {
+                covered |= base % dimension == 0;
+            }
+            assertTrue(covered, "grid " + numberOfSquares);
+        }
+        assertTrue(MultiResolutionGrid.estimateHistogramBytes(gridSizes, GRANULARITY) < 512L * 1024 * 1024);
+    }
+
+    @Test
+    public void gridThatWasNotRequestedIsRejected() {
+        MultiResolutionGrid grid = MultiResolutionGrid.build(recording(new Random(SEED), 100), Arrays.asList(100), GRANULARITY);
+        assertThrows(IllegalArgumentException.class, () -> grid.getSquares(400));
+        assertThrows(IllegalArgumentException.class, () -> MultiResolutionGrid.build(recording(new Random(SEED), 10), Arrays.asList(99), GRANULARITY));
+    }
+
+    // ----------------------------------------------------------------------
+
+    private void assertSameSquares(List<Integer> gridSizes, int numberOfTracks) {
+        GenerateSquaresConfig baseConfig = PaintConfigSnapshot.of(PaintConfig.forProject(tempDir)).getGenerateSquaresConfig();
+
+        MultiResolutionGrid grid = MultiResolutionGrid.build(recording(new Random(SEED), numberOfTracks), gridSizes, GRANULARITY);
+
+        for (int numberOfSquares : gridSizes) {
+            GenerateSquaresConfig config    = baseConfig.withValue(NUMBER_OF_SQUARES_IN_RECORDING, numberOfSquares);
+            Recording             classic   = recording(new Random(SEED), numberOfTracks);
+            classic.setSquaresOfRecording(GenerateSquaresProcessor.generateSquaresForRecording(classic, config));
+            GenerateSquaresProcessor.assignTracksToSquares(classic);
+            CalculateSquareAttributes.calculateSquareAttributes(tempDir, classic, config);
+
+            List<Square> expected = classic.getSquaresOfRecording();
+            List<Square> actual   = grid.getSquares(numberOfSquares);
+            assertEquals(expected.size(), actual.size());
+
+            for (int i = 0; i < expected.size(); i++) {
+                Square e    = expected.get(i);
+                Square a    = actual.get(i);
+                String what = "grid " + numberOfSquares + ", square " + i;
+
+                assertEquals(e.getNumberOfTracks(), a.getNumberOfTracks(), what);
+                assertEquals(trackIds(e.getTracks()), trackIds(a.getTracks()), what);
+                if (e.getNumberOfTracks() == 0) {
+                    continue;
+                }
+                assertEquals(e.getVariability(),  a.getVariability(),  DELTA, what);
+                assertEquals(e.getDensity(),      a.getDensity(),      DELTA, what);
+                assertEquals(e.getDensityRatio(), a.getDensityRatio(), DELTA, what);
+
+                if (!Double.isNaN(e.getTau())) {
+                    CalculateTauResult fit = grid.getFit(numberOfSquares, i);
+                    assertEquals(e.getTau(),      round(fit.getTau(), 0),      DELTA, what);
+                    assertEquals(e.getRSquared(), round(fit.getRSquared(), 3), DELTA, what);
+                }
+            }
+        }
+    }
+
+    private static List<Integer> trackIds(List<Track> tracks) {
+        List<Integer> ids = new ArrayList<>();
+        if (tracks != null) {
+            for (Track track : tracks) {
+                ids.add(track.getTrackId());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * A recording with uniformly spread tracks, plus tracks on and just beside
+     * the exact and rounded square boundaries of every tested grid.
+     */
+    private static Recording recording(Random random, int numberOfTracks) {
+        List<Double> positions = new ArrayList<>();
+        for (int dimension : new int[]{10, 20, 25, 30, 35, 40}) {
+            double width = IMAGE_WIDTH / dimension;
+            for (int k = 0; k <= dimension; k++) {
+                positions.add(k * width);
+                positions.add(round(k * width, 2));
+                positions.add(k * width + 0.003);
+                positions.add(k * width - 0.003);
+            }
+        }
+
+        List<Track> tracks = new ArrayList<>(numberOfTracks);
+        for (int i = 0; i < numberOfTracks; i++) {
+            double x = random.nextInt(4) == 0 ? positions.get(random.nextInt(positions.size())) : random.nextDouble() * IMAGE_WIDTH;
+            double y = random.nextInt(4) == 0 ? positions.get(random.nextInt(positions.size())) : random.nextDouble() * IMAGE_WIDTH;
+            double duration = round(0.05 * (1 + (int) (-Math.log(1 - random.nextDouble()) * 8)), 2);
+            tracks.add(new Track("R1-" + i, "E1", "R1", i, 10, 0, 0, duration, x, y,
+                                 random.nextDouble(), random.nextDouble(), random.nextDouble(),
+                                 random.nextDouble(), random.nextDouble(), random.nextDouble(),
+                                 random.nextDouble(), -1, -1));
+        }
+
+        Recording recording = new Recording();
+        recording.setExperimentName("E1");
+        recording.setRecordingName("R1");
+        recording.setConcentration(1.0);
+        recording.setTracks(tracks);
+        recording.setTracksTable(new TrackTableIO().toTable(tracks));
+        return recording;
+    }
+}
@@ -0,0 +1,311 @@
+/******************************************************************************
+ *  Class:        ColumnarCsv.java
+ *  Package:      paint.regression
+ *
+ *  PURPOSE:
+ *    Reads a CSV file once into typed, column-oriented storage for fast
+ *    comparison of large Paint files (Tracks, Squares, Recordings).
+ *
+ *  DESCRIPTION:
+ *    Every column starts as numeric and is stored in a primitive double[],
+ *    with NaN for empty, "nan" and "null" cells. A column that contains a
+ *    value that is not a number is switched to text storage; its earlier
+ *    numbers are kept as their shortest text form. Text values are pooled per
+ *    column, so repeated values such as recording names are stored once.
+ *    Fields are split with support for quoted values (including commas and
+ *    doubled quotes inside quotes), and values are trimmed.
+ *
+ *  RESPONSIBILITIES:
+ *    • Parse a CSV file in a single pass
+ *    • Provide numeric and textual access to every cell
+ *
+ *  USAGE EXAMPLE:
+ *    ColumnarCsv csv = ColumnarCsv.read(Paths.get("Tracks.csv"));
+ *    int col = csv.indexOf("Track Duration");
+ *    double duration = csv.getDouble(col, 0);
+ *
+ *  DEPENDENCIES:
+ *    - java.io
+ *    - java.nio.file
+ *    - java.util
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.regression;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, column-oriented contents of a CSV file.
+ */
+public final class ColumnarCsv {
+
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_POOL_SIZE    = 1 << 16;   // Stop pooling columns with (nearly) unique values
+
+    private final String[]   headers;
+    private final double[][] numbers;      // Per column; null for text columns
+    private final String[][] texts;        // Per column; null for numeric columns
+    private final int        rowCount;
+
+    private ColumnarCsv(String[] headers, double[][] numbers, String[][] texts, int rowCount) {
+        this.headers  = headers;
+        this.numbers  = numbers;
+        this.texts    = texts;
+        this.rowCount = rowCount;
+    }
+
+    /**
+     * Reads a CSV file with a header line. Empty lines are skipped; missing
+     * trailing fields are read as empty.
+     *
+     * @param path the CSV file
+     * @return the columnar contents
+     * @throws IOException if the file cannot be read
+     */
+    public static ColumnarCsv read(Path path) throws IOException {
+        try (BufferedReader br = Files.newBufferedReader(path)) {
+            String headerLine = br.readLine();
+            if (headerLine == null) {
+                return new ColumnarCsv(new String[0], new double[0][], new String[0][], 0);
+            }
+
+            List<String> cells = new ArrayList<>();
+            splitLine(headerLine, cells);
+            String[] headers = new String[cells.size()];
+            for (int i = 0; i < headers.length; i++) {
+                headers[i] = cells.get(i).trim();
+            }
+
+            ColumnBuilder[] columns = new ColumnBuilder[headers.length];
+            for (int c = 0; c < columns.length; c++) {
+                columns[c] = new ColumnBuilder();
+            }
+
+            int    row = 0;
+            String line;
+            while ((line = br.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                splitLine(line, cells);
+                for (int c = 0; c < columns.length; c++) {
+                    columns[c].add(row, c < cells.size() ? cells.get(c).trim() : "");
+                }
+                row++;
+            }
+
+            double[][] numbers = new double[columns.length][];
+            String[][] texts   = new String[columns.length][];
+            for (int c = 0; c < columns.length; c++) {
+                numbers[c] = columns[c].numbers;
+                texts[c]   = columns[c].texts;
+            }
+            return new ColumnarCsv(headers, numbers, texts, row);
+        }
+    }
+
+    // ----------------------------------------------------------------------
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public int getColumnCount() {
+        return headers.length;
+    }
+
+    public String getHeader(int column) {
+        return headers[column];
+    }
+
+    /**
+     * Returns the index of a column. If a header occurs more than once, the
+     * last occurrence is returned, as a map keyed by header would hold it.
+     *
+     * @param header the column header
+     * @return the column index, or -1 if absent
+     */
+    public int indexOf(String header) {
+        for (int c = headers.length - 1; c >= 0; c--) {
+            if (headers[c].equals(header)) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return whether every value of the column is a number or empty
+     */
+    public boolean isNumeric(int column) {
+        return numbers[column] != null;
+    }
+
+    /**
+     * Returns the values of a numeric column, NaN for empty cells. The array
+     * may be longer than the number of rows and must not be modified.
+     *
+     * @param column a numeric column
+     * @return the values
+     */
+    public double[] getNumbers(int column) {
+        return numbers[column];
+    }
+
+    /**
+     * @return the number in a numeric column cell, NaN if empty
+     */
+    public double getDouble(int column, int row) {
+        return numbers[column][row];
+    }
+
+    /**
+     * Returns the text of a cell, with "nan" and "null" read as empty and
+     * numbers of numeric columns in their shortest form.
+     *
+     * @param column the column, or -1 for a column that is absent (always empty)
+     * @param row    the row
+     * @return the text, never {@code null}
+     */
+    public String getText(int column, int row) {
+        if (column < 0) {
+            return "";
+        }
+        if (numbers[column] != null) {
+            return formatNumber(numbers[column][row]);
+        }
+        return texts[column][row];
+    }
+
+    /**
+     * Formats a number in its shortest plain form, e.g. "12" or "0.25"; NaN
+     * as the empty string.
+     */
+    static String formatNumber(double value) {
+        if (Double.isNaN(value)) {
+            return "";
+        }
+        if (Double.isInfinite(value)) {
+            return Double.toString(value);
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    // ----------------------------------------------------------------------
+
+    /**
+     * Splits one CSV line into fields, honouring double-quoted fields.
+     */
+    static void splitLine(String line, List<String> out) {
+        out.clear();
+        if (line.indexOf('"') < 0) {
+            int start = 0;
+            int comma;
+            while ((comma = line.indexOf(',', start)) >= 0) {
+                out.add(line.substring(start, comma));
+                start = comma + 1;
+            }
+            out.add(line.substring(start));
+            return;
+        }
+
+        StringBuilder field    = new StringBuilder();
+        boolean       inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (inQuotes) {
+                if (ch == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    field.append(ch);
+                }
+            } else if (ch == '"') {
+                inQuotes = true;
+            } else if (ch == ',') {
+                out.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(ch);
+            }
+        }
+        out.add(field.toString());
+    }
+
+    private static boolean isMissing(String value) {
+        return value.isEmpty() || value.equalsIgnoreCase("nan") || value.equalsIgnoreCase("null");
+    }
+
+    /**
+     * Accumulates one column, numeric until a value proves otherwise.
+     */
+    private static final class ColumnBuilder {
+        private double[]            numbers = new double[INITIAL_CAPACITY];
+        private String[]            texts;
+        private Map<String, String> pool;
+
+        void add(int row, String value) {
+            if (numbers != null) {
+                if (row == numbers.length) {
+                    numbers = Arrays.copyOf(numbers, row * 2);
+                }
+                if (isMissing(value)) {
+                    numbers[row] = Double.NaN;
+                    return;
+                }
+                try {
+                    numbers[row] = Double.parseDouble(value);
+                    return;
+                } catch (NumberFormatException e) {
+                    switchToText(row);
+                }
+            }
+            if (row == texts.length) {
+                texts = Arrays.copyOf(texts, row * 2);
+            }
+            texts[row] = pooled(isMissing(value) ? "" : value);
+        }
+
+        private void switchToText(int row) {
+            texts = new String[numbers.length];
+            pool  = new HashMap<>();
+            for (int r = 0; r < row; r++) {
+                texts[r] = pooled(formatNumber(numbers[r]));
+            }
+            numbers = null;
+        }
+
+        private String pooled(String value) {
+            if (pool.size() >= MAX_POOL_SIZE) {
+                return value;
+            }
+            String existing = pool.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+    }
+}
@@ -0,0 +1,519 @@
+/******************************************************************************
+ *  Class:        CsvDiffEngine.java
+ *  Package:      paint.regression
+ *
+ *  PURPOSE:
+ *    Compares two columnar CSV files and streams a difference report grouped
+ *    by recording and square, for regression validation of large Paint files.
+ *
+ *  DESCRIPTION:
+ *    Rows are matched on the composite key (Recording Name [+ Square Number]).
+ *    Each key is hashed once to a group id through dictionaries shared by
+ *    both files, and the rows of every group are indexed in file order, so no
+ *    key string or row map is built per row. Rows with the same key are paired
+ *    by position, as before.
+ *
+ *    Recordings are compared in parallel. Within a recording every column is
+ *    checked in one pass over its paired rows; for numeric columns this is a
+ *    loop over primitive arrays that rounds to 3 decimals. The report of each
+ *    recording is printed as soon as it and all recordings before it are
+ *    done, so the output has the same order as a sequential run and only a
+ *    few recordings are held in memory at any time.
+ *
+ *  RESPONSIBILITIES:
+ *    • Index rows by hashed (Recording Name, Square Number) keys
+ *    • Detect numeric, textual, missing and extra rows
+ *    • Stream the grouped difference report in key order
+ *
+ *  USAGE EXAMPLE:
+ *    CsvDiffEngine engine = new CsvDiffEngine(ignoreColumns, 4);
+ *    int diffs = engine.compare(ColumnarCsv.read(oldPath), ColumnarCsv.read(newPath), System.out);
+ *
+ *  DEPENDENCIES:
+ *    - paint.regression.ColumnarCsv
+ *    - java.util.concurrent
+ *
+ *  AUTHOR:
+ *    Hans Bakker (jjabakker)
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.regression;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Formatter;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parallel, hash-indexed comparison of two CSV files.
+ */
+public final class CsvDiffEngine {
+
+    private static final String RECORDING_NAME = "Recording Name";
+    private static final String SQUARE_NUMBER  = "Square Number";
+    private static final String NO_SQUARE      = "—";
+    private static final String NL             = System.lineSeparator();
+
+    private static final int RECORDINGS_PER_THREAD = 2;     // Recordings that may be ahead of the report per thread
+
+    private final Set<String> ignoreColumns;
+    private final int         threads;
+
+    /**
+     * Creates an engine.
+     *
+     * @param ignoreColumns columns that are not compared
+     * @param threads       number of threads comparing recordings
+     */
+    public CsvDiffEngine(Set<String> ignoreColumns, int threads) {
+        this.ignoreColumns = ignoreColumns;
+        this.threads       = Math.max(1, threads);
+    }
+
+    // ----------------------------------------------------------------------
+
+    /**
+     * Compares two files and prints the grouped difference report.
+     *
+     * @param oldCsv the baseline file
+     * @param newCsv the test file
+     * @param out    where the report is printed
+     * @return the number of differences
+     * @throws IOException if the comparison of a recording fails or is interrupted
+     */
+    public int compare(ColumnarCsv oldCsv, ColumnarCsv newCsv, PrintStream out) throws IOException {
+        Comparison comparison = new Comparison(oldCsv, newCsv);
+
+        out.println("\n🔎 Starting detailed comparison...");
+        out.println("   → Total unique (Recording Name [+ Square Nr]) keys: " + comparison.groupCount);
+        out.println();
+
+        int         total            = 0;
+        boolean     headerPrinted    = false;
+        Set<String> squaresWithDiffs = new TreeSet<>();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "CsvDiff");
+            t.setDaemon(true);
+            return t;
+        });
+        ArrayDeque<Future<RecordingReport>> pending = new ArrayDeque<>();
+        int next = 0;
+        try {
+            List<int[]> runs = comparison.recordingRuns();
+            while (next < runs.size() || !pending.isEmpty()) {
+                while (next < runs.size() && pending.size() < threads * RECORDINGS_PER_THREAD) {
+                    int[] run = runs.get(next++);
+                    pending.add(pool.submit(() -> comparison.compareRecording(run[0], run[1])));
+                }
+
+                RecordingReport report = pending.poll().get();
+                if (report.differences == 0) {
+                    continue;
+                }
+                if (!headerPrinted) {
+                    out.println("\n🔎 Differences grouped by Square");
+                    out.println("───────────────────────────────");
+                    headerPrinted = true;
+                }
+                out.print(report.text);
+                total += report.differences;
+                squaresWithDiffs.addAll(report.squares);
+            }
+        } catch (ExecutionException e) {
+            throw new IOException("Comparison failed: " + e.getCause(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Comparison interrupted", e);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (total > 0) {
+            out.printf("%n📊 Total differences listed: %d%n", total);
+            if (!squaresWithDiffs.isEmpty()) {
+                out.printf("🟧 Squares with at least one difference: %d (%s)%n",
+                           squaresWithDiffs.size(),
+                           String.join(", ", squaresWithDiffs));
+            }
+        } else {
+            out.println("\n✅ No differences detected.");
+        }
+        return total;
+    }
+
+    // ----------------------------------------------------------------------
+
+    /**
+     * A compared column and where it is found in each file (-1 if absent).
+     */
+    private static final class Field {
+        final String  name;
+        final int     oldColumn;
+        final int     newColumn;
+        final boolean numeric;
+
+        Field(String name, int oldColumn, int newColumn, boolean numeric) {
+            this.name      = name;
+            this.oldColumn = oldColumn;
+            this.newColumn = newColumn;
+            this.numeric   = numeric;
+        }
+    }
+
+    /**
+     * The report of one recording, ready to be printed.
+     */
+    private static final class RecordingReport {
+        final String       text;
+        final int          differences;
+        final List<String> squares;
+
+        RecordingReport(String text, int differences, List<String> squares) {
+            this.text        = text;
+            this.differences = differences;
+            this.squares     = squares;
+        }
+    }
+
+    /**
+     * The row index of two files. Immutable once built, so recordings can be
+     * compared concurrently.
+     */
+    private final class Comparison {
+        final ColumnarCsv oldCsv;
+        final ColumnarCsv newCsv;
+        final Field[]     fields;
+        final int         fieldWidth;
+
+        // Per group (distinct key)
+        final List<String> recordings = new ArrayList<>();
+        final List<String> squares    = new ArrayList<>();
+        int                groupCount;
+        int[]              sortedGroups;
+
+        // Rows per group in file order: rows of group g are rows[start[g]] .. rows[start[g + 1] - 1]
+        int[] oldStart;
+        int[] oldRows;
+        int[] newStart;
+        int[] newRows;
+
+        Comparison(ColumnarCsv oldCsv, ColumnarCsv newCsv) {
+            this.oldCsv = oldCsv;
+            this.newCsv = newCsv;
+            this.fields = fields(oldCsv, newCsv);
+
+            int width = 0;
+            for (Field field : fields) {
+                width = Math.max(width, field.name.length());
+            }
+            this.fieldWidth = width + 2;
+
+            Map<String, Integer> recordingIds = new HashMap<>();
+            Map<String, Integer> squareIds    = new HashMap<>();
+            Map<Long, Integer>   groupIds     = new HashMap<>();
+            int[] oldGroups = assignGroups(oldCsv, recordingIds, squareIds, groupIds);
+            int[] newGroups = assignGroups(newCsv, recordingIds, squareIds, groupIds);
+            groupCount = recordings.size();
+
+            oldStart = new int[groupCount + 1];
+            oldRows  = indexRows(oldGroups, oldStart);
+            newStart = new int[groupCount + 1];
+            newRows  = indexRows(newGroups, newStart);
+
+            // Report order: the order of the key strings, as before
+            String[] keys = new String[groupCount];
+            Integer[] order = new Integer[groupCount];
+            for (int g = 0; g < groupCount; g++) {
+                String sq = squares.get(g);
+                keys[g]  = sq.isEmpty() ? recordings.get(g) : recordings.get(g) + " - " + sq;
+                order[g] = g;
+            }
+            Arrays.sort(order, Comparator.comparing(g -> keys[g]));
+            sortedGroups = new int[groupCount];
+            for (int i = 0; i < groupCount; i++) {
+                sortedGroups[i] = order[i];
+            }
+        }
+
+        private Field[] fields(ColumnarCsv oldCsv, ColumnarCsv newCsv) {
+            Set<String> names = new LinkedHashSet<>();
+            for (int c = 0; c < oldCsv.getColumnCount(); c++) {
+                names.add(oldCsv.getHeader(c));
+            }
+            for (int c = 0; c < newCsv.getColumnCount(); c++) {
+                names.add(newCsv.getHeader(c));
+            }
+
+            List<Field> result = new ArrayList<>();
+            for (String name : names) {
+                if (name.isEmpty() || ignoreColumns.contains(name)) {
+                    continue;
+                }
+                int oc = oldCsv.indexOf(name);
+                int nc = newCsv.indexOf(name);
+                boolean numeric = oc >= 0 && nc >= 0 && oldCsv.isNumeric(oc) && newCsv.isNumeric(nc);
+                result.add(new Field(name, oc, nc, numeric));
+            }
+            return result.toArray(new Field[0]);
+        }
+
+        /**
+         * Maps every row to the id of its (recording, square) group, adding
+         * new groups as they are found.
+         */
+        private int[] assignGroups(ColumnarCsv csv,
+                                   Map<String, Integer> recordingIds,
+                                   Map<String, Integer> squareIds,
+                                   Map<Long, Integer> groupIds) {
+            int   recordingColumn = csv.indexOf(RECORDING_NAME);
+            int   squareColumn    = csv.indexOf(SQUARE_NUMBER);
+            int[] groups          = new int[csv.getRowCount()];
+
+            for (int r = 0; r < groups.length; r++) {
+                String recording = csv.getText(recordingColumn, r);
+                String square    = csv.getText(squareColumn, r);
+
+                Integer recordingId = recordingIds.get(recording);
+                if (recordingId == null) {
+                    recordingId = recordingIds.size();
+                    recordingIds.put(recording, recordingId);
+                }
+                Integer squareId = squareIds.get(square);
+                if (squareId == null) {
+                    squareId = squareIds.size();
+                    squareIds.put(square, squareId);
+                }
+
+                long    key   = ((long) recordingId << 32) | squareId;
+                Integer group = groupIds.get(key);
+                if (group == null) {
+                    group = recordings.size();
+                    groupIds.put(key, group);
+                    recordings.add(recording);
+                    squares.add(square);
+                }
+                groups[r] = group;
+            }
+            return groups;
+        }
+
+        /**
+         * Counting sort of the rows by group, keeping file order within a group.
+         */
+        private int[] indexRows(int[] groups, int[] start) {
+            for (int group : groups) {
+                start[group + 1]++;
+            }
+            for (int g = 0; g < groupCount; g++) {
+                start[g + 1] += start[g];
+            }
+            int[] fill = Arrays.copyOf(start, groupCount);
+            int[] rows = new int[groups.length];
+            for (int r = 0; r < groups.length; r++) {
+                rows[fill[groups[r]]++] = r;
+            }
+            return rows;
+        }
+
+        /**
+         * Splits the sorted groups into runs of the same recording.
+         *
+         * @return per run, the range [from, to) in the sorted groups
+         */
+        List<int[]> recordingRuns() {
+            List<int[]> runs = new ArrayList<>();
+            int from = 0;
+            for (int i = 1; i <= groupCount; i++) {
+                if (i == groupCount
+                        || !recordings.get(sortedGroups[i]).equals(recordings.get(sortedGroups[from]))) {
+                    runs.add(new int[]{from, i});
+                    from = i;
+                }
+            }
+            return runs;
+        }
+
+        /**
+         * Compares the rows of the groups sortedGroups[from] .. sortedGroups[to - 1],
+         * which all belong to one recording.
+         */
+        RecordingReport compareRecording(int from, int to) {
+
+            // Pair the rows of each group by position
+            int pairCount = 0;
+            for (int i = from; i < to; i++) {
+                int g = sortedGroups[i];
+                pairCount += Math.min(oldStart[g + 1] - oldStart[g], newStart[g + 1] - newStart[g]);
+            }
+            int[] oldPair = new int[pairCount];
+            int[] newPair = new int[pairCount];
+            int   p       = 0;
+            for (int i = from; i < to; i++) {
+                int g = sortedGroups[i];
+                int n = Math.min(oldStart[g + 1] - oldStart[g], newStart[g + 1] - newStart[g]);
+                for (int k = 0; k < n; k++, p++) {
+                    oldPair[p] = oldRows[oldStart[g] + k];
+                    newPair[p] = newRows[newStart[g] + k];
+                }
+            }
+
+            // Check each column over all pairs; null where a column has no differences
+            boolean[][] differs = new boolean[fields.length][];
+            for (int f = 0; f < fields.length; f++) {
+                differs[f] = fields[f].numeric
+                        ? numericDifferences(fields[f], oldPair, newPair)
+                        : textDifferences(fields[f], oldPair, newPair);
+            }
+
+            // Report in key, row and column order
+            StringBuilder text        = new StringBuilder();
+            Formatter     formatter   = new Formatter(text);
+            String        lineFormat  = "     - %-" + fieldWidth + "s: '%s' vs '%s' (%s)%n";
+            List<String>  squaresSeen = new ArrayList<>();
+            int           differences = 0;
+
+            p = 0;
+            for (int i = from; i < to; i++) {
+                int     g          = sortedGroups[i];
+                int     oldCount   = oldStart[g + 1] - oldStart[g];
+                int     newCount   = newStart[g + 1] - newStart[g];
+                String  square     = squares.get(g).isEmpty() ? NO_SQUARE : squares.get(g);
+                boolean squareOpen = false;
+
+                for (int k = 0; k < Math.max(oldCount, newCount); k++) {
+                    if (k >= oldCount || k >= newCount) {
+                        squareOpen = openSquare(text, differences, g, square, squareOpen, squaresSeen);
+                        formatter.format(lineFormat, "", "", "", k >= oldCount ? "Extra in NEW" : "Missing in NEW");
+                        differences++;
+                        continue;
+                    }
+                    for (int f = 0; f < fields.length; f++) {
+                        if (differs[f] == null || !differs[f][p]) {
+                            continue;
+                        }
+                        squareOpen = openSquare(text, differences, g, square, squareOpen, squaresSeen);
+                        Field field = fields[f];
+                        if (field.numeric) {
+                            double ov = oldCsv.getDouble(field.oldColumn, oldPair[p]);
+                            double nv = newCsv.getDouble(field.newColumn, newPair[p]);
+                            formatter.format(lineFormat, field.name,
+                                             ColumnarCsv.formatNumber(ov), ColumnarCsv.formatNumber(nv),
+                                             Double.isNaN(ov) || Double.isNaN(nv) ? "TEXT DIFFERENCE" : "NUMERIC DIFFERENCE");
+                        } else {
+                            String ov = oldCsv.getText(field.oldColumn, oldPair[p]);
+                            String nv = newCsv.getText(field.newColumn, newPair[p]);
+                            formatter.format(lineFormat, field.name, ov, nv,
+                                             parseDouble(ov) != null && parseDouble(nv) != null
+                                                     ? "NUMERIC DIFFERENCE" : "TEXT DIFFERENCE");
+                        }
+                        differences++;
+                    }
+                    p++;
+                }
+            }
+            if (differences > 0) {
+                text.append(NL);
+            }
+            return new RecordingReport(text.toString(), differences, squaresSeen);
+        }
+
+        private boolean openSquare(StringBuilder text, int differences, int group, String square,
+                                   boolean squareOpen, List<String> squaresSeen) {
+            if (differences == 0) {
+                text.append("Recording: ").append(recordings.get(group)).append(NL);
+            }
+            if (!squareOpen) {
+                text.append("  ▫ Square ").append(square).append(':').append(NL);
+                if (!square.equals(NO_SQUARE)) {
+                    squaresSeen.add(square);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Numeric columns: values are equal when both are empty or both round
+         * to the same 3 decimals.
+         */
+        private boolean[] numericDifferences(Field field, int[] oldPair, int[] newPair) {
+            double[]  a      = oldCsv.getNumbers(field.oldColumn);
+            double[]  b      = newCsv.getNumbers(field.newColumn);
+            boolean[] result = null;
+            for (int p = 0; p < oldPair.length; p++) {
+                double  x = a[oldPair[p]];
+                double  y = b[newPair[p]];
+                boolean differ = Double.isNaN(x) || Double.isNaN(y)
+                        ? Double.isNaN(x) != Double.isNaN(y)
+                        : Math.round(x * 1000.0) != Math.round(y * 1000.0);
+                if (differ) {
+                    if (result == null) {
+                        result = new boolean[oldPair.length];
+                    }
+                    result[p] = true;
+                }
+            }
+            return result;
+        }
+
+        private boolean[] textDifferences(Field field, int[] oldPair, int[] newPair) {
+            boolean[] result = null;
+            for (int p = 0; p < oldPair.length; p++) {
+                if (!valuesEqual(oldCsv.getText(field.oldColumn, oldPair[p]),
+                                 newCsv.getText(field.newColumn, newPair[p]))) {
+                    if (result == null) {
+                        result = new boolean[oldPair.length];
+                    }
+                    result[p] = true;
+                }
+            }
+            return result;
+        }
+    }
+
+    // ----------------------------------------------------------------------
+
+    static boolean valuesEqual(String a, String b) {
+        if (Objects.equals(a, b)) {
+            return true;
+        }
+        Double da = parseDouble(a);
+        Double db = parseDouble(b);
+        if (da != null && db != null) {
+            return Math.round(da * 1000.0) == Math.round(db * 1000.0);
+        }
+        return false;
+    }
+
+    static Double parseDouble(String s) {
+        if (s == null || s.isEmpty()) {
+            return null;
+        }
+        try {
+            double v = Double.parseDouble(s);
+            return Double.isNaN(v) ? null : v;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
@@ -63,6 +63,11 @@ public class TracksCsvComparatorPythonJava {
      * Maximum allowed RMS score for a diagnostic match to be considered acceptable.
      */
     private static final double MAX_ACCEPTABLE_SCORE = 40;
+    /**
+     * Margin added to index range lookups, so rounding never drops a candidate
+     * that the exact tolerance check would accept.
+     */
+    private static final double RANGE_SLACK = 1e-9;
     /**
      * Standard column order used in normalized CSVs.
      */
@@ -204,11 +209,12 @@ public class TracksCsvComparatorPythonJava {
                     }
 
                     System.out.printf("→ Processing %s (%d old, %d new)%n", oldRec, oldSubset.size(), newSubset.size());
+                    TrackIndex newIndex = new TrackIndex(newSubset);
                     for (int i = 0; i < oldSubset.size(); i++) {
                         Map<String, String> old = oldSubset.get(i);
                         total++;
 
-                        List<Map<String, String>> matches = findMatches(cfg, old, newSubset, usedNewIds);
+                        List<Map<String, String>> matches = findMatches(cfg, old, newIndex, usedNewIds);
                         int count = matches.size();
 
                         if (count == 1) {
@@ -296,8 +302,9 @@ public class TracksCsvComparatorPythonJava {
                             }
                         }
 
+                        TrackIndex candidateIndex = new TrackIndex(candidates);
                         for (Map<String, String> old : e.getValue()) {
-                            Map<String, Object> best = findBestCandidate(old, candidates);
+                            Map<String, Object> best = findBestCandidate(old, candidateIndex);
                             bw.write(String.join(",", Arrays.asList(
                                     escapeCsv(oldRec),
                                     escapeCsv(old.getOrDefault("Track Id", "")),
@@ -469,7 +476,7 @@ public class TracksCsvComparatorPythonJava {
 
     // --- Matching + metrics ---
     private static List<Map<String, String>> findMatches(MatchConfig cfg, Map<String, String> old,
-                                                         List<Map<String, String>> candidates, Set<String> used) {
+                                                         TrackIndex candidates, Set<String> used) {
         List<Map<String, String>> matches = new ArrayList<>();
 
         // Extract numerical fields from "old" track
@@ -486,58 +493,60 @@ public class TracksCsvComparatorPythonJava {
         double yOld    = parseDoubleSafe(old.get("Track Y Location"));
         double confOld = parseDoubleSafe(old.get("Confinement Ratio"));
 
-        // Iterate over all potential candidates in the same recording
-        for (Map<String, String> cand : candidates) {
-            String newId = cand.getOrDefault("Track Id", "");
-            if (used.contains(newId)) {
-                continue;  // Skip if already assigned
-            }
+        // Only candidates with the same structure (square, spots, gaps, longest gap) are comparable
+        int[] bucket = candidates.buckets.get(new StructureKey(square, nSpots, nGaps, longest));
+        if (bucket == null) {
+            return matches;
+        }
+
+        // With X compared, only the candidates in the X tolerance range need to be checked
+        int from = 0;
+        int to   = bucket.length;
+        if (cfg.useXY) {
+            from = candidates.lowerBound(bucket, xOld - XY_TOLERANCE - RANGE_SLACK);
+            to   = candidates.upperBound(bucket, xOld + XY_TOLERANCE + RANGE_SLACK);
+        }
 
-            // Compare integer-like columns exactly
-            int squareNew  = parseIntSafe(cand.get("Square Number"));
-            int nSpotsNew  = parseIntSafe(cand.get("Number of Spots"));
-            int nGapsNew   = parseIntSafe(cand.get("Number of Gaps"));
-            int longestNew = parseIntSafe(cand.get("Longest Gap"));
-            if (square != squareNew || nSpots != nSpotsNew || nGaps != nGapsNew || longest != longestNew) {
-                continue; // Not comparable structure
+        List<Integer> found = new ArrayList<>();
+        for (int k = from; k < to; k++) {
+            int c = bucket[k];
+            if (used.contains(candidates.ids[c])) {
+                continue;  // Skip if already assigned
             }
 
             // Compare numeric columns within tolerance
-            double durNew  = parseDoubleSafe(cand.get("Track Duration"));
-            double dispNew = parseDoubleSafe(cand.get("Track Displacement"));
-            double maxNew  = parseDoubleSafe(cand.get("Track Max Speed"));
-            double medNew  = parseDoubleSafe(cand.get("Track Median Speed"));
-            double distNew = parseDoubleSafe(cand.get("Total Distance"));
-            double xNew    = parseDoubleSafe(cand.get("Track X Location"));
-            double yNew    = parseDoubleSafe(cand.get("Track Y Location"));
-            double confNew = parseDoubleSafe(cand.get("Confinement Ratio"));
-
             boolean ok = true;
             if (cfg.useDuration) {
-                ok &= Math.abs(durOld - durNew) <= DURATION_TOLERANCE;
+                ok &= Math.abs(durOld - candidates.dur[c]) <= DURATION_TOLERANCE;
             }
             if (cfg.useDisplacement) {
-                ok &= Math.abs(dispOld - dispNew) <= DISPLACEMENT_TOLERANCE;
+                ok &= Math.abs(dispOld - candidates.disp[c]) <= DISPLACEMENT_TOLERANCE;
             }
             if (cfg.useSpeed) {
-                ok &= Math.abs(maxOld - maxNew) <= SPEED_TOLERANCE &&
-                        Math.abs(medOld - medNew) <= SPEED_TOLERANCE;
+                ok &= Math.abs(maxOld - candidates.max[c]) <= SPEED_TOLERANCE &&
+                        Math.abs(medOld - candidates.med[c]) <= SPEED_TOLERANCE;
             }
             if (cfg.useDistance) {
-                ok &= Math.abs(distOld - distNew) <= DIST_TOLERANCE;
+                ok &= Math.abs(distOld - candidates.dist[c]) <= DIST_TOLERANCE;
             }
             if (cfg.useXY) {
-                ok &= Math.abs(xOld - xNew) <= XY_TOLERANCE &&
-                        Math.abs(yOld - yNew) <= XY_TOLERANCE;
+                ok &= Math.abs(xOld - candidates.x[c]) <= XY_TOLERANCE &&
+                        Math.abs(yOld - candidates.y[c]) <= XY_TOLERANCE;
             }
             if (cfg.useConfinement) {
-                ok &= Math.abs(confOld - confNew) <= CONFINEMENT_TOLERANCE;
+                ok &= Math.abs(confOld - candidates.conf[c]) <= CONFINEMENT_TOLERANCE;
             }
 
             if (ok) {
-                matches.add(cand);
+                found.add(c);
             }
         }
+
+        // Report matches in candidate order
+        Collections.sort(found);
+        for (int c : found) {
+            matches.add(candidates.tracks.get(c));
+        }
         return matches;
     }
 
@@ -551,37 +560,56 @@ public class TracksCsvComparatorPythonJava {
      * @return the map containing the best candidate ID, per-field deviations, and score
      */
     private static Map<String, Object> findBestCandidate(
-            Map<String, String> old, List<Map<String, String>> candidates) {
+            Map<String, String> old, TrackIndex candidates) {
 
         double bestScore = Double.POSITIVE_INFINITY;
-        Map<String, String> bestCand = null;
-        double durD  = 0;
-        double dispD = 0;
-        double maxD  = 0;
-        double medD  = 0;
-        double distD = 0;
-        double xD    = 0;
-        double yD    = 0;
-        double confD = 0;
-
-        for (Map<String, String> cand : candidates) {
+        int    bestCand  = -1;
+        double durD      = 0;
+        double dispD     = 0;
+        double maxD      = 0;
+        double medD      = 0;
+        double distD     = 0;
+        double xD        = 0;
+        double yD        = 0;
+        double confD     = 0;
+
+        double durOld  = parseDoubleSafe(old.get("Track Duration"));
+        double dispOld = parseDoubleSafe(old.get("Track Displacement"));
+        double maxOld  = parseDoubleSafe(old.get("Track Max Speed"));
+        double medOld  = parseDoubleSafe(old.get("Track Median Speed"));
+        double distOld = parseDoubleSafe(old.get("Total Distance"));
+        double xOld    = parseDoubleSafe(old.get("Track X Location"));
+        double yOld    = parseDoubleSafe(old.get("Track Y Location"));
+        double confOld = parseDoubleSafe(old.get("Confinement Ratio"));
+
+        // A candidate further away in X than this cannot reach an acceptable score
+        double xRange = MAX_ACCEPTABLE_SCORE * Math.sqrt(8.0) * XY_TOLERANCE + RANGE_SLACK;
+        int[]  all    = candidates.byX;
+        int    from   = candidates.lowerBound(all, xOld - xRange);
+        int    to     = candidates.upperBound(all, xOld + xRange);
+
+        for (int k = from; k < to; k++) {
+            int c = all[k];
+
             // Normalized differences divided by their respective tolerance
-            double dur  = diff(old, cand, "Track Duration", DURATION_TOLERANCE);
-            double disp = diff(old, cand, "Track Displacement", DISPLACEMENT_TOLERANCE);
-            double max  = diff(old, cand, "Track Max Speed", SPEED_TOLERANCE);
-            double med  = diff(old, cand, "Track Median Speed", SPEED_TOLERANCE);
-            double dist = diff(old, cand, "Total Distance", DIST_TOLERANCE);
-            double x    = diff(old, cand, "Track X Location", XY_TOLERANCE);
-            double y    = diff(old, cand, "Track Y Location", XY_TOLERANCE);
-            double conf = diff(old, cand, "Confinement Ratio", CONFINEMENT_TOLERANCE);
+            double dur  = diff(durOld,  candidates.dur[c],  DURATION_TOLERANCE);
+            double disp = diff(dispOld, candidates.disp[c], DISPLACEMENT_TOLERANCE);
+            double max  = diff(maxOld,  candidates.max[c],  SPEED_TOLERANCE);
+            double med  = diff(medOld,  candidates.med[c],  SPEED_TOLERANCE);
+            double dist = diff(distOld, candidates.dist[c], DIST_TOLERANCE);
+            double x    = diff(xOld,    candidates.x[c],    XY_TOLERANCE);
+            double y    = diff(yOld,    candidates.y[c],    XY_TOLERANCE);
+            double conf = diff(confOld, candidates.conf[c], CONFINEMENT_TOLERANCE);
 
             // RMS score across all differences
             double score = Math.sqrt((dur * dur + disp * disp + max * max + med * med +
                     dist * dist + x * x + y * y + conf * conf) / 8.0);
 
-            if (Double.isFinite(score) && score < bestScore && score <= MAX_ACCEPTABLE_SCORE) {
+            // On equal scores the first candidate in list order wins, as in a sequential scan
+            boolean better = score < bestScore || (score == bestScore && c < bestCand);
+            if (Double.isFinite(score) && better && score <= MAX_ACCEPTABLE_SCORE) {
                 bestScore = score;
-                bestCand  = cand;
+                bestCand  = c;
                 durD      = dur;
                 dispD     = disp;
                 maxD      = max;
@@ -595,8 +623,8 @@ public class TracksCsvComparatorPythonJava {
 
         // Prepare result summary
         Map<String, Object> out = new LinkedHashMap<>();
-        if (bestCand != null) {
-            out.put("BestId", bestCand.get("Track Id"));
+        if (bestCand >= 0) {
+            out.put("BestId", candidates.tracks.get(bestCand).get("Track Id"));
             out.put("score", String.format(Locale.US, "%.3f", bestScore));
         } else {
             out.put("BestId", "-");
@@ -690,9 +718,7 @@ public class TracksCsvComparatorPythonJava {
     /**
      * Compute normalized difference divided by tolerance (used in RMS scoring).
      */
-    private static double diff(Map<String, String> a, Map<String, String> b, String field, double tol) {
-        double va = parseDoubleSafe(a.get(field));
-        double vb = parseDoubleSafe(b.get(field));
+    private static double diff(double va, double vb, double tol) {
         if (Double.isNaN(va) || Double.isNaN(vb)) {
             return Double.POSITIVE_INFINITY;
         }
@@ -840,12 +866,19 @@ public class TracksCsvComparatorPythonJava {
                 }
                 int total = devs.size();
 
-                double equalAt5 = percentWithin(devs, 5.0);
+                // Sorted once; every tolerance level is then a binary search
+                double[] sortedAbs = new double[total];
+                for (int i = 0; i < total; i++) {
+                    sortedAbs[i] = Math.abs(devs.get(i));
+                }
+                Arrays.sort(sortedAbs);
+
+                double equalAt5 = percentWithin(sortedAbs, 5.0);
                 double bestTol = 5.0;
                 double bestKeep = equalAt5;
 
                 for (double tol : testLevels) {
-                    double keep = percentWithin(devs, tol);
+                    double keep = percentWithin(sortedAbs, tol);
                     if (keep < targetKeep) {
                         break;
                     }
@@ -861,10 +894,21 @@ public class TracksCsvComparatorPythonJava {
 
     /**
      * Helper: compute fraction of deviations within tolerance.
+     *
+     * @param sortedAbs absolute deviations in ascending order
      */
-    private static double percentWithin(List<Double> devs, double tol) {
-        long ok = devs.stream().filter(d -> Math.abs(d) <= tol).count();
-        return 100.0 * ok / devs.size();
+    private static double percentWithin(double[] sortedAbs, double tol) {
+        int lo = 0;
+        int hi = sortedAbs.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedAbs[mid] <= tol) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return 100.0 * lo / sortedAbs.length;
     }
 
     public static void main(String[] args) {
@@ -875,6 +919,145 @@ public class TracksCsvComparatorPythonJava {
         run(oldCsv, newCsv);
     }
 
+    /**
+     * Pre-parsed candidate tracks of one recording, so their values are parsed
+     * once instead of for every old track. Tracks are bucketed by structure
+     * (square, spots, gaps, longest gap), which must match exactly, and sorted
+     * on X within each bucket, so a tolerance query is a range lookup instead
+     * of a scan of the whole recording. Track indices refer to the list order.
+     */
+    private static final class TrackIndex {
+        final List<Map<String, String>> tracks;
+        final String[] ids;
+        final double[] dur;
+        final double[] disp;
+        final double[] max;
+        final double[] med;
+        final double[] dist;
+        final double[] x;
+        final double[] y;
+        final double[] conf;
+        final int[]    byX;                                        // All tracks, ascending X (NaN last)
+        final Map<StructureKey, int[]> buckets = new HashMap<>();  // Per structure, ascending X
+
+        TrackIndex(List<Map<String, String>> tracks) {
+            int n = tracks.size();
+            this.tracks = tracks;
+            this.ids    = new String[n];
+            this.dur    = new double[n];
+            this.disp   = new double[n];
+            this.max    = new double[n];
+            this.med    = new double[n];
+            this.dist   = new double[n];
+            this.x      = new double[n];
+            this.y      = new double[n];
+            this.conf   = new double[n];
+
+            Map<StructureKey, List<Integer>> members = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                Map<String, String> t = tracks.get(i);
+                ids[i]  = t.getOrDefault("Track Id", "");
+                dur[i]  = parseDoubleSafe(t.get("Track Duration"));
+                disp[i] = parseDoubleSafe(t.get("Track Displacement"));
+                max[i]  = parseDoubleSafe(t.get("Track Max Speed"));
+                med[i]  = parseDoubleSafe(t.get("Track Median Speed"));
+                dist[i] = parseDoubleSafe(t.get("Total Distance"));
+                x[i]    = parseDoubleSafe(t.get("Track X Location"));
+                y[i]    = parseDoubleSafe(t.get("Track Y Location"));
+                conf[i] = parseDoubleSafe(t.get("Confinement Ratio"));
+
+                StructureKey key = new StructureKey(parseIntSafe(t.get("Square Number")),
+                                                    parseIntSafe(t.get("Number of Spots")),
+                                                    parseIntSafe(t.get("Number of Gaps")),
+                                                    parseIntSafe(t.get("Longest Gap")));
+                members.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+            }
+
+            List<Integer> all = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                all.add(i);
+            }
+            this.byX = sortedByX(all);
+            for (Map.Entry<StructureKey, List<Integer>> e : members.entrySet()) {
+                buckets.put(e.getKey(), sortedByX(e.getValue()));
+            }
+        }
+
+        private int[] sortedByX(List<Integer> indices) {
+            indices.sort((a, b) -> Double.compare(x[a], x[b]));
+            int[] result = new int[indices.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = indices.get(i);
+            }
+            return result;
+        }
+
+        /**
+         * @return the first position in {@code order} with X not below {@code value}
+         */
+        int lowerBound(int[] order, double value) {
+            int lo = 0;
+            int hi = order.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (x[order[mid]] < value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * @return the first position in {@code order} with X above {@code value} (or NaN)
+         */
+        int upperBound(int[] order, double value) {
+            int lo = 0;
+            int hi = order.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (x[order[mid]] <= value) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+
+    /**
+     * Structural fields of a track that must match exactly.
+     */
+    private static final class StructureKey {
+        final int square;
+        final int spots;
+        final int gaps;
+        final int longestGap;
+
+        StructureKey(int square, int spots, int gaps, int longestGap) {
+            this.square     = square;
+            this.spots      = spots;
+            this.gaps       = gaps;
+            this.longestGap = longestGap;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof StructureKey)) {
+                return false;
+            }
+            StructureKey k = (StructureKey) o;
+            return square == k.square && spots == k.spots && gaps == k.gaps && longestGap == k.longestGap;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((square * 31 + spots) * 31 + gaps) * 31 + longestGap;
+        }
+    }
+
     /**
      * Represents configuration options for controlling the matching process in the context
      * of trajectory or track comparison. Each field determines whether a specific metric
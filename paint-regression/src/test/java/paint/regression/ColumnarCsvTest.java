@@ -0,0 +1,119 @@
+package paint.regression;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks the CSV splitting and typed column storage of {@link ColumnarCsv}.
+ */
+public class ColumnarCsvTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void splitLineWithoutQuotes() {
+        assertEquals(Arrays.asList("a", "b", "c"), split("a,b,c"));
+        assertEquals(Arrays.asList("", "b", ""), split(",b,"));
+        assertEquals(Arrays.asList(""), split(""));
+    }
+
+    @Test
+    public void splitLineWithQuotedCommas() {
+        assertEquals(Arrays.asList("Exp 1", "R1, left", "3"), split("Exp 1,\"R1, left\",3"));
+        assertEquals(Arrays.asList(",", ""), split("\",\","));
+        assertEquals(Arrays.asList("a", "b,c,d"), split("a,\"b,c,d\""));
+    }
+
+    @Test
+    public void splitLineWithEscapedQuotes() {
+        assertEquals(Arrays.asList("say \"hi\"", "x"), split("\"say \"\"hi\"\"\",x"));
+        assertEquals(Arrays.asList("\"", "y"), split("\"\"\"\",y"));
+        assertEquals(Arrays.asList("", "z"), split("\"\",z"));
+        assertEquals(Arrays.asList("a \"quoted, text\" b"), split("\"a \"\"quoted, text\"\" b\""));
+    }
+
+    @Test
+    public void splitLineReusesOutputList() {
+        List<String> out = new ArrayList<>(Arrays.asList("stale", "values"));
+        ColumnarCsv.splitLine("x", out);
+        assertEquals(Arrays.asList("x"), out);
+    }
+
+    @Test
+    public void readStoresNumericAndTextColumns() throws IOException {
+        Path csv = tempDir.resolve("Squares.csv");
+        Files.write(csv, Arrays.asList(
+                "Recording Name,Square Nr,Tau,Label",
+                "\"R1, left\",1,12.5,nan",
+                "",
+                "R2,2,,\"a \"\"b\"\"\"",
+                "R3,3,7"), StandardCharsets.UTF_8);
+
+        ColumnarCsv table = ColumnarCsv.read(csv);
+        assertEquals(3, table.getRowCount());
+        assertEquals(4, table.getColumnCount());
+
+        int name  = table.indexOf("Recording Name");
+        int nr    = table.indexOf("Square Nr");
+        int tau   = table.indexOf("Tau");
+        int label = table.indexOf("Label");
+        assertEquals(-1, table.indexOf("Missing"));
+
+        assertFalse(table.isNumeric(name));
+        assertEquals("R1, left", table.getText(name, 0));
+        assertTrue(table.isNumeric(nr));
+        assertEquals("2", table.getText(nr, 1));
+        assertTrue(table.isNumeric(tau));
+        assertEquals(12.5, table.getDouble(tau, 0), 0.0);
+        assertTrue(Double.isNaN(table.getDouble(tau, 1)));
+        assertEquals("", table.getText(tau, 1));
+        assertFalse(table.isNumeric(label));
+        assertEquals("", table.getText(label, 0));
+        assertEquals("a \"b\"", table.getText(label, 1));
+        assertEquals("", table.getText(label, 2));   // Missing trailing field
+        assertEquals("", table.getText(-1, 0));
+    }
+
+    @Test
+    public void columnSwitchesToTextKeepingEarlierNumbers() throws IOException {
+        Path csv = tempDir.resolve("Mixed.csv");
+        Files.write(csv, Arrays.asList("Value", "1", "0.25", "1e3", "abc"), StandardCharsets.UTF_8);
+
+        ColumnarCsv table = ColumnarCsv.read(csv);
+        assertFalse(table.isNumeric(0));
+        assertEquals("1",    table.getText(0, 0));
+        assertEquals("0.25", table.getText(0, 1));
+        assertEquals("1000", table.getText(0, 2));
+        assertEquals("abc",  table.getText(0, 3));
+    }
+
+    @Test
+    public void duplicateHeaderResolvesToLastColumn() throws IOException {
+        Path csv = tempDir.resolve("Duplicate.csv");
+        Files.write(csv, Arrays.asList("A,B,A", "1,2,3"), StandardCharsets.UTF_8);
+
+        ColumnarCsv table = ColumnarCsv.read(csv);
+        assertEquals(2, table.indexOf("A"));
+    }
+
+    // ----------------------------------------------------------------------
+
+    private static List<String> split(String line) {
+        List<String> out = new ArrayList<>();
+        ColumnarCsv.splitLine(line, out);
+        return out;
+    }
+}
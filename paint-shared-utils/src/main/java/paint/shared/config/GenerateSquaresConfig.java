@@ -14,12 +14,16 @@
  *    • minRequiredDensityRatio: minimum density ratio threshold
  *    • maxAllowableVariability: upper bound on coefficient of variation for selection
  *    • neighbourMode: mode for neighbor-based logic (e.g., "Free", "Strict", "Relaxed")
+ *    • plotCurveFitting: whether Tau fitting curves are exported as plots
+ *    • plotSelection: which fits are plotted ("All", "Failed", "Sample")
+ *    • plotSampleInterval: with "Sample", every n-th square is plotted
  *
  *  RESPONSIBILITIES:
  *    • Read configuration values from the section identified by
  *      {@link PaintConfig#SECTION_GENERATE_SQUARES}
  *    • Provide getters for each configuration parameter
  *    • Enforce default values if configuration keys are missing
+ *    • Serve as the "Generate Squares" section of a {@link PaintConfigSnapshot}
  *
  *  USAGE EXAMPLE:
  *    GenerateSquaresConfig config = GenerateSquaresConfig.from();
@@ -34,7 +38,7 @@
  *    Hans Bakker (jjabakker)
  *
  *  UPDATED:
- *    2025-10-28
+ *    2025-10-30
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -59,6 +63,9 @@ public class GenerateSquaresConfig {
     private final double minRequiredDensityRatio;
     private final double maxAllowableVariability;
     private final String neighbourMode;
+    private final boolean plotCurveFitting;
+    private final String  plotSelection;          // "Plot Curve Fitting Selection"
+    private final int     plotSampleInterval;     // "Plot Curve Fitting Sample Interval"
     
 
     /**
@@ -72,19 +79,91 @@ public class GenerateSquaresConfig {
      *   <li>minRequiredDensityRatio: 0.1</li>
      *   <li>maxAllowableVariability: 10.0</li>
      *   <li>neighbourMode: "Free"</li>
+     *   <li>plotCurveFitting: false</li>
+     *   <li>plotSelection: "All"</li>
+     *   <li>plotSampleInterval: 10</li>
      * </ul>
      */
     public GenerateSquaresConfig() {
+        this(PaintConfig.instance());
+    }
+
+    /**
+     * Constructs a GenerateSquaresConfig from the given configuration, applying
+     * the same defaults as {@link #GenerateSquaresConfig()}.
+     *
+     * @param source the configuration to read
+     */
+    GenerateSquaresConfig(PaintConfig source) {
         
-        this.numberOfSquaresInRecording  = PaintConfig.getInt(   SECTION_GENERATE_SQUARES, NUMBER_OF_SQUARES_IN_RECORDING,  400);
-        this.minTracksToCalculateTau     = PaintConfig.getInt(   SECTION_GENERATE_SQUARES, MIN_TRACKS_TO_CALCULATE_TAU,     20);
-        this.minRequiredRSquared         = PaintConfig.getDouble(SECTION_GENERATE_SQUARES, MIN_REQUIRED_R_SQUARED,          0.1);
-        this.minRequiredDensityRatio     = PaintConfig.getDouble(SECTION_GENERATE_SQUARES, MIN_REQUIRED_DENSITY_RATIO,      0.1);
-        this.maxAllowableVariability     = PaintConfig.getDouble(SECTION_GENERATE_SQUARES, MAX_ALLOWABLE_VARIABILITY,       10.0);
-        this.neighbourMode               = PaintConfig.getString(SECTION_GENERATE_SQUARES, NEIGHBOUR_MODE,                  "Free");
+        this.numberOfSquaresInRecording  = source.getIntValue(    SECTION_GENERATE_SQUARES, NUMBER_OF_SQUARES_IN_RECORDING,  400);
+        this.minTracksToCalculateTau     = source.getIntValue(    SECTION_GENERATE_SQUARES, MIN_TRACKS_TO_CALCULATE_TAU,     20);
+        this.minRequiredRSquared         = source.getDoubleValue( SECTION_GENERATE_SQUARES, MIN_REQUIRED_R_SQUARED,          0.1);
+        this.minRequiredDensityRatio     = source.getDoubleValue( SECTION_GENERATE_SQUARES, MIN_REQUIRED_DENSITY_RATIO,      0.1);
+        this.maxAllowableVariability     = source.getDoubleValue( SECTION_GENERATE_SQUARES, MAX_ALLOWABLE_VARIABILITY,       10.0);
+        this.neighbourMode               = source.getStringValue( SECTION_GENERATE_SQUARES, NEIGHBOUR_MODE,                  "Free");
+        this.plotCurveFitting            = source.getBooleanValue(SECTION_GENERATE_SQUARES, "Plot Curve Fitting",            false);
+        this.plotSelection               = source.getStringValue( SECTION_GENERATE_SQUARES, "Plot Curve Fitting Selection",  "All");
+        this.plotSampleInterval          = source.getIntValue(    SECTION_GENERATE_SQUARES, "Plot Curve Fitting Sample Interval", 10);
         
     }
 
+    private GenerateSquaresConfig(int     numberOfSquaresInRecording,
+                                  int     minTracksToCalculateTau,
+                                  double  minRequiredRSquared,
+                                  double  minRequiredDensityRatio,
+                                  double  maxAllowableVariability,
+                                  String  neighbourMode,
+                                  boolean plotCurveFitting,
+                                  String  plotSelection,
+                                  int     plotSampleInterval) {
+
+        this.numberOfSquaresInRecording  = numberOfSquaresInRecording;
+        this.minTracksToCalculateTau     = minTracksToCalculateTau;
+        this.minRequiredRSquared         = minRequiredRSquared;
+        this.minRequiredDensityRatio     = minRequiredDensityRatio;
+        this.maxAllowableVariability     = maxAllowableVariability;
+        this.neighbourMode               = neighbourMode;
+        this.plotCurveFitting            = plotCurveFitting;
+        this.plotSelection               = plotSelection;
+        this.plotSampleInterval          = plotSampleInterval;
+    }
+
+    /**
+     * Returns a copy of this configuration with one numeric parameter replaced,
+     * as used by a parameter sweep. The parameter is identified by its
+     * configuration key, e.g. {@code "Min Required R Squared"}.
+     *
+     * @param parameter the configuration key of the parameter to replace
+     * @param value     the new value
+     * @return a new configuration with the value replaced
+     * @throws IllegalArgumentException if the parameter cannot be set this way
+     */
+    public GenerateSquaresConfig withValue(String parameter, Number value) {
+        int     squares      = numberOfSquaresInRecording;
+        int     minTracks    = minTracksToCalculateTau;
+        double  minRSquared  = minRequiredRSquared;
+        double  minDensity   = minRequiredDensityRatio;
+        double  maxVariation = maxAllowableVariability;
+
+        if (NUMBER_OF_SQUARES_IN_RECORDING.equalsIgnoreCase(parameter)) {
+            squares = value.intValue();
+        } else if (MIN_TRACKS_TO_CALCULATE_TAU.equalsIgnoreCase(parameter)) {
+            minTracks = value.intValue();
+        } else if (MIN_REQUIRED_R_SQUARED.equalsIgnoreCase(parameter)) {
+            minRSquared = value.doubleValue();
+        } else if (MIN_REQUIRED_DENSITY_RATIO.equalsIgnoreCase(parameter)) {
+            minDensity = value.doubleValue();
+        } else if (MAX_ALLOWABLE_VARIABILITY.equalsIgnoreCase(parameter)) {
+            maxVariation = value.doubleValue();
+        } else {
+            throw new IllegalArgumentException("Unknown Generate Squares parameter: " + parameter);
+        }
+        return new GenerateSquaresConfig(squares, minTracks, minRSquared, minDensity,
+                                         maxVariation, neighbourMode, plotCurveFitting,
+                                         plotSelection, plotSampleInterval);
+    }
+
     /**
      * Static factory method to obtain an instance of this config.
      *
@@ -119,6 +198,18 @@ public class GenerateSquaresConfig {
         return neighbourMode;
     }
 
+    public boolean isPlotCurveFitting() {
+        return plotCurveFitting;
+    }
+
+    public String getPlotCurveFittingSelection() {
+        return plotSelection;
+    }
+
+    public int getPlotCurveFittingSampleInterval() {
+        return plotSampleInterval;
+    }
+
     @Override
     public String toString() {
         
@@ -129,6 +220,9 @@ public class GenerateSquaresConfig {
                 ", Min Required Density Ratio  = " + minRequiredDensityRatio +
                 ", Max Allowable Variability   = " + maxAllowableVariability +
                 ", Neighbour Mode              = '"+ neighbourMode + '\'' +
+                ", Plot Curve Fitting          = " + plotCurveFitting +
+                ", Plot Selection              = '"+ plotSelection + '\'' +
+                ", Plot Sample Interval        = " + plotSampleInterval +
                 '}';
         
     }
@@ -15,6 +15,7 @@
  *    - Self-healing defaults for missing keys
  *    - Case-insensitive key and section lookup
  *    - Separate static and instance APIs
+ *    - Standalone instances for resolving a PaintConfigSnapshot
  *
  *  AUTHOR:
  *    Hans Bakker
@@ -22,7 +23,7 @@
  *    paint-shared-utils
  *
  *  UPDATED:
- *    2025-10-28
+ *    2025-10-30
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -88,7 +89,7 @@ public class PaintConfig {
     private JsonObject configData; // lazily loaded
 
     /**
-     * Private constructor to enforce singleton usage.
+     * Private constructor; use {@link #instance()} or {@link #forProject(Path)}.
      *
      * @param path the file path where the JSON configuration is stored
      */
@@ -154,6 +155,18 @@ public class PaintConfig {
         return INSTANCE;
     }
 
+    /**
+     * Returns a standalone configuration for the given project, independent of
+     * the global instance. Used to resolve a {@link PaintConfigSnapshot} from
+     * the configuration of a specific project, as the Generate Squares sweep does.
+     *
+     * @param projectPath the base project directory used to resolve the config file
+     * @return a new {@code PaintConfig} bound to that project's configuration file
+     */
+    public static PaintConfig forProject(Path projectPath) {
+        return new PaintConfig(projectPath.resolve(PAINT_CONFIGURATION_JSON));
+    }
+
     // ============================================================================
     // Load, Save, Defaults
     // ============================================================================
@@ -204,6 +217,8 @@ public class PaintConfig {
         generateSquares.addProperty(NEIGHBOUR_MODE,                                        "Free");
         generateSquares.addProperty(NUMBER_OF_SQUARES_IN_RECORDING,                        400);
         generateSquares.addProperty("Plot Curve Fitting",                          false);
+        generateSquares.addProperty("Plot Curve Fitting Selection",                "All");
+        generateSquares.addProperty("Plot Curve Fitting Sample Interval",          10);
         configData.add(SECTION_GENERATE_SQUARES, generateSquares);
 
         JsonObject trackMate = new JsonObject();
@@ -224,11 +239,13 @@ public class PaintConfig {
         trackMate.addProperty(ALLOW_TRACK_SPLITTING,                                     false);
         trackMate.addProperty(ALLOW_TRACK_MERGING,                                       false);
         trackMate.addProperty(MERGING_MAX_DISTANCE,                                      15.0);
+        trackMate.addProperty(NUMBER_OF_THREADS,                                         0);
+        trackMate.addProperty(MAX_CONCURRENT_RECORDINGS,                                 1);
+        trackMate.addProperty(DETECTION_CHUNK_FRAMES,                                    0);
         configData.add(SECTION_TRACKMATE, trackMate);
 
         JsonObject debugFlags = new JsonObject();
         debugFlags.addProperty("Debug RunTrackMateOnProject",                   false);
-        debugFlags.addProperty("Debug RunTrackMateOnRecording",                 false);
         configData.add(SECTION_DEBUG, debugFlags);
 
     }
@@ -0,0 +1,98 @@
+/******************************************************************************
+ *  Class:        PaintConfigSnapshot.java
+ *  Package:      paint.shared.config
+ *
+ *  PURPOSE:
+ *    Immutable, typed copy of the configuration sections used by the
+ *    pipelines, resolved once at the start of a run.
+ *
+ *  DESCRIPTION:
+ *    A snapshot reads the "Generate Squares", "TrackMate" and "Debug"
+ *    sections of a {@link PaintConfig} into a {@link GenerateSquaresConfig},
+ *    a {@link TrackMateConfig} and a set of debug flags. After that, no value
+ *    is looked up in the JSON again, so the values can be read freely in
+ *    loops and from several threads, and later edits of the configuration do
+ *    not affect a run that is already in progress.
+ *
+ *    {@link #resolve()} reads the global {@link PaintConfig}, which remains
+ *    the facade for dialogs and settings that are edited interactively.
+ *    {@link #of(PaintConfig)} reads any other configuration, for example one
+ *    loaded with {@link PaintConfig#forProject(java.nio.file.Path)}. The
+ *    Generate Squares sweep uses this to read the configuration of the
+ *    project it runs on, independent of the project the global instance was
+ *    initialised for.
+ *
+ *  KEY FEATURES:
+ *    • Immutable and thread-safe.
+ *    • Missing values are defaulted (and written back) exactly as before.
+ *    • Independent of the global configuration once resolved.
+ *
+ *  AUTHOR:
+ *    Hans Bakker
+ *
+ *  MODULE:
+ *    paint-shared-utils
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.shared.config;
+
+import static paint.shared.config.PaintConfig.SECTION_DEBUG;
+
+/**
+ * Immutable configuration of one pipeline run.
+ */
+public final class PaintConfigSnapshot {
+
+    private final GenerateSquaresConfig generateSquaresConfig;
+    private final TrackMateConfig       trackMateConfig;
+    private final boolean               debugRunTrackMateOnProject;
+
+    private PaintConfigSnapshot(PaintConfig source) {
+        this.generateSquaresConfig      = new GenerateSquaresConfig(source);
+        this.trackMateConfig            = new TrackMateConfig(source);
+        this.debugRunTrackMateOnProject = source.getBooleanValue(SECTION_DEBUG, "Debug RunTrackMateOnProject", false);
+    }
+
+    /**
+     * Resolves a snapshot of the global configuration.
+     *
+     * @return the snapshot
+     */
+    public static PaintConfigSnapshot resolve() {
+        return new PaintConfigSnapshot(PaintConfig.instance());
+    }
+
+    /**
+     * Resolves a snapshot of the given configuration.
+     *
+     * @param source the configuration to read
+     * @return the snapshot
+     */
+    public static PaintConfigSnapshot of(PaintConfig source) {
+        return new PaintConfigSnapshot(source);
+    }
+
+    /**
+     * @return the "Generate Squares" section
+     */
+    public GenerateSquaresConfig getGenerateSquaresConfig() {
+        return generateSquaresConfig;
+    }
+
+    /**
+     * @return the "TrackMate" section
+     */
+    public TrackMateConfig getTrackMateConfig() {
+        return trackMateConfig;
+    }
+
+    public boolean isDebugRunTrackMateOnProject() {
+        return debugRunTrackMateOnProject;
+    }
+}
@@ -13,6 +13,7 @@
  *  KEY FEATURES:
  *    - Immutable configuration object (all properties final)
  *    - Built either from full constructor or via reading values from PaintConfig
+ *    - Serves as the "TrackMate" section of a PaintConfigSnapshot
  *    - Provides getters for all configuration fields
  *    - Provides utility method to serialize the configuration to file
  *
@@ -23,7 +24,7 @@
  *    paint-shared-utils
  *
  *  UPDATED:
- *    2025-10-28
+ *    2025-10-30
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -83,6 +84,10 @@ public class TrackMateConfig {
     private final boolean allowTrackSplitting;
     private final boolean allowTrackMerging;
     private final double  mergingMaxDistance;
+    private final int     numberOfThreads;
+    private final int     maxConcurrentRecordings;
+    private final int     detectionChunkFrames;
+    private final boolean runGenerateSquaresAfter;
 
     /**
      * Constructs a configuration object for TrackMate with various parameters used for
@@ -105,6 +110,10 @@ public class TrackMateConfig {
      * @param allowTrackSplitting          Flag indicating if track splitting at branching points is allowed.
      * @param allowTrackMerging            Flag indicating if merging of separate tracks is allowed.
      * @param mergingMaxDistance           Maximum allowable distance for merging tracks.
+     * @param numberOfThreads              Total number of threads available to TrackMate (0 = all cores).
+     * @param maxConcurrentRecordings      Maximum number of recordings processed at the same time.
+     * @param detectionChunkFrames         Frames per detection chunk for virtual-stack loading (0 = load whole recording).
+     * @param runGenerateSquaresAfter      Flag indicating whether Generate Squares runs after TrackMate.
      */
     private TrackMateConfig(
 
@@ -124,7 +133,11 @@ public class TrackMateConfig {
             boolean doMedianFiltering,
             boolean allowTrackSplitting,
             boolean allowTrackMerging,
-            double  mergingMaxDistance) {
+            double  mergingMaxDistance,
+            int     numberOfThreads,
+            int     maxConcurrentRecordings,
+            int     detectionChunkFrames,
+            boolean runGenerateSquaresAfter) {
 
         this.maxFrameGap                  = maxFrameGap;
         this.alternativeLinkingCostFactor = alternativeLinkingCostFactor;
@@ -143,34 +156,52 @@ public class TrackMateConfig {
         this.allowTrackSplitting          = allowTrackSplitting;
         this.allowTrackMerging            = allowTrackMerging;
         this.mergingMaxDistance           = mergingMaxDistance;
+        this.numberOfThreads              = numberOfThreads;
+        this.maxConcurrentRecordings      = maxConcurrentRecordings;
+        this.detectionChunkFrames         = detectionChunkFrames;
+        this.runGenerateSquaresAfter      = runGenerateSquaresAfter;
         
     }
 
     /**
-     * Constructs a configuration object for TrackMate using the parameters provided
-     * in the given PaintConfig instance. The configuration parameters set here are
+     * Constructs a configuration object for TrackMate from the global
+     * {@link PaintConfig}. The configuration parameters set here are
      * used for defining track-related operations such as linking, merging, splitting,
      * and visualization.
      */
     public TrackMateConfig() {
+        this(PaintConfig.instance());
+    }
+
+    /**
+     * Constructs a configuration object for TrackMate using the parameters provided
+     * in the given PaintConfig instance.
+     *
+     * @param source the configuration to read
+     */
+    TrackMateConfig(PaintConfig source) {
         
-        this.maxFrameGap                  = PaintConfig.getInt(    SECTION_TRACKMATE, MAX_FRAME_GAP, 3);
-        this.alternativeLinkingCostFactor = PaintConfig.getDouble( SECTION_TRACKMATE, ALTERNATIVE_LINKING_COST_FACTOR,2.0);
-        this.doSubpixelLocalization       = PaintConfig.getBoolean(SECTION_TRACKMATE, DO_SUBPIXEL_LOCALIZATION,       true);
-        this.minNumberOfSpotsInTrack      = PaintConfig.getInt(    SECTION_TRACKMATE, MIN_NR_SPOTS_IN_TRACK,          3);
-        this.linkingMaxDistance           = PaintConfig.getDouble( SECTION_TRACKMATE, LINKING_MAX_DISTANCE,           0.6);
-        this.maxNumberOfSpotsInImage      = PaintConfig.getInt(    SECTION_TRACKMATE, MAX_NR_SPOTS_IN_IMAGE,          2000000);
-        this.maxNumberOfSecondsPerImage   = PaintConfig.getInt(    SECTION_TRACKMATE, MAX_NR_SECONDS_PER_IMAGE,       2000);
-        this.gapClosingMaxDistance        = PaintConfig.getDouble( SECTION_TRACKMATE, GAP_CLOSING_MAX_DISTANCE,       1.2);
-        this.targetChannel                = PaintConfig.getInt(    SECTION_TRACKMATE, TARGET_CHANNEL,                 1);
-        this.splittingMaxDistance         = PaintConfig.getDouble( SECTION_TRACKMATE, SPLITTING_MAX_DISTANCE,         1.0);
-        this.trackColouring               = PaintConfig.getString( SECTION_TRACKMATE, TRACK_COLOURING,                "TRACK_DURATION");
-        this.radius                       = PaintConfig.getDouble( SECTION_TRACKMATE, RADIUS,                         1.0);
-        this.allowGapClosing              = PaintConfig.getBoolean(SECTION_TRACKMATE, ALLOW_GAP_CLOSING,              true);
-        this.medianFiltering              = PaintConfig.getBoolean(SECTION_TRACKMATE, DO_MEDIAN_FILTERING,            false);
-        this.allowTrackSplitting          = PaintConfig.getBoolean(SECTION_TRACKMATE, ALLOW_TRACK_SPLITTING,          false);
-        this.allowTrackMerging            = PaintConfig.getBoolean(SECTION_TRACKMATE, ALLOW_TRACK_MERGING,            false);
-        this.mergingMaxDistance           = PaintConfig.getDouble( SECTION_TRACKMATE, MERGING_MAX_DISTANCE,           1.0);
+        this.maxFrameGap                  = source.getIntValue(    SECTION_TRACKMATE, MAX_FRAME_GAP, 3);
+        this.alternativeLinkingCostFactor = source.getDoubleValue( SECTION_TRACKMATE, ALTERNATIVE_LINKING_COST_FACTOR,2.0);
+        this.doSubpixelLocalization       = source.getBooleanValue(SECTION_TRACKMATE, DO_SUBPIXEL_LOCALIZATION,       true);
+        this.minNumberOfSpotsInTrack      = source.getIntValue(    SECTION_TRACKMATE, MIN_NR_SPOTS_IN_TRACK,          3);
+        this.linkingMaxDistance           = source.getDoubleValue( SECTION_TRACKMATE, LINKING_MAX_DISTANCE,           0.6);
+        this.maxNumberOfSpotsInImage      = source.getIntValue(    SECTION_TRACKMATE, MAX_NR_SPOTS_IN_IMAGE,          2000000);
+        this.maxNumberOfSecondsPerImage   = source.getIntValue(    SECTION_TRACKMATE, MAX_NR_SECONDS_PER_IMAGE,       2000);
+        this.gapClosingMaxDistance        = source.getDoubleValue( SECTION_TRACKMATE, GAP_CLOSING_MAX_DISTANCE,       1.2);
+        this.targetChannel                = source.getIntValue(    SECTION_TRACKMATE, TARGET_CHANNEL,                 1);
+        this.splittingMaxDistance         = source.getDoubleValue( SECTION_TRACKMATE, SPLITTING_MAX_DISTANCE,         1.0);
+        this.trackColouring               = source.getStringValue( SECTION_TRACKMATE, TRACK_COLOURING,                "TRACK_DURATION");
+        this.radius                       = source.getDoubleValue( SECTION_TRACKMATE, RADIUS,                         1.0);
+        this.allowGapClosing              = source.getBooleanValue(SECTION_TRACKMATE, ALLOW_GAP_CLOSING,              true);
+        this.medianFiltering              = source.getBooleanValue(SECTION_TRACKMATE, DO_MEDIAN_FILTERING,            false);
+        this.allowTrackSplitting          = source.getBooleanValue(SECTION_TRACKMATE, ALLOW_TRACK_SPLITTING,          false);
+        this.allowTrackMerging            = source.getBooleanValue(SECTION_TRACKMATE, ALLOW_TRACK_MERGING,            false);
+        this.mergingMaxDistance           = source.getDoubleValue( SECTION_TRACKMATE, MERGING_MAX_DISTANCE,           1.0);
+        this.numberOfThreads              = source.getIntValue(    SECTION_TRACKMATE, NUMBER_OF_THREADS,              0);
+        this.maxConcurrentRecordings      = source.getIntValue(    SECTION_TRACKMATE, MAX_CONCURRENT_RECORDINGS,      1);
+        this.detectionChunkFrames         = source.getIntValue(    SECTION_TRACKMATE, DETECTION_CHUNK_FRAMES,         0);
+        this.runGenerateSquaresAfter      = source.getBooleanValue(SECTION_TRACKMATE, "Run Generate Squares After",   true);
         
     }
 
@@ -245,6 +276,22 @@ public class TrackMateConfig {
         return mergingMaxDistance;
     }
 
+    public int getNumberOfThreads() {
+        return numberOfThreads;
+    }
+
+    public int getMaxConcurrentRecordings() {
+        return maxConcurrentRecordings;
+    }
+
+    public int getDetectionChunkFrames() {
+        return detectionChunkFrames;
+    }
+
+    public boolean isRunGenerateSquaresAfter() {
+        return runGenerateSquaresAfter;
+    }
+
     @Override
     public String toString() {
         
@@ -265,7 +312,10 @@ public class TrackMateConfig {
                 "                  Do Median Filtering             = "  + medianFiltering + "\n" +
                 "                  Allow Track Splitting           = "  + allowTrackSplitting + "\n" +
                 "                  Allow Track Merging             = "  + allowTrackMerging + "\n" +
-                "                  Merging Max Distance            = "  + mergingMaxDistance + "\n";
+                "                  Merging Max Distance            = "  + mergingMaxDistance + "\n" +
+                "                  Number of Threads               = "  + numberOfThreads + "\n" +
+                "                  Max Concurrent Recordings       = "  + maxConcurrentRecordings + "\n" +
+                "                  Detection Chunk Frames          = "  + detectionChunkFrames + "\n";
     }
 
     /**
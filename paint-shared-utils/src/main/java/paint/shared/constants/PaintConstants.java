@@ -72,6 +72,7 @@ public final class PaintConstants {
     public static final String EXPERIMENT_INFO_CSV             = "Experiment Info.csv";
     public static final String PAINT_CONFIGURATION_JSON        = "Paint Configuration.json";
     public static final String PAINT_SWEEP_CONFIGURATION_JSON  = "Paint Sweep Configuration.json";
+    public static final String METRICS_JSON                    = "Metrics.json";
 
     // =====================
     // Directories
@@ -120,6 +121,9 @@ public final class PaintConstants {
     public static final String ALLOW_TRACK_SPLITTING           = "ALLOW_TRACK_SPLITTING";
     public static final String ALLOW_TRACK_MERGING             = "ALLOW_TRACK_MERGING";
     public static final String MERGING_MAX_DISTANCE            = "MERGING_MAX_DISTANCE";
+    public static final String NUMBER_OF_THREADS               = "NUMBER_OF_THREADS";
+    public static final String MAX_CONCURRENT_RECORDINGS       = "MAX_CONCURRENT_RECORDINGS";
+    public static final String DETECTION_CHUNK_FRAMES          = "DETECTION_CHUNK_FRAMES";
 
     public static final String NUMBER_OF_SQUARES_IN_RECORDING  = "Number of Squares in Recording";
     public static final String MIN_TRACKS_TO_CALCULATE_TAU     = "Min Tracks to Calculate Tau";
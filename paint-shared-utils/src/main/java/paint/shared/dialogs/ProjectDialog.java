@@ -420,6 +420,7 @@ public class ProjectDialog {
                     SwingUtilities.invokeLater(() -> {
                         if (workerThread.isAlive()) {
                             PaintLogger.errorf("Worker thread did not stop — forcing JVM halt.");
+                            PaintLogger.flush();   // halt() skips the shutdown hook that would flush
                             Runtime.getRuntime().halt(0);
                         } else {
                             PaintLogger.infof("Worker thread terminated cleanly.");
@@ -428,6 +429,7 @@ public class ProjectDialog {
                             okButton.setText("OK");
                             okButton.setEnabled(true);
                             try {
+                                PaintLogger.flush();
                                 PaintConsoleWindow.closeIfVisible();
                             } catch (Throwable t) {
                                 // ignore
@@ -447,6 +449,7 @@ public class ProjectDialog {
                         dlg.dispose();
                     }
                     try {
+                        PaintLogger.flush();
                         PaintConsoleWindow.closeIfVisible();
                     } catch (Throwable t) {
                         // ignore
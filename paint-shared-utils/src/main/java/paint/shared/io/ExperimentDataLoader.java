@@ -12,7 +12,9 @@
  *    schema validation provided by their respective TableIO classes. Constructs
  *    {@link paint.shared.objects.Recording} and {@link paint.shared.objects.Square}
  *    entities, associates tracks with recordings, and maps tracks to individual
- *    squares based on spatial filtering.
+ *    squares. Rows are grouped by recording name in one pass per table, and
+ *    tracks are attached to squares through their persisted Square Number,
+ *    falling back to spatial filtering for tracks without one.
  *
  *  KEY FEATURES:
  *    • Reads and validates CSV data for recordings, tracks, and squares.
@@ -40,14 +42,21 @@ package paint.shared.io;
 import paint.shared.objects.Experiment;
 import paint.shared.objects.Recording;
 import paint.shared.objects.Square;
+import paint.shared.objects.Track;
 import paint.shared.utils.PaintLogger;
+import tech.tablesaw.api.StringColumn;
 import tech.tablesaw.api.Table;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static paint.shared.constants.PaintConstants.*;
-import static paint.shared.utils.SharedSquareUtils.filterTracksInSquare;
+import static paint.shared.utils.SharedSquareUtils.isInSquare;
 
 /**
  * Provides centralized functionality for loading all experiment-related data:
@@ -63,6 +72,11 @@ import static paint.shared.utils.SharedSquareUtils.filterTracksInSquare;
  */
 public final class ExperimentDataLoader {
 
+    /**
+     * Square recording names of threshold variants: {@code <recording>-threshold-<n>}.
+     */
+    private static final Pattern THRESHOLD_SUFFIX = Pattern.compile("^(.*)-threshold-\\d{1,3}$");
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -83,8 +97,9 @@ public final class ExperimentDataLoader {
      *   <li>Loads and validates {@code tracks.csv}, associating tracks with each
      *       recording based on the “Recording Name” column.</li>
      *   <li>If {@code matureProject} is {@code true}, loads and validates
-     *       {@code squares.csv}, mapping tracks into squares using the spatial
-     *       boundaries defined for each recording.</li>
+     *       {@code squares.csv} and maps tracks into squares by their
+     *       “Square Number”, or by the spatial boundaries of the squares for
+     *       tracks without one.</li>
      * </ol>
      *
      * <p>All CSVs are validated for column names, order, and data types
@@ -139,14 +154,19 @@ public final class ExperimentDataLoader {
 
         // ─── Attach tracks to recordings ──────────────────────────────────────
         PaintLogger.debugf("Found %d tracks", tracksTable.rowCount());
+        Map<String, List<Integer>> trackRowsByRecording = new HashMap<>();
+        StringColumn trackRecordingNames = tracksTable.stringColumn("Recording Name");
+        for (int row = 0; row < trackRecordingNames.size(); row++) {
+            trackRowsByRecording.computeIfAbsent(trackRecordingNames.get(row), k -> new ArrayList<>()).add(row);
+        }
+
         for (Recording recording : recordings) {
             if (!recording.isProcessFlag()) {
                 continue; // skip non-processed recordings
             }
 
-            Table recTracks = tracksTable.where(
-                    tracksTable.stringColumn("Recording Name")
-                            .isEqualTo(recording.getRecordingName()));
+            Table recTracks = tracksTable.rows(toIntArray(
+                    trackRowsByRecording.get(recording.getRecordingName())));
 
             PaintLogger.debugf("Found %d tracks for recording '%s'",
                                recTracks.rowCount(), recording.getRecordingName());
@@ -189,26 +209,91 @@ public final class ExperimentDataLoader {
                 System.exit(-1);
             }
 
+            // ─── Bucket squares by recording name in one pass ─────────────────
+            // A square belongs to recording X if its name is X or X-threshold-<n>
+            Map<String, List<Integer>> squareRowsByRecording = new HashMap<>();
+            StringColumn squareRecordingNames = squaresTable.stringColumn("Recording Name");
+            for (int row = 0; row < squareRecordingNames.size(); row++) {
+                String name = squareRecordingNames.get(row);
+                squareRowsByRecording.computeIfAbsent(name, k -> new ArrayList<>()).add(row);
+
+                Matcher matcher = THRESHOLD_SUFFIX.matcher(name);
+                if (matcher.matches()) {
+                    squareRowsByRecording.computeIfAbsent(matcher.group(1), k -> new ArrayList<>()).add(row);
+                }
+            }
+
             // ─── Assign squares and map tracks into them ──────────────────────
             for (Recording rec : recordings) {
-                Table recSquares = squaresTable.where(
-                        squaresTable.stringColumn("Recording Name")
-                                .matchesRegex("^" + rec.getRecordingName() + "(?:-threshold-\\d{1,3})?$"));
+                Table recSquares = squaresTable.rows(toIntArray(
+                        squareRowsByRecording.get(rec.getRecordingName())));
 
                 rec.addSquares(squareIO.toEntities(recSquares));
 
-                if (numberOfRows > 0) {
-                    int lastRowCol = numberOfRows - 1;
-                    Table recTracks = rec.getTracksTable();
-
-                    for (Square square : rec.getSquaresOfRecording()) {
-                        Table squareTracks = filterTracksInSquare(recTracks, square, lastRowCol);
-                        square.setTracks(trackIO.toEntities(squareTracks));
-                    }
+                if (numberOfRows > 0 && rec.getTracks() != null) {
+                    assignTracksToSquares(rec.getSquaresOfRecording(), rec.getTracks(), numberOfRows - 1);
                 }
             }
         }
 
         return experiment;
     }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // HELPERS
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Attaches the tracks of a recording to its squares in one pass, using the
+     * Square Number that Generate Squares stored with each track.
+     *
+     * <p>Tracks without a Square Number (-1), or with a number that does not
+     * occur in the recording, are assigned geometrically instead. Tracks keep
+     * their order within each square.</p>
+     *
+     * @param squares    the squares of the recording
+     * @param tracks     the tracks of the recording
+     * @param lastRowCol index of the last row/column in the grid
+     */
+    private static void assignTracksToSquares(List<Square> squares, List<Track> tracks, int lastRowCol) {
+        Map<Integer, List<Square>> squaresByNumber = new HashMap<>();
+        for (Square square : squares) {
+            square.setTracks(new ArrayList<>());
+            squaresByNumber.computeIfAbsent(square.getSquareNumber(), k -> new ArrayList<>(1)).add(square);
+        }
+
+        for (Track track : tracks) {
+            List<Square> targets = track.getSquareNumber() >= 0
+                    ? squaresByNumber.get(track.getSquareNumber())
+                    : null;
+
+            if (targets != null) {
+                for (Square square : targets) {
+                    square.getTracks().add(track);
+                }
+                continue;
+            }
+
+            // Fallback: geometric assignment
+            for (Square square : squares) {
+                if (isInSquare(track.getTrackXLocation(), track.getTrackYLocation(), square, lastRowCol)) {
+                    square.getTracks().add(track);
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a list of row numbers to an array; {@code null} gives an empty array.
+     */
+    private static int[] toIntArray(List<Integer> rows) {
+        if (rows == null) {
+            return new int[0];
+        }
+        int[] result = new int[rows.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = rows.get(i);
+        }
+        return result;
+    }
 }
\ No newline at end of file
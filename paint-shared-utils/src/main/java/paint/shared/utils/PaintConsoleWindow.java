@@ -15,8 +15,17 @@
  *    The console is intended as a visual log window for PAINT-based desktop
  *    applications, allowing both text-based and GUI-integrated feedback.
  *
+ *    Output is not inserted line by line. Messages are collected in a pending
+ *    buffer and inserted by one event dispatch task per display frame, using
+ *    one cached style per color. The document is limited to a maximum number
+ *    of lines; older lines are moved to a history file that is included when
+ *    the console is saved.
+ *
  *  KEY FEATURES:
  *    • Thread-safe message logging and dynamic color highlighting.
+ *    • Coalesced appends: at most one document update per display frame.
+ *    • Bounded document ("Paint Console" / "Max Lines"), with trimmed lines
+ *      kept in a history file for saving.
  *    • Scroll lock and caret control for controlled auto-scrolling.
  *    • Interactive buttons for saving, closing, and navigating problem messages.
  *    • Pattern-based highlighting of "Error", "Warning", and "Exception".
@@ -29,7 +38,7 @@
  *    paint-shared-utils
  *
  *  UPDATED:
- *    2025-10-28
+ *    2025-10-29
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -41,12 +50,19 @@ import javax.swing.*;
 import javax.swing.text.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -54,7 +70,8 @@ import java.util.regex.Pattern;
  * Provides a Swing-based console window for real-time message output.
  * <p>
  * Supports message coloring, saving logs to disk, problem highlighting,
- * and scroll lock behavior.
+ * and scroll lock behavior. Messages may be written from any thread; they are
+ * inserted into the document in batches on the event dispatch thread.
  */
 public final class PaintConsoleWindow {
 
@@ -62,6 +79,13 @@ public final class PaintConsoleWindow {
     // FIELDS
     // ───────────────────────────────────────────────────────────────────────────────
 
+    /**
+     * Default maximum number of lines kept in the console document.
+     */
+    public static final int DEFAULT_MAX_LINES = 20000;
+
+    private static final int FRAME_MILLIS = 16;
+
     private static       JFrame         frame;
     private static       JTextPane      textPane;
     private static       StyledDocument doc;
@@ -69,6 +93,18 @@ public final class PaintConsoleWindow {
     private static final List<Integer>  problemPositions = new ArrayList<>();
     private static       int            currentProblemIndex = -1;
 
+    // Pending output, guarded by PENDING_LOCK; flushed by one timer task per frame
+    private static final Object         PENDING_LOCK   = new Object();
+    private static       List<Chunk>    pending        = new ArrayList<>();
+    private static       boolean        flushScheduled = false;
+    private static final Timer          flushTimer     = createFlushTimer();
+
+    // Document state, owned by the event dispatch thread
+    private static final Map<Color, Style> styles    = new HashMap<>();
+    private static       int               lineCount = 0;
+    private static       Path              historyFile;
+    private static volatile int            maxLines  = DEFAULT_MAX_LINES;
+
     // ───────────────────────────────────────────────────────────────────────────────
     // PUBLIC LOGGING API
     // ───────────────────────────────────────────────────────────────────────────────
@@ -85,7 +121,7 @@ public final class PaintConsoleWindow {
      */
     public static synchronized void log(String message, Color color) {
         ensureConsoleCreated();
-        SwingUtilities.invokeLater(() -> appendText(message + "\n", color));
+        enqueue(message + "\n", color);
     }
 
     /**
@@ -100,7 +136,7 @@ public final class PaintConsoleWindow {
      */
     public static synchronized void print(String message, Color color) {
         ensureConsoleCreated();
-        SwingUtilities.invokeLater(() -> appendText(message, color));
+        enqueue(message, color);
     }
 
     /**
@@ -115,7 +151,18 @@ public final class PaintConsoleWindow {
      */
     public static synchronized void printChar(char c, Color color) {
         ensureConsoleCreated();
-        SwingUtilities.invokeLater(() -> appendText(String.valueOf(c), color));
+        enqueue(String.valueOf(c), color);
+    }
+
+    /**
+     * Sets the maximum number of lines kept in the console. When the limit is
+     * exceeded the oldest lines are moved to the history file. A value of zero
+     * or less removes the limit.
+     *
+     * @param lines maximum number of lines in the console document
+     */
+    public static void setMaxLines(int lines) {
+        maxLines = lines;
     }
 
     // ───────────────────────────────────────────────────────────────────────────────
@@ -135,17 +182,21 @@ public final class PaintConsoleWindow {
                 scrollLock = null;
                 problemPositions.clear();
                 currentProblemIndex = -1;
+                resetDocumentState();
             });
         }
     }
 
     /**
      * Attaches automatic console closure when a given dialog is disposed.
+     * Messages still queued in {@link PaintLogger} are printed first, so they
+     * cannot reopen the console after it has closed.
      */
     public static void closeOnDialogDispose(JDialog dialog) {
         dialog.addWindowListener(new java.awt.event.WindowAdapter() {
             @Override
             public void windowClosed(java.awt.event.WindowEvent e) {
+                PaintLogger.flush();
                 close();
             }
         });
@@ -165,6 +216,7 @@ public final class PaintConsoleWindow {
                 scrollLock = null;
                 problemPositions.clear();
                 currentProblemIndex = -1;
+                resetDocumentState();
             });
         }
     }
@@ -254,14 +306,53 @@ public final class PaintConsoleWindow {
     // TEXT HANDLING AND SAVING
     // ───────────────────────────────────────────────────────────────────────────────
 
+    private static Timer createFlushTimer() {
+        Timer timer = new Timer(FRAME_MILLIS, e -> flushPending());
+        timer.setRepeats(false);
+        return timer;
+    }
+
     /**
-     * Appends colored text to the console.
+     * Adds text to the pending buffer, merging it with the previous chunk if the
+     * color is the same, and schedules a flush for the next frame.
      */
-    private static void appendText(String text, Color color) {
+    private static void enqueue(String text, Color color) {
+        synchronized (PENDING_LOCK) {
+            Chunk last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+            if (last != null && last.color.equals(color)) {
+                last.text.append(text);
+            } else {
+                pending.add(new Chunk(text, color));
+            }
+            if (!flushScheduled) {
+                flushScheduled = true;
+                flushTimer.restart();
+            }
+        }
+    }
+
+    /**
+     * Inserts all pending text into the document in one pass and trims the
+     * document to the maximum line count. Runs on the event dispatch thread.
+     */
+    private static void flushPending() {
+        List<Chunk> chunks;
+        synchronized (PENDING_LOCK) {
+            chunks         = pending;
+            pending        = new ArrayList<>();
+            flushScheduled = false;
+        }
+        if (doc == null || chunks.isEmpty()) {
+            return;
+        }
+
         try {
-            Style style = textPane.addStyle("Style", null);
-            StyleConstants.setForeground(style, color);
-            doc.insertString(doc.getLength(), text, style);
+            for (Chunk chunk : chunks) {
+                String text = chunk.text.toString();
+                doc.insertString(doc.getLength(), text, styleFor(chunk.color));
+                lineCount += countLines(text);
+            }
+            trimHead();
 
             if (!scrollLock.isSelected()) {
                 textPane.setCaretPosition(doc.getLength());
@@ -271,6 +362,95 @@ public final class PaintConsoleWindow {
         }
     }
 
+    /**
+     * Returns the cached style for a color, creating it on first use.
+     */
+    private static Style styleFor(Color color) {
+        Style style = styles.get(color);
+        if (style == null) {
+            style = textPane.addStyle(null, null);
+            StyleConstants.setForeground(style, color);
+            styles.put(color, style);
+        }
+        return style;
+    }
+
+    /**
+     * Removes the oldest lines once the document exceeds the maximum line count
+     * by a tenth, so trimming happens in blocks rather than on every frame. The
+     * removed text is appended to the history file and the recorded problem
+     * positions are shifted to the remaining text.
+     */
+    private static void trimHead() throws BadLocationException {
+        int limit = maxLines;
+        if (limit <= 0 || lineCount <= limit + Math.max(1, limit / 10)) {
+            return;
+        }
+
+        int     linesToRemove = lineCount - limit;
+        Element root          = doc.getDefaultRootElement();
+        int     removeLength  = root.getElement(Math.min(linesToRemove, root.getElementCount()) - 1).getEndOffset();
+        removeLength          = Math.min(removeLength, doc.getLength());
+
+        appendToHistory(doc.getText(0, removeLength));
+        doc.remove(0, removeLength);
+        lineCount -= linesToRemove;
+
+        // Highlights move with the document; the recorded start positions must follow
+        int removedProblems = 0;
+        for (int i = problemPositions.size() - 1; i >= 0; i--) {
+            int pos = problemPositions.get(i);
+            if (pos < removeLength) {
+                problemPositions.remove(i);
+                removedProblems++;
+            } else {
+                problemPositions.set(i, pos - removeLength);
+            }
+        }
+        currentProblemIndex = Math.max(-1, currentProblemIndex - removedProblems);
+    }
+
+    /**
+     * Appends trimmed console text to the history file, creating it on first use.
+     */
+    private static void appendToHistory(String text) {
+        try {
+            if (historyFile == null) {
+                historyFile = Files.createTempFile("paint-console-", ".log");
+                historyFile.toFile().deleteOnExit();
+            }
+            Files.write(historyFile, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Clears the cached styles and history of a closed console.
+     */
+    private static void resetDocumentState() {
+        styles.clear();
+        lineCount = 0;
+        if (historyFile != null) {
+            try {
+                Files.deleteIfExists(historyFile);
+            } catch (IOException ignored) {
+                // Deliberately empty; the file is also removed on exit
+            }
+            historyFile = null;
+        }
+    }
+
+    private static int countLines(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+
     /**
      * Saves console output to a user-selected file.
      */
@@ -281,6 +461,16 @@ public final class PaintConsoleWindow {
         if (choice == JFileChooser.APPROVE_OPTION) {
             File file = chooser.getSelectedFile();
             try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+                // Lines trimmed from the console first, then the visible text
+                if (historyFile != null) {
+                    try (BufferedReader reader = Files.newBufferedReader(historyFile, StandardCharsets.UTF_8)) {
+                        char[] buffer = new char[8192];
+                        int n;
+                        while ((n = reader.read(buffer)) > 0) {
+                            writer.write(buffer, 0, n);
+                        }
+                    }
+                }
                 writer.write(textPane.getText());
                 JOptionPane.showMessageDialog(frame, "Console saved to " + file.getAbsolutePath());
             } catch (IOException ex) {
@@ -484,4 +674,17 @@ public final class PaintConsoleWindow {
         String baseTitle = frame.getTitle().replace(" [Scroll Locked]", "");
         frame.setTitle(locked ? baseTitle + " [Scroll Locked]" : baseTitle);
     }
-}
\ No newline at end of file
+
+    /**
+     * Pending text of a single color.
+     */
+    private static final class Chunk {
+        final StringBuilder text;
+        final Color         color;
+
+        Chunk(String text, Color color) {
+            this.text  = new StringBuilder(text);
+            this.color = color;
+        }
+    }
+}
@@ -10,13 +10,26 @@
  *    outputs. It supports multiple log levels (DEBUG, INFO, WARN, ERROR), color
  *    display through {@link PaintConsoleWindow}, and persistent logging to disk.
  *
- *    Messages below the current log level threshold are automatically filtered.
+ *    Messages below the current log level threshold are filtered before they
+ *    are formatted, so a disabled message costs no more than the level check.
+ *    Messages may also be passed as a {@link Supplier}, which is only called
+ *    when the level is enabled.
+ *
+ *    Enabled messages are placed in a bounded, lock-free ring buffer. A single
+ *    background thread drains the buffer in batches: it writes each batch to
+ *    the log file with one flush and hands it to the console as one update per
+ *    run of same-colored text. Callers never wait for disk or the Swing event
+ *    queue. When the buffer is full they block, without spinning, until the
+ *    background thread has written a batch.
+ *
  *    Log files are created within a "Logs" directory under a specified project
  *    path. This class also supports aligned documentation block output and
  *    raw printing for unformatted data.
  *
  *  KEY FEATURES:
- *    • Multi-level logging with severity filtering.
+ *    • Multi-level logging with severity filtering ahead of formatting.
+ *    • Supplier-based lazy messages for expensive debug output.
+ *    • Asynchronous, batched console and file output in call order.
  *    • Color-coded console output integrated with {@link PaintConsoleWindow}.
  *    • Automatic log file rotation and initialization under a "Logs" folder.
  *    • Thread-safe static API with Java 8 compatibility.
@@ -29,7 +42,7 @@
  *    paint-shared-utils
  *
  *  UPDATED:
- *    2025-10-28
+ *    2025-10-30
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -42,16 +55,25 @@ import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.time.LocalDateTime;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
 
 /**
  * Static logger class for color-coded console and file logging.
  * <p>
- * Supports multiple severity levels, formatted messages, and persistent
- * log storage under a project’s "Logs" directory.
+ * Supports multiple severity levels, formatted and lazily supplied messages,
+ * and persistent log storage under a project’s "Logs" directory. Output is
+ * written asynchronously by a single background thread, in the order in which
+ * the calls were made; {@link #flush()} waits until everything logged so far
+ * has been written.
  */
-public final class  PaintLogger {
+public final class PaintLogger {
 
     // ───────────────────────────────────────────────────────────────────────────────
     // ENUM: LOG LEVEL
@@ -61,12 +83,10 @@ public final class  PaintLogger {
      * Defines log levels with severity rank and display color.
      */
     public enum Level {
-        
         DEBUG(0, Color.GRAY),
         INFO( 1, Color.BLACK),
         WARN( 2, Color.ORANGE.darker()),
         ERROR(3, Color.RED);
-        
 
         private final int   rank;
         private final Color color;
@@ -95,13 +115,33 @@ public final class  PaintLogger {
     // INTERNAL STATE
     // ───────────────────────────────────────────────────────────────────────────────
 
-    
+    private static final    int               BUFFER_SIZE    = 8192;            // Power of two
+    private static final    int               BATCH_SIZE     = 512;
+    private static final    DateTimeFormatter TIME_FMT       = DateTimeFormatter.ofPattern("HH:mm:ss")
+                                                                                .withZone(ZoneId.systemDefault());
+    private static final    Object            FILE_LOCK      = new Object();
+    private static final    String[]          LEVEL_TAGS     = levelTags();
+
+    // Continuation lines of a doc block are aligned exactly one space after [INFO ]
+    private static final    String            DOC_INDENT     = repeat(" ", "HH:mm:ss [INFO ] ".length());
+
     private static          BufferedWriter    writer;
-    private static          boolean           initialised    = false;
-    private static final    DateTimeFormatter TIME_FMT       = DateTimeFormatter.ofPattern("HH:mm:ss");
-    private static          boolean           justPrintedRaw = false;
+    private static volatile boolean           initialised    = false;
     private static volatile Level             currentLevel   = Level.INFO;
-    
+
+    // Ring buffer: producers claim a sequence number, the drain thread consumes in sequence order
+    private static final    AtomicReferenceArray<Entry> ring    = new AtomicReferenceArray<>(BUFFER_SIZE);
+    private static final    AtomicLong                  claimed = new AtomicLong();
+    private static volatile long                        drained = 0;
+    private static volatile boolean                     idle    = false;
+    private static final    Object                      space   = new Object();   // Signalled when a full ring drains
+    private static volatile int                         waiting = 0;              // Producers blocked on a full ring
+    private static final    Thread                      drainer = startDrainer();
+
+    // Owned by the drain thread
+    private static          boolean           justPrintedRaw = false;
+    private static          long              stampSecond    = Long.MIN_VALUE;
+    private static          String            stampText      = "";
 
     // ───────────────────────────────────────────────────────────────────────────────
     // CONFIGURATION
@@ -150,6 +190,24 @@ public final class  PaintLogger {
         }
     }
 
+    /**
+     * Returns whether messages of the given level are currently logged. Use it
+     * to skip building arguments for messages that would be discarded.
+     *
+     * @param level the level to test
+     * @return {@code true} if messages of this level are logged
+     */
+    public static boolean isEnabled(Level level) {
+        return level.rank() >= currentLevel.rank();
+    }
+
+    /**
+     * @return {@code true} if DEBUG messages are currently logged
+     */
+    public static boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
     /**
      * Initializes the logger by creating a "Logs" directory and a new numbered log file.
      * Logs are written to both file and GUI console.
@@ -171,8 +229,12 @@ public final class  PaintLogger {
                 logFile = logsDir.resolve(String.format("%s-%d.log", logBaseName, index++));
             } while (logFile.toFile().exists());
 
-            writer = new BufferedWriter(new FileWriter(logFile.toFile(), true));
-            initialised = true;
+            // Messages logged before this call still go to the console only
+            flush();
+            synchronized (FILE_LOCK) {
+                writer = new BufferedWriter(new FileWriter(logFile.toFile(), true));
+                initialised = true;
+            }
             infof("Logger initialised: %s", logFile);
         } catch (IOException e) {
             System.err.println("PaintLogger could not initialise: " + e.getMessage());
@@ -180,17 +242,36 @@ public final class  PaintLogger {
     }
 
     /**
-     * Closes the current log writer if open.
+     * Writes all pending messages and closes the current log writer if open.
      */
     public static void close() {
-        if (writer != null) {
-            try {
-                writer.close();
-            } catch (IOException ignored) {
-                // Deliberately empty
+        flush();
+        synchronized (FILE_LOCK) {
+            if (writer != null) {
+                try {
+                    writer.close();
+                } catch (IOException ignored) {
+                    // Deliberately empty
+                }
+                writer = null;
             }
+            initialised = false;
+        }
+    }
+
+    /**
+     * Waits until every message logged before this call has been written to the
+     * log file and handed to the console.
+     */
+    public static void flush() {
+        long target = claimed.get();
+        if (Thread.currentThread() == drainer) {
+            return;
+        }
+        while (drained < target && drainer.isAlive()) {
+            LockSupport.unpark(drainer);
+            LockSupport.parkNanos(100_000L);
         }
-        initialised = false;
     }
 
     // ───────────────────────────────────────────────────────────────────────────────
@@ -198,35 +279,38 @@ public final class  PaintLogger {
     // ───────────────────────────────────────────────────────────────────────────────
 
     /**
-     * Performs actual log output to both console and file.
+     * Queues a message for output to both console and file.
      *
      * @param level   log severity level
      * @param message formatted message text
      */
     private static void log(Level level, String message) {
-        if (level.rank() < currentLevel.rank()) {
+        if (!isEnabled(level)) {
             return;
         }
+        publish(new Entry(Entry.LINE, level, System.currentTimeMillis(), message));
+    }
 
-        String timestamp = LocalDateTime.now().format(TIME_FMT);
-        String formatted = String.format("%s [%-5s] %s", timestamp, level, message);
-
-        if (justPrintedRaw) {
-            PaintConsoleWindow.print("\n");
-            justPrintedRaw = false;
+    /**
+     * Formats a printf-style message. The format is only evaluated after the
+     * level check, and a plain message without arguments is used as is.
+     */
+    private static void logf(Level level, String fmt, Object... args) {
+        if (!isEnabled(level)) {
+            return;
         }
+        String message = args.length == 0 && fmt.indexOf('%') < 0 ? fmt : String.format(fmt, args);
+        publish(new Entry(Entry.LINE, level, System.currentTimeMillis(), message));
+    }
 
-        PaintConsoleWindow.log(formatted, level.color());
-
-        if (initialised && writer != null) {
-            try {
-                writer.write(formatted);
-                writer.newLine();
-                writer.flush();
-            } catch (IOException e) {
-                System.err.println("PaintLogger failed to write log: " + e.getMessage());
-            }
+    /**
+     * Calls the supplier only if the level is enabled.
+     */
+    private static void logLazy(Level level, Supplier<String> message) {
+        if (!isEnabled(level)) {
+            return;
         }
+        publish(new Entry(Entry.LINE, level, System.currentTimeMillis(), String.valueOf(message.get())));
     }
 
     // ───────────────────────────────────────────────────────────────────────────────
@@ -237,7 +321,14 @@ public final class  PaintLogger {
      * Logs an INFO message with printf-style formatting.
      */
     public static void infof(String fmt, Object... args) {
-        log(Level.INFO, String.format(fmt, args));
+        logf(Level.INFO, fmt, args);
+    }
+
+    /**
+     * Logs an INFO message produced by {@code message}, which is only called if INFO is enabled.
+     */
+    public static void infof(Supplier<String> message) {
+        logLazy(Level.INFO, message);
     }
 
     /**
@@ -251,7 +342,14 @@ public final class  PaintLogger {
      * Logs a DEBUG message with printf-style formatting.
      */
     public static void debugf(String fmt, Object... args) {
-        log(Level.DEBUG, String.format(fmt, args));
+        logf(Level.DEBUG, fmt, args);
+    }
+
+    /**
+     * Logs a DEBUG message produced by {@code message}, which is only called if DEBUG is enabled.
+     */
+    public static void debugf(Supplier<String> message) {
+        logLazy(Level.DEBUG, message);
     }
 
     /**
@@ -265,7 +363,14 @@ public final class  PaintLogger {
      * Logs a WARN message with printf-style formatting.
      */
     public static void warnf(String fmt, Object... args) {
-        log(Level.WARN, String.format(fmt, args));
+        logf(Level.WARN, fmt, args);
+    }
+
+    /**
+     * Logs a WARN message produced by {@code message}, which is only called if WARN is enabled.
+     */
+    public static void warnf(Supplier<String> message) {
+        logLazy(Level.WARN, message);
     }
 
     /**
@@ -279,14 +384,23 @@ public final class  PaintLogger {
      * Logs an ERROR message with printf-style formatting.
      */
     public static void errorf(String fmt, Object... args) {
-        log(Level.ERROR, String.format(fmt, args));
+        logf(Level.ERROR, fmt, args);
+    }
+
+    /**
+     * Logs an ERROR message produced by {@code message}.
+     */
+    public static void errorf(Supplier<String> message) {
+        logLazy(Level.ERROR, message);
     }
 
     /**
      * Logs an ERROR stack trace for a {@link Throwable}.
      */
     public static void errorf(Throwable t) {
-        log(Level.ERROR, getStackTrace(t));
+        if (isEnabled(Level.ERROR)) {
+            log(Level.ERROR, getStackTrace(t));
+        }
     }
 
     /**
@@ -307,28 +421,14 @@ public final class  PaintLogger {
      * @param text raw text to print
      */
     public static void raw(String text) {
-        PaintConsoleWindow.print(text);
-        justPrintedRaw = true;
+        publish(new Entry(Entry.RAW, Level.INFO, 0L, text));
     }
 
     /**
      * Inserts a blank line in the console and log file.
      */
     public static void blankline() {
-        if (justPrintedRaw) {
-            PaintConsoleWindow.print("\n");
-            justPrintedRaw = false;
-        }
-        PaintConsoleWindow.log("", Color.BLACK);
-
-        if (initialised && writer != null) {
-            try {
-                writer.newLine();
-                writer.flush();
-            } catch (IOException e) {
-                System.err.println("PaintLogger failed to write blank line: " + e.getMessage());
-            }
-        }
+        publish(new Entry(Entry.BLANK, Level.INFO, 0L, ""));
     }
 
     /**
@@ -339,28 +439,232 @@ public final class  PaintLogger {
      */
     public static void doc(String header, Iterable<String> lines) {
         blankline();
-        log(Level.INFO, header);
-
-        // Compute indentation (exactly up to one space after [INFO ])
-        String prefix = String.format("%s [%-5s]", LocalDateTime.now().format(TIME_FMT), Level.INFO);
-        String indent = repeat(" ", prefix.length() + 1);
+        publish(new Entry(Entry.LINE, Level.INFO, System.currentTimeMillis(), header));
 
-        // Print continuation lines without the timestamp, perfectly aligned
+        // Continuation lines are indented by the drain thread to align with the header text
         for (String line : lines) {
-            String formatted = indent + line;
-            PaintConsoleWindow.log(formatted, Level.INFO.color());
+            publish(new Entry(Entry.DOC, Level.INFO, 0L, line));
+        }
+        blankline();
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // RING BUFFER
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Places an entry in the slot of its sequence number. When the ring is full
+     * the caller waits until the drain thread has written the entry that last
+     * used the slot; nothing is dropped.
+     */
+    private static void publish(Entry entry) {
+        long sequence = claimed.getAndIncrement();
+        if (sequence - BUFFER_SIZE >= drained) {
+            awaitSpace(sequence);
+        }
+        ring.set((int) (sequence & (BUFFER_SIZE - 1)), entry);
+        if (idle) {
+            LockSupport.unpark(drainer);
+        }
+    }
+
+    /**
+     * Blocks until the slot of {@code sequence} has been drained. The drain
+     * thread signals {@link #space} after every batch while producers wait; the
+     * timeout only guards against a missed signal.
+     */
+    private static void awaitSpace(long sequence) {
+        boolean interrupted = false;
+        synchronized (space) {
+            waiting++;
+            try {
+                while (sequence - BUFFER_SIZE >= drained) {
+                    LockSupport.unpark(drainer);
+                    try {
+                        space.wait(10L);
+                    } catch (InterruptedException e) {
+                        interrupted = true;   // the entry must still be published, or the drain would stall
+                    }
+                }
+            } finally {
+                waiting--;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            if (initialised && writer != null) {
+    private static Thread startDrainer() {
+        Thread t = new Thread(PaintLogger::drainLoop, "PaintLogger-Writer");
+        t.setDaemon(true);
+        t.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(PaintLogger::flush, "PaintLogger-Flush"));
+        return t;
+    }
+
+    /**
+     * Consumes entries in sequence order. A slot that is still empty at the
+     * head means its producer has not finished publishing; the loop waits for it
+     * so the output order always matches the order of the calls.
+     */
+    private static void drainLoop() {
+        final Entry[] batch = new Entry[BATCH_SIZE];
+        long head = 0;
+        while (true) {
+            int count = 0;
+            while (count < BATCH_SIZE) {
+                int   slot  = (int) (head & (BUFFER_SIZE - 1));
+                Entry entry = ring.get(slot);
+                if (entry == null) {
+                    break;
+                }
+                ring.set(slot, null);
+                batch[count++] = entry;
+                head++;
+            }
+
+            if (count > 0) {
                 try {
-                    writer.write(formatted);
-                    writer.newLine();
-                    writer.flush();
-                } catch (IOException e) {
-                    System.err.println("PaintLogger failed to write doc line: " + e.getMessage());
+                    write(batch, count);
+                } catch (Throwable t) {
+                    System.err.println("PaintLogger failed to write log: " + t);
                 }
+                Arrays.fill(batch, 0, count, null);
+                drained = head;
+                if (waiting > 0) {
+                    synchronized (space) {
+                        space.notifyAll();
+                    }
+                }
+                continue;
             }
+
+            idle = true;
+            if (ring.get((int) (head & (BUFFER_SIZE - 1))) == null) {
+                LockSupport.parkNanos(50_000_000L);
+            }
+            idle = false;
+        }
+    }
+
+    /**
+     * Writes one batch: a single file write and flush, and one console call per
+     * run of text with the same color.
+     */
+    private static void write(Entry[] batch, int count) {
+        StringBuilder file    = initialised ? new StringBuilder(count * 80) : null;
+        StringBuilder console = new StringBuilder(count * 80);
+        Color         color   = null;
+
+        for (int i = 0; i < count; i++) {
+            Entry entry = batch[i];
+
+            Color entryColor = entry.kind == Entry.LINE ? entry.level.color() : Color.BLACK;
+            if (color != null && !color.equals(entryColor) && console.length() > 0) {
+                printToConsole(console.toString(), color);
+                console.setLength(0);
+            }
+            color = entryColor;
+
+            if (entry.kind == Entry.RAW) {
+                console.append(entry.text);
+                justPrintedRaw = true;
+                continue;
+            }
+            if (justPrintedRaw) {
+                console.append('\n');
+                justPrintedRaw = false;
+            }
+
+            String line;
+            switch (entry.kind) {
+                case Entry.LINE:
+                    line = timestamp(entry.time) + LEVEL_TAGS[entry.level.ordinal()] + entry.text;
+                    break;
+                case Entry.DOC:
+                    line = DOC_INDENT + entry.text;
+                    break;
+                default:
+                    line = "";
+                    break;
+            }
+            console.append(line).append('\n');
+            if (file != null) {
+                file.append(line).append(System.lineSeparator());
+            }
+        }
+
+        if (console.length() > 0) {
+            printToConsole(console.toString(), color);
+        }
+        if (file != null && file.length() > 0) {
+            synchronized (FILE_LOCK) {
+                if (writer != null) {
+                    try {
+                        writer.write(file.toString());
+                        writer.flush();
+                    } catch (IOException e) {
+                        System.err.println("PaintLogger failed to write log: " + e.getMessage());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void printToConsole(String text, Color color) {
+        try {
+            PaintConsoleWindow.print(text, color);
+        } catch (HeadlessException e) {
+            System.out.print(text);
+        }
+    }
+
+    /**
+     * @return " [LEVEL] " tags padded as {@code %-5s}, indexed by level ordinal
+     */
+    private static String[] levelTags() {
+        Level[]  levels = Level.values();
+        String[] tags   = new String[levels.length];
+        for (Level level : levels) {
+            tags[level.ordinal()] = String.format(" [%-5s] ", level);
+        }
+        return tags;
+    }
+
+    /**
+     * Formats a time stamp, reusing the text while the second does not change.
+     */
+    private static String timestamp(long millis) {
+        long second = millis / 1000L;
+        if (second != stampSecond) {
+            stampSecond = second;
+            stampText   = TIME_FMT.format(Instant.ofEpochMilli(millis));
+        }
+        return stampText;
+    }
+
+    /**
+     * One queued output request. The message is final text: formatting happens
+     * on the calling thread, so arguments are never read after the call returns.
+     */
+    private static final class Entry {
+        static final int LINE  = 0;
+        static final int RAW   = 1;
+        static final int BLANK = 2;
+        static final int DOC   = 3;
+
+        final int    kind;
+        final Level  level;
+        final long   time;
+        final String text;
+
+        Entry(int kind, Level level, long time, String text) {
+            this.kind  = kind;
+            this.level = level;
+            this.time  = time;
+            this.text  = text;
         }
-        blankline();
     }
 
     // ───────────────────────────────────────────────────────────────────────────────
@@ -389,4 +693,4 @@ public final class  PaintLogger {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
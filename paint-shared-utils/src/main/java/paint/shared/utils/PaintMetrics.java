@@ -0,0 +1,495 @@
+/******************************************************************************
+ *  Class:        PaintMetrics.java
+ *  Package:      paint.shared.utils
+ *
+ *  PURPOSE:
+ *    Lightweight registry of counters, timers and histograms that records
+ *    where the pipelines spend their time, and writes the result as
+ *    machine-readable JSON ("Metrics.json").
+ *
+ *  DESCRIPTION:
+ *    • A registry covers one scope, such as an experiment or a project.
+ *      {@link #begin(String, String)} opens a scope and makes it the active
+ *      one; {@link #end()} closes it and adds its values to the enclosing
+ *      scope, so a project scope rolls up all experiments run inside it.
+ *    • The static recording methods ({@link #time(String)},
+ *      {@link #count(String, long)}, {@link #record(String, double)}) always
+ *      use the active scope and may be called from any thread. Without an
+ *      active scope they do nothing, so instrumented code can run anywhere.
+ *    • Histograms use logarithmic buckets (about 9% resolution), so they
+ *      have a fixed size and percentiles are cheap to compute and to merge.
+ *    • A metrics file holds one section per application; writing the
+ *      Generate Squares metrics keeps the TrackMate section, and vice versa.
+ *
+ *  RESPONSIBILITIES:
+ *    • Collect stage timings and volumes with negligible overhead.
+ *    • Provide per-experiment metrics and a project roll-up for spotting
+ *      regressions and sizing hardware.
+ *
+ *  USAGE EXAMPLE:
+ *    PaintMetrics metrics = PaintMetrics.begin("Generate Squares", experimentName);
+ *    try (PaintMetrics.Timing t = PaintMetrics.time("Load")) {
+ *        experiment = loadExperiment(...);
+ *    }
+ *    PaintMetrics.count("Tracks", numberOfTracks);
+ *    metrics.end();
+ *    metrics.writeJson(experimentPath.resolve("Output").resolve(METRICS_JSON));
+ *
+ *  DEPENDENCIES:
+ *    – com.google.gson
+ *    – paint.shared.utils.PaintLogger
+ *
+ *  AUTHOR:
+ *    Hans Bakker
+ *
+ *  MODULE:
+ *    paint-shared-utils
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.shared.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of pipeline metrics for one scope (experiment or project).
+ * <p>
+ * All recording methods are thread-safe. Values are kept in insertion order,
+ * so stages appear in the JSON in the order in which they first ran.
+ * </p>
+ */
+public final class PaintMetrics {
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // FIELDS
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    private static final Gson   GSON      = new GsonBuilder().setPrettyPrinting().serializeSpecialFloatingPointValues().create();
+    private static final Timing NO_TIMING = new Timing(null, null);
+
+    private static volatile PaintMetrics active;
+
+    private final String        application;
+    private final String        scope;
+    private final PaintMetrics  parent;
+    private final LocalDateTime started    = LocalDateTime.now().withNano(0);
+    private final long          startNanos = System.nanoTime();
+    private       long          wallNanos  = -1;
+
+    private final Map<String, long[]>    counters   = new LinkedHashMap<>();
+    private final Map<String, Timer>     timers     = new LinkedHashMap<>();
+    private final Map<String, Histogram> histograms = new LinkedHashMap<>();
+    private final Map<String, Double>    children   = new LinkedHashMap<>();
+
+    private PaintMetrics(String application, String scope, PaintMetrics parent) {
+        this.application = application;
+        this.scope       = scope;
+        this.parent      = parent;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // SCOPES
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Opens a new scope inside the currently active one (if any) and makes it active.
+     *
+     * @param application name of the application, e.g. "Generate Squares" or "TrackMate"
+     * @param scope       name of the scope, e.g. the experiment or project name
+     * @return the new registry
+     */
+    public static synchronized PaintMetrics begin(String application, String scope) {
+        PaintMetrics metrics = new PaintMetrics(application, scope, active);
+        active = metrics;
+        return metrics;
+    }
+
+    /**
+     * Closes this scope: fixes its wall time, adds its values to the enclosing
+     * scope and makes that scope active again. Calling it twice has no effect.
+     */
+    public void end() {
+        synchronized (PaintMetrics.class) {
+            synchronized (this) {
+                if (wallNanos >= 0) {
+                    return;
+                }
+                wallNanos = System.nanoTime() - startNanos;
+            }
+            if (parent != null) {
+                parent.mergeChild(this);
+            }
+            if (active == this) {
+                active = parent;
+            }
+        }
+    }
+
+    /**
+     * @return the active registry, or {@code null} if no scope is open
+     */
+    public static PaintMetrics active() {
+        return active;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // RECORDING (ACTIVE SCOPE)
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Starts timing a stage in the active scope; the time is recorded when the
+     * returned object is closed.
+     *
+     * @param stage name of the stage
+     * @return a timing to close, normally in a try-with-resources statement
+     */
+    public static Timing time(String stage) {
+        PaintMetrics metrics = active;
+        return metrics == null ? NO_TIMING : new Timing(metrics, stage);
+    }
+
+    /**
+     * Adds an elapsed time to a stage of the active scope.
+     *
+     * @param stage name of the stage
+     * @param nanos elapsed time in nanoseconds
+     */
+    public static void recordTime(String stage, long nanos) {
+        PaintMetrics metrics = active;
+        if (metrics != null) {
+            metrics.addTime(stage, nanos);
+        }
+    }
+
+    /**
+     * Adds {@code delta} to a counter of the active scope.
+     *
+     * @param name  name of the counter
+     * @param delta amount to add
+     */
+    public static void count(String name, long delta) {
+        PaintMetrics metrics = active;
+        if (metrics != null) {
+            metrics.addCount(name, delta);
+        }
+    }
+
+    /**
+     * Adds a value to a histogram of the active scope.
+     *
+     * @param name  name of the histogram
+     * @param value value to record
+     */
+    public static void record(String name, double value) {
+        PaintMetrics metrics = active;
+        if (metrics != null) {
+            metrics.addValue(name, value);
+        }
+    }
+
+    public synchronized void addTime(String stage, long nanos) {
+        timers.computeIfAbsent(stage, k -> new Timer()).add(nanos);
+    }
+
+    public synchronized void addCount(String name, long delta) {
+        counters.computeIfAbsent(name, k -> new long[1])[0] += delta;
+    }
+
+    public synchronized void addValue(String name, double value) {
+        histograms.computeIfAbsent(name, k -> new Histogram()).add(value);
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // ACCESSORS
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    public String getApplication() {
+        return application;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    /**
+     * @return wall time of the scope in seconds, up to now if it has not ended
+     */
+    public synchronized double getWallSeconds() {
+        return (wallNanos >= 0 ? wallNanos : System.nanoTime() - startNanos) / 1e9;
+    }
+
+    /**
+     * @return value of a counter, 0 if it was never incremented
+     */
+    public synchronized long getCount(String name) {
+        long[] counter = counters.get(name);
+        return counter == null ? 0 : counter[0];
+    }
+
+    /**
+     * @return total time recorded for a stage, in seconds
+     */
+    public synchronized double getSeconds(String stage) {
+        Timer timer = timers.get(stage);
+        return timer == null ? 0.0 : timer.totalNanos / 1e9;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // OUTPUT
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * Writes the metrics as the section of this application in a JSON file.
+     * Sections of other applications already in the file are kept. The file
+     * is written under a temporary name and then moved in place.
+     *
+     * @param file the metrics file, normally "Output/Metrics.json"
+     */
+    public void writeJson(Path file) {
+        try {
+            JsonObject root = readJson(file);
+            root.add(application, toJson());
+
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                GSON.toJson(root, writer);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            PaintLogger.warnf("Could not write metrics to '%s': %s", file, e.getMessage());
+        }
+    }
+
+    /**
+     * @return the metrics of this scope as a JSON object
+     */
+    public synchronized JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("Scope", scope);
+        json.addProperty("Started", started.toString());
+        json.addProperty("Wall Time", round(getWallSeconds(), 3));
+        json.addProperty("Available Processors", Runtime.getRuntime().availableProcessors());
+        json.addProperty("Max Heap MB", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+
+        JsonObject timersJson = new JsonObject();
+        for (Map.Entry<String, Timer> e : timers.entrySet()) {
+            timersJson.add(e.getKey(), e.getValue().toJson());
+        }
+        json.add("Timers", timersJson);
+
+        JsonObject countersJson = new JsonObject();
+        for (Map.Entry<String, long[]> e : counters.entrySet()) {
+            countersJson.addProperty(e.getKey(), e.getValue()[0]);
+        }
+        json.add("Counters", countersJson);
+
+        JsonObject histogramsJson = new JsonObject();
+        for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+            histogramsJson.add(e.getKey(), e.getValue().toJson());
+        }
+        json.add("Histograms", histogramsJson);
+
+        if (!children.isEmpty()) {
+            JsonObject childrenJson = new JsonObject();
+            for (Map.Entry<String, Double> e : children.entrySet()) {
+                childrenJson.addProperty(e.getKey(), round(e.getValue(), 3));
+            }
+            json.add("Wall Time per Scope", childrenJson);
+        }
+        return json;
+    }
+
+    private static JsonObject readJson(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return new JsonObject();
+        }
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            JsonElement element = JsonParser.parseReader(reader);
+            return element != null && element.isJsonObject() ? element.getAsJsonObject() : new JsonObject();
+        } catch (IOException | RuntimeException e) {
+            PaintLogger.warnf("Replacing unreadable metrics file '%s'", file);
+            return new JsonObject();
+        }
+    }
+
+    private void mergeChild(PaintMetrics child) {
+        // Lock order parent -> child is safe: a child never locks its parent while holding its own lock
+        synchronized (this) {
+            synchronized (child) {
+                for (Map.Entry<String, long[]> e : child.counters.entrySet()) {
+                    counters.computeIfAbsent(e.getKey(), k -> new long[1])[0] += e.getValue()[0];
+                }
+                for (Map.Entry<String, Timer> e : child.timers.entrySet()) {
+                    timers.computeIfAbsent(e.getKey(), k -> new Timer()).merge(e.getValue());
+                }
+                for (Map.Entry<String, Histogram> e : child.histograms.entrySet()) {
+                    histograms.computeIfAbsent(e.getKey(), k -> new Histogram()).merge(e.getValue());
+                }
+                children.merge(child.scope, child.wallNanos / 1e9, Double::sum);
+            }
+        }
+    }
+
+    private static double round(double value, int decimals) {
+        double factor = Math.pow(10, decimals);
+        return Math.round(value * factor) / factor;
+    }
+
+    // ───────────────────────────────────────────────────────────────────────────────
+    // METRIC TYPES
+    // ───────────────────────────────────────────────────────────────────────────────
+
+    /**
+     * A running stage timing; closing it records the elapsed time.
+     */
+    public static final class Timing implements AutoCloseable {
+        private final PaintMetrics metrics;
+        private final String       stage;
+        private final long         start;
+
+        private Timing(PaintMetrics metrics, String stage) {
+            this.metrics = metrics;
+            this.stage   = stage;
+            this.start   = metrics == null ? 0 : System.nanoTime();
+        }
+
+        @Override
+        public void close() {
+            if (metrics != null) {
+                metrics.addTime(stage, System.nanoTime() - start);
+            }
+        }
+    }
+
+    /**
+     * Number of calls and total, minimum and maximum time of a stage.
+     */
+    private static final class Timer {
+        long count;
+        long totalNanos;
+        long minNanos = Long.MAX_VALUE;
+        long maxNanos;
+
+        void add(long nanos) {
+            count++;
+            totalNanos += nanos;
+            minNanos    = Math.min(minNanos, nanos);
+            maxNanos    = Math.max(maxNanos, nanos);
+        }
+
+        void merge(Timer other) {
+            count      += other.count;
+            totalNanos += other.totalNanos;
+            minNanos    = Math.min(minNanos, other.minNanos);
+            maxNanos    = Math.max(maxNanos, other.maxNanos);
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("Count", count);
+            json.addProperty("Total Seconds", round(totalNanos / 1e9, 3));
+            json.addProperty("Mean Ms", count == 0 ? 0.0 : round(totalNanos / 1e6 / count, 3));
+            json.addProperty("Min Ms", count == 0 ? 0.0 : round(minNanos / 1e6, 3));
+            json.addProperty("Max Ms", round(maxNanos / 1e6, 3));
+            return json;
+        }
+    }
+
+    /**
+     * Distribution of values in logarithmic buckets: bucket {@code i} holds
+     * values up to {@code 2^((i - OFFSET) / 8)}, covering 1e-6 to 1e12.
+     * Zero and negative values share the first bucket.
+     */
+    private static final class Histogram {
+        private static final int    STEPS_PER_DOUBLING = 8;
+        private static final int    OFFSET             = 160;
+        private static final int    BUCKETS            = 480;
+        private static final double LOG2               = Math.log(2);
+
+        final long[] buckets = new long[BUCKETS];
+        long         count;
+        double       sum;
+        double       min = Double.POSITIVE_INFINITY;
+        double       max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            if (Double.isNaN(value)) {
+                return;
+            }
+            buckets[bucketOf(value)]++;
+            count++;
+            sum += value;
+            min  = Math.min(min, value);
+            max  = Math.max(max, value);
+        }
+
+        void merge(Histogram other) {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += other.buckets[i];
+            }
+            count += other.count;
+            sum   += other.sum;
+            min    = Math.min(min, other.min);
+            max    = Math.max(max, other.max);
+        }
+
+        /**
+         * Estimates a percentile as the upper bound of its bucket, clamped to the observed range.
+         */
+        double percentile(double p) {
+            long rank = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets[i];
+                if (seen >= rank && seen > 0) {
+                    double upper = i == 0 ? 0.0 : Math.pow(2, (double) (i - OFFSET) / STEPS_PER_DOUBLING);
+                    return Math.max(min, Math.min(max, upper));
+                }
+            }
+            return max;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject();
+            json.addProperty("Count", count);
+            if (count > 0) {
+                json.addProperty("Mean", round(sum / count, 3));
+                json.addProperty("Min", round(min, 3));
+                json.addProperty("P50", round(percentile(0.50), 3));
+                json.addProperty("P90", round(percentile(0.90), 3));
+                json.addProperty("P99", round(percentile(0.99), 3));
+                json.addProperty("Max", round(max, 3));
+            }
+            return json;
+        }
+
+        private static int bucketOf(double value) {
+            if (value <= 0) {
+                return 0;
+            }
+            int index = (int) Math.ceil(Math.log(value) / LOG2 * STEPS_PER_DOUBLING) + OFFSET;
+            return Math.max(1, Math.min(BUCKETS - 1, index));
+        }
+    }
+}
@@ -11,6 +11,7 @@
  *    • filterTracksInSquare: Restricts a table of track coordinates to those
  *      that fall within the bounds of a specified square (taking into account
  *      boundary inclusivity for last row/column).
+ *    • isInSquare: Tests a single track location against the same bounds.
  *    • applyVisibilityFilter: Filters a list of squares in a recording based
  *      on numeric thresholds (density ratio, variability, R²) and optionally
  *      applies neighbour-based retention logic (Free, Relaxed, Strict).
@@ -115,6 +116,31 @@ public final class SharedSquareUtils {
         return tracks.where(selX.and(selY));
     }
 
+    /**
+     * Tests whether a single track location lies within the specified square,
+     * using the same boundary rules as {@link #filterTracksInSquare(Table, Square, int)}.
+     *
+     * @param x          track X location
+     * @param y          track Y location
+     * @param square     the square region defining coordinate boundaries
+     * @param lastRowCol index of the last row/column in the grid (for boundary handling)
+     * @return {@code true} if the location falls within the square
+     */
+    public static boolean isInSquare(double x, double y, Square square, int lastRowCol) {
+        double left   = Math.min(square.getX0(), square.getX1());
+        double right  = Math.max(square.getX0(), square.getX1());
+        double top    = Math.min(square.getY0(), square.getY1());
+        double bottom = Math.max(square.getY0(), square.getY1());
+
+        boolean inX = square.getColNumber() == lastRowCol
+                ? x >= left && x <= right
+                : x >= left && x < right;
+        boolean inY = square.getRowNumber() == lastRowCol
+                ? y >= top && y <= bottom
+                : y >= top && y < bottom;
+        return inX && inY;
+    }
+
     // ───────────────────────────────────────────────────────────────────────────────
     // VISIBILITY FILTERING ACROSS SQUARES
     // ───────────────────────────────────────────────────────────────────────────────
@@ -14,8 +14,10 @@
  *    {@link paint.shared.dialogs.ProjectDialog} for project selection.
  *
  *    Upon confirmation, it loads experiment data via
- *    {@link paint.viewer.utils.RecordingLoader}, and if valid recordings are found,
- *    launches the {@link paint.viewer.RecordingViewerFrame} interface.
+ *    {@link paint.viewer.utils.RecordingLoader}, and launches the
+ *    {@link paint.viewer.RecordingViewerFrame} interface as soon as the first
+ *    experiment with valid recordings is loaded. Later experiments are appended
+ *    to the open viewer while they arrive.
  *
  *  KEY FEATURES:
  *    • Loads the last used project directory from user preferences.
@@ -43,15 +45,15 @@ package paint.viewer;
 import paint.shared.config.PaintConfig;
 import paint.shared.dialogs.ProjectDialog;
 import paint.shared.dialogs.ProjectDialog.DialogMode;
+import paint.shared.utils.PaintConsoleWindow;
 import paint.shared.utils.PaintLogger;
 import paint.shared.utils.PaintPrefs;
-import paint.viewer.utils.RecordingEntry;
 import paint.viewer.utils.RecordingLoader;
 
 import javax.swing.*;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.util.ArrayList;
 
 /**
  * Entry point for the PAINT Viewer application.
@@ -91,6 +93,7 @@ public class RecordingViewer {
 
             // --- Step 2: Initialise logging/config ---
             PaintConfig.initialise(projectPath);
+            PaintConsoleWindow.setMaxLines(PaintConfig.getInt("Paint Console", "Max Lines", PaintConsoleWindow.DEFAULT_MAX_LINES));
             PaintLogger.initialise(projectPath, "Viewer");
 
             // --- Step 3: Open the Project Specification dialog directly ---
@@ -100,19 +103,26 @@ public class RecordingViewer {
             // ✅ Callback for the OK button — launches the viewer
             specificationDialog.setCalculationCallback(project -> {
                 try {
-                    // Load the data for experiments (images, squares, etc.)
-                    List<RecordingEntry> recordingEntries = RecordingLoader.loadFromProject(project);
-                    if (recordingEntries.isEmpty()) {
+                    // Load the experiments concurrently; open the viewer on the first one
+                    // and stream the others into its navigation list as they arrive
+                    final RecordingViewerFrame[] viewer = new RecordingViewerFrame[1];
+                    int numberOfEntries = RecordingLoader.loadFromProject(project, entries ->
+                            SwingUtilities.invokeLater(() -> {
+                                if (viewer[0] == null) {
+                                    viewer[0] = new RecordingViewerFrame(project, new ArrayList<>(entries));
+                                    viewer[0].setVisible(true);
+                                } else {
+                                    viewer[0].appendRecordingEntries(entries);
+                                }
+                            }));
+
+                    if (numberOfEntries == 0) {
                         JOptionPane.showMessageDialog(null,
                                                       "No valid recordings found in selected experiments.",
                                                       "No Recordings",
                                                       JOptionPane.WARNING_MESSAGE);
                         return false;
                     }
-
-                    // With the recordingEntries info available, the viewer can be started
-                    RecordingViewerFrame viewer = new RecordingViewerFrame(project, recordingEntries);
-                    viewer.setVisible(true);
                     return true;
                 } catch (Exception ex) {
                     PaintLogger.errorf("Viewer launch failed: %s", ex.getMessage());
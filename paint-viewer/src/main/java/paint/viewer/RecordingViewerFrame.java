@@ -114,6 +114,7 @@ public class RecordingViewerFrame extends JFrame
     private final RecordingOverrideWriter  recordingOverrideWriter;
     private final SquareOverrideWriter     squareOverrideWriter;
     private final SquareControlHandler     controlHandler    = new SquareControlHandler();
+    private final int                      numberOfSquaresInRecording;   // Resolved once from the configuration
 
     /**
      * Constructs a {@code RecordingViewerFrame} that initializes and displays the complete
@@ -136,7 +137,8 @@ public class RecordingViewerFrame extends JFrame
         setResizable(false);
 
         // Validate grid configuration
-        int     numberOfSquaresInRecording = PaintConfig.getInt("Generate Squares", "Number of Squares in Recording", -1);
+        // No default: a missing key must fail the layout check rather than show a grid that may not match the squares
+        this.numberOfSquaresInRecording    = PaintConfig.getInt("Generate Squares", "Number of Squares in Recording", -1);
         int[]   validSquareLayouts         = {25, 100, 225, 400, 900};
         boolean isValidSquareLayout        = false;
 
@@ -198,6 +200,19 @@ public class RecordingViewerFrame extends JFrame
         setSize(1500, 700);
         setLocationRelativeTo(null);
 
+        // --- Write the override journals to their CSV files when the viewer closes ---
+        addWindowListener(new java.awt.event.WindowAdapter() {
+            @Override
+            public void windowClosing(java.awt.event.WindowEvent e) {
+                closeOverrideWriters();
+            }
+
+            @Override
+            public void windowClosed(java.awt.event.WindowEvent e) {
+                closeOverrideWriters();
+            }
+        });
+
         // Load first entry if available
         if (!recordingEntries.isEmpty()) {
             showRecordingEntry(0);
@@ -243,6 +258,47 @@ public class RecordingViewerFrame extends JFrame
         return new ImageIcon(scaled);
     }
 
+    /**
+     * Compacts the square and recording override journals into their CSV files.
+     * Safe to call more than once.
+     */
+    private void closeOverrideWriters() {
+        squareOverrideWriter.close();
+        recordingOverrideWriter.close();
+    }
+
+    /**
+     * Appends the entries of an experiment that finished loading after the frame
+     * was opened. The current recording stays on display; only the navigation
+     * state and the overall count are refreshed. Must be called on the event
+     * dispatch thread.
+     *
+     * @param entries entries to add at the end of the navigation list.
+     */
+    public void appendRecordingEntries(List<RecordingEntry> entries) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        boolean wasEmpty = recordingEntries.isEmpty();
+        recordingEntries.addAll(entries);
+
+        if (navigationPanel == null) {
+            return;  // Frame was not built (invalid square layout)
+        }
+        if (wasEmpty) {
+            showRecordingEntry(0);
+            return;
+        }
+        RecordingEntry current = recordingEntries.get(currentIndex);
+        experimentLabel.setText("Experiment: " + current.getExperimentName() + "   [Overall: " + (currentIndex + 1) + "/" + recordingEntries.size() + "]");
+        updateNavButtons();
+
+        // The entry after the current one may just have arrived
+        if (currentIndex + 1 < recordingEntries.size()) {
+            recordingEntries.get(currentIndex + 1).prefetchImages();
+        }
+    }
+
     /**
      * Updates the navigation buttons based on the current index position.
      * Enables "previous" or "next" navigation only when appropriate.
@@ -267,7 +323,6 @@ public class RecordingViewerFrame extends JFrame
         leftGridPanel.setRecording(recordingEntry.getRecording());
         leftGridPanel.setBackgroundImage(recordingEntry.getLeftImage());
 
-        int numberOfSquaresInRecording = PaintConfig.getInt("Generate Squares", "Number of Squares in Recording", -1);
         leftGridPanel.setSquares(recordingEntry.getRecording().getSquaresOfRecording());
 
         rightImageLabel.setIcon(scaleToFit(recordingEntry.getRightImage(), NUMBER_PIXELS_WIDTH, NUMBER_PIXELS_HEIGHT));
@@ -277,6 +332,14 @@ public class RecordingViewerFrame extends JFrame
         attributesPanel.updateFromEntry(recordingEntry, numberOfSquaresInRecording);
         updateNavButtons();
         leftGridPanel.repaint();
+
+        // Load the neighbours in the background so Next / Previous display immediately
+        if (index + 1 < recordingEntries.size()) {
+            recordingEntries.get(index + 1).prefetchImages();
+        }
+        if (index > 0) {
+            recordingEntries.get(index - 1).prefetchImages();
+        }
     }
 
     // =========================================================================================
@@ -463,7 +526,6 @@ public class RecordingViewerFrame extends JFrame
             leftGridPanel.applyVisibilityFilter();
 
             RecordingEntry currentRecordingEntry = recordingEntries.get(currentIndex);
-            int numSquares = PaintConfig.getInt("Generate Squares", "Number of Squares in Recording", -1);
 
             // --- Compute Tau and R² for preview ---
             List<Track> tracksFromSelectedSquares = getTracksFromSelectedSquares(currentRecordingEntry.getRecording().getSquaresOfRecording());
@@ -488,7 +550,7 @@ public class RecordingViewerFrame extends JFrame
             // --- Reflect results in attribute preview panel ---
             attributesPanel.updatePreview(
                     currentRecordingEntry,
-                    numSquares,
+                    numberOfSquaresInRecording,
                     results.getTau(),
                     density,
                     params.minRequiredDensityRatio,
@@ -502,8 +564,13 @@ public class RecordingViewerFrame extends JFrame
         }
 
         // --- Full application: persist thresholds and repaint ---
+        // Experiment and Project scope are evaluated in the background; the
+        // attributes are refreshed once all recordings have been updated.
         controlHandler.apply(params, leftGridPanel);
-        recordingOverrideWriter.applyAndWrite(scope, params, recordingEntries, currentIndex);
+        recordingOverrideWriter.applyAndWrite(scope, params, recordingEntries, currentIndex, this, () -> {
+            attributesPanel.updateFromEntry(recordingEntries.get(currentIndex), numberOfSquaresInRecording);
+            leftGridPanel.repaint();
+        });
         leftGridPanel.repaint();
     }
 
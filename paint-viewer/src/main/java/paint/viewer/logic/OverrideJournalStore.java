@@ -0,0 +1,363 @@
+/******************************************************************************
+ *  Class:        OverrideJournalStore.java
+ *  Package:      paint.viewer.logic
+ *
+ *  PURPOSE:
+ *    Keeps the records of a Viewer override CSV in memory, indexed by key,
+ *    and persists each change by appending it to a journal file instead of
+ *    rewriting the CSV.
+ *
+ *  DESCRIPTION:
+ *    On opening, the store reads the CSV and replays any journal left behind
+ *    by an earlier session. Every update is applied to an insertion-ordered
+ *    index and appended to the journal ("+" followed by the CSV line for a
+ *    put, "-" followed by the key for a removal). The CSV itself is rewritten
+ *    only on compaction: after a number of journal records, on request, and
+ *    when the store is closed. Compaction writes a temporary file, moves it
+ *    over the CSV, and then deletes the journal.
+ *
+ *    A journal entry is complete only when it ends with a line separator and,
+ *    for a put, has as many fields as the header. An entry cut short by a
+ *    crash fails these checks and is skipped on replay.
+ *
+ *    The CSV keeps its existing layout: records stay in the order they were
+ *    first written and an update replaces a record in place.
+ *
+ *  KEY FEATURES:
+ *    • O(1) lookup and update per record.
+ *    • One journal append per change instead of a full CSV rewrite.
+ *    • Atomic compaction; a journal left by a crash is replayed on the next open.
+ *    • Thread-safe.
+ *
+ *  AUTHOR:
+ *    Hans Bakker
+ *
+ *  MODULE:
+ *    paint-viewer
+ *
+ *  UPDATED:
+ *    2025-10-30
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.viewer.logic;
+
+import paint.shared.utils.PaintLogger;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * In-memory index of an override CSV, backed by an append-only journal.
+ * <p>
+ * The key of a record is formed by its first {@code keyColumns} comma-separated
+ * fields, e.g. "experimentName,recordingName,squareId" for square overrides.
+ * </p>
+ */
+public class OverrideJournalStore {
+
+    /**
+     * Number of journal records after which the CSV is rewritten and the journal cleared.
+     */
+    public static final int COMPACT_AFTER = 1000;
+
+    private static final char PUT    = '+';
+    private static final char REMOVE = '-';
+
+    private final Path                          csvFilePath;
+    private final Path                          journalPath;
+    private final String                        header;
+    private final int                           keyColumns;
+    private final LinkedHashMap<String, String> records = new LinkedHashMap<>();
+
+    private BufferedWriter journal;
+    private int            journalRecords;
+
+    /**
+     * Opens the store for a CSV file, loading its records and replaying any
+     * journal that was not compacted.
+     *
+     * @param csvFilePath path of the override CSV
+     * @param header      expected header line; a file with a different header is started afresh
+     * @param keyColumns  number of leading columns that identify a record
+     */
+    public OverrideJournalStore(Path csvFilePath, String header, int keyColumns) {
+        this.csvFilePath = csvFilePath;
+        this.journalPath = csvFilePath.resolveSibling(csvFilePath.getFileName().toString() + ".journal");
+        this.header      = header;
+        this.keyColumns  = keyColumns;
+
+        load();
+        if (Files.exists(journalPath)) {
+            replayJournal();
+            compact();
+        }
+    }
+
+    // =========================================================================================
+    // RECORD ACCESS
+    // =========================================================================================
+
+    /**
+     * Adds or replaces the record with the key of {@code line}.
+     *
+     * @param line complete CSV line
+     */
+    public synchronized void put(String line) {
+        String key = keyOf(line);
+        if (key == null) {
+            PaintLogger.warnf("Ignoring malformed override record: %s", line);
+            return;
+        }
+        records.put(key, line);
+        appendToJournal(PUT + line);
+    }
+
+    /**
+     * Adds or replaces several records with a single journal flush.
+     *
+     * @param lines complete CSV lines
+     */
+    public synchronized void putAll(Collection<String> lines) {
+        List<String> entries = new ArrayList<>(lines.size());
+        for (String line : lines) {
+            String key = keyOf(line);
+            if (key == null) {
+                PaintLogger.warnf("Ignoring malformed override record: %s", line);
+                continue;
+            }
+            records.put(key, line);
+            entries.add(PUT + line);
+        }
+        appendToJournal(entries.toArray(new String[0]));
+    }
+
+    /**
+     * Removes the record with the given key, if present.
+     *
+     * @param key the first {@code keyColumns} fields of the record, comma-separated
+     */
+    public synchronized void remove(String key) {
+        if (records.remove(key) != null) {
+            appendToJournal(REMOVE + key);
+        }
+    }
+
+    /**
+     * @param key the first {@code keyColumns} fields of the record, comma-separated
+     * @return the CSV line stored for the key, or {@code null}
+     */
+    public synchronized String get(String key) {
+        return records.get(key);
+    }
+
+    /**
+     * @return number of records in the store
+     */
+    public synchronized int size() {
+        return records.size();
+    }
+
+    // =========================================================================================
+    // PERSISTENCE
+    // =========================================================================================
+
+    /**
+     * Rewrites the CSV from the index via a temporary file and clears the journal.
+     */
+    public synchronized void compact() {
+        closeJournal();
+        try {
+            List<String> lines = new ArrayList<>(records.size() + 1);
+            lines.add(header);
+            lines.addAll(records.values());
+
+            // Atomic write via temporary file to prevent data loss
+            Path tmpFilePath = csvFilePath.resolveSibling(csvFilePath.getFileName().toString() + ".tmp");
+            Files.write(tmpFilePath, lines, StandardCharsets.UTF_8);
+            Files.move(tmpFilePath, csvFilePath, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(journalPath);
+            journalRecords = 0;
+        } catch (IOException ex) {
+            // The journal is kept, so no edits are lost; it is replayed on the next open
+            PaintLogger.errorf("Error compacting '%s': %s", csvFilePath.getFileName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Compacts the store and releases the journal file.
+     */
+    public synchronized void close() {
+        if (journal != null || Files.exists(journalPath)) {
+            compact();
+        }
+    }
+
+    private void appendToJournal(String... entries) {
+        if (entries.length == 0) {
+            return;
+        }
+        try {
+            if (journal == null) {
+                journal = Files.newBufferedWriter(journalPath, StandardCharsets.UTF_8,
+                                                  StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (String entry : entries) {
+                journal.write(entry);
+                journal.newLine();
+            }
+            journal.flush();
+            journalRecords += entries.length;
+        } catch (IOException ex) {
+            PaintLogger.errorf("Error writing override journal '%s': %s", journalPath.getFileName(), ex.getMessage());
+            closeJournal();
+            compact();
+            return;
+        }
+        if (journalRecords >= COMPACT_AFTER) {
+            compact();
+        }
+    }
+
+    private void closeJournal() {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException ex) {
+                PaintLogger.warnf("Error closing override journal: %s", ex.getMessage());
+            }
+            journal = null;
+        }
+    }
+
+    private void load() {
+        if (!Files.exists(csvFilePath)) {
+            return;
+        }
+        try {
+            List<String> lines = Files.readAllLines(csvFilePath, StandardCharsets.UTF_8);
+
+            // A missing or malformed header starts a new file, as before
+            if (lines.isEmpty() || !lines.get(0).startsWith(headerPrefix())) {
+                return;
+            }
+            for (int i = 1; i < lines.size(); i++) {
+                String key = keyOf(lines.get(i));
+                if (key != null) {
+                    records.put(key, lines.get(i));
+                }
+            }
+        } catch (IOException ex) {
+            PaintLogger.errorf("Error reading '%s': %s", csvFilePath.getFileName(), ex.getMessage());
+        }
+    }
+
+    private void replayJournal() {
+        try {
+            String content = new String(Files.readAllBytes(journalPath), StandardCharsets.UTF_8);
+            int    fields  = fieldCount(header);
+            int    applied = 0;
+            int    skipped = 0;
+            int    start   = 0;
+            int    end;
+            while ((end = content.indexOf('\n', start)) >= 0) {
+                String entry = content.substring(start, end);
+                start = end + 1;
+                if (entry.endsWith("\r")) {
+                    entry = entry.substring(0, entry.length() - 1);
+                }
+                if (entry.isEmpty()) {
+                    continue;
+                }
+                if (replayEntry(entry, fields)) {
+                    applied++;
+                } else {
+                    skipped++;
+                }
+            }
+            if (start < content.length()) {
+                skipped++;   // last entry without line separator: the write was interrupted
+            }
+            if (skipped > 0) {
+                PaintLogger.warnf("Skipped %d incomplete override journal entries for '%s'", skipped, csvFilePath.getFileName());
+            }
+            if (applied > 0) {
+                PaintLogger.infof("Recovered %d unsaved override changes for '%s'", applied, csvFilePath.getFileName());
+            }
+        } catch (IOException ex) {
+            PaintLogger.errorf("Error reading override journal '%s': %s", journalPath.getFileName(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Applies one journal entry to the index.
+     *
+     * @return {@code false} if the entry is incomplete and was skipped
+     */
+    private boolean replayEntry(String entry, int fields) {
+        if (entry.length() < 2) {
+            return false;
+        }
+        String body = entry.substring(1);
+        if (entry.charAt(0) == PUT) {
+            String key = keyOf(body);
+            if (key == null || fieldCount(body) != fields) {
+                return false;
+            }
+            records.put(key, body);
+            return true;
+        }
+        if (entry.charAt(0) == REMOVE) {
+            records.remove(body);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of comma-separated fields in a line
+     */
+    private static int fieldCount(String line) {
+        int count = 1;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == ',') {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the first {@code keyColumns} fields of a line, or {@code null} if
+     * the line has no field after the key.
+     */
+    private String keyOf(String line) {
+        int end = -1;
+        for (int i = 0; i < keyColumns; i++) {
+            end = line.indexOf(',', end + 1);
+            if (end < 0) {
+                return null;
+            }
+        }
+        return line.substring(0, end);
+    }
+
+    /**
+     * @return the first column name followed by a comma, used to recognise the header
+     */
+    private String headerPrefix() {
+        int comma = header.indexOf(',');
+        return comma < 0 ? header : header.substring(0, comma + 1);
+    }
+}
@@ -20,14 +20,27 @@
  *      • Experiment — Applies overrides to all recordings in an experiment.
  *      • Project — Applies overrides globally to all recordings in a project.
  *
+ *    Experiment and Project scope run as a background batch: visibility, Tau
+ *    and density are re-evaluated for all affected recordings in parallel,
+ *    with a progress dialog that allows cancelling. The evaluation filters
+ *    copies of the squares, so the squares the viewer paints are only changed
+ *    on the EDT. Only when every recording has been evaluated are the results
+ *    applied and all overrides written to the CSV in one atomic write; a
+ *    cancelled batch changes nothing. A new batch is refused until the
+ *    background evaluation of the previous one has returned, also after a
+ *    cancel.
+ *
  *    The writer automatically creates the Viewer directory if missing,
- *    validates the CSV header, replaces existing entries for the same
- *    recording, and performs atomic write operations to ensure file safety.
+ *    validates the CSV header, and replaces existing entries for the same
+ *    recording. Records are kept in an {@link OverrideJournalStore}, so an
+ *    apply at any scope costs one journal append; the CSV is rewritten
+ *    atomically when the store is compacted or the writer is closed.
  *
  *  KEY FEATURES:
  *    • Persists per-recording parameter overrides in a consistent CSV format.
  *    • Automatically creates and maintains headers and directory structure.
  *    • Supports Recording, Experiment, and Project scopes.
+ *    • Evaluates Experiment and Project scope in parallel off the EDT.
  *    • Performs atomic writes to prevent data corruption.
  *
  *  AUTHOR:
@@ -37,7 +50,7 @@
  *    paint-viewer
  *
  *  UPDATED:
- *    2025-10-29
+ *    2025-10-30
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -45,21 +58,34 @@
 
 package paint.viewer.logic;
 
+import paint.shared.objects.Recording;
+import paint.shared.objects.Square;
 import paint.shared.objects.Track;
 import paint.shared.utils.CalculateTau;
 import paint.shared.utils.PaintLogger;
 import paint.viewer.shared.SquareControlParams;
 import paint.viewer.utils.RecordingEntry;
 
+import javax.swing.*;
+import java.awt.*;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static paint.shared.constants.PaintConstants.RECORDING_DURATION;
+import static paint.shared.objects.Square.calculateSquareArea;
 import static paint.shared.utils.CalculateTau.calculateTau;
+import static paint.shared.utils.SharedSquareUtils.applyVisibilityFilter;
+import static paint.shared.utils.SharedSquareUtils.calculateDensity;
 import static paint.shared.utils.SharedSquareUtils.getTracksFromSelectedSquares;
 
 /**
@@ -77,7 +103,12 @@ import static paint.shared.utils.SharedSquareUtils.getTracksFromSelectedSquares;
  */
 public class RecordingOverrideWriter {
 
-    private final Path csvFilePath;
+    private static final String HEADER =
+            "recordingName,timestamp,MinRequiredDensityRatio,MaxAllowableVariability,minRequiredRSquared,neighbourMode";
+
+    private final OverrideJournalStore store;
+
+    private ApplyBatch batch;   // running Experiment / Project apply, EDT only
 
     /**
      * Constructs a new {@code RecordingOverrideWriter} for the specified
@@ -95,128 +126,354 @@ public class RecordingOverrideWriter {
                 PaintLogger.warnf("Failed to create Viewer directory: %s", e.getMessage());
             }
         }
-        this.csvFilePath = viewerPath.resolve("Recording Override.csv");
+        this.store = new OverrideJournalStore(viewerPath.resolve("Recording Override.csv"), HEADER, 1);
     }
 
     /**
      * Applies the provided parameters and writes overrides based on the
      * specified scope. The scope determines whether overrides are applied
      * at the Recording, Experiment, or Project level.
+     * <p>
+     * Recording scope is applied immediately. Experiment and Project scope are
+     * evaluated on background threads; {@code onComplete} runs on the event
+     * dispatch thread once the results have been applied and written. It is
+     * not run when the batch is cancelled or fails, as nothing has changed
+     * then. Must be called on the event dispatch thread.
+     * </p>
      *
      * @param scope        the override scope ("Recording", "Experiment", or "Project")
      * @param params       the parameter set containing density ratio, variability,
      *                     R², and neighbour mode values
      * @param recordings   the list of available recording entries in the current session
      * @param currentIndex the index of the currently active recording
+     * @param owner        parent component for the progress dialog
+     * @param onComplete   called after the overrides have been applied, not after a cancel;
+     *                     may be {@code null}
      */
     public void applyAndWrite(String scope,
                               SquareControlParams params,
                               List<RecordingEntry> recordings,
-                              int currentIndex) {
-        String timestamp = LocalDateTime.now().toString();
+                              int currentIndex,
+                              Component owner,
+                              Runnable onComplete) {
 
         if ("Recording".equals(scope)) {
             RecordingEntry recordingEntry = recordings.get(currentIndex);
-            writeOverrideRecord(recordingEntry.getRecordingName(), params, timestamp);
-            update(recordingEntry, params);
+            update(recordingEntry, params, evaluate(recordingEntry, params));
+            store.put(overrideRecord(recordingEntry.getRecordingName(), params, LocalDateTime.now().toString()));
+            if (onComplete != null) {
+                onComplete.run();
+            }
+            return;
+        }
 
-        } else if ("Experiment".equals(scope)) {
-            RecordingEntry currentRecordingEntry = recordings.get(currentIndex);
+        List<RecordingEntry> targets = new ArrayList<>();
+        if ("Experiment".equals(scope)) {
+            String experimentName = recordings.get(currentIndex).getExperimentName();
             for (RecordingEntry recordingEntry : recordings) {
-                if (recordingEntry.getExperimentName().equals(currentRecordingEntry.getExperimentName())) {
-                    writeOverrideRecord(recordingEntry.getRecordingName(), params, timestamp);
-                    update(recordingEntry, params);
+                if (recordingEntry.getExperimentName().equals(experimentName)) {
+                    targets.add(recordingEntry);
                 }
             }
-
         } else if ("Project".equals(scope)) {
-            for (RecordingEntry recordingEntry : recordings) {
-                writeOverrideRecord(recordingEntry.getRecordingName(), params, timestamp);
-                update(recordingEntry, params);
-            }
+            targets.addAll(recordings);
+        }
+        if (targets.isEmpty()) {
+            return;
+        }
+
+        if (batch != null && batch.isRunning()) {
+            PaintLogger.warnf("An apply is still running; '%s' apply ignored.", scope);
+            JOptionPane.showMessageDialog(owner,
+                                          "The previous apply is still running.",
+                                          "Apply In Progress",
+                                          JOptionPane.WARNING_MESSAGE);
+            return;
         }
+
+        batch = new ApplyBatch(scope, params, targets, owner, onComplete);
+        batch.execute();
+    }
+
+    /**
+     * Writes all pending overrides to {@code Recording Override.csv}.
+     */
+    public void close() {
+        store.close();
     }
 
     /**
-     * Writes a single override record into the CSV file using the provided
-     * recording name, parameters, and timestamp. Existing entries for the
-     * same recording are replaced. Headers are automatically added if
-     * missing or invalid.
+     * Builds the override record for a recording. It replaces any existing
+     * record for the same recording when it is stored.
      *
      * @param recordingName the name of the recording to which the override applies
      * @param params        the parameter values to be persisted
      * @param timestamp     the ISO-formatted timestamp of the override entry
+     * @return the CSV line of the record
      */
-    private void writeOverrideRecord(String recordingName,
-                                     SquareControlParams params,
-                                     String timestamp) {
+    private static String overrideRecord(String recordingName,
+                                         SquareControlParams params,
+                                         String timestamp) {
         PaintLogger.infof(
                 "Override for '%s': MinRequiredDensityRatio=%.0f, MaxAllowableVariability=%.0f, MinRequiredRSquared=%.2f, NeighbourMode=%s",
                 recordingName, params.minRequiredDensityRatio, params.maxAllowableVariability, params.minRequiredRSquared, params.neighbourMode
         );
 
-        try {
-            List<String> lines = new ArrayList<>();
-            if (Files.exists(csvFilePath)) {
-                lines = Files.readAllLines(csvFilePath);
-            }
+        return recordingName + "," + timestamp + "," +
+                params.minRequiredDensityRatio + "," + params.maxAllowableVariability + "," +
+                params.minRequiredRSquared + "," + params.neighbourMode;
+    }
 
-            // Initialize header if missing or malformed
-            if (lines.isEmpty() || !lines.get(0).startsWith("recordingName,")) {
-                lines.clear();
-                lines.add("recordingName,timestamp,MinRequiredDensityRatio,MaxAllowableVariability,minRequiredRSquared,neighbourMode");
-            }
+    /**
+     * Re-evaluates the visibility of the squares of a recording for the given
+     * parameters and recalculates Tau, R² and density from the visible squares.
+     * The filter runs on copies of the squares, so the recording itself is not
+     * modified and this may run off the EDT.
+     *
+     * @param recordingEntry the recording entry to evaluate
+     * @param params         the parameter set containing updated control values
+     * @return the evaluation result, including the new visibility of the squares
+     */
+    private static Evaluation evaluate(RecordingEntry recordingEntry,
+                                       SquareControlParams params) {
+        Recording    recording = recordingEntry.getRecording();
+        List<Square> squares   = recording.getSquaresOfRecording();
 
-            String prefix = recordingName + ",";
-            String newLine = recordingName + "," + timestamp + "," +
-                    params.minRequiredDensityRatio + "," + params.maxAllowableVariability + "," +
-                    params.minRequiredRSquared + "," + params.neighbourMode;
-
-            boolean replaced = false;
-            for (int i = 1; i < lines.size(); i++) {
-                if (lines.get(i).startsWith(prefix)) {
-                    lines.set(i, newLine);
-                    replaced = true;
-                    break;
-                }
-            }
+        List<Square> copies = new ArrayList<>(squares.size());
+        for (Square square : squares) {
+            copies.add(filterCopy(square));
+        }
+
+        applyVisibilityFilter(copies,
+                              params.minRequiredDensityRatio,
+                              params.maxAllowableVariability,
+                              params.minRequiredRSquared,
+                              params.neighbourMode);
 
-            if (!replaced) {
-                lines.add(newLine);
+        boolean[] selection        = new boolean[copies.size()];
+        int       numberOfSelected = 0;
+        for (int i = 0; i < selection.length; i++) {
+            selection[i] = copies.get(i).isSelected();
+            if (selection[i]) {
+                numberOfSelected++;
             }
+        }
 
-            // Atomic write using a temporary file for reliability
-            Path tmpFilePath = csvFilePath.resolveSibling(csvFilePath.getFileName().toString() + ".tmp");
-            Files.write(tmpFilePath, lines);
-            Files.move(tmpFilePath, csvFilePath, StandardCopyOption.REPLACE_EXISTING);
+        List<Track> tracksFromSelectedSquares = getTracksFromSelectedSquares(copies);
 
-        } catch (IOException ex) {
-            PaintLogger.errorf("Error writing recording override: %s", ex.getMessage());
-            ex.printStackTrace();
+        CalculateTau.CalculateTauResult results = calculateTau(
+                tracksFromSelectedSquares, params.minRequiredRSquared);
+
+        double density;
+        try {
+            density = calculateDensity(tracksFromSelectedSquares.size(),
+                                       calculateSquareArea(numberOfSelected),
+                                       RECORDING_DURATION,
+                                       recording.getConcentration());
+        } catch (IllegalArgumentException e) {
+            density = Double.NaN;   // no visible squares or no concentration
         }
+
+        return new Evaluation(results.getTau(), results.getRSquared(), density, selection);
+    }
+
+    /**
+     * Copies the attributes the visibility filter reads; the tracks are shared.
+     */
+    private static Square filterCopy(Square square) {
+        Square copy = new Square();
+        copy.setRowNumber(square.getRowNumber());
+        copy.setColNumber(square.getColNumber());
+        copy.setDensityRatio(square.getDensityRatio());
+        copy.setVariability(square.getVariability());
+        copy.setRSquared(square.getRSquared());
+        copy.setTracks(square.getTracks());
+        copy.setSelected(square.isSelected());
+        return copy;
     }
 
     /**
-     * Updates the in-memory recording entry based on the provided parameters
-     * and recalculates Tau and R² values from the selected squares.
+     * Updates the in-memory recording entry with the evaluation result and the
+     * new control parameters. Must be called on the event dispatch thread.
      *
      * @param recordingEntry the recording entry to update
      * @param params         the parameter set containing updated control values
+     * @param evaluation     Tau, R² and density for the new parameters
      */
-    private void update(RecordingEntry recordingEntry,
-                        SquareControlParams params) {
+    private static void update(RecordingEntry recordingEntry,
+                               SquareControlParams params,
+                               Evaluation evaluation) {
 
-        List<Track> tracksFromSelectedSquares = getTracksFromSelectedSquares(
-                recordingEntry.getRecording().getSquaresOfRecording());
-
-        CalculateTau.CalculateTauResult results = calculateTau(
-                tracksFromSelectedSquares, params.minRequiredRSquared);
+        List<Square> squares = recordingEntry.getRecording().getSquaresOfRecording();
+        for (int i = 0; i < evaluation.selection.length && i < squares.size(); i++) {
+            squares.get(i).setSelected(evaluation.selection[i]);
+        }
 
-        recordingEntry.getRecording().setTau(results.getTau());
-        recordingEntry.getRecording().setRSquared(results.getRSquared());
+        recordingEntry.getRecording().setTau(evaluation.tau);
+        recordingEntry.getRecording().setRSquared(evaluation.rSquared);
+        if (!Double.isNaN(evaluation.density)) {
+            recordingEntry.getRecording().setDensity(evaluation.density);
+        }
         recordingEntry.setMaxAllowableVariability(params.maxAllowableVariability);
         recordingEntry.setMinRequiredDensityRatio(params.minRequiredDensityRatio);
         recordingEntry.setNeighbourMode(params.neighbourMode);
         recordingEntry.setMinRequiredRSquared(params.minRequiredRSquared);
     }
-}
\ No newline at end of file
+
+    // =========================================================================================
+    // BACKGROUND BATCH
+    // =========================================================================================
+
+    /**
+     * Square visibility, Tau, R² and density of a recording for a parameter set.
+     */
+    private static final class Evaluation {
+        final double    tau;
+        final double    rSquared;
+        final double    density;
+        final boolean[] selection;   // per square of the recording, in order
+
+        Evaluation(double tau, double rSquared, double density, boolean[] selection) {
+            this.tau       = tau;
+            this.rSquared  = rSquared;
+            this.density   = density;
+            this.selection = selection;
+        }
+    }
+
+    /**
+     * Evaluates all recordings of an Experiment or Project apply in parallel,
+     * then applies the results and writes the overrides on the EDT.
+     * <p>
+     * A cancel makes the worker done at once, while the evaluation may still
+     * be running; {@link #isRunning()} stays {@code true} until it has returned.
+     * </p>
+     */
+    private final class ApplyBatch extends SwingWorker<Evaluation[], Void> {
+
+        private final String               scope;
+        private final SquareControlParams  params;
+        private final List<RecordingEntry> targets;
+        private final Runnable             onComplete;
+        private final ProgressMonitor      monitor;
+        private final Evaluation[]         evaluations;
+        private final AtomicBoolean        running = new AtomicBoolean(true);
+
+        ApplyBatch(String scope,
+                   SquareControlParams params,
+                   List<RecordingEntry> targets,
+                   Component owner,
+                   Runnable onComplete) {
+            this.scope       = scope;
+            this.params      = params;
+            this.targets     = targets;
+            this.onComplete  = onComplete;
+            this.evaluations = new Evaluation[targets.size()];
+            this.monitor     = new ProgressMonitor(owner,
+                                                   "Applying square control to " + targets.size() + " recordings",
+                                                   null, 0, 100);
+            this.monitor.setMillisToDecideToPopup(200);
+
+            addPropertyChangeListener(evt -> {
+                if ("progress".equals(evt.getPropertyName())) {
+                    monitor.setProgress((Integer) evt.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(false);
+                    }
+                }
+            });
+        }
+
+        /**
+         * @return {@code true} until the background evaluation has returned
+         */
+        boolean isRunning() {
+            return running.get();
+        }
+
+        @Override
+        protected Evaluation[] doInBackground() throws Exception {
+            try {
+                return evaluateAll();
+            } finally {
+                running.set(false);
+            }
+        }
+
+        private Evaluation[] evaluateAll() throws Exception {
+            final int           threads = Math.max(1, Math.min(targets.size(), Runtime.getRuntime().availableProcessors()));
+            final AtomicInteger done    = new AtomicInteger();
+
+            Throwable failure = null;
+
+            ExecutorService pool = Executors.newFixedThreadPool(threads);
+            try {
+                List<Future<?>> futures = new ArrayList<>(targets.size());
+                for (int i = 0; i < targets.size(); i++) {
+                    final int index = i;
+                    futures.add(pool.submit(() -> {
+                        if (isCancelled()) {
+                            return;
+                        }
+                        evaluations[index] = evaluate(targets.get(index), params);
+                        setProgress(done.incrementAndGet() * 100 / targets.size());
+                    }));
+                }
+                // Wait for every task, so the batch stays running until all have finished
+                for (Future<?> future : futures) {
+                    try {
+                        future.get();
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = e.getCause();
+                        }
+                    }
+                }
+            } finally {
+                pool.shutdown();
+            }
+
+            if (failure instanceof Exception) {
+                throw (Exception) failure;
+            } else if (failure != null) {
+                throw new ExecutionException(failure);
+            }
+            return evaluations;
+        }
+
+        @Override
+        protected void done() {
+            monitor.close();
+            if (isCancelled()) {
+                // Nothing was applied, so onComplete is not run
+                PaintLogger.infof("%s apply cancelled; no overrides written.", scope);
+                return;
+            }
+
+            try {
+                get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                PaintLogger.errorf("%s apply failed: %s", scope, e.getCause());
+                return;
+            }
+
+            // All recordings evaluated: apply on the EDT and commit in one write
+            String       timestamp = LocalDateTime.now().toString();
+            List<String> records   = new ArrayList<>(targets.size());
+            for (int i = 0; i < targets.size(); i++) {
+                RecordingEntry recordingEntry = targets.get(i);
+                update(recordingEntry, params, evaluations[i]);
+                records.add(overrideRecord(recordingEntry.getRecordingName(), params, timestamp));
+            }
+            store.putAll(records);
+            store.compact();
+
+            if (onComplete != null) {
+                onComplete.run();
+            }
+        }
+    }
+}
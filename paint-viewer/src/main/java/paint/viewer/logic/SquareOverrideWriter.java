@@ -13,14 +13,16 @@
  *    for each square in a recording. Each record specifies the experiment,
  *    recording, square ID, assigned cell ID, and timestamp of the override.
  *
- *    The writer ensures the Viewer directory exists, validates and writes
- *    headers if necessary, replaces entries for squares that have been
- *    reassigned, and performs all writes atomically using a temporary file.
+ *    The writer ensures the Viewer directory exists and keeps the records in
+ *    an {@link OverrideJournalStore}: an in-memory index that appends every
+ *    change to a journal and rewrites the CSV atomically when it is compacted
+ *    (after many changes and when the writer is closed).
  *
  *  KEY FEATURES:
  *    • Stores persistent square-to-cell mapping overrides.
  *    • Automatically creates and maintains CSV structure and headers.
  *    • Replaces existing entries for previously assigned squares.
+ *    • Costs one journal append per assignment instead of a full rewrite.
  *    • Performs atomic write operations using temporary files.
  *
  *  AUTHOR:
@@ -44,7 +46,6 @@ import paint.viewer.utils.RecordingEntry;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -67,12 +68,15 @@ import java.util.Map;
  * <p>
  * The writer ensures the Viewer directory exists, headers are created if
  * missing, and each update replaces any previous record for the same square.
+ * Call {@link #close()} when the Viewer closes to write the CSV.
  * This mirrors {@link paint.viewer.logic.RecordingOverrideWriter} in structure
  * and reliability, but applies to square-level (cell) granularity.
  */
 public class SquareOverrideWriter {
 
-    private final Path csvFilePath;
+    private static final String HEADER = "experimentName,recordingName,squareId,cellId,timestamp";
+
+    private final OverrideJournalStore store;
 
     /**
      * Constructs a new {@code SquareOverrideWriter} for a given project.
@@ -89,7 +93,7 @@ public class SquareOverrideWriter {
                 PaintLogger.warnf("Failed to create Viewer directory: %s", e.getMessage());
             }
         }
-        this.csvFilePath = viewerPath.resolve("Square Override.csv");
+        this.store = new OverrideJournalStore(viewerPath.resolve("Square Override.csv"), HEADER, 3);
     }
 
     /**
@@ -107,56 +111,27 @@ public class SquareOverrideWriter {
         String experimentName = recordingEntry.getExperimentName();
         String recordingName  = recordingEntry.getRecordingName();
 
-        try {
-            List<String> lines = new ArrayList<>();
-            if (Files.exists(csvFilePath)) {
-                lines = Files.readAllLines(csvFilePath);
-            }
-
-            // Initialize CSV with headers if new or malformed
-            if (lines.isEmpty() || !lines.get(0).startsWith("experimentName,")) {
-                lines.clear();
-                lines.add("experimentName,recordingName,squareId,cellId,timestamp");
-            }
-
-            // Update or append records for each (squareNumber, cellId) pair
-            for (Map.Entry<Integer, Integer> entry : squareAssignments.entrySet()) {
-                int squareNumber = entry.getKey();
-                int cellId       = entry.getValue();
-
-                String prefix = experimentName + "," + recordingName + "," + squareNumber + ",";
-
-                boolean found = false;
-                for (int i = 1; i < lines.size(); i++) {
-                    if (lines.get(i).startsWith(prefix)) {
-                        found = true;
-                        if (cellId == 0) {
-                            // Remove entry if it exists and cellId == 0
-                            lines.remove(i);
-                        } else {
-                            // Replace existing record
-                            String newLine = experimentName + "," + recordingName + "," + squareNumber + "," + cellId + "," + timestamp;
-                            lines.set(i, newLine);
-                        }
-                        break;
-                    }
-                }
+        List<String> updated = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : squareAssignments.entrySet()) {
+            int squareNumber = entry.getKey();
+            int cellId       = entry.getValue();
 
-                // Add new entry only if cellId > 0 and not found
-                if (cellId != 0 && !found) {
-                    String newLine = experimentName + "," + recordingName + "," + squareNumber + "," + cellId + "," + timestamp;
-                    lines.add(newLine);
-                }
+            String key = experimentName + "," + recordingName + "," + squareNumber;
+            if (cellId == 0) {
+                // Remove entry if it exists and cellId == 0
+                store.remove(key);
+            } else {
+                // Replace existing record or add a new one
+                updated.add(key + "," + cellId + "," + timestamp);
             }
-
-            // Atomic write via temporary file to prevent data loss
-            Path tmpFilePath = csvFilePath.resolveSibling(csvFilePath.getFileName().toString() + ".tmp");
-            Files.write(tmpFilePath, lines);
-            Files.move(tmpFilePath, csvFilePath, StandardCopyOption.REPLACE_EXISTING);
-
-        } catch (IOException ex) {
-            PaintLogger.errorf("Error writing square overrides: %s", ex.getMessage());
-            ex.printStackTrace();
         }
+        store.putAll(updated);
+    }
+
+    /**
+     * Writes all pending assignments to {@code Square Override.csv}.
+     */
+    public void close() {
+        store.close();
     }
 }
\ No newline at end of file
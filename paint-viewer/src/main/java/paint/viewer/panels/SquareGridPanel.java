@@ -24,6 +24,9 @@
  *    • Allows user-driven selection and assignment of cell IDs.
  *    • Integrates with visibility filtering based on configurable parameters.
  *    • Provides contextual info popups for detailed square statistics.
+ *    • Paints from cached layers: a pre-scaled background and a grid/shading
+ *      overlay that is only redrawn when the squares' state changes; the
+ *      drag-selection rectangle repaints just the area it covers.
  *
  *  AUTHOR:
  *    Hans Bakker
@@ -49,9 +52,12 @@ import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
+import java.awt.image.BufferedImage;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static paint.shared.constants.PaintConstants.NUMBER_PIXELS_HEIGHT;
@@ -122,6 +128,13 @@ public class SquareGridPanel extends JPanel {
 
     private JWindow infoPopup;
 
+    // --- Cached render layers ---
+    private BufferedImage scaledBackground;        // background image scaled to the panel size
+    private Image         scaledBackgroundSource;  // image the scaled background was made from
+    private BufferedImage overlayLayer;            // shading, borders and numbers
+    private int[]         overlayState;            // square state the overlay was drawn for
+    private boolean       overlayDirty             = true;
+
     /**
      * Constructs a {@code SquareGridPanel} with the specified grid size and sets
      * up mouse listeners for interaction (selection and popups).
@@ -201,8 +214,13 @@ public class SquareGridPanel extends JPanel {
                 int y = Math.min(dragStart.y, e.getY());
                 int w = Math.abs(dragStart.x - e.getX());
                 int h = Math.abs(dragStart.y - e.getY());
+                Rectangle previous = selectionRect;
                 selectionRect = new Rectangle(x, y, w, h);
-                SquareGridPanel.this.repaint();
+
+                // Only the area covered by the old and the new rectangle changes
+                Rectangle dirty = previous != null ? previous.union(selectionRect) : new Rectangle(selectionRect);
+                dirty.grow(2, 2);
+                SquareGridPanel.this.repaint(dirty);
             }
         });
     }
@@ -360,6 +378,7 @@ public class SquareGridPanel extends JPanel {
      */
     public void setSquares(List<Square> newSquares) {
         this.squares = newSquares != null ? newSquares : new ArrayList<>();
+        this.overlayDirty = true;
     }
 
     /**
@@ -372,21 +391,133 @@ public class SquareGridPanel extends JPanel {
 
     /**
      * Paints all visual elements including the grid, overlays, and selections.
+     * <p>
+     * The background and the grid overlay come from cached layers, so a repaint
+     * normally costs two image copies plus the drag-selection rectangle.
+     * </p>
      */
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
 
-        if (backgroundImage != null) {
-            g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
+        int width  = getWidth();
+        int height = getHeight();
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        BufferedImage background = scaledBackground(width, height);
+        if (background != null) {
+            g.drawImage(background, 0, 0, null);
         }
         if (squares == null) {
             return;
         }
+        g.drawImage(overlayLayer(width, height), 0, 0, null);
+
+        // --- Draw drag-selection rectangle ---
+        if (selectionRect != null && selectionEnabled) {
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setColor(new Color(255, 255, 180, 100));
+            g2.fill(selectionRect);
+            g2.setColor(Color.BLACK);
+            g2.setStroke(new BasicStroke(1.5f));
+            g2.draw(selectionRect);
+        }
+    }
 
-        int        squareW = getWidth() / cols;
-        int        squareH = getHeight() / rows;
-        Graphics2D g2      = (Graphics2D) g;
+    /**
+     * Returns the background image scaled to the panel size, rescaling it only
+     * when the image or the panel size has changed.
+     */
+    private BufferedImage scaledBackground(int width, int height) {
+        if (backgroundImage == null) {
+            scaledBackground       = null;
+            scaledBackgroundSource = null;
+            return null;
+        }
+        if (scaledBackground == null
+                || scaledBackgroundSource != backgroundImage
+                || scaledBackground.getWidth() != width
+                || scaledBackground.getHeight() != height) {
+            scaledBackground = createLayer(width, height, Transparency.OPAQUE);
+            Graphics2D g2 = scaledBackground.createGraphics();
+            try {
+                g2.drawImage(backgroundImage, 0, 0, width, height, this);
+            } finally {
+                g2.dispose();
+            }
+            scaledBackgroundSource = backgroundImage;
+        }
+        return scaledBackground;
+    }
+
+    /**
+     * Returns the overlay with shading, borders and numbers, redrawing it only
+     * when the panel size, a display option, or the state of a square changed.
+     * <p>
+     * Squares are also modified outside this panel (visibility filter, cell
+     * assignment), so the overlay is checked against a snapshot of every
+     * square's state rather than relying on explicit invalidation alone.
+     * </p>
+     */
+    private BufferedImage overlayLayer(int width, int height) {
+        int[] state = squareState();
+        if (overlayLayer == null
+                || overlayDirty
+                || overlayLayer.getWidth() != width
+                || overlayLayer.getHeight() != height
+                || !Arrays.equals(state, overlayState)) {
+            overlayLayer = createLayer(width, height, Transparency.TRANSLUCENT);
+            Graphics2D g2 = overlayLayer.createGraphics();
+            try {
+                Object textHints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+                if (textHints instanceof Map) {
+                    g2.addRenderingHints((Map<?, ?>) textHints);
+                }
+                g2.setFont(getFont());
+                drawOverlay(g2, width / cols, height / rows);
+            } finally {
+                g2.dispose();
+            }
+            overlayState = state;
+            overlayDirty = false;
+        }
+        return overlayLayer;
+    }
+
+    /**
+     * Captures everything about the squares that the overlay depends on.
+     */
+    private int[] squareState() {
+        int[] state = new int[squares.size() * 3];
+        int   i     = 0;
+        for (Square square : squares) {
+            state[i++] = square.getCellId();
+            state[i++] = (square.isSelected() ? 1 : 0)
+                    | (selectedSquaresNumbers.contains(square.getSquareNumber()) ? 2 : 0);
+            state[i++] = numberMode == NumberMode.LABEL ? square.getLabelNumber() : square.getSquareNumber();
+        }
+        return state;
+    }
+
+    /**
+     * Creates an image for a render layer, compatible with the screen if possible.
+     */
+    private BufferedImage createLayer(int width, int height, int transparency) {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        if (gc != null) {
+            return gc.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height, transparency == Transparency.OPAQUE
+                ? BufferedImage.TYPE_INT_RGB
+                : BufferedImage.TYPE_INT_ARGB);
+    }
+
+    /**
+     * Draws the cell shading, selection highlights, borders and numbers of all squares.
+     */
+    private void drawOverlay(Graphics2D g2, int squareW, int squareH) {
 
         // --- Draw cells, overlays, and borders ---
         for (Square square : squares) {
@@ -436,15 +567,6 @@ public class SquareGridPanel extends JPanel {
                 }
             }
         }
-
-        // --- Draw drag-selection rectangle ---
-        if (selectionRect != null && selectionEnabled) {
-            g2.setColor(new Color(255, 255, 180, 100));
-            g2.fill(selectionRect);
-            g2.setColor(Color.BLACK);
-            g2.setStroke(new BasicStroke(1.5f));
-            g2.draw(selectionRect);
-        }
     }
 
     /**
@@ -468,6 +590,7 @@ public class SquareGridPanel extends JPanel {
      */
     public void setShowBorders(boolean show) {
         this.showBorders = show;
+        this.overlayDirty = true;
         this.repaint();
     }
 
@@ -476,6 +599,7 @@ public class SquareGridPanel extends JPanel {
      */
     public void setNumberMode(NumberMode mode) {
         this.numberMode = mode;
+        this.overlayDirty = true;
         this.repaint();
     }
 
@@ -553,6 +677,7 @@ public class SquareGridPanel extends JPanel {
      */
     public void setShowShading(boolean show) {
         this.showShading = show;
+        this.overlayDirty = true;
         this.repaint();
     }
 
@@ -0,0 +1,267 @@
+/******************************************************************************
+ *  Class:        ImageCache.java
+ *  Package:      paint.viewer.utils
+ *
+ *  PURPOSE:
+ *    Holds the TrackMate and Brightfield images shown by the Recording Viewer
+ *    in a bounded least-recently-used cache, and loads images of neighbouring
+ *    recordings in the background before they are displayed.
+ *
+ *  DESCRIPTION:
+ *    Images are loaded on first use with {@code ImageIO}, falling back to
+ *    ImageJ’s {@code Opener} for scientific formats. Every decoded image is
+ *    charged at four bytes per pixel against a budget in megabytes; when the
+ *    budget is exceeded the least recently shown images are dropped.
+ *
+ *    A single background thread prefetches images on request. A display that
+ *    asks for an image that is still being prefetched waits for that load
+ *    instead of reading the file a second time.
+ *
+ *  KEY FEATURES:
+ *    • Lazy loading: nothing is read until an image is needed.
+ *    • Memory bounded by "Viewer" / "Image Cache Size MB" (default 256 MB).
+ *    • Background prefetch of the next and previous recordings.
+ *    • Files that fail to load are not prefetched again; displaying the
+ *      recording retries them, so a file that was still being written or a
+ *      share that briefly failed recovers without a restart.
+ *
+ *  AUTHOR:
+ *    Hans Bakker
+ *
+ *  MODULE:
+ *    paint-viewer
+ *
+ *  UPDATED:
+ *    2025-10-29
+ *
+ *  COPYRIGHT:
+ *    © 2025 Hans Bakker. All rights reserved.
+ ******************************************************************************/
+
+package paint.viewer.utils;
+
+import paint.shared.config.PaintConfig;
+import paint.shared.utils.PaintLogger;
+
+import javax.swing.*;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Least-recently-used cache of viewer images, bounded by their decoded size.
+ *
+ * <p>All methods are thread-safe. Loading happens outside the cache lock, so a
+ * background prefetch never blocks the event dispatch thread on another image.</p>
+ */
+public final class ImageCache {
+
+    private static final int  DEFAULT_CACHE_SIZE_MB = 256;
+    private static final long BYTES_PER_MB          = 1024L * 1024L;
+    private static final int  BYTES_PER_PIXEL       = 4;
+
+    private static volatile ImageCache shared;
+
+    private final long                         maxBytes;
+    private final LinkedHashMap<Path, Entry>   images  = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<Path, Future<ImageIcon>> pending = new HashMap<>();
+    private final Set<Path>                    failed  = new HashSet<>();
+    private       long                         usedBytes;
+
+    private final ExecutorService prefetcher = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ImageCache-Prefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+
+    /**
+     * Creates a cache with the given budget.
+     *
+     * @param maxMegabytes maximum decoded size of the cached images, in MB
+     */
+    public ImageCache(int maxMegabytes) {
+        this.maxBytes = Math.max(1, maxMegabytes) * BYTES_PER_MB;
+    }
+
+    /**
+     * Returns the cache shared by all recording entries, sized from the
+     * "Viewer" / "Image Cache Size MB" configuration value.
+     *
+     * @return the shared cache
+     */
+    public static ImageCache shared() {
+        ImageCache cache = shared;
+        if (cache == null) {
+            synchronized (ImageCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    cache  = new ImageCache(PaintConfig.getInt("Viewer", "Image Cache Size MB", DEFAULT_CACHE_SIZE_MB));
+                    shared = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    // =========================================================================================
+    // LOOKUP AND PREFETCH
+    // =========================================================================================
+
+    /**
+     * Returns the image for a path, loading it if it is not cached. If the image
+     * is being prefetched, waits for that load to finish. A path that failed
+     * before is tried again.
+     *
+     * @param imagePath path to the image file, may be {@code null}
+     * @param label     descriptive label for logging
+     * @return {@link ImageIcon} for the image, or {@code null} if it cannot be loaded
+     */
+    public ImageIcon get(Path imagePath, String label) {
+        if (imagePath == null) {
+            return null;
+        }
+        Future<ImageIcon> inFlight;
+        synchronized (this) {
+            Entry entry = images.get(imagePath);
+            if (entry != null) {
+                return entry.icon;
+            }
+            inFlight = pending.get(imagePath);
+        }
+
+        if (inFlight != null) {
+            try {
+                return inFlight.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                PaintLogger.warnf("[%s] Prefetch failed for %s (%s)", label, imagePath, e.getCause());
+            }
+        }
+        return loadAndStore(imagePath, label);
+    }
+
+    /**
+     * Starts loading an image in the background, unless it is cached, already
+     * being loaded, or failed before.
+     *
+     * @param imagePath path to the image file, may be {@code null}
+     * @param label     descriptive label for logging
+     */
+    public synchronized void prefetch(Path imagePath, String label) {
+        if (imagePath == null || images.containsKey(imagePath) || pending.containsKey(imagePath) || failed.contains(imagePath)) {
+            return;
+        }
+        pending.put(imagePath, prefetcher.submit(() -> loadAndStore(imagePath, label)));
+    }
+
+    /**
+     * @return decoded size of the cached images, in bytes
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    // =========================================================================================
+    // CACHE MAINTENANCE
+    // =========================================================================================
+
+    private ImageIcon loadAndStore(Path imagePath, String label) {
+        ImageIcon icon = loadImage(imagePath, label);
+        synchronized (this) {
+            pending.remove(imagePath);
+            if (icon == null) {
+                failed.add(imagePath);
+                return null;
+            }
+            failed.remove(imagePath);
+            Entry existing = images.get(imagePath);
+            if (existing != null) {
+                return existing.icon;
+            }
+            Entry entry = new Entry(icon);
+            images.put(imagePath, entry);
+            usedBytes += entry.bytes;
+            evict(imagePath);
+        }
+        return icon;
+    }
+
+    /**
+     * Drops the least recently used images until the cache fits its budget.
+     * The image that was just added is always kept.
+     */
+    private void evict(Path keep) {
+        Iterator<Map.Entry<Path, Entry>> it = images.entrySet().iterator();
+        while (usedBytes > maxBytes && it.hasNext()) {
+            Map.Entry<Path, Entry> eldest = it.next();
+            if (eldest.getKey().equals(keep)) {
+                continue;
+            }
+            usedBytes -= eldest.getValue().bytes;
+            it.remove();
+            PaintLogger.debugf("Evicted from image cache: %s", eldest.getKey());
+        }
+    }
+
+    /**
+     * Attempts to load an image from disk using {@code ImageIO}, falling back to
+     * ImageJ’s {@code Opener} for extended format support. Returns an {@link ImageIcon}
+     * suitable for Swing rendering or {@code null} if loading fails.
+     *
+     * @param imagePath path to the image file
+     * @param label     descriptive label for logging
+     * @return {@link ImageIcon} for the image, or {@code null} if load fails
+     */
+    private static ImageIcon loadImage(Path imagePath, String label) {
+        try {
+            BufferedImage img = javax.imageio.ImageIO.read(imagePath.toFile());
+            if (img != null) {
+                PaintLogger.debugf("[%s] Loaded via ImageIO: %s", label, imagePath);
+                return new ImageIcon(img);
+            }
+            PaintLogger.warnf("[%s] ImageIO returned null for %s", label, imagePath);
+        } catch (Exception e) {
+            PaintLogger.warnf("[%s] ImageIO failed for %s (%s)", label, imagePath, e.getMessage());
+        }
+
+        try {
+            ij.io.Opener opener = new ij.io.Opener();
+            ij.ImagePlus imp = opener.openImage(imagePath.toString());
+            if (imp != null && imp.getImage() != null) {
+                PaintLogger.debugf("[%s] Loaded via ImageJ Opener: %s", label, imagePath);
+                return new ImageIcon(imp.getImage());
+            }
+            PaintLogger.warnf("[%s] ImageJ Opener returned null for %s", label, imagePath);
+        } catch (Throwable t) {
+            PaintLogger.warnf("[%s] ImageJ Opener threw error for %s (%s)", label, imagePath, t.getMessage());
+        }
+
+        PaintLogger.errorf("[%s] Failed to load image: %s", label, imagePath);
+        return null;
+    }
+
+    /**
+     * A cached image with its decoded size.
+     */
+    private static final class Entry {
+        final ImageIcon icon;
+        final long      bytes;
+
+        Entry(ImageIcon icon) {
+            this.icon  = icon;
+            this.bytes = (long) Math.max(1, icon.getIconWidth()) * Math.max(1, icon.getIconHeight()) * BYTES_PER_PIXEL;
+        }
+    }
+}
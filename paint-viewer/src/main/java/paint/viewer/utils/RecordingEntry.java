@@ -15,12 +15,13 @@
  *    data associated with a recording, as well as convenience methods for
  *    metadata access (probe type, adjuvant, cell type, etc.).
  *
- *    Images are preloaded using either {@code ImageIO} or ImageJ’s {@code Opener}
- *    for compatibility with both standard and scientific formats.
+ *    Images are loaded lazily on first display through the shared {@link ImageCache},
+ *    which bounds their memory use and can prefetch the images of neighbouring
+ *    entries in the background.
  *
  *  KEY FEATURES:
  *    • Encapsulates per-recording configuration and visibility parameters.
- *    • Loads and caches TrackMate and Brightfield images automatically.
+ *    • Loads TrackMate and Brightfield images on demand via {@link ImageCache}.
  *    • Provides structured access to recording metadata and square data.
  *    • Performs consistency validation against expected square counts.
  *    • Fully integrated with PAINT’s logging framework ({@link paint.shared.utils.PaintLogger}).
@@ -42,10 +43,8 @@ package paint.viewer.utils;
 
 
 import paint.shared.objects.Recording;
-import paint.shared.utils.PaintLogger;
 
 import javax.swing.*;
-import java.awt.image.BufferedImage;
 import java.nio.file.Path;
 
 
@@ -54,8 +53,8 @@ import java.nio.file.Path;
  * Each {@code RecordingEntry} encapsulates metadata, image paths, and adjustable
  * visibility control parameters (e.g., density ratio, variability, and R² threshold).
  *
- * <p>Images are preloaded via ImageIO or ImageJ Opener, and associated square data
- * can be lazily fetched and cached from the experiment context.</p>
+ * <p>Images are loaded on first use through the shared {@link ImageCache}, and
+ * associated square data can be lazily fetched and cached from the experiment context.</p>
  */
 public class RecordingEntry {
     private final Recording     recording;
@@ -66,8 +65,8 @@ public class RecordingEntry {
     private       double        minRequiredRSquared;
     private       String        neighbourMode;
 
-    private final ImageIcon     leftImage;
-    private final ImageIcon     rightImage;
+    private final Path          trackmateImagePath;
+    private final Path          brightfieldImagePath;
 
     /**
      * Constructs a new {@code RecordingEntry} with associated images and control parameters.
@@ -95,8 +94,8 @@ public class RecordingEntry {
         this.maxAllowableVariability = maxAllowableVariability;
         this.minRequiredRSquared     = minRequiredRSquared;
         this.neighbourMode           = neighbourMode;
-        this.leftImage               = loadImage(trackmateImagePath, "TrackMate");
-        this.rightImage              = loadImage(brightfieldImagePath, "Brightfield");
+        this.trackmateImagePath      = trackmateImagePath;
+        this.brightfieldImagePath    = brightfieldImagePath;
     }
 
     // =========================================================================================
@@ -104,43 +103,13 @@ public class RecordingEntry {
     // =========================================================================================
 
     /**
-     * Attempts to load an image from disk using {@code ImageIO}, falling back to
-     * ImageJ’s {@code Opener} for extended format support. Returns an {@link ImageIcon}
-     * suitable for Swing rendering or {@code null} if loading fails.
-     *
-     * @param imagePath path to the image file
-     * @param label     descriptive label for logging
-     * @return {@link ImageIcon} for the image, or {@code null} if load fails
+     * Starts loading both images of this entry in the background, so a later
+     * call to {@link #getLeftImage()} or {@link #getRightImage()} returns at once.
      */
-    private static ImageIcon loadImage(Path imagePath, String label) {
-        if (imagePath == null) {
-            return null;
-        }
-        try {
-            BufferedImage img = javax.imageio.ImageIO.read(imagePath.toFile());
-            if (img != null) {
-                PaintLogger.debugf("[%s] Loaded via ImageIO: %s", label, imagePath);
-                return new ImageIcon(img);
-            }
-            PaintLogger.warnf("[%s] ImageIO returned null for %s", label, imagePath);
-        } catch (Exception e) {
-            PaintLogger.warnf("[%s] ImageIO failed for %s (%s)", label, imagePath, e.getMessage());
-        }
-
-        try {
-            ij.io.Opener opener = new ij.io.Opener();
-            ij.ImagePlus imp = opener.openImage(imagePath.toString());
-            if (imp != null && imp.getImage() != null) {
-                PaintLogger.debugf("[%s] Loaded via ImageJ Opener: %s", label, imagePath);
-                return new ImageIcon(imp.getImage());
-            }
-            PaintLogger.warnf("[%s] ImageJ Opener returned null for %s", label, imagePath);
-        } catch (Throwable t) {
-            PaintLogger.warnf("[%s] ImageJ Opener threw error for %s (%s)", label, imagePath, t.getMessage());
-        }
-
-        PaintLogger.errorf("[%s] Failed to load image: %s", label, imagePath);
-        return null;
+    public void prefetchImages() {
+        ImageCache cache = ImageCache.shared();
+        cache.prefetch(trackmateImagePath, "TrackMate");
+        cache.prefetch(brightfieldImagePath, "Brightfield");
     }
 
     // =========================================================================================
@@ -228,11 +197,11 @@ public class RecordingEntry {
     }
 
     public ImageIcon getLeftImage() {
-        return leftImage;
+        return ImageCache.shared().get(trackmateImagePath, "TrackMate");
     }
 
     public ImageIcon getRightImage() {
-        return rightImage;
+        return ImageCache.shared().get(brightfieldImagePath, "Brightfield");
     }
 
     public Recording getRecording() {
@@ -8,18 +8,22 @@
  *    represent complete experiment recordings.
  *
  *  DESCRIPTION:
- *    The {@code RecordingLoader} iterates over all experiment folders within
- *    a project, loads each experiment using {@link paint.shared.io.ExperimentDataLoader},
- *    and constructs {@link RecordingEntry} objects for all recordings that meet
- *    process and file-availability requirements.
+ *    The {@code RecordingLoader} loads the experiment folders of a project
+ *    concurrently using {@link paint.shared.io.ExperimentDataLoader}, and
+ *    constructs {@link RecordingEntry} objects for all recordings that meet
+ *    process and file-availability requirements. Entries are handed to the
+ *    caller one experiment at a time, in project order, as soon as that
+ *    experiment and all experiments before it have been loaded.
  *
  *    Each recording entry combines metadata, images (TrackMate and Brightfield),
  *    and configuration thresholds loaded from {@link paint.shared.config.PaintConfig}.
  *    Invalid or incomplete recordings are skipped with diagnostic logging.
  *
  *  KEY FEATURES:
- *    • Loads complete experiments with squares and track data.
- *    • Validates existence of TrackMate and Brightfield images.
+ *    • Loads complete experiments with squares and track data, in parallel.
+ *    • Streams entries per experiment so the viewer can open on the first one.
+ *    • Validates existence of TrackMate and Brightfield images against a
+ *      single directory listing per experiment.
  *    • Reads density, variability, and R² thresholds from configuration.
  *    • Constructs structured {@link RecordingEntry} objects for UI or analysis use.
  *    • Provides detailed logging via {@link paint.shared.utils.PaintLogger}.
@@ -46,10 +50,20 @@ import paint.shared.objects.Project;
 import paint.shared.objects.Recording;
 import paint.shared.utils.PaintLogger;
 
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Provides functionality for loading and filtering recordings from a project directory.
@@ -61,101 +75,195 @@ import java.util.List;
  */
 public class RecordingLoader {
 
+    /**
+     * Upper limit on the number of experiments read at the same time. Loading is
+     * dominated by CSV parsing and disk access, so more threads mostly add memory.
+     */
+    private static final int MAX_CONCURRENT_EXPERIMENTS = 4;
+
+    /**
+     * Visibility thresholds from the configuration, read once per load. The
+     * viewer keeps its own defaults, which match {@code PaintConfig.loadDefaults}
+     * and the project dialog; the Generate Squares defaults differ.
+     */
+    private static final class Thresholds {
+        final double minDensityRatio = PaintConfig.getDouble("Generate Squares", "Min Required Density Ratio", 2.0);
+        final double maxVariability  = PaintConfig.getDouble("Generate Squares", "Max Allowable Variability",  10.0);
+        final double minRSquared     = PaintConfig.getDouble("Generate Squares", "Min Required R Squared",     0.1);
+        final String neighbourMode   = PaintConfig.getString("Generate Squares", "Neighbour Mode",             "Free");
+    }
+
     /**
      * Loads all {@link RecordingEntry} instances from the specified {@link Project}.
      * <p>
-     * This method iterates over all experiment directories, loads their full content
-     * (including squares and tracks), and constructs valid entries only for recordings
-     * meeting both process requirements and file availability conditions.
+     * Experiments are loaded concurrently; the returned list is in project order.
      * </p>
      *
      * @param project the project context containing experiments, recordings, and file data
      * @return list of valid {@link RecordingEntry} instances; empty if no valid recordings found
      */
     public static List<RecordingEntry> loadFromProject(Project project) {
-
         List<RecordingEntry> recordingEntries = new ArrayList<>();
+        loadFromProject(project, recordingEntries::addAll);
+        return recordingEntries;
+    }
 
-        for (String experimentName : project.getExperimentNames()) {
+    /**
+     * Loads the experiments of a project concurrently and passes the entries of
+     * each experiment to {@code consumer} as soon as they are available.
+     * <p>
+     * The consumer is called on the calling thread, once per experiment that has
+     * valid recordings, in project order: the entries of an experiment are only
+     * delivered after those of all experiments before it. This keeps the order of
+     * the combined list identical to a sequential load. Experiments that fail to
+     * load are logged and skipped.
+     * </p>
+     *
+     * @param project  the project context containing experiments, recordings, and file data
+     * @param consumer receives the (non-empty) entries of one experiment at a time
+     * @return total number of entries delivered
+     */
+    public static int loadFromProject(Project project, Consumer<List<RecordingEntry>> consumer) {
+        List<String> experimentNames = project.getExperimentNames();
+        if (experimentNames.isEmpty()) {
+            return 0;
+        }
 
-            Path experimentPath = project.getProjectRootPath().resolve(experimentName);
+        final Thresholds thresholds = new Thresholds();
+        final int        threads    = Math.max(1, Math.min(experimentNames.size(),
+                                                           Math.min(MAX_CONCURRENT_EXPERIMENTS,
+                                                                    Runtime.getRuntime().availableProcessors())));
 
-            // ✅ Load full experiment (recordings + tracks + squares)
-            Experiment experiment = ExperimentDataLoader.loadExperiment(
-                    project.getProjectRootPath(),
-                    experimentName,
-                    true // matureProject: includes squares + tracks
-            );
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "RecordingLoader");
+            t.setDaemon(true);
+            return t;
+        });
 
-            if (experiment == null || experiment.getRecordings().isEmpty()) {
-                continue;
+        int delivered = 0;
+        try {
+            List<Future<List<RecordingEntry>>> futures = new ArrayList<>(experimentNames.size());
+            for (String experimentName : experimentNames) {
+                futures.add(pool.submit(() -> loadExperiment(project, experimentName, thresholds)));
             }
 
-            for (Recording recording : experiment.getRecordings()) {
-                String recordingName = recording.getRecordingName();
-                if (!recording.isProcessFlag()) {
+            for (int i = 0; i < futures.size(); i++) {
+                List<RecordingEntry> entries;
+                try {
+                    entries = futures.get(i).get();
+                } catch (ExecutionException e) {
+                    PaintLogger.errorf("Failed to load experiment '%s': %s", experimentNames.get(i), e.getCause());
                     continue;
                 }
+                if (!entries.isEmpty()) {
+                    consumer.accept(entries);
+                    delivered += entries.size();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            PaintLogger.warnf("Loading of recordings was interrupted.");
+        } finally {
+            pool.shutdownNow();
+        }
+        return delivered;
+    }
 
-                // --- Image paths ---
-                Path trackmateImagePath = experimentPath
-                        .resolve("TrackMate Images")
-                        .resolve(recordingName + ".jpg");
+    /**
+     * Loads one experiment and builds the entries for its valid recordings.
+     */
+    private static List<RecordingEntry> loadExperiment(Project project, String experimentName, Thresholds thresholds) {
 
-                if (!Files.exists(trackmateImagePath)) {
-                    PaintLogger.errorf("Missing TrackMate image for '%s'", recordingName);
-                    continue;
-                }
+        Path experimentPath = project.getProjectRootPath().resolve(experimentName);
 
-                Path brightfieldDirPath = experimentPath.resolve("BrightField Images");
-                Path brightfieldImagePath = null;
+        // ✅ Load full experiment (recordings + tracks + squares)
+        Experiment experiment = ExperimentDataLoader.loadExperiment(
+                project.getProjectRootPath(),
+                experimentName,
+                true // matureProject: includes squares + tracks
+        );
 
-                if (!Files.isDirectory(brightfieldDirPath)) {
-                    PaintLogger.errorf("Missing Brightfield directory '%s' image for recording '%s'",
-                                       brightfieldDirPath, recordingName);
-                    continue;
-                }
+        if (experiment == null || experiment.getRecordings().isEmpty()) {
+            return Collections.emptyList();
+        }
 
-                try {
-                    for (Path p : (Iterable<Path>) Files.list(brightfieldDirPath)::iterator) {
-                        String fileName = p.getFileName().toString();
-                        if ((fileName.startsWith(recordingName + "-BF") || fileName.startsWith(recordingName))
-                                && fileName.endsWith(".jpg")) {
-                            brightfieldImagePath = p;
-                            break;
-                        }
-                    }
-                } catch (Exception e) {
-                    e.printStackTrace();
-                }
+        // --- One directory listing per experiment for both image folders ---
+        Path trackmateDirPath   = experimentPath.resolve("TrackMate Images");
+        Path brightfieldDirPath = experimentPath.resolve("BrightField Images");
 
-                if (brightfieldImagePath == null) {
-                    PaintLogger.errorf("Missing BrightField image for '%s'", recordingName);
-                    continue;
-                }
+        NavigableSet<String> trackmateImages   = listJpegFiles(trackmateDirPath);
+        NavigableSet<String> brightfieldImages = Files.isDirectory(brightfieldDirPath) ? listJpegFiles(brightfieldDirPath) : null;
 
-                // --- Thresholds from config ---
-                double minDensityRatio = PaintConfig.getDouble("Generate Squares", "Min Required Density Ratio", 2.0);
-                double maxVariability  = PaintConfig.getDouble("Generate Squares", "Max Allowable Variability",  10.0);
-                double minRSquared     = PaintConfig.getDouble("Generate Squares", "Min Required R Squared",     0.1);
-                String neighbourMode   = PaintConfig.getString("Generate Squares", "Neighbour Mode",             "Free");
-
-                // --- Build final entry ---
-                RecordingEntry entry = new RecordingEntry(
-                        recording,
-                        trackmateImagePath,
-                        brightfieldImagePath,
-                        experimentName,
-                        minDensityRatio,
-                        maxVariability,
-                        minRSquared,
-                        neighbourMode
-                );
-
-                recordingEntries.add(entry);
+        List<RecordingEntry> recordingEntries = new ArrayList<>();
+        for (Recording recording : experiment.getRecordings()) {
+            String recordingName = recording.getRecordingName();
+            if (!recording.isProcessFlag()) {
+                continue;
             }
-        }
 
+            // --- Image paths ---
+            if (!trackmateImages.contains(recordingName + ".jpg")) {
+                PaintLogger.errorf("Missing TrackMate image for '%s'", recordingName);
+                continue;
+            }
+            Path trackmateImagePath = trackmateDirPath.resolve(recordingName + ".jpg");
+
+            if (brightfieldImages == null) {
+                PaintLogger.errorf("Missing Brightfield directory '%s' image for recording '%s'",
+                                   brightfieldDirPath, recordingName);
+                continue;
+            }
+
+            String brightfieldFileName = firstWithPrefix(brightfieldImages, recordingName);
+            if (brightfieldFileName == null) {
+                PaintLogger.errorf("Missing BrightField image for '%s'", recordingName);
+                continue;
+            }
+            Path brightfieldImagePath = brightfieldDirPath.resolve(brightfieldFileName);
+
+            // --- Build final entry ---
+            RecordingEntry entry = new RecordingEntry(
+                    recording,
+                    trackmateImagePath,
+                    brightfieldImagePath,
+                    experimentName,
+                    thresholds.minDensityRatio,
+                    thresholds.maxVariability,
+                    thresholds.minRSquared,
+                    thresholds.neighbourMode
+            );
+
+            recordingEntries.add(entry);
+        }
         return recordingEntries;
     }
-}
\ No newline at end of file
+
+    /**
+     * Lists the names of the {@code .jpg} files in a directory, sorted by name.
+     * Returns an empty set if the directory does not exist or cannot be read.
+     */
+    private static NavigableSet<String> listJpegFiles(Path directory) {
+        NavigableSet<String> names = new TreeSet<>();
+        if (!Files.isDirectory(directory)) {
+            return names;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                 .filter(name -> name.endsWith(".jpg"))
+                 .forEach(names::add);
+        } catch (IOException e) {
+            PaintLogger.errorf("Could not list directory '%s': %s", directory, e.getMessage());
+        }
+        return names;
+    }
+
+    /**
+     * Returns the alphabetically first name in {@code names} that starts with
+     * {@code prefix}, or {@code null} if there is none. Names sharing a prefix are
+     * contiguous in a sorted set, so only the first candidate needs checking.
+     */
+    private static String firstWithPrefix(NavigableSet<String> names, String prefix) {
+        String candidate = names.ceiling(prefix);
+        return candidate != null && candidate.startsWith(prefix) ? candidate : null;
+    }
+}
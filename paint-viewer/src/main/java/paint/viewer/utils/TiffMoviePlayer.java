@@ -7,15 +7,23 @@
  *    as time-lapse movies within a graphical interface.
  *
  *  DESCRIPTION:
- *    The {@code TiffMoviePlayer} loads and displays multi-frame TIFF image
- *    stacks using ImageJ’s core libraries, allowing users to control playback
- *    speed, pause, and navigate through frames.
+ *    The {@code TiffMoviePlayer} streams multi-frame TIFF and ND2 image
+ *    stacks from disk, allowing users to control playback speed, pause, and
+ *    navigate through frames.
+ *
+ *    The stack is opened virtually, so only the frames that are being shown
+ *    are read. A decoder thread reads frames ahead into a small ring of
+ *    buffers and maps them to 8-bit grey through a contrast lookup table that
+ *    is computed once from the first frame. A {@code javax.swing.Timer} copies
+ *    the next decoded frame into a single display image at the calibrated
+ *    frame interval.
  *
  *    It combines ImageJ for data handling with Swing for GUI rendering,
  *    featuring lightweight playback controls and frame navigation.
  *
  *  KEY FEATURES:
- *    • Loads and plays multi-frame TIFF image stacks.
+ *    • Plays multi-frame TIFF and ND2 stacks with constant memory use.
+ *    • Starts playback as soon as the first frame is decoded.
  *    • Adjustable playback speed and pause/resume control.
  *    • Manual frame navigation via a slider.
  *    • Displays a simple loading dialog during image preparation.
@@ -28,7 +36,7 @@
  *    paint-viewer
  *
  *  UPDATED:
- *    2025-10-29
+ *    2025-10-30
  *
  *  COPYRIGHT:
  *    © 2025 Hans Bakker. All rights reserved.
@@ -38,26 +46,50 @@ package paint.viewer.utils;
 
 import ij.IJ;
 import ij.ImagePlus;
+import ij.ImageStack;
 import ij.measure.Calibration;
 import ij.process.ImageProcessor;
+import loci.plugins.BF;
+import loci.plugins.in.ImporterOptions;
+import paint.shared.utils.PaintLogger;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
 import java.io.File;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Provides functionality for playing multi-frame TIFF files as movie-like sequences.
  * <p>
- * The {@code TiffMoviePlayer} uses ImageJ for image handling and Swing for the GUI.
- * It includes playback controls such as play/pause, speed adjustment, and frame navigation.
+ * The {@code TiffMoviePlayer} uses ImageJ and Bio-Formats for image handling and Swing
+ * for the GUI. It includes playback controls such as play/pause, speed adjustment, and
+ * frame navigation.
  * </p>
  */
 public class TiffMoviePlayer {
 
+    /**
+     * Number of decoded frames the decoder may read ahead of the display.
+     */
+    private static final int RING_SIZE = 8;
+
+    /**
+     * Percentage of pixels allowed to saturate, as in ImageJ's "Enhance Contrast".
+     */
+    private static final double SATURATED = 0.35;
+
+    private static final int DEFAULT_DELAY_MS = 50;
+    private static final int MIN_DELAY_MS     = 5;
+
     /**
      * Plays a multi-frame TIFF file as a movie sequence.
      *
@@ -82,7 +114,7 @@ public class TiffMoviePlayer {
 
         SwingUtilities.invokeLater(() -> loadingDialog.setVisible(true));
 
-        // --- Load + show UI on background thread ---
+        // --- Open the stack virtually on a background thread, then show the UI ---
         new Thread(() -> {
             System.setProperty("apple.awt.UIElement", "true");
             IJ.redirectErrorMessages();
@@ -96,168 +128,410 @@ public class TiffMoviePlayer {
                 }
             }));
 
-            final ImagePlus imp = IJ.openImage(tiffPath);
-
-            System.setOut(originalOut);
-            SwingUtilities.invokeLater(loadingDialog::dispose);
-
-            if (imp == null) {
-                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(
-                        null,
-                        "Failed to open image file:\n" + tiffPath,
-                        "Error",
-                        JOptionPane.ERROR_MESSAGE
-                ));
+            ImagePlus opened;
+            try {
+                opened = openVirtual(tiffPath);
+            } finally {
+                System.setOut(originalOut);
+            }
+            final ImagePlus imp = opened;
+
+            if (imp == null || imp.getStackSize() == 0) {
+                SwingUtilities.invokeLater(() -> {
+                    loadingDialog.dispose();
+                    JOptionPane.showMessageDialog(
+                            null,
+                            "Failed to open image file:\n" + tiffPath,
+                            "Error",
+                            JOptionPane.ERROR_MESSAGE);
+                });
                 return;
             }
 
-            IJ.run(imp, "Enhance Contrast", "saturated=0.35");
+            // Reads only the first frame to derive the contrast
+            final FrameDecoder decoder = new FrameDecoder(imp.getStack(), imp.getWidth(), imp.getHeight());
 
-            int delay = 50;
+            int delay = DEFAULT_DELAY_MS;
             Calibration cal = imp.getCalibration();
             if (cal != null && cal.frameInterval > 0) {
                 delay = (int) Math.round(cal.frameInterval * 1000);
             }
-            final int baseDelayMs = delay;
+            final int baseDelayMs = Math.max(MIN_DELAY_MS, delay);  // a zero delay would spin the EDT
 
             SwingUtilities.invokeLater(() -> {
-                final JFrame frame = new JFrame("Movie Player - " + fileName);
-                frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-                frame.setLayout(new BorderLayout());
-
-                final JLabel imageLabel = new JLabel("", SwingConstants.CENTER);
-                imageLabel.setOpaque(true);
-                imageLabel.setBackground(Color.DARK_GRAY);
-
-                JPanel imagePanel = new JPanel(new BorderLayout());
-                imagePanel.setBackground(Color.DARK_GRAY);
-                imagePanel.setBorder(new EmptyBorder(4, 4, 4, 4));
-                imagePanel.add(imageLabel, BorderLayout.CENTER);
-                frame.add(imagePanel, BorderLayout.CENTER);
-
-                final int totalFrames         = imp.getStackSize();
-                final JSlider frameSlider     = new JSlider(1, totalFrames, 1);
-                final JLabel frameLabel       = new JLabel("Frame: 1");
-                final JButton playPauseButton = new JButton("⏸ Pause");
-                final JSlider speedSlider     = new JSlider(50, 400, 100);
-                final JLabel speedLabel       = new JLabel("Speed: 1.0×");
-
-                JPanel controls = new JPanel(new GridLayout(2, 1, 0, 3));
-                controls.setBorder(new EmptyBorder(6, 6, 6, 6));
-                controls.setBackground(new Color(245, 245, 245));
-
-                JPanel topRow = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 0));
-                topRow.setBackground(controls.getBackground());
-                frameSlider.setPreferredSize(new Dimension(260, 25));
-                topRow.add(playPauseButton);
-                topRow.add(frameSlider);
-                topRow.add(frameLabel);
-
-                JPanel bottomRow = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 0));
-                bottomRow.setBackground(controls.getBackground());
-                speedSlider.setPreferredSize(new Dimension(100, 25));
-                speedSlider.setMajorTickSpacing(50);
-                speedSlider.setPaintTicks(true);
-                bottomRow.add(speedLabel);
-                bottomRow.add(speedSlider);
-
-                controls.add(topRow);
-                controls.add(bottomRow);
-
-                // --- Add Close button below controls ---
-                JButton closeButton = new JButton("Close");
-                closeButton.addActionListener(e -> {
-                    frame.dispose(); // closes the window
-                });
-                JPanel closePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 4));
-                closePanel.setBackground(controls.getBackground());
-                closePanel.add(closeButton);
+                loadingDialog.dispose();
+                showPlayer(fileName, imp, decoder, baseDelayMs);
+            });
+        }, "TiffLoaderThread").start();
+    }
 
-                JPanel bottomPanel = new JPanel(new BorderLayout());
-                bottomPanel.add(controls, BorderLayout.CENTER);
-                bottomPanel.add(closePanel, BorderLayout.SOUTH);
+    /**
+     * Builds the player window and starts playback.
+     */
+    private static void showPlayer(String fileName, ImagePlus imp, FrameDecoder decoder, int baseDelayMs) {
+        final JFrame frame = new JFrame("Movie Player - " + fileName);
+        frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.setLayout(new BorderLayout());
+
+        // One display image for the whole movie; frames are copied into its pixels
+        final BufferedImage display       = new BufferedImage(imp.getWidth(), imp.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        final byte[]        displayPixels = ((DataBufferByte) display.getRaster().getDataBuffer()).getData();
+
+        final JLabel imageLabel = new JLabel(new ImageIcon(display), SwingConstants.CENTER);
+        imageLabel.setOpaque(true);
+        imageLabel.setBackground(Color.DARK_GRAY);
+
+        JPanel imagePanel = new JPanel(new BorderLayout());
+        imagePanel.setBackground(Color.DARK_GRAY);
+        imagePanel.setBorder(new EmptyBorder(4, 4, 4, 4));
+        imagePanel.add(imageLabel, BorderLayout.CENTER);
+        frame.add(imagePanel, BorderLayout.CENTER);
+
+        final int totalFrames         = decoder.getTotalFrames();
+        final JSlider frameSlider     = new JSlider(1, totalFrames, 1);
+        final JLabel frameLabel       = new JLabel("Frame: 1");
+        final JButton playPauseButton = new JButton("⏸ Pause");
+        final JSlider speedSlider     = new JSlider(50, 400, 100);
+        final JLabel speedLabel       = new JLabel("Speed: 1.0×");
+
+        JPanel controls = new JPanel(new GridLayout(2, 1, 0, 3));
+        controls.setBorder(new EmptyBorder(6, 6, 6, 6));
+        controls.setBackground(new Color(245, 245, 245));
+
+        JPanel topRow = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 0));
+        topRow.setBackground(controls.getBackground());
+        frameSlider.setPreferredSize(new Dimension(260, 25));
+        topRow.add(playPauseButton);
+        topRow.add(frameSlider);
+        topRow.add(frameLabel);
+
+        JPanel bottomRow = new JPanel(new FlowLayout(FlowLayout.CENTER, 8, 0));
+        bottomRow.setBackground(controls.getBackground());
+        speedSlider.setPreferredSize(new Dimension(100, 25));
+        speedSlider.setMajorTickSpacing(50);
+        speedSlider.setPaintTicks(true);
+        bottomRow.add(speedLabel);
+        bottomRow.add(speedSlider);
+
+        controls.add(topRow);
+        controls.add(bottomRow);
+
+        // --- Add Close button below controls ---
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> {
+            frame.dispose(); // closes the window
+        });
+        JPanel closePanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 8, 4));
+        closePanel.setBackground(controls.getBackground());
+        closePanel.add(closeButton);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(controls, BorderLayout.CENTER);
+        bottomPanel.add(closePanel, BorderLayout.SOUTH);
+
+        frame.add(bottomPanel, BorderLayout.SOUTH);
+
+        // --- Playback state (EDT only) ---
+        final boolean[] playing        = {true};
+        final boolean[] pendingDisplay = {true};   // show the next decoded frame even when paused
+        final boolean[] updatingSlider = {false};  // slider moved by playback, not by the user
+
+        // --- Timer: show the next decoded frame, if one is ready ---
+        final Timer timer = new Timer(baseDelayMs, e -> {
+            if (!playing[0] && !pendingDisplay[0]) {
+                return;
+            }
+            FrameDecoder.DecodedFrame decoded = decoder.poll();
+            if (decoded == null) {
+                return;  // decoder is behind; keep the current frame on screen
+            }
+            System.arraycopy(decoded.pixels, 0, displayPixels, 0, displayPixels.length);
+            int frameIndex = decoded.frame;
+            decoder.recycle(decoded);
+
+            imageLabel.repaint();
+            frameLabel.setText("Frame: " + frameIndex);
+            updatingSlider[0] = true;
+            frameSlider.setValue(frameIndex);
+            updatingSlider[0] = false;
+            pendingDisplay[0] = false;
+        });
+        timer.setInitialDelay(0);
+        timer.setCoalesce(true);
+
+        playPauseButton.addActionListener(e -> {
+            playing[0] = !playing[0];
+            playPauseButton.setText(playing[0] ? "⏸ Pause" : "▶️ Play");
+        });
+
+        speedSlider.addChangeListener(e -> {
+            double raw = speedSlider.getValue() / 100.0;
+            double speed = Math.round(raw * 2) / 2.0;
+            speedLabel.setText(String.format("Speed: %.1fx", speed));
+            if (speed <= 0.0) {
+                speed = 0.5;
+            }
+            timer.setDelay(Math.max(MIN_DELAY_MS, (int) (baseDelayMs / speed)));
+        });
 
-                frame.add(bottomPanel, BorderLayout.SOUTH);
+        frameSlider.addChangeListener(e -> {
+            if (updatingSlider[0] || frameSlider.getValueIsAdjusting()) {
+                return;
+            }
+            decoder.seek(frameSlider.getValue());
+            pendingDisplay[0] = true;
+        });
+
+        // --- Stop decoding when the window closes; the decoder releases the file ---
+        // The decoder may be inside a read from the virtual stack when it is
+        // interrupted, so it closes the image itself once it has stopped.
+        final Thread decoderThread = new Thread(() -> {
+            try {
+                decoder.run();
+            } finally {
+                imp.close();
+            }
+        }, "TiffMovieDecoderThread");
+        decoderThread.setDaemon(true);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                timer.stop();
+                decoderThread.interrupt();
+            }
+        });
 
-                // --- Show frame ---
-                frame.setSize(Math.min(imp.getWidth() + 40, 1000),
-                              Math.min(imp.getHeight() + 180, 900));
-                frame.setLocationRelativeTo(null);
-                frame.setVisible(true);
+        // --- Show frame ---
+        frame.setSize(Math.min(imp.getWidth() + 40, 1000),
+                      Math.min(imp.getHeight() + 180, 900));
+        frame.setLocationRelativeTo(null);
+        frame.setVisible(true);
 
-                final boolean[] playing = {true};
-                final int[] currentFrame = {1};
+        decoderThread.start();
+        timer.start();
+    }
 
-                playPauseButton.addActionListener(e -> {
-                    playing[0] = !playing[0];
-                    playPauseButton.setText(playing[0] ? "⏸ Pause" : "▶️ Play");
-                });
+    /**
+     * Opens a recording as a virtual stack: TIFF files through ImageJ, all other
+     * formats (ND2) through Bio-Formats.
+     *
+     * @param path path of the recording
+     * @return the virtual image, or {@code null} if it could not be opened
+     */
+    private static ImagePlus openVirtual(String path) {
+        String lower = path.toLowerCase();
+        try {
+            if (lower.endsWith(".tif") || lower.endsWith(".tiff")) {
+                return IJ.openVirtual(path);
+            }
+            ImporterOptions options = new ImporterOptions();
+            options.setId(path);
+            options.setVirtual(true);
+            options.setQuiet(true);
+            ImagePlus[] images = BF.openImagePlus(options);
+            return images == null || images.length == 0 ? null : images[0];
+        } catch (Exception e) {
+            PaintLogger.errorf("Failed to open '%s': %s", path, e.getMessage());
+            return null;
+        }
+    }
 
-                speedSlider.addChangeListener(e -> {
-                    double raw = speedSlider.getValue() / 100.0;
-                    double speed = Math.round(raw * 2) / 2.0;
-                    speedLabel.setText(String.format("Speed: %.1fx", speed));
-                });
+    // =========================================================================================
+    // FRAME DECODER
+    // =========================================================================================
 
-                frameSlider.addChangeListener(e -> {
-                    if (!frameSlider.getValueIsAdjusting() && !playing[0]) {
-                        final int frameIndex = frameSlider.getValue();
-                        ImageProcessor ip2 = imp.getStack().getProcessor(frameIndex);
-                        final BufferedImage img2 = ip2.getBufferedImage();
-                        SwingUtilities.invokeLater(() -> {
-                            imageLabel.setIcon(new ImageIcon(img2));
-                            frameLabel.setText("Frame: " + frameIndex);
-                        });
-                        currentFrame[0] = frameIndex;
-                    }
-                });
+    /**
+     * Reads frames from the stack ahead of the display and converts them to 8-bit
+     * grey through a contrast lookup table.
+     * <p>
+     * A fixed set of {@link #RING_SIZE} buffers circulates between the decoder
+     * (which fills free buffers) and the display (which returns them after
+     * copying), so memory use does not depend on the length of the recording.
+     * A seek increments the generation; frames decoded for an older generation
+     * are discarded by {@link #poll()}.
+     * </p>
+     */
+    private static final class FrameDecoder implements Runnable {
 
-                ImageProcessor ip0 = imp.getStack().getProcessor(1);
-                imageLabel.setIcon(new ImageIcon(ip0.getBufferedImage()));
-
-                new Thread(() -> {
-                    while (frame.isVisible()) {
-                        if (playing[0]) {
-                            int frameIdx = currentFrame[0];
-                            ImageProcessor ip = imp.getStack().getProcessor(frameIdx);
-                            final BufferedImage img = ip.getBufferedImage();
-                            final int finalFrameIdx = frameIdx;
-
-                            SwingUtilities.invokeLater(() -> {
-                                imageLabel.setIcon(new ImageIcon(img));
-                                frameLabel.setText("Frame: " + finalFrameIdx);
-                                frameSlider.setValue(finalFrameIdx);
-                            });
-
-                            double raw = speedSlider.getValue() / 100.0;
-                            double speed = Math.round(raw * 2) / 2.0;
-                            if (speed <= 0.0) {
-                                speed = 0.5;
-                            }
-                            long sleepTime = (long) (baseDelayMs / speed);
-                            if (sleepTime < 5) {
-                                sleepTime = 5;
-                            }
-
-                            try {
-                                Thread.sleep(sleepTime);
-                            } catch (InterruptedException ignored) {
-                            }
-
-                            currentFrame[0]++;
-                            if (currentFrame[0] > totalFrames) {
-                                currentFrame[0] = 1;
-                            }
-                        } else {
-                            try {
-                                Thread.sleep(100);
-                            } catch (InterruptedException ignored) {
-                            }
-                        }
+        static final class DecodedFrame {
+            final int    frame;
+            final int    generation;
+            final byte[] pixels;
+
+            DecodedFrame(int frame, int generation, byte[] pixels) {
+                this.frame      = frame;
+                this.generation = generation;
+                this.pixels     = pixels;
+            }
+        }
+
+        private final ImageStack                  stack;
+        private final int                         totalFrames;
+        private final int                         pixelCount;
+        private final BlockingQueue<byte[]>       free  = new ArrayBlockingQueue<>(RING_SIZE);
+        private final BlockingQueue<DecodedFrame> ready = new ArrayBlockingQueue<>(RING_SIZE);
+
+        // Contrast: display range and lookup table for 8- and 16-bit pixels
+        private final double displayMin;
+        private final double displayMax;
+        private final byte[] lut;
+
+        private int          nextFrame  = 1;
+        private volatile int generation = 0;
+
+        FrameDecoder(ImageStack stack, int width, int height) {
+            this.stack       = stack;
+            this.totalFrames = stack.getSize();
+            this.pixelCount  = width * height;
+
+            double[] range = saturatedRange(stack.getProcessor(1), SATURATED);
+            this.displayMin = range[0];
+            this.displayMax = range[1];
+            this.lut        = buildLut(range[0], range[1], 65536);
+
+            for (int i = 0; i < RING_SIZE; i++) {
+                free.add(new byte[pixelCount]);
+            }
+        }
+
+        int getTotalFrames() {
+            return totalFrames;
+        }
+
+        /**
+         * Continues decoding from {@code frame}; frames already decoded are dropped.
+         */
+        synchronized void seek(int frame) {
+            nextFrame = Math.max(1, Math.min(totalFrames, frame));
+            generation++;
+        }
+
+        /**
+         * @return the next decoded frame of the current generation, or {@code null} if none is ready
+         */
+        DecodedFrame poll() {
+            DecodedFrame decoded;
+            while ((decoded = ready.poll()) != null) {
+                if (decoded.generation == generation) {
+                    return decoded;
+                }
+                recycle(decoded);
+            }
+            return null;
+        }
+
+        /**
+         * Returns the buffer of a displayed frame to the decoder.
+         */
+        void recycle(DecodedFrame decoded) {
+            free.offer(decoded.pixels);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    byte[] buffer = free.take();
+                    int frame;
+                    int frameGeneration;
+                    synchronized (this) {
+                        frame           = nextFrame;
+                        frameGeneration = generation;
+                        nextFrame       = frame % totalFrames + 1;
                     }
-                }, "TiffMoviePlaybackThread").start();
-            });
-        }, "TiffLoaderThread").start();
+                    decode(frame, buffer);
+                    ready.put(new DecodedFrame(frame, frameGeneration, buffer));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                PaintLogger.errorf("Movie playback stopped: %s", e.getMessage());
+            }
+        }
+
+        /**
+         * Reads one frame and maps it to 8-bit grey in {@code out}.
+         */
+        private void decode(int frame, byte[] out) {
+            ImageProcessor ip = stack.getProcessor(frame);
+            Object pixels = ip == null ? null : ip.getPixels();
+
+            if (pixels instanceof byte[]) {
+                byte[] in = (byte[]) pixels;
+                for (int i = 0; i < pixelCount; i++) {
+                    out[i] = lut[in[i] & 0xff];
+                }
+            } else if (pixels instanceof short[]) {
+                short[] in = (short[]) pixels;
+                for (int i = 0; i < pixelCount; i++) {
+                    out[i] = lut[in[i] & 0xffff];
+                }
+            } else if (ip != null) {
+                // Float and colour frames: let ImageJ scale to the same display range
+                ip.setMinAndMax(displayMin, displayMax);
+                System.arraycopy((byte[]) ip.convertToByte(true).getPixels(), 0, out, 0, pixelCount);
+            } else {
+                Arrays.fill(out, (byte) 0);
+            }
+        }
+
+        /**
+         * Computes the display range that leaves {@code saturated} percent of the
+         * pixels of a frame saturated, split evenly over both ends of the histogram
+         * (the range "Enhance Contrast" sets for the current frame).
+         */
+        private static double[] saturatedRange(ImageProcessor ip, double saturated) {
+            if (ip == null) {
+                return new double[]{0, 255};
+            }
+            Object pixels = ip.getPixels();
+            int[]  histogram;
+            if (pixels instanceof byte[]) {
+                histogram = new int[256];
+                for (byte b : (byte[]) pixels) {
+                    histogram[b & 0xff]++;
+                }
+            } else if (pixels instanceof short[]) {
+                histogram = new int[65536];
+                for (short v : (short[]) pixels) {
+                    histogram[v & 0xffff]++;
+                }
+            } else {
+                ip.resetMinAndMax();
+                return new double[]{ip.getMin(), ip.getMax()};
+            }
+
+            long total = 0;
+            for (int count : histogram) {
+                total += count;
+            }
+            long threshold = (long) (total * saturated / 200.0);
+
+            int  low   = 0;
+            long count = 0;
+            while (low < histogram.length - 1 && (count += histogram[low]) <= threshold) {
+                low++;
+            }
+            int high = histogram.length - 1;
+            count = 0;
+            while (high > 0 && (count += histogram[high]) <= threshold) {
+                high--;
+            }
+            return high > low ? new double[]{low, high} : new double[]{0, histogram.length - 1};
+        }
+
+        /**
+         * Builds the table mapping raw pixel values to 8-bit grey for the display range.
+         */
+        private static byte[] buildLut(double min, double max, int size) {
+            byte[] table = new byte[size];
+            double scale = 256.0 / (max - min + 1);
+            for (int v = 0; v < size; v++) {
+                int grey = (int) ((v - min) * scale + 0.5);
+                table[v] = (byte) Math.max(0, Math.min(255, grey));
+            }
+            return table;
+        }
     }
 
     /**
@@ -266,4 +540,4 @@ public class TiffMoviePlayer {
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> new TiffMoviePlayer().playMovie("/Volumes/Extreme Pro/Omero/221012/221012-Exp-3-A4-3.tif"));
     }
-}
\ No newline at end of file
+}
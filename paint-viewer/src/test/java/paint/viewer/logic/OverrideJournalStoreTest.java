@@ -0,0 +1,128 @@
+package paint.viewer.logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that {@link OverrideJournalStore} keeps the CSV layout, compacts the
+ * journal, and replays a journal left behind by an earlier session.
+ */
+public class OverrideJournalStoreTest {
+
+    private static final String HEADER = "experimentName,recordingName,squareId,cellId,timestamp";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void putReplacesInPlaceAndCloseWritesCsv() throws IOException {
+        Path csv = tempDir.resolve("Square Override.csv");
+
+        OverrideJournalStore store = new OverrideJournalStore(csv, HEADER, 3);
+        store.put("e1,r1,1,0,t1");
+        store.put("e1,r1,2,0,t1");
+        store.put("e1,r1,1,3,t2");
+        assertEquals("e1,r1,1,3,t2", store.get("e1,r1,1"));
+        assertEquals(2, store.size());
+        store.close();
+
+        assertEquals(Arrays.asList(HEADER, "e1,r1,1,3,t2", "e1,r1,2,0,t1"), readLines(csv));
+        assertFalse(Files.exists(journalOf(csv)));
+    }
+
+    @Test
+    public void removeDropsRecord() throws IOException {
+        Path csv = tempDir.resolve("Square Override.csv");
+
+        OverrideJournalStore store = new OverrideJournalStore(csv, HEADER, 3);
+        store.putAll(Arrays.asList("e1,r1,1,0,t1", "e1,r1,2,0,t1", "e1,r1,3,0,t1"));
+        store.remove("e1,r1,2");
+        store.remove("e1,r1,9");   // absent: no journal entry
+        assertNull(store.get("e1,r1,2"));
+        store.compact();
+
+        assertEquals(Arrays.asList(HEADER, "e1,r1,1,0,t1", "e1,r1,3,0,t1"), readLines(csv));
+        assertFalse(Files.exists(journalOf(csv)));
+        store.close();
+    }
+
+    @Test
+    public void journalOfUnclosedStoreIsReplayed() throws IOException {
+        Path csv = tempDir.resolve("Square Override.csv");
+
+        OverrideJournalStore first = new OverrideJournalStore(csv, HEADER, 3);
+        first.put("e1,r1,1,0,t1");
+        first.compact();
+        first.put("e1,r1,2,0,t1");
+        first.put("e1,r1,1,5,t2");
+        first.remove("e1,r1,2");
+        first.put("e1,r1,4,0,t3");
+        assertTrue(Files.exists(journalOf(csv)));
+
+        // Not closed, as after a crash
+        OverrideJournalStore second = new OverrideJournalStore(csv, HEADER, 3);
+        assertEquals(2, second.size());
+        assertEquals("e1,r1,1,5,t2", second.get("e1,r1,1"));
+        assertNull(second.get("e1,r1,2"));
+        assertEquals("e1,r1,4,0,t3", second.get("e1,r1,4"));
+
+        // Replay compacts the journal into the CSV
+        assertFalse(Files.exists(journalOf(csv)));
+        assertEquals(Arrays.asList(HEADER, "e1,r1,1,5,t2", "e1,r1,4,0,t3"), readLines(csv));
+        second.close();
+    }
+
+    @Test
+    public void incompleteJournalEntriesAreSkipped() throws IOException {
+        Path csv = tempDir.resolve("Square Override.csv");
+
+        OverrideJournalStore first = new OverrideJournalStore(csv, HEADER, 3);
+        first.put("e1,r1,1,0,t1");
+        first.compact();
+        first.put("e1,r1,2,0,t1");
+
+        // A put with too few fields, then a last entry cut short without a line separator
+        Files.write(journalOf(csv), ("+e1,r1,3,0" + System.lineSeparator() + "+e1,r1,1,7,t")
+                            .getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        OverrideJournalStore second = new OverrideJournalStore(csv, HEADER, 3);
+        assertEquals(2, second.size());
+        assertEquals("e1,r1,1,0,t1", second.get("e1,r1,1"));
+        assertEquals("e1,r1,2,0,t1", second.get("e1,r1,2"));
+        assertNull(second.get("e1,r1,3"));
+        second.close();
+    }
+
+    @Test
+    public void csvWithOtherHeaderIsStartedAfresh() throws IOException {
+        Path csv = tempDir.resolve("Square Override.csv");
+        Files.write(csv, Arrays.asList("something,else", "e1,r1,1,0,t1"), StandardCharsets.UTF_8);
+
+        OverrideJournalStore store = new OverrideJournalStore(csv, HEADER, 3);
+        assertEquals(0, store.size());
+        store.close();
+    }
+
+    // ----------------------------------------------------------------------
+
+    private static Path journalOf(Path csv) {
+        return csv.resolveSibling(csv.getFileName().toString() + ".journal");
+    }
+
+    private static List<String> readLines(Path path) throws IOException {
+        return Files.readAllLines(path, StandardCharsets.UTF_8);
+    }
+}